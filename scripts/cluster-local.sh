@@ -0,0 +1,70 @@
+#!/usr/bin/env bash
+# Lokalny klaster MiniBank: N procesów na localhost, porty od BASE_PORT.
+#
+#   scripts/cluster-local.sh start 3      # buduje jar i startuje 3 węzły
+#   scripts/cluster-local.sh stop
+#
+# Pomiar przepustowości na całym klastrze (żądania rozkładane po węzłach):
+#   mvn test -Dtest=LoadGeneratorTest -Dperf=true -Dperf.targets=http://127.0.0.1:8081,http://127.0.0.1:8082
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+RUN_DIR="$ROOT/target/cluster"
+BASE_PORT="${BASE_PORT:-8081}"
+ROUTING="${ROUTING:-forward}"
+JAVA_OPTS="${JAVA_OPTS:--Xmx512m}"
+
+jar_file() {
+  ls "$ROOT"/target/mini-bank-*.jar 2>/dev/null | grep -v original | head -n 1
+}
+
+start() {
+  local count="${1:-3}"
+  # SKIP_BUILD=1 - użyj istniejącego jara
+  if [ "${SKIP_BUILD:-0}" != "1" ] || [ -z "$(jar_file)" ]; then
+    (cd "$ROOT" && mvn -B -q package -DskipTests)
+  fi
+  local jar
+  jar="$(jar_file)"
+  mkdir -p "$RUN_DIR"
+
+  local nodes=""
+  for ((i = 0; i < count; i++)); do
+    nodes+="${nodes:+,}http://127.0.0.1:$((BASE_PORT + i))"
+  done
+
+  # każdy węzeł trzyma swoje pliki w data/node-PORT
+  for ((i = 0; i < count; i++)); do
+    local port=$((BASE_PORT + i))
+    # shellcheck disable=SC2086
+    nohup java $JAVA_OPTS -jar "$jar" \
+      --server.port="$port" \
+      --server.address=127.0.0.1 \
+      --minibank.cluster.enabled=true \
+      --minibank.cluster.self="http://127.0.0.1:$port" \
+      --minibank.cluster.nodes="$nodes" \
+      --minibank.cluster.routing="$ROUTING" \
+      --minibank.cluster.journal-dir="$ROOT/data/node-$port/cluster" \
+      --minibank.schedule.store-dir="$ROOT/data/node-$port/schedules" \
+      --minibank.accrual.state-dir="$ROOT/data/node-$port/accrual" \
+      --minibank.audit.dir="$ROOT/data/node-$port/audit" \
+      > "$RUN_DIR/node-$port.log" 2>&1 &
+    echo $! > "$RUN_DIR/node-$port.pid"
+    echo "node http://127.0.0.1:$port (pid $!)"
+  done
+  echo "perf.targets=$nodes"
+}
+
+stop() {
+  shopt -s nullglob
+  for pid_file in "$RUN_DIR"/node-*.pid; do
+    kill "$(cat "$pid_file")" 2>/dev/null || true
+    rm -f "$pid_file"
+  done
+}
+
+case "${1:-}" in
+  start) start "${2:-3}" ;;
+  stop) stop ;;
+  *) echo "usage: $0 start [nodes] | stop" >&2; exit 1 ;;
+esac
@@ -0,0 +1,71 @@
+#!/usr/bin/env bash
+# Lider z followerami (repliki tylko do odczytu) na localhost.
+#
+#   scripts/replicas-local.sh start 2     # lider na :8081, followerzy na :8082, :8083
+#   scripts/replicas-local.sh stop
+#
+# Followerzy przekazują zmiany do lidera, więc obciążenie można rozłożyć na wszystkie procesy:
+#   mvn test -Dtest=LoadGeneratorTest -Dperf=true -Dperf.targets=http://127.0.0.1:8082,http://127.0.0.1:8083
+# Opóźnienie repliki: curl http://127.0.0.1:8082/replication/status
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+RUN_DIR="$ROOT/target/replicas"
+BASE_PORT="${BASE_PORT:-8081}"
+REPLICATION_PORT="${REPLICATION_PORT:-7070}"
+JAVA_OPTS="${JAVA_OPTS:--Xmx512m}"
+
+jar_file() {
+  ls "$ROOT"/target/mini-bank-*.jar 2>/dev/null | grep -v original | head -n 1
+}
+
+launch() {
+  local port="$1"
+  shift
+  # każdy proces trzyma swoje pliki w data/node-PORT
+  # shellcheck disable=SC2086
+  nohup java $JAVA_OPTS -jar "$(jar_file)" --server.port="$port" --server.address=127.0.0.1 \
+    --minibank.schedule.store-dir="$ROOT/data/node-$port/schedules" \
+    --minibank.accrual.state-dir="$ROOT/data/node-$port/accrual" \
+    --minibank.audit.dir="$ROOT/data/node-$port/audit" \
+    "$@" \
+    > "$RUN_DIR/node-$port.log" 2>&1 &
+  echo $! > "$RUN_DIR/node-$port.pid"
+}
+
+start() {
+  local followers="${1:-2}"
+  # SKIP_BUILD=1 - użyj istniejącego jara
+  if [ "${SKIP_BUILD:-0}" != "1" ] || [ -z "$(jar_file)" ]; then
+    (cd "$ROOT" && mvn -B -q package -DskipTests)
+  fi
+  mkdir -p "$RUN_DIR"
+
+  launch "$BASE_PORT" \
+    --minibank.replication.role=leader \
+    --minibank.replication.port="$REPLICATION_PORT"
+  echo "leader   http://127.0.0.1:$BASE_PORT (replication port $REPLICATION_PORT)"
+
+  for ((i = 1; i <= followers; i++)); do
+    local port=$((BASE_PORT + i))
+    launch "$port" \
+      --minibank.replication.role=follower \
+      --minibank.replication.leader="127.0.0.1:$REPLICATION_PORT" \
+      --minibank.replication.leader-url="http://127.0.0.1:$BASE_PORT"
+    echo "follower http://127.0.0.1:$port"
+  done
+}
+
+stop() {
+  shopt -s nullglob
+  for pid_file in "$RUN_DIR"/node-*.pid; do
+    kill "$(cat "$pid_file")" 2>/dev/null || true
+    rm -f "$pid_file"
+  done
+}
+
+case "${1:-}" in
+  start) start "${2:-2}" ;;
+  stop) stop ;;
+  *) echo "usage: $0 start [followers] | stop" >&2; exit 1 ;;
+esac
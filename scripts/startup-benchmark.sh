@@ -0,0 +1,137 @@
+#!/usr/bin/env bash
+# Porównanie trybów startu MiniBank: czas od uruchomienia procesu do pierwszej udanej odpowiedzi
+# GET /accounts oraz RSS procesu w tej chwili (mediana z RUNS uruchomień).
+#
+#   scripts/startup-benchmark.sh                 # buduje jar z AOT (mvn -Paot package) i mierzy wszystkie tryby
+#   RUNS=10 scripts/startup-benchmark.sh jit cds # wybrane tryby
+#
+# Tryby:
+#   jit      - zwykły jar
+#   aot      - jar z -Dspring.aot.enabled=true (konfiguracja beanów wygenerowana przy budowaniu)
+#   cds      - jar rozpakowany (jarmode tools) z archiwum AppCDS z przebiegu treningowego
+#   aot-cds  - AOT i AppCDS razem
+#   native   - obraz GraalVM target/mini-bank (mvn -Pnative native:compile); pomijany, jeśli go nie ma
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+RUN_DIR="$ROOT/target/startup"
+PORT="${PORT:-18080}"
+RUNS="${RUNS:-5}"
+JAVA_OPTS="${JAVA_OPTS:--Xmx512m}"
+# dłuższy start traktujemy jak awarię
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-60}"
+
+jar_file() {
+  ls "$ROOT"/target/mini-bank-*.jar 2>/dev/null | grep -v original | head -n 1
+}
+
+now_ms() {
+  date +%s%3N
+}
+
+rss_kb() {
+  if [ -r "/proc/$1/status" ]; then
+    awk '/^VmRSS:/ { print $2 }' "/proc/$1/status"
+  else
+    ps -o rss= -p "$1" | tr -d ' '
+  fi
+}
+
+median() {
+  sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+build() {
+  # SKIP_BUILD=1 - użyj istniejącego jara (musi być zbudowany z -Paot, jeśli mierzymy tryby aot)
+  if [ "${SKIP_BUILD:-0}" != "1" ] || [ -z "$(jar_file)" ]; then
+    (cd "$ROOT" && mvn -B -q -Paot package -DskipTests)
+  fi
+  mkdir -p "$RUN_DIR"
+}
+
+# rozpakowany jar i archiwum CDS z przebiegu, który kończy się zaraz po odświeżeniu kontekstu
+prepare_cds() {
+  local name="$1"
+  shift
+  local dir="$RUN_DIR/$name"
+  rm -rf "$dir"
+  java -Djarmode=tools -jar "$(jar_file)" extract --destination "$dir" > /dev/null
+  # shellcheck disable=SC2086
+  java $JAVA_OPTS "$@" -XX:ArchiveClassesAtExit="$dir/app.jsa" -Dspring.context.exit=onRefresh \
+    -jar "$dir/$(basename "$(jar_file)")" --server.port=0 > "$dir/training.log" 2>&1
+}
+
+command_for() {
+  local jar
+  jar="$(jar_file)"
+  case "$1" in
+    jit) echo "java $JAVA_OPTS -jar $jar" ;;
+    aot) echo "java $JAVA_OPTS -Dspring.aot.enabled=true -jar $jar" ;;
+    cds) echo "java $JAVA_OPTS -XX:SharedArchiveFile=$RUN_DIR/cds/app.jsa -jar $RUN_DIR/cds/$(basename "$jar")" ;;
+    aot-cds) echo "java $JAVA_OPTS -Dspring.aot.enabled=true -XX:SharedArchiveFile=$RUN_DIR/aot-cds/app.jsa -jar $RUN_DIR/aot-cds/$(basename "$jar")" ;;
+    native) echo "$ROOT/target/mini-bank" ;;
+  esac
+}
+
+# jeden start: "czas_ms rss_kb"
+measure_once() {
+  local cmd="$1"
+  local log="$2"
+  local start
+  start="$(now_ms)"
+  # shellcheck disable=SC2086
+  $cmd --server.port="$PORT" --server.address=127.0.0.1 > "$log" 2>&1 &
+  local pid=$!
+  local deadline=$((start + TIMEOUT_SECONDS * 1000))
+  until curl -fs -o /dev/null "http://127.0.0.1:$PORT/accounts"; do
+    if ! kill -0 "$pid" 2>/dev/null || [ "$(now_ms)" -gt "$deadline" ]; then
+      kill "$pid" 2>/dev/null || true
+      echo "start failed, see $log" >&2
+      return 1
+    fi
+    sleep 0.01
+  done
+  local elapsed=$(($(now_ms) - start))
+  local rss
+  rss="$(rss_kb "$pid")"
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  echo "$elapsed $rss"
+}
+
+measure() {
+  local mode="$1"
+  case "$mode" in
+    cds) prepare_cds cds ;;
+    aot-cds) prepare_cds aot-cds -Dspring.aot.enabled=true ;;
+    native)
+      if [ ! -x "$ROOT/target/mini-bank" ]; then
+        printf '%-8s %12s %10s\n' "$mode" "-" "-  (no target/mini-bank, build with mvn -Pnative native:compile)"
+        return
+      fi
+      ;;
+  esac
+  local cmd
+  cmd="$(command_for "$mode")"
+  local times=()
+  local rss=()
+  for ((i = 1; i <= RUNS; i++)); do
+    local result
+    result="$(measure_once "$cmd" "$RUN_DIR/$mode-$i.log")"
+    times+=("${result% *}")
+    rss+=("${result#* }")
+  done
+  printf '%-8s %9s ms %7s MB\n' "$mode" \
+    "$(printf '%s\n' "${times[@]}" | median)" \
+    "$(($(printf '%s\n' "${rss[@]}" | median) / 1024))"
+}
+
+build
+modes=("$@")
+if [ ${#modes[@]} -eq 0 ]; then
+  modes=(jit aot cds aot-cds native)
+fi
+printf '%-8s %12s %10s\n' "mode" "first GET" "RSS"
+for mode in "${modes[@]}"; do
+  measure "$mode"
+done
@@ -1,25 +1,102 @@
 package com.example.minibank;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+// waluta, status i typ konta to kilka powtarzających się wartości - trzymamy je jako kody słownikowe,
+// a createdAt jako epoch millis (UTC). JSON się nie zmienia: gettery i settery nadal operują na tekstach;
+// wartość spoza słownika (waluta spoza ISO 4217, nieznany status albo typ) to IllegalArgumentException
 public class Account {
+
+    private static final ValueDictionary CURRENCIES = new ValueDictionary("currency", currencyCodes());
+    private static final ValueDictionary STATUSES = new ValueDictionary("status", "ACTIVE", "BLOCKED");
+    private static final ValueDictionary ACCOUNT_TYPES = new ValueDictionary("accountType",
+            "CHECKING", "SAVINGS", "PREMIUM", "BUSINESS", "PERSONAL");
+    private static final short BLOCKED = STATUSES.encode("BLOCKED");
+    // brak createdAt
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
     private Long id;
     private String owner;
     private double balance;
-    private String currency;
-    private String status;
-    private String createdAt;
-    private String accountType;
+    private long createdAt = NO_TIMESTAMP;
+    private short currency;
+    private short status;
+    private short accountType;
 
     public Account() {
     }
 
+    // najczęstsze waluty pierwsze, potem pozostałe kody ISO 4217 znane JDK
+    private static List<String> currencyCodes() {
+        List<String> codes = new ArrayList<>(List.of("PLN", "USD", "EUR"));
+        Currency.getAvailableCurrencies().stream().map(Currency::getCurrencyCode).sorted().forEach(codes::add);
+        return codes;
+    }
+
     public Account(Long id, String owner, double balance, String currency, String status, String createdAt, String accountType) {
         this.id = id;
         this.owner = owner;
         this.balance = balance;
-        this.currency = currency;
-        this.status = status;
-        this.createdAt = createdAt;
-        this.accountType = accountType;
+        setCurrency(currency);
+        setStatus(status);
+        setCreatedAt(createdAt);
+        setAccountType(accountType);
+    }
+
+    // kopia - konta opuszczają shard tylko jako kopie
+    public Account(Account other) {
+        this.id = other.id;
+        this.owner = other.owner;
+        this.balance = other.balance;
+        this.createdAt = other.createdAt;
+        this.currency = other.currency;
+        this.status = other.status;
+        this.accountType = other.accountType;
+    }
+
+    // postać binarna dla zimnej warstwy shardu: id, saldo, createdAt, kody słownikowe
+    // i właściciel w UTF-8 poprzedzony długością (-1 - brak); zawsze zaczyna się od id
+    public void writeTo(ByteBuffer out) {
+        out.putLong(id).putDouble(balance).putLong(createdAt)
+                .putShort(currency).putShort(status).putShort(accountType);
+        if (owner == null) {
+            out.putInt(-1);
+            return;
+        }
+        byte[] bytes = owner.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length).put(bytes);
+    }
+
+    // górne oszacowanie rozmiaru postaci binarnej
+    public int maxEncodedSize() {
+        return 34 + (owner == null ? 0 : owner.length() * 3);
+    }
+
+    public static Account readFrom(ByteBuffer in) {
+        Account account = new Account();
+        account.id = in.getLong();
+        account.balance = in.getDouble();
+        account.createdAt = in.getLong();
+        account.currency = in.getShort();
+        account.status = in.getShort();
+        account.accountType = in.getShort();
+        int length = in.getInt();
+        if (length >= 0) {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            account.owner = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return account;
     }
 
     public Long getId() {
@@ -47,34 +124,59 @@ public class Account {
     }
 
     public String getCurrency() {
-        return currency;
+        return CURRENCIES.decode(currency);
     }
 
     public void setCurrency(String currency) {
-        this.currency = currency;
+        this.currency = CURRENCIES.encode(currency);
     }
 
     public String getStatus() {
-        return status;
+        return STATUSES.decode(status);
     }
 
     public void setStatus(String status) {
-        this.status = status;
+        this.status = STATUSES.encode(status);
     }
 
-    public String getCreatedAt() {
+    // bez porównywania tekstów - sprawdzane przy każdym przelewie
+    @JsonIgnore
+    public boolean isBlocked() {
+        return status == BLOCKED;
+    }
+
+    // createdAt jako epoch millis (UTC) dla indeksów; Long.MIN_VALUE - brak daty
+    public long createdAtMillis() {
         return createdAt;
     }
 
+    public String getCreatedAt() {
+        if (createdAt == NO_TIMESTAMP) {
+            return null;
+        }
+        return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(
+                LocalDateTime.ofEpochSecond(Math.floorDiv(createdAt, 1000), (int) Math.floorMod(createdAt, 1000) * 1_000_000,
+                        ZoneOffset.UTC));
+    }
+
+    // format ISO bez strefy (np. 2023-03-15T10:00:00), z dokładnością do milisekund
     public void setCreatedAt(String createdAt) {
-        this.createdAt = createdAt;
+        if (createdAt == null) {
+            this.createdAt = NO_TIMESTAMP;
+            return;
+        }
+        try {
+            this.createdAt = LocalDateTime.parse(createdAt).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid createdAt: " + createdAt);
+        }
     }
 
     public String getAccountType() {
-        return accountType;
+        return ACCOUNT_TYPES.decode(accountType);
     }
 
     public void setAccountType(String accountType) {
-        this.accountType = accountType;
+        this.accountType = ACCOUNT_TYPES.encode(accountType);
     }
 }
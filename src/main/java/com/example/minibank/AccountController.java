@@ -1,14 +1,32 @@
 package com.example.minibank;
 
 import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.ledger.TransactionPage;
+import com.example.minibank.search.AccountSearchCriteria;
+import com.example.minibank.search.AccountSearchPage;
+import com.example.minibank.search.OwnerMatch;
+import com.example.minibank.stats.BalanceDistribution;
+import com.example.minibank.transfer.TransferTicket;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/accounts")
 public class AccountController {
 
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final AccountService accountService;
 
     public AccountController(AccountService accountService) {
@@ -20,6 +38,42 @@ public class AccountController {
         return accountService.getAllAccounts();
     }
 
+    // GET /accounts/search?status=ACTIVE&currency=PLN&accountType=SAVINGS&minBalance=1000&cursor=...&limit=50
+    // createdFrom/createdTo w formacie createdAt konta (np. 2023-01-01T00:00:00)
+    @GetMapping("/search")
+    public AccountSearchPage searchAccounts(@RequestParam(required = false) String currency,
+                                            @RequestParam(required = false) String status,
+                                            @RequestParam(required = false) String accountType,
+                                            @RequestParam(required = false) Double minBalance,
+                                            @RequestParam(required = false) Double maxBalance,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "50") int limit) {
+        AccountSearchCriteria criteria = new AccountSearchCriteria();
+        criteria.setCurrency(currency);
+        criteria.setStatus(status);
+        criteria.setAccountType(accountType);
+        criteria.setMinBalance(minBalance);
+        criteria.setMaxBalance(maxBalance);
+        criteria.setCreatedFrom(createdFrom == null ? null : createdFrom.toInstant(ZoneOffset.UTC).toEpochMilli());
+        criteria.setCreatedTo(createdTo == null ? null : createdTo.toInstant(ZoneOffset.UTC).toEpochMilli());
+        return accountService.searchAccounts(criteria, cursor, limit);
+    }
+
+    // GET /accounts/top?n=10&currency=PLN - bez currency: kwoty bez przeliczania walut
+    @GetMapping("/top")
+    public List<Account> getTopAccounts(@RequestParam(defaultValue = "10") int n,
+                                        @RequestParam(required = false) String currency) {
+        return accountService.getTopAccounts(n, currency);
+    }
+
+    // GET /accounts/stats/distribution?sketch=true - percentyle przybliżone (błąd względny relativeAccuracy)
+    @GetMapping("/stats/distribution")
+    public BalanceDistribution getBalanceDistribution(@RequestParam(defaultValue = "false") boolean sketch) {
+        return accountService.getBalanceDistribution(sketch);
+    }
+
     // GET /accounts/{id}
     @GetMapping("/{id}")
     public Account getAccountById(@PathVariable Long id) {
@@ -27,6 +81,22 @@ public class AccountController {
                 .orElseThrow(() -> new AccountNotFoundException("Account with ID " + id + " not found"));
     }
 
+    // GET /accounts/{id}/transactions?from=2024-01-01T00:00:00Z&to=...&cursor=...&limit=50
+    @GetMapping("/{id}/transactions")
+    public TransactionPage getTransactions(@PathVariable Long id,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "50") int limit) {
+        return accountService.getTransactions(id, from, to, cursor, limit);
+    }
+
+    // GET /accounts/owner/search?prefix=kow&limit=10 - podpowiedzi do autouzupełniania
+    @GetMapping("/owner/search")
+    public List<OwnerMatch> searchOwners(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        return accountService.searchOwners(prefix, limit);
+    }
+
     // GET /accounts/owner/{owner}
     @GetMapping("/owner/{owner}")
     public List<Account> getAccountsByOwner(@PathVariable String owner) {
@@ -39,10 +109,24 @@ public class AccountController {
         return accountService.getAccountsWithBalanceGreaterThan(amount);
     }
 
-    // GET /accounts/totalBalance
+    // GET /accounts/totalBalance, ?asOf=2024-01-31T23:59:59Z albo ?currency=EUR (przeliczona na walutę)
     @GetMapping("/totalBalance")
-    public double getTotalBalance() {
-        return accountService.getTotalBalance();
+    public double getTotalBalance(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant asOf,
+                                  @RequestParam(required = false) String currency) {
+        if (asOf != null && currency != null) {
+            throw new IllegalArgumentException("asOf and currency cannot be combined");
+        }
+        if (currency != null) {
+            return accountService.getTotalBalance(currency);
+        }
+        return asOf == null ? accountService.getTotalBalance() : accountService.getTotalBalanceAsOf(asOf);
+    }
+
+    // GET /accounts/{id}/balance?asOf=2024-01-31T23:59:59Z
+    @GetMapping("/{id}/balance")
+    public double getBalance(@PathVariable Long id,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant asOf) {
+        return accountService.getBalanceAsOf(id, asOf);
     }
 
     @PostMapping
@@ -51,10 +135,45 @@ public class AccountController {
         return "Account added";
     }
 
+    // z nagłówkiem "Prefer: respond-async" przelew jest tylko przyjmowany: 202 z biletem i Location,
+    // wynik pod GET /accounts/transfers/{id}
     @PostMapping("/transfer")
-    public String transfer(@RequestBody TransferRequest request) {
-        boolean success = accountService.transfer(request.getFromId(), request.getToId(), request.getAmount());
-        return success ? "Transfer successful" : "Transfer failed";
+    public ResponseEntity<?> transfer(@RequestBody TransferRequest request,
+                                      @RequestHeader(value = "Prefer", required = false) String prefer) {
+        if (prefer != null && prefer.contains(RESPOND_ASYNC)) {
+            TransferTicket ticket = accountService.submitTransfer(request.getFromId(), request.getToId(), request.getAmount());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/accounts/transfers/" + ticket.getId()))
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(ticket);
+        }
+        TransferOutcome outcome = accountService.executeTransfer(request.getFromId(), request.getToId(), request.getAmount());
+        if (outcome == TransferOutcome.PENDING) {
+            // przelew między węzłami klastra, uznanie zostanie dokończone w tle
+            return ResponseEntity.ok("Transfer pending");
+        }
+        return ResponseEntity.ok(outcome.isSuccess() ? "Transfer successful" : "Transfer failed");
+    }
+
+    // POST /accounts/transactions {"currency": "PLN", "legs": [{"accountId": 1, "amount": -100}, {"accountId": 2, "amount": 100}]}
+    @PostMapping("/transactions")
+    public MultiLegResult executeTransaction(@RequestBody MultiLegRequest request) {
+        return accountService.executeTransaction(request);
+    }
+
+    // GET /accounts/transfers/{id}?wait=10s - przy wait odpowiedź przychodzi, gdy przelew się wykona
+    // albo po wait (długie odpytywanie); wątek Tomcata nie czeka. Samo wait=500 to milisekundy
+    @GetMapping("/transfers/{id}")
+    public CompletableFuture<TransferTicket> getTransfer(@PathVariable String id,
+                                                         @RequestParam(required = false) String wait) {
+        return accountService.awaitTransfer(id, wait == null ? null : DurationStyle.detectAndParse(wait));
+    }
+
+    // GET /accounts/stream?ids=1,2,3 - Server-Sent Events: najpierw aktualne salda, potem każda zmiana
+    // (zdarzenie "balance", a "removed" po usunięciu konta). Wolny klient dostaje tylko najnowsze saldo
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBalances(@RequestParam List<Long> ids) {
+        return accountService.streamBalances(ids);
     }
 
     @DeleteMapping("/{id}")
@@ -1,79 +1,512 @@
 package com.example.minibank;
 
+import com.example.minibank.audit.AuditLog;
+import com.example.minibank.cluster.ClusterRouter;
+import com.example.minibank.cluster.ClusterTransferCoordinator;
+import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.jfr.AccountLookupEvent;
+import com.example.minibank.jfr.AccountQueryEvent;
+import com.example.minibank.jfr.TransferEvent;
+import com.example.minibank.leaderboard.AccountLeaderboard;
+import com.example.minibank.ledger.TransactionLedger;
+import com.example.minibank.ledger.TransactionPage;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.metrics.AccountMetrics.Operation;
+import com.example.minibank.search.AccountSearchCriteria;
+import com.example.minibank.search.AccountSearchIndex;
+import com.example.minibank.search.AccountSearchPage;
+import com.example.minibank.search.OwnerMatch;
+import com.example.minibank.search.OwnerPrefixIndex;
+import com.example.minibank.shard.MultiLegTransaction;
+import com.example.minibank.shard.OperationTrace;
+import com.example.minibank.shard.ShardedAccountStore;
+import com.example.minibank.stats.BalanceDistribution;
+import com.example.minibank.stats.BalanceDistributionIndex;
+import com.example.minibank.stream.BalanceStreams;
+import com.example.minibank.transfer.TransferTicket;
+import com.example.minibank.transfer.TransferTickets;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class AccountService {
 
-    private final Map<Long, Account> accounts = new HashMap<>();
+    // najwięcej nóg w jednej transakcji wielostronnej
+    private static final int MAX_LEGS = 1_000;
+
+    // konta podzielone na shardy, każdy obsługiwany przez własny wątek
+    private final ShardedAccountStore store;
+    private final AccountMetrics metrics;
+    // historia przelewów, wpłat i usunięć
+    private final TransactionLedger ledger;
+    // tryb klastra: przelewy, w których drugie konto należy do innego węzła
+    private final ClusterRouter router;
+    private final ClusterTransferCoordinator coordinator;
+    // indeksy bitmapowe dla wyszukiwania po kilku atrybutach
+    private final AccountSearchIndex searchIndex;
+    // największe salda, aktualizowane przy każdej zmianie
+    private final AccountLeaderboard leaderboard;
+    // szkice i histogramy sald, aktualizowane przy każdej zmianie
+    private final BalanceDistributionIndex distribution;
+    // drzewo prefiksów nazw właścicieli
+    private final OwnerPrefixIndex ownerIndex;
+    // przelewy przyjęte asynchronicznie (202)
+    private final TransferTickets tickets;
+    // subskrybenci zmian sald (SSE)
+    private final BalanceStreams streams;
+    // rekordy audytu, zapisywane do plików w tle
+    private final AuditLog audit;
+
+    // samodzielna instancja (testy, benchmarki): jeden shard na rdzeń, bez klastra
+    public AccountService(AccountMetrics metrics) {
+        this(metrics, new ShardedAccountStore(Runtime.getRuntime().availableProcessors(), metrics));
+    }
+
+    // samodzielna instancja na podanym magazynie (inna liczba shardów, limit kont na stercie)
+    public AccountService(AccountMetrics metrics, ShardedAccountStore store) {
+        this(metrics, store, AuditLog.disabled());
+    }
+
+    // samodzielna instancja z dziennikiem audytu
+    public AccountService(AccountMetrics metrics, ShardedAccountStore store, AuditLog audit) {
+        this(metrics, store, new TransactionLedger(), ClusterRouter.standalone(), null, audit);
+    }
+
+    private AccountService(AccountMetrics metrics, ShardedAccountStore store, TransactionLedger ledger,
+                           ClusterRouter router, ClusterTransferCoordinator coordinator, AuditLog audit) {
+        this(metrics, store, ledger, router, coordinator, new AccountSearchIndex(store), new AccountLeaderboard(store),
+                new BalanceDistributionIndex(store), new OwnerPrefixIndex(store), new TransferTickets(metrics),
+                new BalanceStreams(store, metrics), audit);
+    }
 
-    public AccountService() {
+    @Autowired
+    public AccountService(AccountMetrics metrics, ShardedAccountStore store, TransactionLedger ledger,
+                          ClusterRouter router, ClusterTransferCoordinator coordinator,
+                          AccountSearchIndex searchIndex, AccountLeaderboard leaderboard,
+                          BalanceDistributionIndex distribution, OwnerPrefixIndex ownerIndex,
+                          TransferTickets tickets, BalanceStreams streams, AuditLog audit) {
+        this.metrics = metrics;
+        this.store = store;
+        this.ledger = ledger;
+        this.router = router;
+        this.coordinator = coordinator;
+        this.searchIndex = searchIndex;
+        this.leaderboard = leaderboard;
+        this.distribution = distribution;
+        this.ownerIndex = ownerIndex;
+        this.tickets = tickets;
+        this.streams = streams;
+        this.audit = audit;
+        metrics.gauge("minibank.accounts.size", "Number of accounts in the store", store, ShardedAccountStore::size);
+        metrics.gauge("minibank.ledger.entries", "Entries in the transaction ledger", ledger, TransactionLedger::size);
         // dane startowe
 //        accounts.put(1L, new Account(1L, "Alice", 1000));
  //       accounts.put(2L, new Account(2L, "Bob", 500));
     }
 
     public List<Account> getAllAccounts() {
-        return new ArrayList<>(accounts.values());
+        long start = System.nanoTime();
+        AccountQueryEvent event = new AccountQueryEvent();
+        event.begin();
+        try {
+            List<Account> result = store.collect(account -> true);
+            event.complete("getAllAccounts", null, result.size());
+            return result;
+        } finally {
+            metrics.recordOperation(Operation.LIST, start);
+        }
     }
 
     public void addAccount(Account account) {
-        if (accounts.containsKey(account.getId())) {
-            throw new IllegalArgumentException("Account with this ID already exists");
+        long start = System.nanoTime();
+        try {
+            if (account.getId() == null) {
+                throw new IllegalArgumentException("Account ID is required");
+            }
+            // wpis w księdze w zadaniu shardu - przed każdą późniejszą operacją na koncie
+            store.add(account, () -> ledger.recordDeposit(account.getId(), account.getBalance()));
+            audit.accountCreated(account.getId(), account.getBalance());
+        } finally {
+            metrics.recordOperation(Operation.ADD, start);
         }
-        accounts.put(account.getId(), account);
     }
 
 
     public Optional<Account> getAccountById(Long id) {
-        return Optional.ofNullable(accounts.get(id));
+        long start = System.nanoTime();
+        AccountLookupEvent event = new AccountLookupEvent();
+        event.begin();
+        try {
+            Optional<Account> account = id == null ? Optional.empty() : store.get(id);
+            event.complete(id, account.isPresent());
+            return account;
+        } finally {
+            metrics.recordOperation(Operation.LOOKUP, start);
+        }
     }
 
     public boolean transfer(Long fromId, Long toId, double amount) {
-        Optional<Account> from = getAccountById(fromId);
-        Optional<Account> to = getAccountById(toId);
+        return executeTransfer(fromId, toId, amount).isSuccess();
+    }
+
+    // przelew z powodem porażki
+    public TransferOutcome executeTransfer(Long fromId, Long toId, double amount) {
+        if (fromId != null && !router.isLocal(fromId)) {
+            // przelew wykonuje węzeł, do którego należy konto źródłowe
+            return coordinator.forwardTransfer(fromId, toId == null ? -1 : toId, amount);
+        }
+        return executeOwnedTransfer(fromId, toId, amount);
+    }
 
-        if (from.isPresent() && to.isPresent() && from.get().getBalance() >= amount) {
-            from.get().setBalance(from.get().getBalance() - amount);
-            to.get().setBalance(to.get().getBalance() + amount);
-            return true;
+    // przelew z konta należącego do tego węzła
+    public TransferOutcome executeOwnedTransfer(Long fromId, Long toId, double amount) {
+        long start = System.nanoTime();
+        TransferEvent event = new TransferEvent();
+        event.begin();
+        OperationTrace trace = new OperationTrace();
+        TransferOutcome outcome = null;
+        try {
+            if (fromId == null || toId == null) {
+                outcome = TransferOutcome.ACCOUNT_NOT_FOUND;
+            } else if (router.isLocal(toId)) {
+                outcome = ShardedAccountStore.join(transferLocal(fromId, toId, amount, trace));
+            } else {
+                // wpisy w księdze robią koordynatory obu węzłów, każdy dla swojej strony przelewu
+                outcome = coordinator.transferToRemote(fromId, toId, amount, trace);
+            }
+            return outcome;
+        } finally {
+            completeTransfer(fromId, toId, amount, outcome, trace, event, start);
         }
-        return false;
+    }
+
+    // przelew w obrębie węzła; wpis w księdze w zadaniu shardu, które go zatwierdza - kolejność wpisów konta
+    // jest kolejnością operacji jego shardu (np. przelew nie trafi do księgi po usunięciu konta)
+    private CompletableFuture<TransferOutcome> transferLocal(long fromId, long toId, double amount,
+                                                             OperationTrace trace) {
+        trace.onCommit(() -> ledger.recordTransfer(fromId, toId, amount, trace.getCreditedAmount()));
+        return store.transfer(fromId, toId, amount, trace);
+    }
+
+    // zakończenie przelewu wspólne dla ścieżki synchronicznej i biletów: audyt, zdarzenie JFR i metryki.
+    // outcome == null - przelew przerwany wyjątkiem: liczony jako ACCOUNT_NOT_FOUND, bez rekordu audytu
+    private TransferOutcome completeTransfer(Long fromId, Long toId, double amount, TransferOutcome outcome,
+                                             OperationTrace trace, TransferEvent event, long start) {
+        TransferOutcome result = outcome == null ? TransferOutcome.ACCOUNT_NOT_FOUND : outcome;
+        try {
+            if (outcome != null && fromId != null && toId != null) {
+                audit.transfer(fromId, toId, amount, trace.getCreditedAmount(), outcome);
+            }
+        } finally {
+            event.complete(fromId, toId, amount, result, trace.getQueueWaitNanos());
+            metrics.recordTransfer(result);
+            metrics.recordOperation(Operation.TRANSFER, start);
+        }
+        return result;
+    }
+
+    // transakcja wielostronna (np. podział opłaty, lista płac): wszystkie nogi albo żadna
+    public MultiLegResult executeTransaction(MultiLegRequest request) {
+        long start = System.nanoTime();
+        try {
+            List<MultiLegRequest.Leg> legs = request.getLegs();
+            if (legs == null || legs.size() < 2 || legs.size() > MAX_LEGS) {
+                throw new IllegalArgumentException("A transaction needs between 2 and " + MAX_LEGS + " legs");
+            }
+            long[] ids = new long[legs.size()];
+            double[] amounts = new double[legs.size()];
+            for (int i = 0; i < legs.size(); i++) {
+                Long id = legs.get(i).getAccountId();
+                if (id == null) {
+                    throw new IllegalArgumentException("Every leg needs an account id");
+                }
+                if (!router.isLocal(id)) {
+                    // nogi na kilku węzłach wymagałyby rozproszonego commitu
+                    throw new IllegalArgumentException("Account " + id + " belongs to node " + router.ownerOf(id));
+                }
+                ids[i] = id;
+                amounts[i] = legs.get(i).getAmount();
+            }
+            MultiLegTransaction tx = new MultiLegTransaction(ids, amounts, request.getCurrency());
+            double[] booked = new double[tx.legs()];
+            TransferOutcome outcome = ShardedAccountStore.join(store.transact(tx, () -> {
+                for (int i = 0; i < booked.length; i++) {
+                    booked[i] = tx.booked(i);
+                }
+                ledger.recordPostings(ids, booked);
+            }));
+            if (outcome.isSuccess()) {
+                for (int i = 0; i < booked.length; i++) {
+                    audit.posting(ids[i], booked[i]);
+                }
+                return new MultiLegResult(outcome, null, tx.legs());
+            }
+            return new MultiLegResult(outcome, tx.failedAccountId(), tx.legs());
+        } finally {
+            metrics.recordOperation(Operation.MULTI_LEG, start);
+        }
+    }
+
+    // przelew przyjęty bez czekania na wykonanie; wynik w bilecie. Przelew lokalny idzie prosto
+    // do kolejek shardów, a księga i metryki są dopisywane na executorze biletów, gdy shardy skończą -
+    // wątek żądania nie czeka na żaden etap. Pozostałe (między węzłami) wykonuje w całości executor
+    public TransferTicket submitTransfer(Long fromId, Long toId, double amount) {
+        TransferTicket ticket = tickets.open(fromId, toId, amount);
+        if (fromId != null && toId != null && router.isLocal(fromId) && router.isLocal(toId)) {
+            long start = System.nanoTime();
+            TransferEvent event = new TransferEvent();
+            event.begin();
+            OperationTrace trace = new OperationTrace();
+            transferLocal(fromId, toId, amount, trace).handleAsync((outcome, error) -> {
+                TransferOutcome result = TransferOutcome.ACCOUNT_NOT_FOUND;
+                try {
+                    result = completeTransfer(fromId, toId, amount, error == null ? outcome : null, trace, event,
+                            start);
+                } finally {
+                    tickets.complete(ticket, result);
+                }
+                return null;
+            }, tickets.executor());
+        } else {
+            tickets.executor().execute(() -> {
+                TransferOutcome result = TransferOutcome.ACCOUNT_NOT_FOUND;
+                try {
+                    result = executeTransfer(fromId, toId, amount);
+                } finally {
+                    tickets.complete(ticket, result);
+                }
+            });
+        }
+        return ticket;
+    }
+
+    public TransferTicket getTransfer(String id) {
+        return tickets.get(id);
+    }
+
+    // stan biletu, najwyżej po wait, jeśli przelew jeszcze trwa
+    public CompletableFuture<TransferTicket> awaitTransfer(String id, Duration wait) {
+        return tickets.await(id, wait);
+    }
+
+    // strumień sald podanych kont; zmiany publikuje listener shardów, więc konta muszą należeć do tego węzła
+    public SseEmitter streamBalances(List<Long> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("Account ids are required");
+        }
+        for (Long id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("Account ids are required");
+            }
+            if (!router.isLocal(id)) {
+                throw new IllegalArgumentException("Account " + id + " belongs to node " + router.ownerOf(id));
+            }
+        }
+        return streams.subscribe(ids);
     }
 
     // zwróci wszystkie konta przypisane do ownera
 
     public List<Account> getAccountsByOwner (String owner) {
-        return accounts.values().stream()
-                .filter(account -> account.getOwner().equalsIgnoreCase(owner))
-                .toList();
+        long start = System.nanoTime();
+        AccountQueryEvent event = new AccountQueryEvent();
+        event.begin();
+        try {
+            List<Account> result = store.collect(account -> account.getOwner().equalsIgnoreCase(owner));
+            event.complete("getAccountsByOwner", owner, result.size());
+            return result;
+        } finally {
+            metrics.recordOperation(Operation.OWNER_QUERY, start);
+        }
+    }
+
+    // podpowiedzi właścicieli, których nazwa zaczyna się od prefix (bez wielkości liter i znaków diakrytycznych)
+    public List<OwnerMatch> searchOwners(String prefix, int limit) {
+        long start = System.nanoTime();
+        AccountQueryEvent event = new AccountQueryEvent();
+        event.begin();
+        try {
+            List<OwnerMatch> result = ownerIndex.search(prefix, limit);
+            event.complete("searchOwners", prefix, result.size());
+            return result;
+        } finally {
+            metrics.recordOperation(Operation.OWNER_SEARCH, start);
+        }
     }
 
     // zwroci wszystkie konta, ktorych saldo jest większe niz podana kwota
 
     public List<Account> getAccountsWithBalanceGreaterThan (double amount) {
-        return accounts.values().stream()
-                .filter(account -> account.getBalance() > amount)
-                .toList();
+        long start = System.nanoTime();
+        AccountQueryEvent event = new AccountQueryEvent();
+        event.begin();
+        try {
+            List<Account> result = store.collect(account -> account.getBalance() > amount);
+            event.complete("getAccountsWithBalanceGreaterThan", amount, result.size());
+            return result;
+        } finally {
+            metrics.recordOperation(Operation.BALANCE_QUERY, start);
+        }
+    }
+
+    // konta spełniające wszystkie podane warunki; cursor - id ostatniego konta z poprzedniej strony
+    public AccountSearchPage searchAccounts(AccountSearchCriteria criteria, String cursor, int limit) {
+        long start = System.nanoTime();
+        AccountQueryEvent event = new AccountQueryEvent();
+        event.begin();
+        try {
+            if (limit <= 0 || limit > 1000) {
+                throw new IllegalArgumentException("Limit must be between 1 and 1000");
+            }
+            long after;
+            try {
+                after = cursor == null || cursor.isBlank() ? Long.MIN_VALUE : Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            AccountSearchPage page = searchIndex.search(criteria, after, limit);
+            event.complete("searchAccounts", criteria, page.getAccounts().size());
+            return page;
+        } finally {
+            metrics.recordOperation(Operation.SEARCH, start);
+        }
+    }
+
+    // n kont z największym saldem, opcjonalnie tylko w walucie currency
+    public List<Account> getTopAccounts(int n, String currency) {
+        long start = System.nanoTime();
+        AccountQueryEvent event = new AccountQueryEvent();
+        event.begin();
+        try {
+            List<Account> result = leaderboard.top(n, currency);
+            event.complete("getTopAccounts", currency, result.size());
+            return result;
+        } finally {
+            metrics.recordOperation(Operation.TOP, start);
+        }
+    }
+
+    // percentyle, histogram, średnia i wariancja sald - ogółem i per typ konta, bez przeglądania kont.
+    // sketch - dołącza stan szkiców do scalenia z innymi węzłami
+    public BalanceDistribution getBalanceDistribution(boolean sketch) {
+        long start = System.nanoTime();
+        AccountQueryEvent event = new AccountQueryEvent();
+        event.begin();
+        try {
+            BalanceDistribution result = distribution.distribution(sketch);
+            event.complete("getBalanceDistribution", null, (int) result.getOverall().getCount());
+            return result;
+        } finally {
+            metrics.recordOperation(Operation.DISTRIBUTION, start);
+        }
+    }
+
+    // saldo konta na chwilę asOf, odtworzone z księgi; bez asOf - saldo bieżące
+    public double getBalanceAsOf(Long id, Instant asOf) {
+        if (asOf == null) {
+            return getAccountById(id)
+                    .orElseThrow(() -> new AccountNotFoundException("Account with ID " + id + " not found"))
+                    .getBalance();
+        }
+        long start = System.nanoTime();
+        try {
+            OptionalDouble balance = id == null ? OptionalDouble.empty() : ledger.balanceAsOf(id, asOf.toEpochMilli());
+            if (balance.isEmpty()) {
+                throw new AccountNotFoundException("Account with ID " + id + " did not exist at " + asOf);
+            }
+            return balance.getAsDouble();
+        } finally {
+            metrics.recordOperation(Operation.AS_OF_BALANCE, start);
+        }
+    }
+
+    // suma wszystkich sald na chwilę asOf (np. koniec dnia)
+    public double getTotalBalanceAsOf(Instant asOf) {
+        long start = System.nanoTime();
+        try {
+            return ledger.totalBalanceAsOf(asOf.toEpochMilli());
+        } finally {
+            metrics.recordOperation(Operation.AS_OF_BALANCE, start);
+        }
     }
 
     // zwróci sume wszystkich środków we wszystkich kontach
 
     public double getTotalBalance() {
-        return accounts.values().stream()
-                .mapToDouble(Account::getBalance)
-                .sum();
+        long start = System.nanoTime();
+        AccountQueryEvent event = new AccountQueryEvent();
+        event.begin();
+        try {
+            double total = store.totalBalance();
+            event.complete("getTotalBalance", null, store.size());
+            return total;
+        } finally {
+            metrics.recordOperation(Operation.TOTAL_BALANCE, start);
+        }
+    }
+
+    // suma sald przeliczona na walutę currency (konta bez waluty liczone bez przeliczenia)
+    public double getTotalBalance(String currency) {
+        long start = System.nanoTime();
+        AccountQueryEvent event = new AccountQueryEvent();
+        event.begin();
+        try {
+            double total = store.totalBalance(currency);
+            event.complete("getTotalBalance", currency, store.size());
+            return total;
+        } finally {
+            metrics.recordOperation(Operation.TOTAL_BALANCE, start);
+        }
     }
 
     // usuwanie konta po id
 
     public boolean deleteAccount(Long id) {
-        if (accounts.containsKey(id)) {
-            accounts.remove(id);
-            return true;
+        long start = System.nanoTime();
+        try {
+            Optional<Account> removed = id == null ? Optional.empty()
+                    : store.removeAccount(id, account -> ledger.recordDeletion(id, account.getBalance()));
+            removed.ifPresent(account -> audit.accountDeleted(id, account.getBalance()));
+            return removed.isPresent();
+        } finally {
+            metrics.recordOperation(Operation.DELETE, start);
+        }
+    }
+
+    // historia konta z księgi; cursor - numer ostatniego wpisu z poprzedniej strony.
+    // Historia zostaje także po usunięciu konta
+    public TransactionPage getTransactions(Long id, Instant from, Instant to, String cursor, int limit) {
+        long start = System.nanoTime();
+        AccountQueryEvent event = new AccountQueryEvent();
+        event.begin();
+        try {
+            if (limit <= 0 || limit > 1000) {
+                throw new IllegalArgumentException("Limit must be between 1 and 1000");
+            }
+            if (id == null || (!ledger.hasHistory(id) && store.get(id).isEmpty())) {
+                throw new AccountNotFoundException("Account with ID " + id + " not found");
+            }
+            long after;
+            try {
+                after = cursor == null || cursor.isBlank() ? 0 : Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            TransactionPage page = ledger.page(id,
+                    from == null ? Long.MIN_VALUE : from.toEpochMilli(),
+                    to == null ? Long.MAX_VALUE : to.toEpochMilli(),
+                    after, limit);
+            event.complete("getTransactions", id, page.getTransactions().size());
+            return page;
+        } finally {
+            metrics.recordOperation(Operation.HISTORY, start);
         }
-        return false;
     }
 
 }
@@ -1,11 +1,18 @@
 package com.example.minibank;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.exception.AccrualRunNotFoundException;
+import com.example.minibank.exception.ClusterNodeUnavailableException;
+import com.example.minibank.exception.ScheduledTransferNotFoundException;
+import com.example.minibank.exception.StreamCapacityExceededException;
+import com.example.minibank.exception.TransferBacklogFullException;
+import com.example.minibank.exception.TransferTicketNotFoundException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -21,5 +28,43 @@ public class GlobalExceptionHandler {
     public String handleAccountNotFound(AccountNotFoundException ex) {
         return ex.getMessage();
     }
-}
 
+    @ExceptionHandler(ScheduledTransferNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public String handleScheduledTransferNotFound(ScheduledTransferNotFoundException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(AccrualRunNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public String handleAccrualRunNotFound(AccrualRunNotFoundException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(TransferTicketNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public String handleTransferTicketNotFound(TransferTicketNotFoundException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(TransferBacklogFullException.class)
+    public ResponseEntity<String> handleTransferBacklogFull(TransferBacklogFullException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(StreamCapacityExceededException.class)
+    public ResponseEntity<String> handleStreamCapacityExceeded(StreamCapacityExceededException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "5")
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(ClusterNodeUnavailableException.class)
+    public ResponseEntity<String> handleClusterNodeUnavailable(ClusterNodeUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(ex.getMessage());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.minibank;
+
+import java.util.List;
+
+// POST /accounts/transactions: kwoty nóg w walucie currency, ujemne - obciążenie, dodatnie - uznanie
+public class MultiLegRequest {
+    private String currency;
+    private List<Leg> legs;
+
+    public static class Leg {
+        private Long accountId;
+        private double amount;
+
+        public Leg() {
+        }
+
+        public Leg(Long accountId, double amount) {
+            this.accountId = accountId;
+            this.amount = amount;
+        }
+
+        // gettery i settery
+        public Long getAccountId() {
+            return accountId;
+        }
+        public void setAccountId(Long accountId) {
+            this.accountId = accountId;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+        public void setAmount(double amount) {
+            this.amount = amount;
+        }
+    }
+
+    public MultiLegRequest() {
+    }
+
+    public MultiLegRequest(String currency, List<Leg> legs) {
+        this.currency = currency;
+        this.legs = legs;
+    }
+
+    // gettery i settery
+    public String getCurrency() {
+        return currency;
+    }
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public List<Leg> getLegs() {
+        return legs;
+    }
+    public void setLegs(List<Leg> legs) {
+        this.legs = legs;
+    }
+}
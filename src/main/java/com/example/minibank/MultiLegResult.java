@@ -0,0 +1,42 @@
+package com.example.minibank;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// wynik transakcji wielostronnej; failedAccountId - konto nogi, przez którą nic nie zostało wykonane
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MultiLegResult {
+    private TransferOutcome outcome;
+    private Long failedAccountId;
+    private int legs;
+
+    public MultiLegResult() {
+    }
+
+    public MultiLegResult(TransferOutcome outcome, Long failedAccountId, int legs) {
+        this.outcome = outcome;
+        this.failedAccountId = failedAccountId;
+        this.legs = legs;
+    }
+
+    // gettery i settery
+    public TransferOutcome getOutcome() {
+        return outcome;
+    }
+    public void setOutcome(TransferOutcome outcome) {
+        this.outcome = outcome;
+    }
+
+    public Long getFailedAccountId() {
+        return failedAccountId;
+    }
+    public void setFailedAccountId(Long failedAccountId) {
+        this.failedAccountId = failedAccountId;
+    }
+
+    public int getLegs() {
+        return legs;
+    }
+    public void setLegs(int legs) {
+        this.legs = legs;
+    }
+}
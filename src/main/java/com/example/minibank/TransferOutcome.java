@@ -0,0 +1,18 @@
+package com.example.minibank;
+
+// wynik przelewu - powód porażki trafia do metryk
+public enum TransferOutcome {
+    SUCCESS,
+    ACCOUNT_NOT_FOUND,
+    INSUFFICIENT_FUNDS,
+    // brak kursu między walutami kont
+    UNSUPPORTED_CURRENCY,
+    // konto źródłowe albo docelowe ma status BLOCKED
+    ACCOUNT_BLOCKED,
+    // przelew między węzłami klastra, którego uznanie jeszcze nie zostało potwierdzone
+    PENDING;
+
+    public boolean isSuccess() {
+        return this == SUCCESS;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.minibank;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// słownik powtarzających się wartości tekstowych (waluta, status, typ konta) -> kod short.
+// Kod 0 to null. Zbiór wartości jest zamknięty i znany z góry - wartość spoza niego jest odrzucana
+// przed nadaniem kodu, więc słownik nie rośnie z danymi wejściowymi; odczyt bez blokady
+final class ValueDictionary {
+
+    private final String name;
+    private final Map<String, Short> codes;
+    private final String[] values;
+
+    ValueDictionary(String name, List<String> known) {
+        if (known.size() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many distinct " + name + " values");
+        }
+        this.name = name;
+        List<String> distinct = new ArrayList<>();
+        distinct.add(null);
+        known.stream().distinct().forEach(distinct::add);
+        this.values = distinct.toArray(String[]::new);
+        Map<String, Short> byValue = new HashMap<>();
+        for (short code = 1; code < values.length; code++) {
+            byValue.put(values[code], code);
+        }
+        this.codes = Map.copyOf(byValue);
+    }
+
+    ValueDictionary(String name, String... known) {
+        this(name, List.of(known));
+    }
+
+    short encode(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Short code = codes.get(value);
+        if (code == null) {
+            throw new IllegalArgumentException("Unknown " + name + ": " + value);
+        }
+        return code;
+    }
+
+    String decode(short code) {
+        return values[code];
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.minibank.admission;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// adaptacyjny limit równoległych żądań (gradientowy, jak w Netflix concurrency-limits).
+// Dwie średnie czasu odpowiedzi: krótka (ostatnie żądania) i długa (stan "bez kolejki").
+// gradient = tolerance * długa / krótka, przycięty do [0.5, 1]: gdy żądania zaczynają czekać
+// (krótka rośnie), limit maleje proporcjonalnie; przy stabilnym czasie rośnie o sqrt(limit) na próbkę,
+// ale tylko gdy limit jest faktycznie wykorzystywany.
+// Żądanie ponad limit czeka w ograniczonej kolejce najwyżej queueTimeout; potem - odrzucenie
+final class AdaptiveLimiter {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int queueSize;
+    private final long queueTimeoutNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private double shortRtt;
+    private double longRtt;
+
+    AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int queueSize, long queueTimeoutNanos) {
+        if (minLimit <= 0 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < min <= initial <= max");
+        }
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("Queue size must not be negative");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.queueSize = queueSize;
+        this.queueTimeoutNanos = queueTimeoutNanos;
+    }
+
+    // liczba żądań w toku razem z tym (po wejściu trzeba wywołać release) albo -1 - żądanie do odrzucenia
+    int acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                return ++inFlight;
+            }
+            if (waiting >= queueSize) {
+                return -1;
+            }
+            waiting++;
+            try {
+                long remaining = queueTimeoutNanos;
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                return ++inFlight;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // rttNanos - czas obsługi żądania (bez czekania w kolejce); inFlightAtStart - ile żądań było w toku przy wejściu
+    void release(long rttNanos, int inFlightAtStart) {
+        lock.lock();
+        try {
+            inFlight--;
+            sample(rttNanos, inFlightAtStart);
+            // limit mógł wzrosnąć o więcej niż jedno miejsce
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sample(long rttNanos, int inFlightAtStart) {
+        double rtt = Math.max(rttNanos, 1);
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+            return;
+        }
+        shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+        longRtt += (rtt - longRtt) / LONG_WINDOW;
+        // po długim przeciążeniu długa średnia goni krótką, żeby limit mógł znowu rosnąć
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        if (gradient == 1.0 && inFlightAtStart < limit / 2) {
+            // limit nie był potrzebny - brak sygnału, żeby go podnosić
+            return;
+        }
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int waiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.minibank.admission;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+// kontrola przyjęć przed wszystkimi innymi filtrami /accounts: osobne adaptacyjne limity
+// dla odczytów (GET/HEAD) i zapisów. Przy przeciążeniu nadmiarowe żądania dostają od razu 503
+// z Retry-After, zamiast zajmować wątki Tomcata i wydłużać czas odpowiedzi wszystkim pozostałym.
+// Metryki przez MeterBinder - filtr działa także bez rejestru (np. w testach @WebMvcTest)
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(prefix = "minibank.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private final AdaptiveLimiter reads;
+    private final AdaptiveLimiter writes;
+    private final LongAdder readsRejected = new LongAdder();
+    private final LongAdder writesRejected = new LongAdder();
+    private final String retryAfter;
+
+    public AdmissionControlFilter(@Value("${minibank.admission.read-limit:100}") int readLimit,
+                                  @Value("${minibank.admission.write-limit:20}") int writeLimit,
+                                  @Value("${minibank.admission.max-limit:1000}") int maxLimit,
+                                  @Value("${minibank.admission.queue-size:50}") int queueSize,
+                                  @Value("${minibank.admission.queue-timeout:20ms}") Duration queueTimeout,
+                                  @Value("${minibank.admission.retry-after:1s}") Duration retryAfter) {
+        this.reads = new AdaptiveLimiter(readLimit, Math.min(4, readLimit), maxLimit, queueSize, queueTimeout.toNanos());
+        this.writes = new AdaptiveLimiter(writeLimit, Math.min(4, writeLimit), maxLimit, queueSize, queueTimeout.toNanos());
+        this.retryAfter = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        register(registry, "read", reads, readsRejected);
+        register(registry, "write", writes, writesRejected);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/accounts");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean read = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        AdaptiveLimiter limiter = read ? reads : writes;
+        int inFlight;
+        try {
+            inFlight = limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight = -1;
+        }
+        if (inFlight < 0) {
+            (read ? readsRejected : writesRejected).increment();
+            overloaded(response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start, inFlight);
+        }
+    }
+
+    private void overloaded(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", retryAfter);
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getOutputStream().write("Server is overloaded, retry later".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void register(MeterRegistry registry, String kind, AdaptiveLimiter limiter, LongAdder rejected) {
+        Gauge.builder("minibank.admission.limit", limiter, AdaptiveLimiter::limit)
+                .description("Current adaptive concurrency limit")
+                .tag("kind", kind)
+                .register(registry);
+        Gauge.builder("minibank.admission.in-flight", limiter, AdaptiveLimiter::inFlight)
+                .description("Requests currently admitted")
+                .tag("kind", kind)
+                .register(registry);
+        FunctionCounter.builder("minibank.admission.rejected", rejected, LongAdder::sum)
+                .description("Requests rejected by admission control")
+                .tag("kind", kind)
+                .register(registry);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.minibank.audit;
+
+// rodzaj rekordu audytu
+public enum AuditEvent {
+    ACCOUNT_CREATED,
+    // każda próba przelewu, także nieudana - z wynikiem
+    TRANSFER,
+    // noga zatwierdzonej transakcji wielostronnej
+    POSTING,
+    ACCOUNT_DELETED
+}
@@ -0,0 +1,215 @@
+package com.example.minibank.audit;
+
+import com.example.minibank.TransferOutcome;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// pliki audytu: audit-<czas UTC>-<nr>.log.gz, jedna linia na rekord, pola rozdzielone tabulatorem
+// (czas, rodzaj, konto, drugie konto, kwota, kwota uznania, wynik; puste pole - nie dotyczy albo brak uznania).
+// Rekordy zbierane są w paczkę w pamięci i zapisywane jednym wywołaniem; gzip z flush synchronizującym,
+// więc po awarii plik bez zakończenia da się odczytać do ostatniego flush (zcat). Kompresja najszybsza
+// (BEST_SPEED) - domyślny poziom kosztuje kilka razy więcej CPU na rekord przy podobnym rozmiarze. Nowy plik po
+// maxFileBytes danych przed kompresją; najstarsze pliki ponad maxFiles są usuwane (0 - wszystkie zostają).
+// Paczka niezapisana przez błąd czeka na następną próbę, ale najwyżej maxBatchChars znaków - ponad to
+// nowe rekordy są porzucane (jak przy DROP) i liczone w dropped.
+// Wywołania pod monitorem obiektu - wątek zapisujący i wątki zrzucające przy SPILL
+final class AuditFileWriter implements AuditRingBuffer.Sink, Closeable {
+
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".log.gz";
+    private static final DateTimeFormatter FILE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+    private static final AuditEvent[] EVENTS = AuditEvent.values();
+    private static final TransferOutcome[] OUTCOMES = TransferOutcome.values();
+    static final long NO_ACCOUNT = Long.MIN_VALUE;
+    static final byte NO_OUTCOME = -1;
+    // ok. 40 paczek wątku zapisującego
+    static final int DEFAULT_MAX_BATCH_CHARS = 16 << 20;
+
+    private final Path dir;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final int maxBatchChars;
+    private final LongAdder dropped;
+    private final StringBuilder batch = new StringBuilder(64 * 1024);
+    // rekordy w paczce
+    private int batchRecords;
+    private OutputStream out;
+    private long fileBytes;
+    private int files;
+    // rekordy z tej samej milisekundy dzielą sformatowany czas
+    private long lastMillis = Long.MIN_VALUE;
+    private String lastTime;
+
+    AuditFileWriter(Path dir, long maxFileBytes, int maxFiles, int maxBatchChars, LongAdder dropped) throws IOException {
+        if (maxFileBytes <= 0 || maxFiles < 0) {
+            throw new IllegalArgumentException("Audit file size must be positive and file count non-negative");
+        }
+        if (maxBatchChars <= 0) {
+            throw new IllegalArgumentException("Audit batch limit must be positive");
+        }
+        Files.createDirectories(dir);
+        this.dir = dir;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.maxBatchChars = maxBatchChars;
+        this.dropped = dropped;
+    }
+
+    @Override
+    public synchronized void accept(byte event, long accountId, long counterpartId, double amount, double credited,
+                                    byte outcome, long timestampMillis) {
+        if (batch.length() >= maxBatchChars) {
+            // zapis nie idzie - pamięć na zaległą paczkę jest ograniczona
+            dropped.increment();
+            return;
+        }
+        if (timestampMillis != lastMillis) {
+            lastMillis = timestampMillis;
+            lastTime = Instant.ofEpochMilli(timestampMillis).toString();
+        }
+        batch.append(lastTime).append('\t')
+                .append(EVENTS[event]).append('\t')
+                .append(accountId).append('\t');
+        if (counterpartId != NO_ACCOUNT) {
+            batch.append(counterpartId);
+        }
+        batch.append('\t').append(amount).append('\t');
+        if (!Double.isNaN(credited) && outcome != NO_OUTCOME) {
+            batch.append(credited);
+        }
+        batch.append('\t');
+        if (outcome != NO_OUTCOME) {
+            batch.append(OUTCOMES[outcome]);
+        }
+        batch.append('\n');
+        batchRecords++;
+    }
+
+    // zapis zebranej paczki, zwraca liczbę zapisanych rekordów; przy błędzie paczka zostaje
+    // i trafi do nowego pliku przy następnej próbie
+    synchronized int writeBatch() throws IOException {
+        if (batch.length() == 0) {
+            return 0;
+        }
+        byte[] bytes = batch.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            if (out == null) {
+                open();
+            }
+            out.write(bytes);
+        } catch (IOException e) {
+            abandon();
+            throw e;
+        }
+        int records = batchRecords;
+        batch.setLength(0);
+        batchRecords = 0;
+        fileBytes += bytes.length;
+        if (fileBytes >= maxFileBytes) {
+            rotate();
+        }
+        return records;
+    }
+
+    // dane z bufora gzip do systemu plików
+    synchronized void flush() throws IOException {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                abandon();
+                throw e;
+            }
+        }
+    }
+
+    // liczba plików otwartych od startu
+    synchronized int files() {
+        return files;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeBatch();
+        } finally {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        }
+    }
+
+    // plik tworzony tylko, jeśli go nie ma - nazwę z tej samej sekundy mógł właśnie zająć inny proces
+    private void open() throws IOException {
+        String stamp = FILE_TIME.format(Instant.now());
+        OutputStream file = null;
+        for (int n = 0; file == null; n++) {
+            try {
+                file = Files.newOutputStream(dir.resolve(PREFIX + stamp + "-" + String.format("%03d", n) + SUFFIX),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException taken) {
+                // następny numer
+            }
+        }
+        out = new GZIPOutputStream(file, 64 * 1024, true) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+        fileBytes = 0;
+        files++;
+        deleteOldest();
+    }
+
+    private void rotate() throws IOException {
+        OutputStream finished = out;
+        out = null;
+        finished.close();
+    }
+
+    // uszkodzony strumień nie nadaje się do dalszego zapisu; kolejna paczka otworzy nowy plik
+    private void abandon() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // plik i tak jest porzucany
+            }
+            out = null;
+        }
+    }
+
+    private void deleteOldest() throws IOException {
+        if (maxFiles == 0) {
+            return;
+        }
+        List<Path> existing = new ArrayList<>();
+        try (Stream<Path> list = Files.list(dir)) {
+            list.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().forEach(existing::add);
+        }
+        for (int i = 0; i < existing.size() - maxFiles; i++) {
+            Files.deleteIfExists(existing.get(i));
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.minibank.audit;
+
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.metrics.AccountMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// dziennik audytu: przelewy, założenia i usunięcia kont. Wątek operacji tylko wpisuje rekord do bufora
+// pierścieniowego (CAS i kilka zapisów do tablic, bez alokacji i bez I/O); wątek audit-writer zbiera
+// rekordy w paczki i dopisuje je do rotowanych plików gzip w minibank.audit.dir, flush co flushInterval.
+// Pełny bufor obsługuje AuditOverflowPolicy; gdy zapis plików nie działa, po przekroczeniu limitu zaległej
+// paczki rekordy są porzucane jak przy DROP. Bez ustawionego katalogu dziennik jest wyłączony
+@Component
+public class AuditLog implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+    private static final int BATCH = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long ERROR_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int BLOCK_SPINS = 100;
+    private static final byte TRANSFER = (byte) AuditEvent.TRANSFER.ordinal();
+    private static final byte POSTING = (byte) AuditEvent.POSTING.ordinal();
+    private static final byte ACCOUNT_CREATED = (byte) AuditEvent.ACCOUNT_CREATED.ordinal();
+    private static final byte ACCOUNT_DELETED = (byte) AuditEvent.ACCOUNT_DELETED.ordinal();
+
+    // null - dziennik wyłączony
+    private final AuditRingBuffer buffer;
+    private final AuditFileWriter file;
+    private final AuditOverflowPolicy overflow;
+    private final long flushIntervalNanos;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder writeErrors = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private AuditLog() {
+        this.buffer = null;
+        this.file = null;
+        this.overflow = AuditOverflowPolicy.DROP;
+        this.flushIntervalNanos = 0;
+        this.writer = null;
+        this.running = false;
+    }
+
+    // dziennik, który niczego nie zapisuje (samodzielne instancje AccountService)
+    public static AuditLog disabled() {
+        return new AuditLog();
+    }
+
+    // dir == null - dziennik wyłączony
+    public AuditLog(AccountMetrics metrics, Path dir, int bufferSize, AuditOverflowPolicy overflow,
+                    long maxFileBytes, int maxFiles, Duration flushInterval) throws IOException {
+        this(metrics, dir, bufferSize, overflow, maxFileBytes, maxFiles, flushInterval,
+                AuditFileWriter.DEFAULT_MAX_BATCH_CHARS);
+    }
+
+    // maxBatchChars - limit paczki czekającej na zapis po błędzie
+    AuditLog(AccountMetrics metrics, Path dir, int bufferSize, AuditOverflowPolicy overflow,
+             long maxFileBytes, int maxFiles, Duration flushInterval, int maxBatchChars) throws IOException {
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("Audit buffer needs at least 2 records");
+        }
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Audit flush interval must be positive");
+        }
+        if (dir == null) {
+            this.buffer = null;
+            this.file = null;
+            this.overflow = overflow;
+            this.flushIntervalNanos = 0;
+            this.writer = null;
+            this.running = false;
+            return;
+        }
+        this.buffer = new AuditRingBuffer(bufferSize);
+        this.file = new AuditFileWriter(dir, maxFileBytes, maxFiles, maxBatchChars, dropped);
+        this.overflow = overflow;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        FunctionCounter.builder("minibank.audit.records", written, LongAdder::sum)
+                .description("Audit records written to files")
+                .register(metrics.getRegistry());
+        FunctionCounter.builder("minibank.audit.dropped", dropped, LongAdder::sum)
+                .description("Audit records lost because the buffer was full or audit files could not be written")
+                .register(metrics.getRegistry());
+        FunctionCounter.builder("minibank.audit.spilled", spilled, LongAdder::sum)
+                .description("Audit records written by the calling thread because the buffer was full")
+                .register(metrics.getRegistry());
+        FunctionCounter.builder("minibank.audit.blocked", blocked, LongAdder::sum)
+                .description("Audit records that waited for space in the buffer")
+                .register(metrics.getRegistry());
+        FunctionCounter.builder("minibank.audit.write.errors", writeErrors, LongAdder::sum)
+                .description("Failed writes of audit files")
+                .register(metrics.getRegistry());
+        metrics.gauge("minibank.audit.backlog", "Audit records waiting for the writer", buffer,
+                AuditRingBuffer::backlog);
+        writer = new Thread(this::run, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Autowired
+    public AuditLog(AccountMetrics metrics,
+                    @Value("${minibank.audit.dir:}") String dir,
+                    @Value("${minibank.audit.buffer-size:65536}") int bufferSize,
+                    @Value("${minibank.audit.overflow:SPILL}") AuditOverflowPolicy overflow,
+                    @Value("${minibank.audit.max-file-size:64MB}") DataSize maxFileSize,
+                    @Value("${minibank.audit.max-files:0}") int maxFiles,
+                    @Value("${minibank.audit.flush-interval:1s}") Duration flushInterval) throws IOException {
+        this(metrics, dir.isBlank() ? null : Path.of(dir), bufferSize, overflow, maxFileSize.toBytes(), maxFiles,
+                flushInterval);
+    }
+
+    public boolean isEnabled() {
+        return buffer != null;
+    }
+
+    // próba przelewu z wynikiem; credited - kwota uznania w walucie konta docelowego
+    public void transfer(long fromId, long toId, double amount, double credited, TransferOutcome outcome) {
+        append(TRANSFER, fromId, toId, amount, credited, (byte) outcome.ordinal());
+    }
+
+    // noga transakcji wielostronnej (ujemna - obciążenie)
+    public void posting(long accountId, double amount) {
+        append(POSTING, accountId, AuditFileWriter.NO_ACCOUNT, amount, 0, AuditFileWriter.NO_OUTCOME);
+    }
+
+    public void accountCreated(long accountId, double balance) {
+        append(ACCOUNT_CREATED, accountId, AuditFileWriter.NO_ACCOUNT, balance, 0, AuditFileWriter.NO_OUTCOME);
+    }
+
+    // balance - saldo w chwili usunięcia
+    public void accountDeleted(long accountId, double balance) {
+        append(ACCOUNT_DELETED, accountId, AuditFileWriter.NO_ACCOUNT, balance, 0, AuditFileWriter.NO_OUTCOME);
+    }
+
+    private void append(byte event, long accountId, long counterpartId, double amount, double credited,
+                        byte outcome) {
+        if (buffer == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (buffer.offer(event, accountId, counterpartId, amount, credited, outcome, now)) {
+            return;
+        }
+        switch (overflow) {
+            case DROP -> dropped.increment();
+            case SPILL -> spill(event, accountId, counterpartId, amount, credited, outcome, now);
+            case BLOCK -> {
+                blocked.increment();
+                for (int spins = 0; !buffer.offer(event, accountId, counterpartId, amount, credited, outcome, now); spins++) {
+                    if (!running) {
+                        // wątek zapisujący już nie odbierze rekordu
+                        spill(event, accountId, counterpartId, amount, credited, outcome, now);
+                        return;
+                    }
+                    if (spins < BLOCK_SPINS) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+                    }
+                }
+            }
+        }
+    }
+
+    // rekord prosto do pliku z wątku zgłaszającego; może wyprzedzić starsze rekordy czekające w buforze
+    private void spill(byte event, long accountId, long counterpartId, double amount, double credited,
+                       byte outcome, long timestampMillis) {
+        spilled.increment();
+        synchronized (file) {
+            file.accept(event, accountId, counterpartId, amount, credited, outcome, timestampMillis);
+            try {
+                written.add(file.writeBatch());
+            } catch (IOException e) {
+                // rekord zostaje w paczce (do limitu) i wyjdzie z następną udaną paczką wątku zapisującego
+                writeErrors.increment();
+                log.error("Cannot write audit record", e);
+            }
+        }
+    }
+
+    private void run() {
+        long lastFlush = System.nanoTime();
+        boolean dirty = false;
+        while (running || buffer.backlog() > 0) {
+            int drained;
+            try {
+                synchronized (file) {
+                    drained = buffer.drain(file, BATCH);
+                    if (drained > 0) {
+                        written.add(file.writeBatch());
+                        dirty = true;
+                    }
+                }
+                if (dirty && System.nanoTime() - lastFlush >= flushIntervalNanos) {
+                    file.flush();
+                    lastFlush = System.nanoTime();
+                    dirty = false;
+                }
+            } catch (IOException e) {
+                writeErrors.increment();
+                log.error("Cannot write audit log", e);
+                LockSupport.parkNanos(ERROR_BACKOFF_NANOS);
+                continue;
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    // liczba plików otwartych od startu
+    public int files() {
+        return file == null ? 0 : file.files();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        file.close();
+    }
+}
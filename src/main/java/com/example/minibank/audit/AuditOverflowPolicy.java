@@ -0,0 +1,11 @@
+package com.example.minibank.audit;
+
+// co robi wątek zgłaszający rekord audytu, gdy bufor jest pełny (zapis na dysk nie nadąża)
+public enum AuditOverflowPolicy {
+    // czeka na miejsce w buforze - żaden rekord nie ginie, przelewy zwalniają do tempa zapisu
+    BLOCK,
+    // rekord przepada, rośnie licznik minibank.audit.dropped
+    DROP,
+    // wątek zgłaszający sam dopisuje rekord do bieżącego pliku, z pominięciem bufora
+    SPILL
+}
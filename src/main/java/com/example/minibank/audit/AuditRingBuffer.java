@@ -0,0 +1,108 @@
+package com.example.minibank.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// ograniczona kolejka wielu producentów i jednego konsumenta bez blokad. Rekordy leżą w tablicach
+// prymitywów (bez obiektu na rekord); każde miejsce ma numer sekwencji: równy pozycji - wolne dla
+// producenta, pozycja + 1 - zapisane i gotowe dla konsumenta. Producent rezerwuje pozycję przez CAS
+// na tail, wypełnia pola i dopiero wtedy publikuje sekwencję, więc konsument nigdy nie widzi
+// niepełnego rekordu. Rekordy wychodzą w kolejności rezerwacji
+final class AuditRingBuffer {
+
+    // odbiorca rekordów po stronie konsumenta
+    interface Sink {
+        void accept(byte event, long accountId, long counterpartId, double amount, double credited,
+                    byte outcome, long timestampMillis);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final byte[] events;
+    private final byte[] outcomes;
+    private final long[] accountIds;
+    private final long[] counterpartIds;
+    private final double[] amounts;
+    private final double[] credited;
+    private final long[] timestamps;
+    private final AtomicLong tail = new AtomicLong();
+    // tylko wątek konsumenta; volatile dla miernika zaległości
+    private volatile long head;
+
+    AuditRingBuffer(int requestedCapacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, requestedCapacity) - 1) << 1;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.events = new byte[capacity];
+        this.outcomes = new byte[capacity];
+        this.accountIds = new long[capacity];
+        this.counterpartIds = new long[capacity];
+        this.amounts = new double[capacity];
+        this.credited = new double[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    // rekordy zarezerwowane, a jeszcze nieodebrane przez konsumenta
+    long backlog() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    // false - bufor pełny, rekord nie został zapisany
+    boolean offer(byte event, long accountId, long counterpartId, double amount, double creditedAmount,
+                  byte outcome, long timestampMillis) {
+        long position;
+        while (true) {
+            position = tail.get();
+            long sequence = sequences.get((int) position & mask);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                // miejsce wciąż zajmuje rekord sprzed pełnego okrążenia
+                return false;
+            }
+            // inny producent był szybszy - ponowna próba z nowym tail
+        }
+        int slot = (int) position & mask;
+        events[slot] = event;
+        accountIds[slot] = accountId;
+        counterpartIds[slot] = counterpartId;
+        amounts[slot] = amount;
+        credited[slot] = creditedAmount;
+        outcomes[slot] = outcome;
+        timestamps[slot] = timestampMillis;
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    // najwyżej max gotowych rekordów do sink; tylko wątek konsumenta. Zatrzymuje się na pierwszym
+    // zarezerwowanym, ale jeszcze nieopublikowanym rekordzie
+    int drain(Sink sink, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) position & mask;
+            if (sequences.get(slot) != position + 1) {
+                break;
+            }
+            sink.accept(events[slot], accountIds[slot], counterpartIds[slot], amounts[slot], credited[slot],
+                    outcomes[slot], timestamps[slot]);
+            sequences.lazySet(slot, position + capacity);
+            position++;
+            drained++;
+        }
+        if (drained > 0) {
+            head = position;
+        }
+        return drained;
+    }
+}
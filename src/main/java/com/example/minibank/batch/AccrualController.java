@@ -0,0 +1,38 @@
+package com.example.minibank.batch;
+
+import com.example.minibank.exception.AccrualRunNotFoundException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@ConditionalOnExpression("'${minibank.replication.role:}' != 'follower'")
+@RequestMapping("/accounts/accrual-runs")
+public class AccrualController {
+
+    private final AccrualEngine accrualEngine;
+
+    public AccrualController(AccrualEngine accrualEngine) {
+        this.accrualEngine = accrualEngine;
+    }
+
+    // POST /accounts/accrual-runs?businessDate=2024-05-01 - bez daty: za wczoraj
+    @PostMapping
+    public AccrualRun start(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        return accrualEngine.start(businessDate == null ? LocalDate.now().minusDays(1) : businessDate);
+    }
+
+    @GetMapping
+    public List<AccrualRun> getRuns() {
+        return accrualEngine.getRuns();
+    }
+
+    @GetMapping("/{id}")
+    public AccrualRun getRun(@PathVariable long id) {
+        return accrualEngine.getRun(id)
+                .orElseThrow(() -> new AccrualRunNotFoundException("Accrual run with ID " + id + " not found"));
+    }
+}
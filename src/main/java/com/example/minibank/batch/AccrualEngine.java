@@ -0,0 +1,299 @@
+package com.example.minibank.batch;
+
+import com.example.minibank.Account;
+import com.example.minibank.ledger.TransactionLedger;
+import com.example.minibank.ledger.TransactionType;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.AccountShard;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// nocne naliczanie odsetek i opłat wg accountType.
+// Partycją jest shard: wszystkie shardy liczą równolegle, każdy na własnym wątku, w porcjach po CHUNK kont.
+// Między porcjami wątek shardu obsługuje bieżące przelewy, więc naliczenie nie blokuje ruchu,
+// a każda porcja jest atomowa względem przelewów tego shardu (ten sam jednowątkowy executor).
+// Przebieg obejmuje konta istniejące w chwili startu; wpisy INTEREST/FEE trafiają do księgi razem z porcją.
+// Dni naliczane są po kolei, bez przerw; uruchomienie z cron nadrabia dni opuszczone (np. wyłączony serwis).
+// Naliczenie zmienia salda - na followerze przychodzi w strumieniu replikacji od lidera, więc tam silnika nie ma
+@Service
+@ConditionalOnExpression("'${minibank.replication.role:}' != 'follower'")
+public class AccrualEngine implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AccrualEngine.class);
+    private static final int CHUNK = 4096;
+    private static final int KEPT_RUNS = 16;
+
+    private final ShardedAccountStore store;
+    private final TransactionLedger ledger;
+    private final AccrualRules rules;
+    private final CronExpression cron;
+    private final ScheduledExecutorService executor;
+    // null - stan tylko w pamięci
+    private final AccrualState state;
+    private final Map<Long, AccrualRun> runs = new LinkedHashMap<>();
+    private long lastRunId;
+    private AccrualRun current;
+    // ostatni dzień, za który rozpoczęto naliczenie; przerwanego przebiegu nie powtarzamy,
+    // bo część kont ma go już zaksięgowanego
+    private LocalDate lastBusinessDate;
+    // dzień, do którego nadrabia uruchomienie z cron (null - nic do nadrobienia)
+    private LocalDate catchUpThrough;
+
+    @Autowired
+    public AccrualEngine(ShardedAccountStore store, TransactionLedger ledger, AccountMetrics metrics,
+                         @Value("${minibank.accrual.interest-rates:}") String interestRates,
+                         @Value("${minibank.accrual.daily-fees:}") String dailyFees,
+                         @Value("${minibank.accrual.cron:-}") String cron,
+                         @Value("${minibank.accrual.state-dir:}") String stateDir) throws IOException {
+        this(store, ledger, metrics, AccrualRules.parse(interestRates, dailyFees), cron,
+                stateDir.isBlank() ? null : Path.of(stateDir));
+    }
+
+    public AccrualEngine(ShardedAccountStore store, TransactionLedger ledger, AccountMetrics metrics,
+                         AccrualRules rules, String cron) {
+        this(store, ledger, metrics, rules, cron, (AccrualState) null);
+    }
+
+    // stateDir == null - ostatni naliczony dzień tylko w pamięci
+    public AccrualEngine(ShardedAccountStore store, TransactionLedger ledger, AccountMetrics metrics,
+                         AccrualRules rules, String cron, Path stateDir) throws IOException {
+        this(store, ledger, metrics, rules, cron, stateDir == null ? null : new AccrualState(stateDir));
+    }
+
+    private AccrualEngine(ShardedAccountStore store, TransactionLedger ledger, AccountMetrics metrics,
+                          AccrualRules rules, String cron, AccrualState state) {
+        this.store = store;
+        this.ledger = ledger;
+        this.rules = rules;
+        this.state = state;
+        this.lastBusinessDate = state == null ? null : state.lastBusinessDate();
+        // "-" wyłącza automatyczne uruchamianie (konwencja Springa dla cron)
+        this.cron = "-".equals(cron) ? null : CronExpression.parse(cron);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "accrual-batch");
+            t.setDaemon(true);
+            return t;
+        });
+        metrics.gauge("minibank.accrual.progress", "Share of accounts processed by the latest accrual run",
+                this, AccrualEngine::progress);
+        scheduleNext();
+    }
+
+    // naliczenie za businessDate - następny dzień po ostatnio naliczonym; postęp w zwróconym obiekcie
+    public synchronized AccrualRun start(LocalDate businessDate) {
+        if (current != null && current.isRunning()) {
+            throw new IllegalArgumentException("Accrual run " + current.getId() + " is still running");
+        }
+        if (lastBusinessDate != null && !businessDate.isAfter(lastBusinessDate)) {
+            throw new IllegalArgumentException("Accrual for " + businessDate + " has already been applied");
+        }
+        if (lastBusinessDate != null && !businessDate.equals(lastBusinessDate.plusDays(1))) {
+            throw new IllegalArgumentException("Accrual for " + lastBusinessDate.plusDays(1)
+                    + " has not been applied yet");
+        }
+        if (state != null) {
+            try {
+                state.save(businessDate);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot save accrual state", e);
+            }
+        }
+        lastBusinessDate = businessDate;
+        AccrualRun run = new AccrualRun(++lastRunId, businessDate.toString());
+        runs.put(run.getId(), run);
+        if (runs.size() > KEPT_RUNS) {
+            runs.remove(runs.keySet().iterator().next());
+        }
+        current = run;
+        executor.execute(() -> execute(run));
+        return run;
+    }
+
+    // naliczenie kolejnych dni do through włącznie, jeden przebieg po drugim
+    public synchronized void catchUp(LocalDate through) {
+        if (catchUpThrough == null || through.isAfter(catchUpThrough)) {
+            catchUpThrough = through;
+        }
+        if (current == null || !current.isRunning()) {
+            continueCatchUp();
+        }
+    }
+
+    // po zakończeniu przebiegu albo na żądanie catchUp; bez historii nadrabiany jest tylko ostatni dzień
+    private synchronized void continueCatchUp() {
+        if (catchUpThrough == null) {
+            return;
+        }
+        LocalDate next = lastBusinessDate == null ? catchUpThrough : lastBusinessDate.plusDays(1);
+        if (next.isAfter(catchUpThrough)) {
+            catchUpThrough = null;
+            return;
+        }
+        start(next);
+    }
+
+    public synchronized Optional<AccrualRun> getRun(long id) {
+        return Optional.ofNullable(runs.get(id));
+    }
+
+    public synchronized List<AccrualRun> getRuns() {
+        return new ArrayList<>(runs.values());
+    }
+
+    private void execute(AccrualRun run) {
+        try {
+            // id kont każdego shardu w chwili startu - późniejsze wstawienia nie psują przeglądania porcjami
+            List<long[]> ids = store.scatter(shard -> {
+                long[] shardIds = new long[shard.size()];
+                int i = 0;
+                for (Account account : shard.accounts()) {
+                    shardIds[i++] = account.getId();
+                }
+                return shardIds;
+            });
+            long total = 0;
+            CompletableFuture<?>[] shards = new CompletableFuture<?>[ids.size()];
+            for (int i = 0; i < shards.length; i++) {
+                total += ids.get(i).length;
+            }
+            run.started(total);
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = processShard(store.shard(i), ids.get(i), 0, run);
+            }
+            CompletableFuture.allOf(shards).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    run.failed(error);
+                    log.error("Accrual run {} for {} failed", run.getId(), run.getBusinessDate(), error);
+                } else {
+                    run.completed();
+                    log.info("Accrual run {} for {}: {} accounts, {} interest entries, {} fee entries, {} accounts/s",
+                            run.getId(), run.getBusinessDate(), run.getProcessedAccounts(), run.getInterestCount(),
+                            run.getFeeCount(), (long) run.getAccountsPerSecond());
+                }
+                finished();
+            });
+        } catch (RuntimeException e) {
+            run.failed(e);
+            log.error("Accrual run {} for {} failed", run.getId(), run.getBusinessDate(), e);
+            finished();
+        }
+    }
+
+    // nieudany dzień też liczy się jako rozpoczęty - nadrabianie idzie dalej
+    private void finished() {
+        try {
+            continueCatchUp();
+        } catch (RuntimeException e) {
+            log.error("Accrual catch-up stopped", e);
+        }
+    }
+
+    // kolejna porcja zlecana z wątku silnika, nie shardu - inaczej submit wykonałby ją od razu,
+    // bez przepuszczenia czekających przelewów
+    private CompletableFuture<Void> processShard(AccountShard shard, long[] ids, int offset, AccrualRun run) {
+        if (offset >= ids.length) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int end = Math.min(ids.length, offset + CHUNK);
+        return shard.submit(() -> {
+            applyChunk(shard, ids, offset, end, run);
+            return null;
+        }).thenComposeAsync(ignored -> processShard(shard, ids, end, run), executor);
+    }
+
+    // na wątku shardu
+    private void applyChunk(AccountShard shard, long[] ids, int from, int to, AccrualRun run) {
+        int size = to - from;
+        long[] interestIds = new long[size];
+        double[] interests = new double[size];
+        long[] feeIds = new long[size];
+        double[] fees = new double[size];
+        int interestCount = 0;
+        int feeCount = 0;
+        double interestSum = 0;
+        double feeSum = 0;
+        for (int i = from; i < to; i++) {
+            Account account = shard.settled(ids[i]);
+            // konto usunięte w trakcie przebiegu albo zablokowane
+            if (account == null || account.isBlocked()) {
+                continue;
+            }
+            double interest = rules.dailyInterest(account.getAccountType(), account.getBalance());
+            if (interest > 0) {
+                account.setBalance(account.getBalance() + interest);
+                interestIds[interestCount] = account.getId();
+                interests[interestCount++] = interest;
+                interestSum += interest;
+            }
+            double fee = rules.dailyFee(account.getAccountType(), account.getBalance());
+            if (fee > 0) {
+                account.setBalance(account.getBalance() - fee);
+                feeIds[feeCount] = account.getId();
+                fees[feeCount++] = fee;
+                feeSum += fee;
+            }
+            if (interest > 0 || fee > 0) {
+                shard.changed(account);
+            }
+        }
+        ledger.recordAccruals(TransactionType.INTEREST, interestIds, interests, interestCount);
+        ledger.recordAccruals(TransactionType.FEE, feeIds, fees, feeCount);
+        run.chunkDone(size, interestCount, interestSum, feeCount, feeSum);
+    }
+
+    private synchronized double progress() {
+        if (current == null || current.getTotalAccounts() == 0) {
+            return current == null || current.isRunning() ? 0 : 1;
+        }
+        return (double) current.getProcessedAccounts() / current.getTotalAccounts();
+    }
+
+    // nocne uruchomienie: naliczenie za poprzedni dzień
+    private void scheduleNext() {
+        if (cron == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = cron.next(now);
+        if (next == null) {
+            return;
+        }
+        executor.schedule(() -> {
+            try {
+                catchUp(next.toLocalDate().minusDays(1));
+            } catch (RuntimeException e) {
+                log.warn("Scheduled accrual skipped: {}", e.getMessage());
+            } finally {
+                scheduleNext();
+            }
+        }, Math.max(0, ChronoUnit.MILLIS.between(now, next)), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
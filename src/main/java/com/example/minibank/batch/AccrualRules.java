@@ -0,0 +1,62 @@
+package com.example.minibank.batch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// reguły nocnego naliczenia wg accountType: roczna stopa odsetek (naliczana za jeden dzień)
+// i dzienna opłata. Format właściwości: "SAVINGS:0.02,PREMIUM:0.035"
+public final class AccrualRules {
+
+    private final Map<String, Double> annualInterestRates;
+    private final Map<String, Double> dailyFees;
+
+    public AccrualRules(Map<String, Double> annualInterestRates, Map<String, Double> dailyFees) {
+        this.annualInterestRates = Map.copyOf(annualInterestRates);
+        this.dailyFees = Map.copyOf(dailyFees);
+    }
+
+    public static AccrualRules parse(String interestRates, String fees) {
+        return new AccrualRules(parseMap(interestRates), parseMap(fees));
+    }
+
+    // odsetki za jeden dzień, zaokrąglone do groszy; 0 - brak odsetek
+    double dailyInterest(String accountType, double balance) {
+        Double rate = accountType == null ? null : annualInterestRates.get(accountType);
+        if (rate == null || balance <= 0) {
+            return 0;
+        }
+        return roundCents(balance * rate / 365);
+    }
+
+    // opłata nie schodzi poniżej zera na koncie
+    double dailyFee(String accountType, double balance) {
+        Double fee = accountType == null ? null : dailyFees.get(accountType);
+        if (fee == null || balance <= 0) {
+            return 0;
+        }
+        return roundCents(Math.min(fee, balance));
+    }
+
+    private static double roundCents(double amount) {
+        return Math.floor(amount * 100 + 0.5) / 100;
+    }
+
+    private static Map<String, Double> parseMap(String value) {
+        Map<String, Double> result = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return result;
+        }
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid accrual rule: " + entry.trim());
+            }
+            double amount = Double.parseDouble(parts[1].trim());
+            if (amount < 0) {
+                throw new IllegalArgumentException("Accrual rule must not be negative: " + entry.trim());
+            }
+            result.put(parts[0].trim(), amount);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.minibank.batch;
+
+import java.time.Instant;
+
+// stan jednego przebiegu naliczenia - odpowiedź GET /accounts/accrual-runs/{id}.
+// Postęp aktualizują wątki shardów po każdej porcji
+public class AccrualRun {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final long id;
+    private final String businessDate;
+    private final long startedAt;
+    private volatile State state = State.RUNNING;
+    private volatile long finishedAt;
+    private volatile long totalAccounts;
+    private long processedAccounts;
+    private long interestCount;
+    private double interestAmount;
+    private long feeCount;
+    private double feeAmount;
+    private volatile String error;
+
+    AccrualRun(long id, String businessDate) {
+        this.id = id;
+        this.businessDate = businessDate;
+        this.startedAt = System.currentTimeMillis();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getBusinessDate() {
+        return businessDate;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getStartedAt() {
+        return Instant.ofEpochMilli(startedAt).toString();
+    }
+
+    public String getFinishedAt() {
+        return finishedAt == 0 ? null : Instant.ofEpochMilli(finishedAt).toString();
+    }
+
+    public long getTotalAccounts() {
+        return totalAccounts;
+    }
+
+    public synchronized long getProcessedAccounts() {
+        return processedAccounts;
+    }
+
+    public synchronized long getInterestCount() {
+        return interestCount;
+    }
+
+    public synchronized double getInterestAmount() {
+        return interestAmount;
+    }
+
+    public synchronized long getFeeCount() {
+        return feeCount;
+    }
+
+    public synchronized double getFeeAmount() {
+        return feeAmount;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    // przepustowość od startu do końca (albo do teraz)
+    public synchronized double getAccountsPerSecond() {
+        long end = finishedAt == 0 ? System.currentTimeMillis() : finishedAt;
+        return processedAccounts * 1000.0 / Math.max(1, end - startedAt);
+    }
+
+    void started(long totalAccounts) {
+        this.totalAccounts = totalAccounts;
+    }
+
+    synchronized void chunkDone(int processed, int interests, double interestSum, int fees, double feeSum) {
+        processedAccounts += processed;
+        interestCount += interests;
+        interestAmount += interestSum;
+        feeCount += fees;
+        feeAmount += feeSum;
+    }
+
+    void completed() {
+        finishedAt = System.currentTimeMillis();
+        state = State.COMPLETED;
+    }
+
+    void failed(Throwable cause) {
+        finishedAt = System.currentTimeMillis();
+        error = cause.toString();
+        state = State.FAILED;
+    }
+
+    boolean isRunning() {
+        return state == State.RUNNING;
+    }
+}
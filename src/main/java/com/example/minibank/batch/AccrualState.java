@@ -0,0 +1,45 @@
+package com.example.minibank.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+// ostatni dzień, za który rozpoczęto naliczenie - jedna linia w accrual.state.
+// Zapis przed pierwszą porcją: plik tymczasowy, fsync i atomowa podmiana, więc po restarcie
+// dzień rozpoczęty przed awarią nie zostanie naliczony drugi raz
+final class AccrualState {
+
+    private final Path file;
+    private final LocalDate lastBusinessDate;
+
+    AccrualState(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        this.file = dir.resolve("accrual.state");
+        String date = Files.exists(file) ? Files.readString(file, StandardCharsets.UTF_8).trim() : "";
+        this.lastBusinessDate = date.isEmpty() ? null : LocalDate.parse(date);
+    }
+
+    // dzień zapisany przed startem; null - jeszcze żadnego naliczenia
+    LocalDate lastBusinessDate() {
+        return lastBusinessDate;
+    }
+
+    void save(LocalDate businessDate) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.wrap((businessDate + "\n").getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
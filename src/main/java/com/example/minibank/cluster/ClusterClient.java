@@ -0,0 +1,50 @@
+package com.example.minibank.cluster;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+// wywołania HTTP między węzłami; nagłówek FORWARDED_HEADER oznacza, że żądanie
+// ma być obsłużone lokalnie, bez ponownego routowania
+public class ClusterClient {
+
+    public static final String FORWARDED_HEADER = "X-MiniBank-Forwarded";
+
+    private final HttpClient http;
+    private final Duration timeout;
+
+    public ClusterClient(Duration timeout) {
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    public HttpResponse<byte[]> send(String node, String method, String pathAndQuery, String contentType, byte[] body)
+            throws IOException, InterruptedException {
+        return http.send(request(node, method, pathAndQuery, contentType, body), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    public CompletableFuture<HttpResponse<byte[]>> sendAsync(String node, String method, String pathAndQuery,
+                                                             String contentType, byte[] body) {
+        return http.sendAsync(request(node, method, pathAndQuery, contentType, body), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private HttpRequest request(String node, String method, String pathAndQuery, String contentType, byte[] body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(node + pathAndQuery))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, "true")
+                .method(method, body == null || body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        if (contentType != null) {
+            builder.header("Content-Type", contentType);
+        }
+        return builder.build();
+    }
+}
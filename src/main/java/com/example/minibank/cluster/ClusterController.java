@@ -0,0 +1,53 @@
+package com.example.minibank.cluster;
+
+import com.example.minibank.AccountService;
+import com.example.minibank.TransferRequest;
+import com.example.minibank.ledger.TransactionLedger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// endpointy wywoływane wyłącznie przez inne węzły klastra
+@RestController
+@RequestMapping("/internal/cluster")
+@ConditionalOnProperty(prefix = "minibank.cluster", name = "enabled", havingValue = "true")
+public class ClusterController {
+
+    private final ClusterTransferCoordinator coordinator;
+    private final AccountService accountService;
+
+    public ClusterController(ClusterTransferCoordinator coordinator, AccountService accountService) {
+        this.coordinator = coordinator;
+        this.accountService = accountService;
+    }
+
+    // POST /internal/cluster/credit - uznanie konta lokalnego, idempotentne po transferId;
+    // w odpowiedzi wynik i kwota uznania po przeliczeniu na walutę konta
+    @PostMapping("/credit")
+    public CreditResponse credit(@RequestBody CreditRequest request) {
+        ClusterTransferCoordinator.AppliedCredit credit = coordinator.applyCredit(request.getTransferId(),
+                request.getFromId() == null ? TransactionLedger.NO_ACCOUNT : request.getFromId(),
+                request.getToId(), request.getAmount(), request.getCurrency());
+        CreditResponse response = new CreditResponse();
+        response.setResult(credit.result());
+        response.setCredited(Double.isNaN(credit.credited()) ? null : credit.credited());
+        return response;
+    }
+
+    // POST /internal/cluster/confirm - źródło zatwierdziło przelew
+    @PostMapping("/confirm")
+    public String confirm(@RequestBody Map<String, String> request) {
+        coordinator.confirm(request.get("transferId"));
+        return "OK";
+    }
+
+    // POST /internal/cluster/transfer - przelew z konta, którego właścicielem jest ten węzeł
+    @PostMapping("/transfer")
+    public String transfer(@RequestBody TransferRequest request) {
+        return accountService.executeOwnedTransfer(request.getFromId(), request.getToId(), request.getAmount()).name();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.minibank.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// który węzeł klastra jest właścicielem danego konta; bez trybu klastra wszystko jest lokalne
+@Component
+public class ClusterRouter {
+
+    private final boolean enabled;
+    private final String self;
+    private final List<String> nodes;
+    private final boolean redirect;
+    private final ConsistentHashRing ring;
+
+    public ClusterRouter(@Value("${minibank.cluster.enabled:false}") boolean enabled,
+                         @Value("${minibank.cluster.self:}") String self,
+                         @Value("${minibank.cluster.nodes:}") List<String> nodes,
+                         @Value("${minibank.cluster.virtual-nodes:128}") int virtualNodes,
+                         @Value("${minibank.cluster.routing:forward}") String routing) {
+        this.enabled = enabled;
+        this.self = normalize(self);
+        this.nodes = nodes.stream().map(ClusterRouter::normalize).filter(n -> !n.isEmpty()).distinct().toList();
+        this.redirect = "redirect".equalsIgnoreCase(routing);
+        if (enabled && !this.nodes.contains(this.self)) {
+            throw new IllegalStateException("minibank.cluster.self (" + self + ") must be one of minibank.cluster.nodes " + nodes);
+        }
+        this.ring = enabled ? new ConsistentHashRing(this.nodes, virtualNodes) : null;
+    }
+
+    public static ClusterRouter standalone() {
+        return new ClusterRouter(false, "", List.of(), 1, "forward");
+    }
+
+    private static String normalize(String node) {
+        String trimmed = node.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isLocal(long accountId) {
+        return !enabled || self.equals(ring.ownerOf(accountId));
+    }
+
+    public String ownerOf(long accountId) {
+        return enabled ? ring.ownerOf(accountId) : self;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public List<String> peers() {
+        return nodes.stream().filter(node -> !node.equals(self)).toList();
+    }
+
+    // 307 zamiast przekazywania żądania dalej
+    public boolean isRedirect() {
+        return redirect;
+    }
+}
@@ -0,0 +1,461 @@
+package com.example.minibank.cluster;
+
+import com.example.minibank.search.OwnerPrefixIndex;
+import com.example.minibank.stats.BalanceDistribution;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// routing żądań w trybie klastra, przed AccountController:
+// - żądania dotyczące konta z innego węzła są przekazywane do właściciela (albo 307 do niego),
+// - zapytania po całej księdze (także wyszukiwanie) są zbierane ze wszystkich węzłów.
+// Żądania z nagłówkiem X-MiniBank-Forwarded obsługujemy zawsze lokalnie.
+@Component
+@ConditionalOnProperty(prefix = "minibank.cluster", name = "enabled", havingValue = "true")
+public class ClusterRoutingFilter extends OncePerRequestFilter {
+
+    private static final Pattern ACCOUNT_PATH = Pattern.compile("^/accounts/(-?\\d+)(/.*)?$");
+    private static final Pattern AGGREGATE_PATH = Pattern.compile("^/accounts(/owner/[^/]+|/balance/greater/[^/]+)?/?$");
+    private static final String TOTAL_BALANCE_PATH = "/accounts/totalBalance";
+    private static final String SEARCH_PATH = "/accounts/search";
+    private static final String TOP_PATH = "/accounts/top";
+    private static final String DISTRIBUTION_PATH = "/accounts/stats/distribution";
+    private static final String OWNER_SEARCH_PATH = "/accounts/owner/search";
+
+    private static final Comparator<JsonNode> BY_ID = Comparator.comparingLong(node -> node.path("id").asLong());
+    private static final Comparator<JsonNode> BY_BALANCE = Comparator.<JsonNode>comparingDouble(node -> -node.path("balance").asDouble())
+            .thenComparing(BY_ID);
+    private static final Comparator<JsonNode> BY_OWNER = Comparator.<JsonNode, String>comparing(node -> OwnerPrefixIndex.normalize(node.path("owner").asText()))
+            .thenComparingLong(node -> node.path("accountId").asLong());
+
+    private final ClusterRouter router;
+    private final ObjectMapper objectMapper;
+    private final ClusterClient client;
+
+    public ClusterRoutingFilter(ClusterRouter router, ObjectMapper objectMapper,
+                                @Value("${minibank.cluster.timeout:2s}") Duration timeout) {
+        this.router = router;
+        this.objectMapper = objectMapper;
+        this.client = new ClusterClient(timeout);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(ClusterClient.FORWARDED_HEADER) != null
+                || !path(request).startsWith("/accounts");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = path(request);
+        String method = request.getMethod();
+
+        Matcher account = ACCOUNT_PATH.matcher(path);
+        if (account.matches()) {
+            Long id = parseLong(account.group(1));
+            if (id == null) {
+                chain.doFilter(request, response);
+            } else {
+                routeById(id, request, response, chain, null);
+            }
+            return;
+        }
+        if ("POST".equals(method) && "/accounts/transfer".equals(path) && isRespondAsync(request)) {
+            // bilet zostaje na węźle, który przyjął przelew - tylko tu da się go potem odpytać;
+            // przelew do właściciela konta źródłowego przekazuje AccountService
+            chain.doFilter(request, response);
+            return;
+        }
+        if ("POST".equals(method) && ("/accounts".equals(path) || "/accounts/transfer".equals(path))) {
+            // id właściciela jest w treści: konto dla POST /accounts, konto źródłowe dla przelewu
+            byte[] body = request.getInputStream().readAllBytes();
+            HttpServletRequest cached = new CachedBodyRequest(request, body);
+            Long id = idFromBody(body, "/accounts".equals(path) ? "id" : "fromId");
+            if (id == null) {
+                chain.doFilter(cached, response);
+            } else {
+                routeById(id, cached, response, chain, body);
+            }
+            return;
+        }
+        if ("GET".equals(method) && TOTAL_BALANCE_PATH.equals(path)) {
+            aggregateTotal(request, response, chain);
+            return;
+        }
+        if ("GET".equals(method) && SEARCH_PATH.equals(path)) {
+            Integer limit = parseInt(request.getParameter("limit"), 50);
+            if (limit == null) {
+                chain.doFilter(request, response);
+            } else {
+                aggregateSearch(request, response, chain, limit);
+            }
+            return;
+        }
+        if ("GET".equals(method) && TOP_PATH.equals(path)) {
+            // n największych z każdego węzła wystarcza na n największych w klastrze
+            Integer n = parseInt(request.getParameter("n"), 10);
+            if (n == null) {
+                chain.doFilter(request, response);
+            } else {
+                aggregateList(request, response, chain, BY_BALANCE, n);
+            }
+            return;
+        }
+        if ("GET".equals(method) && OWNER_SEARCH_PATH.equals(path)) {
+            // każdy węzeł oddaje swoje limit pierwszych podpowiedzi
+            Integer limit = parseInt(request.getParameter("limit"), 10);
+            if (limit == null) {
+                chain.doFilter(request, response);
+            } else {
+                aggregateList(request, response, chain, BY_OWNER, limit);
+            }
+            return;
+        }
+        if ("GET".equals(method) && DISTRIBUTION_PATH.equals(path)) {
+            aggregateDistribution(request, response, chain);
+            return;
+        }
+        if ("GET".equals(method) && AGGREGATE_PATH.matcher(path).matches()) {
+            aggregateList(request, response, chain, BY_ID, Integer.MAX_VALUE);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void routeById(long id, HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                           byte[] body) throws IOException, ServletException {
+        if (router.isLocal(id)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String owner = router.ownerOf(id);
+        if (router.isRedirect()) {
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader("Location", owner + pathAndQuery(request));
+            return;
+        }
+        byte[] payload = body != null ? body : request.getInputStream().readAllBytes();
+        try {
+            HttpResponse<byte[]> forwarded = client.send(owner, request.getMethod(), pathAndQuery(request),
+                    request.getContentType(), payload);
+            response.setStatus(forwarded.statusCode());
+            forwarded.headers().firstValue("Content-Type").ifPresent(response::setContentType);
+            response.getOutputStream().write(forwarded.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unavailable(response, owner);
+        } catch (IOException e) {
+            unavailable(response, owner);
+        }
+    }
+
+    // listy kont: część lokalna + części z pozostałych węzłów, posortowane i obcięte do limit
+    private void aggregateList(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                               Comparator<JsonNode> order, int limit) throws IOException, ServletException {
+        List<CompletableFuture<HttpResponse<byte[]>>> remote = queryPeers(request);
+        ContentCachingResponseWrapper local = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, local);
+        if (local.getStatus() != HttpStatus.OK.value()) {
+            local.copyBodyToResponse();
+            return;
+        }
+        List<JsonNode> accounts = new ArrayList<>();
+        objectMapper.readTree(local.getContentAsByteArray()).forEach(accounts::add);
+        for (int i = 0; i < remote.size(); i++) {
+            byte[] part = remoteBody(remote.get(i), router.peers().get(i), response);
+            if (part == null) {
+                return;
+            }
+            objectMapper.readTree(part).forEach(accounts::add);
+        }
+        accounts.sort(order);
+        ArrayNode merged = objectMapper.createArrayNode().addAll(accounts.size() > limit ? accounts.subList(0, limit) : accounts);
+        writeJson(response, objectMapper.writeValueAsBytes(merged));
+    }
+
+    // strony wyszukiwania: każdy węzeł zwraca swoje najmniejsze id za kursorem, scalamy i bierzemy limit pierwszych.
+    // Kolejna strona istnieje, gdy po scaleniu zostały konta albo któryś węzeł sam ma dalszą stronę
+    private void aggregateSearch(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                                 int limit) throws IOException, ServletException {
+        List<CompletableFuture<HttpResponse<byte[]>>> remote = queryPeers(request);
+        ContentCachingResponseWrapper local = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, local);
+        if (local.getStatus() != HttpStatus.OK.value()) {
+            local.copyBodyToResponse();
+            return;
+        }
+        List<JsonNode> pages = new ArrayList<>();
+        pages.add(objectMapper.readTree(local.getContentAsByteArray()));
+        for (int i = 0; i < remote.size(); i++) {
+            byte[] part = remoteBody(remote.get(i), router.peers().get(i), response);
+            if (part == null) {
+                return;
+            }
+            pages.add(objectMapper.readTree(part));
+        }
+        List<JsonNode> accounts = new ArrayList<>();
+        long total = 0;
+        boolean more = false;
+        for (JsonNode page : pages) {
+            page.path("accounts").forEach(accounts::add);
+            total += page.path("total").asLong();
+            more |= !page.path("nextCursor").isNull() && !page.path("nextCursor").isMissingNode();
+        }
+        accounts.sort(Comparator.comparingLong(node -> node.path("id").asLong()));
+        more |= accounts.size() > limit;
+        List<JsonNode> page = accounts.size() > limit ? accounts.subList(0, limit) : accounts;
+        ObjectNode merged = objectMapper.createObjectNode();
+        merged.putArray("accounts").addAll(page);
+        merged.put("total", total);
+        if (more && !page.isEmpty()) {
+            merged.put("nextCursor", page.get(page.size() - 1).path("id").asText());
+        } else {
+            merged.putNull("nextCursor");
+        }
+        writeJson(response, objectMapper.writeValueAsBytes(merged));
+    }
+
+    // rozkład sald: każdy węzeł (także lokalny) oddaje stan szkiców, które scalamy tak,
+    // jakby wszystkie salda były w jednym szkicu
+    private void aggregateDistribution(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        String peerQuery = request.getRequestURI() + "?sketch=true";
+        List<CompletableFuture<HttpResponse<byte[]>>> remote = new ArrayList<>();
+        for (String peer : router.peers()) {
+            remote.add(client.sendAsync(peer, "GET", peerQuery, null, null));
+        }
+        ContentCachingResponseWrapper local = new ContentCachingResponseWrapper(response);
+        chain.doFilter(new SketchRequest(request), local);
+        if (local.getStatus() != HttpStatus.OK.value()) {
+            local.copyBodyToResponse();
+            return;
+        }
+        List<BalanceDistribution> parts = new ArrayList<>();
+        parts.add(objectMapper.readValue(local.getContentAsByteArray(), BalanceDistribution.class));
+        for (int i = 0; i < remote.size(); i++) {
+            byte[] part = remoteBody(remote.get(i), router.peers().get(i), response);
+            if (part == null) {
+                return;
+            }
+            parts.add(objectMapper.readValue(part, BalanceDistribution.class));
+        }
+        boolean sketch = Boolean.parseBoolean(request.getParameter("sketch"));
+        writeJson(response, objectMapper.writeValueAsBytes(BalanceDistribution.merge(parts, sketch)));
+    }
+
+    private void aggregateTotal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        List<CompletableFuture<HttpResponse<byte[]>>> remote = queryPeers(request);
+        ContentCachingResponseWrapper local = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, local);
+        if (local.getStatus() != HttpStatus.OK.value()) {
+            local.copyBodyToResponse();
+            return;
+        }
+        double total = objectMapper.readTree(local.getContentAsByteArray()).asDouble();
+        for (int i = 0; i < remote.size(); i++) {
+            byte[] part = remoteBody(remote.get(i), router.peers().get(i), response);
+            if (part == null) {
+                return;
+            }
+            total += objectMapper.readTree(part).asDouble();
+        }
+        writeJson(response, objectMapper.writeValueAsBytes(total));
+    }
+
+    private List<CompletableFuture<HttpResponse<byte[]>>> queryPeers(HttpServletRequest request) {
+        List<CompletableFuture<HttpResponse<byte[]>>> futures = new ArrayList<>();
+        for (String peer : router.peers()) {
+            futures.add(client.sendAsync(peer, "GET", pathAndQuery(request), null, null));
+        }
+        return futures;
+    }
+
+    private byte[] remoteBody(CompletableFuture<HttpResponse<byte[]>> future, String peer, HttpServletResponse response)
+            throws IOException {
+        try {
+            HttpResponse<byte[]> part = future.join();
+            if (part.statusCode() == HttpStatus.OK.value()) {
+                return part.body();
+            }
+        } catch (RuntimeException e) {
+            // węzeł niedostępny - poniżej 503
+        }
+        response.resetBuffer();
+        unavailable(response, peer);
+        return null;
+    }
+
+    private static void writeJson(HttpServletResponse response, byte[] body) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static void unavailable(HttpServletResponse response, String node) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getOutputStream().write(("Cluster node " + node + " is unavailable").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long idFromBody(byte[] body, String field) {
+        try {
+            JsonNode id = objectMapper.readTree(body).get(field);
+            return id != null && id.canConvertToLong() ? id.asLong() : null;
+        } catch (IOException e) {
+            // niepoprawny JSON - niech obsłuży go kontroler
+            return null;
+        }
+    }
+
+    // wartość, której nie da się odczytać, obsługuje lokalny kontroler - odpowie 400 jak bez klastra
+    private static Long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer parseInt(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String pathAndQuery(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return request.getRequestURI() + (query == null ? "" : "?" + query);
+    }
+
+    // lokalne zapytanie o rozkład zawsze ze stanem szkiców
+    private static final class SketchRequest extends HttpServletRequestWrapper {
+
+        SketchRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getParameter(String name) {
+            return "sketch".equals(name) ? "true" : super.getParameter(name);
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            return "sketch".equals(name) ? new String[]{"true"} : super.getParameterValues(name);
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            Map<String, String[]> parameters = new HashMap<>(super.getParameterMap());
+            parameters.put("sketch", new String[]{"true"});
+            return parameters;
+        }
+    }
+
+    // Prefer: respond-async - klient nie czeka na wynik przelewu
+    private static boolean isRespondAsync(HttpServletRequest request) {
+        String prefer = request.getHeader("Prefer");
+        return prefer != null && prefer.contains("respond-async");
+    }
+
+    // treść żądania przeczytana w filtrze musi być dostępna jeszcze raz dla kontrolera
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // cała treść jest już w pamięci - dostępna od razu i od razu przeczytana
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.example.minibank.cluster;
+
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.audit.AuditLog;
+import com.example.minibank.exception.ClusterNodeUnavailableException;
+import com.example.minibank.ledger.TransactionLedger;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.OperationTrace;
+import com.example.minibank.shard.ShardedAccountStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// przelewy między węzłami: rezerwacja (obciążenie) na węźle konta źródłowego,
+// uznanie na węźle konta docelowego, potwierdzenie u źródła.
+// Uznanie jest idempotentne po transferId, więc gdy odpowiedź zginie, wątek odzyskiwania
+// ponawia je aż do rozstrzygnięcia - pieniądze nie mogą ani zniknąć, ani się podwoić.
+// Wpis deduplikacyjny u celu żyje do potwierdzenia, a źródło ponawia potwierdzenie, aż cel je przyjmie.
+// Z minibank.cluster.journal-dir oba stany przeżywają restart węzła (ClusterTransferJournal)
+@Component
+public class ClusterTransferCoordinator implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterTransferCoordinator.class);
+
+    public enum CreditResult {
+        CREDITED,
+        NOT_FOUND,
+        UNSUPPORTED_CURRENCY,
+        BLOCKED,
+        UNKNOWN
+    }
+
+    // przelew odtworzony z dziennika nie ma rezerwacji w pamięci
+    static final long NO_RESERVATION = 0;
+    // kompaktowanie dziennika po tylu rekordach
+    private static final int COMPACT_AFTER = 10_000;
+
+    // outcome == null - uznanie nierozstrzygnięte; inaczej czeka na przyjęcie potwierdzenia przez cel
+    record PendingTransfer(String transferId, long fromId, long toId, double amount, String currency,
+                           long reservationId, long createdAt, TransferOutcome outcome, double credited) {
+
+        PendingTransfer resolved(TransferOutcome outcome, double credited) {
+            return new PendingTransfer(transferId, fromId, toId, amount, currency, reservationId, createdAt,
+                    outcome, credited);
+        }
+    }
+
+    // credited - kwota uznania w walucie konta docelowego (NaN, gdy uznania nie było)
+    record AppliedCredit(CreditResult result, double credited) {
+    }
+
+    private static final AppliedCredit UNKNOWN_CREDIT = new AppliedCredit(CreditResult.UNKNOWN, Double.NaN);
+
+    private final ClusterRouter router;
+    private final ShardedAccountStore store;
+    private final TransactionLedger ledger;
+    private final ObjectMapper objectMapper;
+    private final AuditLog audit;
+    private final ClusterClient client;
+    private final long recoveryDelayNanos;
+    // strona źródłowa: przelewy z zarezerwowaną kwotą, bez przyjętego potwierdzenia
+    private final Map<String, PendingTransfer> pending = new ConcurrentHashMap<>();
+    // strona docelowa: uznania (także w toku), żeby powtórzone żądanie nie uznało konta drugi raz
+    private final Map<String, CompletableFuture<AppliedCredit>> applied = new ConcurrentHashMap<>();
+    // null - stan tylko w pamięci
+    private final ClusterTransferJournal journal;
+    private final ScheduledExecutorService recovery;
+
+    public ClusterTransferCoordinator(ClusterRouter router, ShardedAccountStore store, TransactionLedger ledger,
+                                      ObjectMapper objectMapper,
+                                      AccountMetrics metrics,
+                                      AuditLog audit,
+                                      @Value("${minibank.cluster.timeout:2s}") Duration timeout,
+                                      @Value("${minibank.cluster.recovery-interval:1s}") Duration recoveryInterval,
+                                      @Value("${minibank.cluster.journal-dir:}") String journalDir) throws IOException {
+        this.router = router;
+        this.store = store;
+        this.ledger = ledger;
+        this.objectMapper = objectMapper;
+        this.audit = audit;
+        // pierwsze żądanie uznania na pewno już się zakończyło (timeout) - dopiero wtedy je ponawiamy
+        this.recoveryDelayNanos = timeout.multipliedBy(2).toNanos();
+        this.client = router.isEnabled() ? new ClusterClient(timeout) : null;
+        if (router.isEnabled() && !journalDir.isBlank()) {
+            journal = new ClusterTransferJournal(Path.of(journalDir), router.getSelf());
+            // odtworzone przelewy są od razu gotowe do ponowienia
+            ClusterTransferJournal.Recovered recovered = journal.load(System.nanoTime() - recoveryDelayNanos);
+            pending.putAll(recovered.pending());
+            recovered.applied().forEach((id, credit) -> applied.put(id, CompletableFuture.completedFuture(credit)));
+            journal.compact(pending.values(), recovered.applied());
+            if (!pending.isEmpty() || !applied.isEmpty()) {
+                log.info("Restored {} cross-node transfers and {} applied credits", pending.size(), applied.size());
+            }
+        } else {
+            journal = null;
+        }
+        if (router.isEnabled()) {
+            recovery = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "cluster-transfer-recovery");
+                t.setDaemon(true);
+                return t;
+            });
+            recovery.scheduleWithFixedDelay(this::recover, recoveryInterval.toMillis(), recoveryInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+            metrics.gauge("minibank.cluster.transfers.pending", "Cross-node transfers waiting for credit confirmation",
+                    pending, Map::size);
+        } else {
+            recovery = null;
+        }
+    }
+
+    // konto źródłowe jest lokalne, docelowe na innym węźle
+    public TransferOutcome transferToRemote(long fromId, long toId, double amount, OperationTrace trace) {
+        long reservationId = store.nextReservationId();
+        TransferOutcome reserved = ShardedAccountStore.join(store.reserve(reservationId, fromId, amount, trace));
+        if (!reserved.isSuccess()) {
+            return reserved;
+        }
+        PendingTransfer transfer = new PendingTransfer(UUID.randomUUID().toString(), fromId, toId, amount,
+                trace.getSourceCurrency(), reservationId, System.nanoTime(), null, Double.NaN);
+        pending.put(transfer.transferId(), transfer);
+        if (journal != null) {
+            try {
+                // rezerwacja na dysku, zanim węzeł docelowy dostanie żądanie uznania
+                journal.reserved(transfer);
+            } catch (IOException e) {
+                release(transfer, trace);
+                throw new UncheckedIOException("Cannot journal cross-node transfer", e);
+            } catch (RuntimeException e) {
+                release(transfer, trace);
+                throw e;
+            }
+        }
+        return resolve(transfer, requestCredit(transfer), trace, false);
+    }
+
+    // przelew nie trafił do dziennika - żądanie uznania nie pójdzie, rezerwacja wraca od razu
+    private void release(PendingTransfer transfer, OperationTrace trace) {
+        pending.remove(transfer.transferId());
+        ShardedAccountStore.join(store.complete(transfer.reservationId(), transfer.fromId(), false, trace));
+    }
+
+    // konto źródłowe nie jest lokalne - cały przelew wykonuje jego właściciel
+    public TransferOutcome forwardTransfer(long fromId, long toId, double amount) {
+        String owner = router.ownerOf(fromId);
+        HttpResponse<byte[]> response;
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(Map.of("fromId", fromId, "toId", toId, "amount", amount));
+            response = client.send(owner, "POST", "/internal/cluster/transfer", "application/json", body);
+        } catch (ConnectException | HttpConnectTimeoutException e) {
+            // żądanie nie dotarło do właściciela - przelew na pewno nie został wykonany
+            throw new ClusterNodeUnavailableException("Node " + owner + " owning account " + fromId + " is unavailable");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return TransferOutcome.PENDING;
+        } catch (IOException e) {
+            // żądanie mogło zostać wykonane - nic nie zostało zarezerwowane lokalnie, a stanu u właściciela nie znamy
+            log.warn("Forwarding transfer {} -> {} to {} failed: {}", fromId, toId, owner, e.toString());
+            return TransferOutcome.PENDING;
+        }
+        String message = new String(response.body(), StandardCharsets.UTF_8).trim();
+        int status = response.statusCode();
+        if (status == 200) {
+            return TransferOutcome.valueOf(message);
+        }
+        // odrzucenie przez właściciela przed wykonaniem - ten sam błąd, jaki dostałby klient u właściciela
+        if (status == 503) {
+            throw new ClusterNodeUnavailableException(message.isEmpty() ? "Node " + owner + " is unavailable" : message);
+        }
+        if (status >= 400 && status < 500) {
+            throw new IllegalArgumentException(message);
+        }
+        log.warn("Forwarded transfer {} -> {} failed on {} with HTTP {}", fromId, toId, owner, status);
+        return TransferOutcome.PENDING;
+    }
+
+    // strona docelowa: uznanie dokładnie raz dla danego transferId.
+    // amount jest w walucie konta źródłowego (currency); fromId - tylko do wpisu w księdze
+    // Powtórzenie w trakcie uznania czeka na jego wynik; samo uznanie poza operacjami na mapie
+    public AppliedCredit applyCredit(String transferId, long fromId, long toId, double amount, String currency) {
+        CompletableFuture<AppliedCredit> mine = new CompletableFuture<>();
+        CompletableFuture<AppliedCredit> existing = applied.putIfAbsent(transferId, mine);
+        if (existing != null) {
+            return existing.join();
+        }
+        AppliedCredit credit;
+        try {
+            OperationTrace trace = new OperationTrace();
+            // ta strona zapisuje tylko uznanie; obciążenie zapisuje węzeł źródłowy
+            trace.onCommit(() -> ledger.recordTransferCredit(fromId, toId, trace.getCreditedAmount()));
+            TransferOutcome outcome = ShardedAccountStore.join(store.credit(toId, amount, currency, trace));
+            credit = new AppliedCredit(switch (outcome) {
+                case SUCCESS -> CreditResult.CREDITED;
+                case UNSUPPORTED_CURRENCY -> CreditResult.UNSUPPORTED_CURRENCY;
+                case ACCOUNT_BLOCKED -> CreditResult.BLOCKED;
+                default -> CreditResult.NOT_FOUND;
+            }, outcome.isSuccess() ? trace.getCreditedAmount() : Double.NaN);
+        } catch (RuntimeException e) {
+            // uznanie nie zostało wykonane - ponowienie może spróbować jeszcze raz
+            applied.remove(transferId, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        mine.complete(credit);
+        if (journal != null) {
+            try {
+                // wynik na dysku, zanim źródło dostanie odpowiedź
+                journal.applied(transferId, credit);
+            } catch (IOException e) {
+                // źródło ponowi żądanie i dostanie wynik z pamięci
+                throw new UncheckedIOException("Cannot journal credit of transfer " + transferId, e);
+            }
+        }
+        return credit;
+    }
+
+    // strona docelowa: źródło zatwierdziło przelew, wpis deduplikacyjny nie jest już potrzebny
+    public void confirm(String transferId) {
+        if (applied.remove(transferId) != null && journal != null) {
+            try {
+                journal.confirmed(transferId);
+            } catch (IOException e) {
+                log.error("Cannot journal confirmation of transfer {}", transferId, e);
+            }
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    private AppliedCredit requestCredit(PendingTransfer transfer) {
+        try {
+            Map<String, Object> request = new HashMap<>();
+            request.put("transferId", transfer.transferId());
+            request.put("fromId", transfer.fromId());
+            request.put("toId", transfer.toId());
+            request.put("amount", transfer.amount());
+            request.put("currency", transfer.currency());
+            byte[] body = objectMapper.writeValueAsBytes(request);
+            HttpResponse<byte[]> response = client.send(router.ownerOf(transfer.toId()), "POST", "/internal/cluster/credit",
+                    "application/json", body);
+            if (response.statusCode() == 200) {
+                CreditResponse credit = objectMapper.readValue(response.body(), CreditResponse.class);
+                return new AppliedCredit(credit.getResult(),
+                        credit.getCredited() == null ? Double.NaN : credit.getCredited());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.debug("Credit for transfer {} not confirmed: {}", transfer.transferId(), e.toString());
+        }
+        return UNKNOWN_CREDIT;
+    }
+
+    // wynik uznania: zapis w dzienniku, potem zatwierdzenie albo zwrot rezerwacji i potwierdzenie do celu.
+    // recovered - rozstrzygnięcie przez wątek odzyskiwania: klient dostał PENDING, więc wynik trafia do audytu tutaj
+    private TransferOutcome resolve(PendingTransfer transfer, AppliedCredit credit, OperationTrace trace,
+                                    boolean recovered) {
+        TransferOutcome outcome = switch (credit.result()) {
+            case CREDITED -> TransferOutcome.SUCCESS;
+            case NOT_FOUND -> TransferOutcome.ACCOUNT_NOT_FOUND;
+            case BLOCKED -> TransferOutcome.ACCOUNT_BLOCKED;
+            case UNSUPPORTED_CURRENCY -> TransferOutcome.UNSUPPORTED_CURRENCY;
+            case UNKNOWN -> TransferOutcome.PENDING;
+        };
+        if (outcome == TransferOutcome.PENDING) {
+            return outcome;
+        }
+        // kwotę po przeliczeniu zna tylko węzeł docelowy - przychodzi w odpowiedzi na uznanie
+        PendingTransfer resolved = transfer.resolved(outcome, outcome.isSuccess() ? credit.credited() : Double.NaN);
+        if (!pending.replace(transfer.transferId(), transfer, resolved)) {
+            // rozstrzygnięty równolegle - cel odpowiada na powtórzenia tym samym wynikiem
+            return outcome;
+        }
+        if (journal != null) {
+            try {
+                journal.resolved(resolved);
+            } catch (IOException e) {
+                // bez zapisu restart ponowiłby uznanie po potwierdzeniu - wstrzymujemy się do następnej próby
+                pending.replace(transfer.transferId(), resolved, transfer);
+                log.error("Cannot journal result of transfer {}", transfer.transferId(), e);
+                return TransferOutcome.PENDING;
+            }
+        }
+        if (outcome.isSuccess()) {
+            trace.setCreditedAmount(resolved.credited());
+            // ta strona zapisuje tylko obciążenie; uznanie zapisał węzeł docelowy
+            trace.onCommit(() -> ledger.recordTransferDebit(transfer.fromId(), transfer.toId(), transfer.amount()));
+            ShardedAccountStore.join(store.complete(transfer.reservationId(), transfer.fromId(), true, trace));
+        } else if (transfer.reservationId() != NO_RESERVATION) {
+            ShardedAccountStore.join(store.complete(transfer.reservationId(), transfer.fromId(), false, trace));
+        } else {
+            // rezerwacja sprzed restartu - kwota wraca uznaniem konta źródłowego
+            ShardedAccountStore.join(store.credit(transfer.fromId(), transfer.amount(), transfer.currency(), trace));
+        }
+        if (recovered) {
+            audit.transfer(transfer.fromId(), transfer.toId(), transfer.amount(), resolved.credited(), outcome);
+        }
+        sendConfirm(resolved);
+        return outcome;
+    }
+
+    private void sendConfirm(PendingTransfer transfer) {
+        try {
+            client.sendAsync(router.ownerOf(transfer.toId()), "POST", "/internal/cluster/confirm", "application/json",
+                            confirmBody(transfer))
+                    .thenAccept(response -> {
+                        if (response.statusCode() == 200) {
+                            acknowledged(transfer);
+                        }
+                    });
+        } catch (Exception e) {
+            // wątek odzyskiwania ponowi potwierdzenie
+            log.debug("Confirm for transfer {} not sent: {}", transfer.transferId(), e.toString());
+        }
+    }
+
+    private boolean confirmNow(PendingTransfer transfer) {
+        try {
+            HttpResponse<byte[]> response = client.send(router.ownerOf(transfer.toId()), "POST",
+                    "/internal/cluster/confirm", "application/json", confirmBody(transfer));
+            if (response.statusCode() == 200) {
+                acknowledged(transfer);
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.debug("Confirm for transfer {} not sent: {}", transfer.transferId(), e.toString());
+        }
+        return false;
+    }
+
+    private byte[] confirmBody(PendingTransfer transfer) throws IOException {
+        return objectMapper.writeValueAsBytes(Map.of("transferId", transfer.transferId()));
+    }
+
+    private void acknowledged(PendingTransfer transfer) {
+        if (pending.remove(transfer.transferId()) != null && journal != null) {
+            try {
+                journal.acknowledged(transfer.transferId());
+            } catch (IOException e) {
+                log.error("Cannot journal acknowledgement of transfer {}", transfer.transferId(), e);
+            }
+        }
+    }
+
+    // ponawianie nierozstrzygniętych uznań i nieprzyjętych potwierdzeń, kompaktowanie dziennika
+    void recover() {
+        long now = System.nanoTime();
+        for (PendingTransfer transfer : pending.values()) {
+            if (now - transfer.createdAt() < recoveryDelayNanos) {
+                continue;
+            }
+            if (transfer.outcome() != null) {
+                confirmNow(transfer);
+                continue;
+            }
+            TransferOutcome outcome = resolve(transfer, requestCredit(transfer), new OperationTrace(), true);
+            if (outcome != TransferOutcome.PENDING) {
+                log.info("Recovered cross-node transfer {} ({} -> {}): {}", transfer.transferId(), transfer.fromId(),
+                        transfer.toId(), outcome);
+            }
+        }
+        if (journal != null && journal.recordsSinceCompaction() >= COMPACT_AFTER) {
+            Map<String, AppliedCredit> credits = new HashMap<>();
+            applied.forEach((id, credit) -> {
+                // uznania w toku dopiszą swój rekord po kompaktowaniu
+                if (credit.isDone() && !credit.isCompletedExceptionally()) {
+                    credits.put(id, credit.join());
+                }
+            });
+            try {
+                journal.compact(pending.values(), credits);
+            } catch (IOException e) {
+                log.error("Cannot compact cluster transfer journal", e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (recovery != null) {
+            recovery.shutdownNow();
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Cannot close cluster transfer journal", e);
+            }
+        }
+    }
+}
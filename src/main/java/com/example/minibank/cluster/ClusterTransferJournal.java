@@ -0,0 +1,214 @@
+package com.example.minibank.cluster;
+
+import com.example.minibank.TransferOutcome;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// trwały dziennik przelewów między węzłami. Strona źródłowa: RESERVED (kwota zarezerwowana, zanim pójdzie
+// żądanie uznania), RESOLVED (wynik uznania, zanim pójdzie potwierdzenie), ACKNOWLEDGED (węzeł docelowy przyjął
+// potwierdzenie). Strona docelowa: APPLIED (wynik uznania, zanim pójdzie odpowiedź) i CONFIRMED.
+// RESERVED, RESOLVED i APPLIED są wymuszane na dysk (fsync) przed wysłaniem czegokolwiek do drugiego węzła.
+// Rekord trafia do dziennika w całości: najpierw serializacja do bufora, dopiero potem zapis.
+// Po starcie: odczyt dziennika (urwany ostatni rekord jest pomijany) i kompaktowanie do samych żywych wpisów
+final class ClusterTransferJournal implements Closeable {
+
+    private static final byte RESERVED = 'R';
+    private static final byte RESOLVED = 'S';
+    private static final byte ACKNOWLEDGED = 'K';
+    private static final byte APPLIED = 'A';
+    private static final byte CONFIRMED = 'C';
+    private static final TransferOutcome[] OUTCOMES = TransferOutcome.values();
+    private static final ClusterTransferCoordinator.CreditResult[] RESULTS = ClusterTransferCoordinator.CreditResult.values();
+
+    // przelewy odtworzone z dziennika: bez rezerwacji w pamięci (reservationId NO_RESERVATION)
+    record Recovered(Map<String, ClusterTransferCoordinator.PendingTransfer> pending,
+                     Map<String, ClusterTransferCoordinator.AppliedCredit> applied) {
+    }
+
+    private final Path journal;
+    private DataOutputStream out;
+    private FileChannel channel;
+    private int records;
+
+    // node - minibank.cluster.self; każdy węzeł ma własny plik, także we wspólnym katalogu
+    ClusterTransferJournal(Path dir, String node) throws IOException {
+        Files.createDirectories(dir);
+        this.journal = dir.resolve(fileName(node));
+    }
+
+    static String fileName(String node) {
+        return "transfers-" + node.replaceAll("[^A-Za-z0-9.-]+", "_") + ".journal";
+    }
+
+    Recovered load(long createdAt) throws IOException {
+        Map<String, ClusterTransferCoordinator.PendingTransfer> pending = new HashMap<>();
+        Map<String, ClusterTransferCoordinator.AppliedCredit> applied = new HashMap<>();
+        if (Files.exists(journal)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journal), 1 << 16))) {
+                while (true) {
+                    byte type = in.readByte();
+                    switch (type) {
+                        case RESERVED -> {
+                            String id = in.readUTF();
+                            pending.put(id, new ClusterTransferCoordinator.PendingTransfer(id, in.readLong(),
+                                    in.readLong(), in.readDouble(), in.readBoolean() ? in.readUTF() : null,
+                                    ClusterTransferCoordinator.NO_RESERVATION, createdAt, null, Double.NaN));
+                        }
+                        case RESOLVED -> {
+                            String id = in.readUTF();
+                            TransferOutcome outcome = OUTCOMES[in.readByte()];
+                            double credited = in.readDouble();
+                            pending.computeIfPresent(id, (key, transfer) -> transfer.resolved(outcome, credited));
+                        }
+                        case ACKNOWLEDGED -> pending.remove(in.readUTF());
+                        case APPLIED -> {
+                            String id = in.readUTF();
+                            applied.put(id, new ClusterTransferCoordinator.AppliedCredit(RESULTS[in.readByte()],
+                                    in.readDouble()));
+                        }
+                        case CONFIRMED -> applied.remove(in.readUTF());
+                        default -> throw new IOException("Corrupted cluster transfer journal record: " + type);
+                    }
+                }
+            } catch (EOFException endOfJournal) {
+                // koniec dziennika albo urwany ostatni rekord
+            }
+        }
+        return new Recovered(pending, applied);
+    }
+
+    // nowy dziennik z samymi żywymi wpisami (plik tymczasowy, fsync i atomowa podmiana)
+    synchronized void compact(Collection<ClusterTransferCoordinator.PendingTransfer> pending,
+                              Map<String, ClusterTransferCoordinator.AppliedCredit> applied) throws IOException {
+        Path tmp = journal.resolveSibling(journal.getFileName() + ".tmp");
+        try (FileChannel tmpChannel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(tmpChannel), 1 << 16));
+            for (ClusterTransferCoordinator.PendingTransfer transfer : pending) {
+                writeReserved(tmpOut, transfer);
+                if (transfer.outcome() != null) {
+                    writeResolved(tmpOut, transfer);
+                }
+            }
+            for (Map.Entry<String, ClusterTransferCoordinator.AppliedCredit> entry : applied.entrySet()) {
+                writeApplied(tmpOut, entry.getKey(), entry.getValue());
+            }
+            tmpOut.flush();
+            tmpChannel.force(true);
+        }
+        Files.move(tmp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (out != null) {
+            out.close();
+        }
+        channel = FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        records = 0;
+    }
+
+    synchronized int recordsSinceCompaction() {
+        return records;
+    }
+
+    synchronized void reserved(ClusterTransferCoordinator.PendingTransfer transfer) throws IOException {
+        out.write(encode(record -> writeReserved(record, transfer)));
+        force();
+    }
+
+    synchronized void resolved(ClusterTransferCoordinator.PendingTransfer transfer) throws IOException {
+        out.write(encode(record -> writeResolved(record, transfer)));
+        force();
+    }
+
+    // bez fsync: zgubiony rekord oznacza tylko ponowne potwierdzenie po restarcie
+    synchronized void acknowledged(String transferId) throws IOException {
+        out.write(encode(record -> {
+            record.writeByte(ACKNOWLEDGED);
+            record.writeUTF(transferId);
+        }));
+        out.flush();
+        records++;
+    }
+
+    synchronized void applied(String transferId, ClusterTransferCoordinator.AppliedCredit credit) throws IOException {
+        out.write(encode(record -> writeApplied(record, transferId, credit)));
+        force();
+    }
+
+    // bez fsync: zgubiony rekord zostawia tylko wpis deduplikacyjny do następnego kompaktowania po restarcie
+    synchronized void confirmed(String transferId) throws IOException {
+        out.write(encode(record -> {
+            record.writeByte(CONFIRMED);
+            record.writeUTF(transferId);
+        }));
+        out.flush();
+        records++;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+    }
+
+    private void force() throws IOException {
+        out.flush();
+        channel.force(false);
+        records++;
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream record) throws IOException;
+    }
+
+    // wyjątek w trakcie serializacji nie zostawia w dzienniku połowy rekordu
+    private static byte[] encode(RecordWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        writer.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static void writeReserved(DataOutputStream out, ClusterTransferCoordinator.PendingTransfer transfer) throws IOException {
+        out.writeByte(RESERVED);
+        out.writeUTF(transfer.transferId());
+        out.writeLong(transfer.fromId());
+        out.writeLong(transfer.toId());
+        out.writeDouble(transfer.amount());
+        // konto bez waluty - przeliczenie u celu przyjmuje kwotę bez zmian
+        out.writeBoolean(transfer.currency() != null);
+        if (transfer.currency() != null) {
+            out.writeUTF(transfer.currency());
+        }
+    }
+
+    private static void writeResolved(DataOutputStream out, ClusterTransferCoordinator.PendingTransfer transfer) throws IOException {
+        out.writeByte(RESOLVED);
+        out.writeUTF(transfer.transferId());
+        out.writeByte(transfer.outcome().ordinal());
+        out.writeDouble(transfer.credited());
+    }
+
+    private static void writeApplied(DataOutputStream out, String transferId,
+                                     ClusterTransferCoordinator.AppliedCredit credit) throws IOException {
+        out.writeByte(APPLIED);
+        out.writeUTF(transferId);
+        out.writeByte(credit.result().ordinal());
+        out.writeDouble(credit.credited());
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.minibank.cluster;
+
+public class CreditRequest {
+    private String transferId;
+    private Long fromId;
+    private Long toId;
+    private double amount;
+    // waluta kwoty (konta źródłowego)
+    private String currency;
+
+    public String getTransferId() {
+        return transferId;
+    }
+    public void setTransferId(String transferId) {
+        this.transferId = transferId;
+    }
+
+    public Long getFromId() {
+        return fromId;
+    }
+    public void setFromId(Long fromId) {
+        this.fromId = fromId;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+    public void setToId(Long toId) {
+        this.toId = toId;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+}
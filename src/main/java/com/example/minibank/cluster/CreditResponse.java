@@ -0,0 +1,21 @@
+package com.example.minibank.cluster;
+
+public class CreditResponse {
+    private ClusterTransferCoordinator.CreditResult result;
+    // kwota uznania w walucie konta docelowego; null - uznania nie było
+    private Double credited;
+
+    public ClusterTransferCoordinator.CreditResult getResult() {
+        return result;
+    }
+    public void setResult(ClusterTransferCoordinator.CreditResult result) {
+        this.result = result;
+    }
+
+    public Double getCredited() {
+        return credited;
+    }
+    public void setCredited(Double credited) {
+        this.credited = credited;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.minibank.exception;
+
+public class AccrualRunNotFoundException extends RuntimeException {
+    public AccrualRunNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.minibank.exception;
+
+// węzeł właściciela konta nie przyjął żądania, więc nic nie zostało wykonane - klient ma spróbować później (503)
+public class ClusterNodeUnavailableException extends RuntimeException {
+    public ClusterNodeUnavailableException(String message) {
+        super(message);
+    }
+}
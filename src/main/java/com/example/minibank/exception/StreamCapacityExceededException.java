@@ -0,0 +1,8 @@
+package com.example.minibank.exception;
+
+// węzeł ma już maksymalną liczbę subskrybentów strumienia sald - klient ma spróbować później (503)
+public class StreamCapacityExceededException extends RuntimeException {
+    public StreamCapacityExceededException(String message) {
+        super(message);
+    }
+}
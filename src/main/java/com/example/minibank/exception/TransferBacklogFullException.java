@@ -0,0 +1,8 @@
+package com.example.minibank.exception;
+
+// za dużo przelewów asynchronicznych czeka na wykonanie - klient ma spróbować później (503)
+public class TransferBacklogFullException extends RuntimeException {
+    public TransferBacklogFullException(String message) {
+        super(message);
+    }
+}
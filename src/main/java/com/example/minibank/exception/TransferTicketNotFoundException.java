@@ -0,0 +1,7 @@
+package com.example.minibank.exception;
+
+public class TransferTicketNotFoundException extends RuntimeException {
+    public TransferTicketNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.minibank.fx;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// niezmienna tabela kursów z policzonymi z góry kursami krzyżowymi (macierz n x n),
+// więc przeliczenie to dwa odczyty indeksu i jedno mnożenie
+public final class FxRateTable {
+
+    private final String base;
+    private final Map<String, Integer> index;
+    private final double[][] cross;
+
+    // perBase: ile jednostek waluty bazowej za 1 jednostkę danej waluty
+    public FxRateTable(String base, Map<String, Double> perBase) {
+        if (base == null || base.isBlank()) {
+            throw new IllegalArgumentException("Base currency is required");
+        }
+        Map<String, Double> rates = new HashMap<>(perBase);
+        rates.put(base, 1.0);
+        String[] currencies = rates.keySet().toArray(String[]::new);
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < currencies.length; i++) {
+            double rate = rates.get(currencies[i]);
+            if (!(rate > 0) || Double.isInfinite(rate)) {
+                throw new IllegalArgumentException("Invalid rate for " + currencies[i] + ": " + rate);
+            }
+            positions.put(currencies[i], i);
+        }
+        double[][] matrix = new double[currencies.length][currencies.length];
+        for (int from = 0; from < currencies.length; from++) {
+            for (int to = 0; to < currencies.length; to++) {
+                matrix[from][to] = from == to ? 1.0 : rates.get(currencies[from]) / rates.get(currencies[to]);
+            }
+        }
+        this.base = base;
+        this.index = Map.copyOf(positions);
+        this.cross = matrix;
+    }
+
+    public String getBase() {
+        return base;
+    }
+
+    public Set<String> currencies() {
+        return index.keySet();
+    }
+
+    public boolean supports(String currency) {
+        return index.containsKey(currency);
+    }
+
+    // kurs from -> to; IllegalArgumentException dla nieznanej waluty
+    public double rate(String from, String to) {
+        return cross[position(from)][position(to)];
+    }
+
+    private int position(String currency) {
+        Integer position = currency == null ? null : index.get(currency);
+        if (position == null) {
+            throw new IllegalArgumentException("Unsupported currency: " + currency);
+        }
+        return position;
+    }
+}
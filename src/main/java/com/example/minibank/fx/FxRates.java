@@ -0,0 +1,144 @@
+package com.example.minibank.fx;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// aktualna tabela kursów. Odczyt to jeden odczyt pola volatile (bez blokad i bez czekania),
+// aktualizacja buduje całą nową tabelę z pliku i podmienia referencję.
+// Plik (minibank.fx.rates-file) jest sprawdzany co reload-interval; błędny plik nie zmienia tabeli.
+@Component
+public class FxRates implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FxRates.class);
+    private static final String DEFAULT_RATES = "/fx/rates.properties";
+
+    private volatile FxRateTable table;
+    private final Path file;
+    private final ScheduledExecutorService reloader;
+    private FileTime loadedVersion;
+
+    // tylko domyślne kursy z classpath
+    public FxRates() {
+        this.table = loadDefaults();
+        this.file = null;
+        this.reloader = null;
+    }
+
+    @Autowired
+    public FxRates(@Value("${minibank.fx.rates-file:}") String file,
+                   @Value("${minibank.fx.reload-interval:5s}") Duration reloadInterval) {
+        this.table = loadDefaults();
+        if (file.isBlank()) {
+            this.file = null;
+            this.reloader = null;
+            return;
+        }
+        this.file = Path.of(file);
+        reload();
+        this.reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fx-rates-reload");
+            t.setDaemon(true);
+            return t;
+        });
+        reloader.scheduleWithFixedDelay(this::reloadIfModified, reloadInterval.toMillis(), reloadInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public FxRateTable table() {
+        return table;
+    }
+
+    public void replace(FxRateTable table) {
+        this.table = table;
+    }
+
+    // kwota w walucie to; ta sama waluta (albo konto bez waluty) - bez zaglądania do tabeli
+    public double convert(double amount, String from, String to) {
+        if (from == null || to == null || from.equals(to)) {
+            return amount;
+        }
+        return amount * table.rate(from, to);
+    }
+
+    // wczytuje plik od nowa; true - tabela została podmieniona
+    public synchronized boolean reload() {
+        if (file == null) {
+            return false;
+        }
+        try {
+            FileTime version = Files.getLastModifiedTime(file);
+            try (InputStream in = Files.newInputStream(file)) {
+                table = parse(in);
+            }
+            loadedVersion = version;
+            log.info("Loaded FX rates from {}: {}", file, table.currencies());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("FX rates from {} not loaded, keeping the previous table: {}", file, e.toString());
+            return false;
+        }
+    }
+
+    private synchronized void reloadIfModified() {
+        try {
+            if (!Files.getLastModifiedTime(file).equals(loadedVersion)) {
+                reload();
+            }
+        } catch (IOException e) {
+            log.warn("FX rates file {} not readable: {}", file, e.toString());
+        }
+    }
+
+    static FxRateTable parse(InputStream in) throws IOException {
+        Properties properties = new Properties();
+        properties.load(in);
+        String base = properties.getProperty("base");
+        Map<String, Double> rates = new HashMap<>();
+        for (String currency : properties.stringPropertyNames()) {
+            if (!currency.equals("base")) {
+                try {
+                    rates.put(currency.trim(), Double.parseDouble(properties.getProperty(currency).trim()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid rate for " + currency);
+                }
+            }
+        }
+        return new FxRateTable(base == null ? null : base.trim(), rates);
+    }
+
+    private static FxRateTable loadDefaults() {
+        try (InputStream in = FxRates.class.getResourceAsStream(DEFAULT_RATES)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing " + DEFAULT_RATES);
+            }
+            return parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.minibank.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("minibank.AccountLookup")
+@Label("Account Lookup")
+@Description("AccountService.getAccountById slower than the threshold")
+@Category({"MiniBank", "Accounts"})
+@StackTrace(false)
+@Threshold("1 ms")
+public class AccountLookupEvent extends jdk.jfr.Event {
+
+    @Label("Account")
+    long accountId;
+
+    @Label("Found")
+    boolean found;
+
+    public void complete(Long accountId, boolean found) {
+        end();
+        if (shouldCommit()) {
+            this.accountId = accountId == null ? -1 : accountId;
+            this.found = found;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.minibank.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("minibank.AccountQuery")
+@Label("Account Query")
+@Description("Listing and filtering operations of AccountService slower than the threshold")
+@Category({"MiniBank", "Accounts"})
+@StackTrace(false)
+@Threshold("10 ms")
+public class AccountQueryEvent extends jdk.jfr.Event {
+
+    @Label("Query")
+    String query;
+
+    @Label("Argument")
+    String argument;
+
+    @Label("Result Count")
+    int resultCount;
+
+    public void complete(String query, Object argument, int resultCount) {
+        end();
+        if (shouldCommit()) {
+            this.query = query;
+            this.argument = argument == null ? null : String.valueOf(argument);
+            this.resultCount = resultCount;
+            commit();
+        }
+    }
+}
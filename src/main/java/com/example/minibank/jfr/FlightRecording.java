@@ -0,0 +1,55 @@
+package com.example.minibank.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// ciągłe nagranie JFR z domyślnymi ustawieniami JDK + progami z jfr/minibank.jfc,
+// zapisywane do pliku przy zamknięciu aplikacji
+@Component
+@ConditionalOnProperty(prefix = "minibank.jfr", name = "enabled", havingValue = "true")
+public class FlightRecording {
+
+    public static final String SETTINGS_RESOURCE = "/jfr/minibank.jfc";
+
+    private final Recording recording;
+
+    public FlightRecording(@Value("${minibank.jfr.file:minibank.jfr}") Path file,
+                           @Value("${minibank.jfr.max-age:30m}") Duration maxAge) throws IOException, ParseException {
+        recording = new Recording(settings());
+        recording.setName("minibank");
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setDestination(file);
+        recording.start();
+    }
+
+    public static Map<String, String> settings() throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        try (Reader reader = new InputStreamReader(
+                FlightRecording.class.getResourceAsStream(SETTINGS_RESOURCE), StandardCharsets.UTF_8)) {
+            settings.putAll(Configuration.create(reader).getSettings());
+        }
+        return settings;
+    }
+
+    @PreDestroy
+    public void stop() {
+        // przy ustawionym destination stop() zapisuje nagranie na dysk
+        recording.stop();
+        recording.close();
+    }
+}
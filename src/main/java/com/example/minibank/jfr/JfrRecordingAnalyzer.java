@@ -0,0 +1,124 @@
+package com.example.minibank.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+// analiza nagrania offline: najwolniejsze operacje i najgorętsze konta
+// java -cp target/classes com.example.minibank.jfr.JfrRecordingAnalyzer minibank.jfr [top]
+public final class JfrRecordingAnalyzer {
+
+    private static final String PREFIX = "minibank.";
+
+    public record SlowOperation(String event, Instant start, Duration duration, String details) {
+    }
+
+    public record HotAccount(long accountId, long events, Duration totalDuration, Duration queueWait) {
+    }
+
+    public record Summary(Map<String, Long> eventCounts, List<SlowOperation> slowest, List<HotAccount> hottest) {
+
+        public void print(PrintStream out) {
+            out.println("=== MiniBank JFR summary ===");
+            eventCounts.forEach((name, count) -> out.printf("%-24s %8d events%n", name, count));
+            out.println();
+            out.println("Slowest operations:");
+            for (SlowOperation op : slowest) {
+                out.printf("  %10.3f ms  %-24s %s  %s%n", op.duration().toNanos() / 1_000_000.0, op.event(), op.start(), op.details());
+            }
+            out.println();
+            out.println("Hottest accounts:");
+            for (HotAccount account : hottest) {
+                out.printf("  account %-10d %6d events  %10.3f ms total  %10.3f ms queue wait%n", account.accountId(),
+                        account.events(), account.totalDuration().toNanos() / 1_000_000.0, account.queueWait().toNanos() / 1_000_000.0);
+            }
+        }
+    }
+
+    private JfrRecordingAnalyzer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: JfrRecordingAnalyzer <recording.jfr> [top]");
+            System.exit(1);
+        }
+        int top = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        analyze(Path.of(args[0]), top).print(System.out);
+    }
+
+    public static Summary analyze(Path file, int top) throws IOException {
+        Map<String, Long> counts = new TreeMap<>();
+        PriorityQueue<SlowOperation> slowest = new PriorityQueue<>(Comparator.comparing(SlowOperation::duration));
+        Map<Long, long[]> accounts = new HashMap<>(); // [liczba zdarzeń, suma czasu, suma czekania w kolejce shardu]
+
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                String name = event.getEventType().getName();
+                if (!name.startsWith(PREFIX)) {
+                    continue;
+                }
+                counts.merge(name, 1L, Long::sum);
+                slowest.add(new SlowOperation(name, event.getStartTime(), event.getDuration(), details(event)));
+                if (slowest.size() > top) {
+                    slowest.poll();
+                }
+                long nanos = event.getDuration().toNanos();
+                switch (name) {
+                    case "minibank.Transfer" -> {
+                        long queueWait = event.getLong("queueWait");
+                        touch(accounts, event.getLong("fromId"), nanos, queueWait);
+                        touch(accounts, event.getLong("toId"), nanos, queueWait);
+                    }
+                    case "minibank.AccountLookup" -> touch(accounts, event.getLong("accountId"), nanos, 0);
+                    case "minibank.ShardQueueWait" -> touch(accounts, event.getLong("accountId"), 0, nanos);
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        List<SlowOperation> slowList = new ArrayList<>(slowest);
+        slowList.sort(Comparator.comparing(SlowOperation::duration).reversed());
+        List<HotAccount> hottest = accounts.entrySet().stream()
+                .filter(e -> e.getKey() >= 0)
+                .map(e -> new HotAccount(e.getKey(), e.getValue()[0], Duration.ofNanos(e.getValue()[1]), Duration.ofNanos(e.getValue()[2])))
+                .sorted(Comparator.comparingLong(HotAccount::events).thenComparing(HotAccount::totalDuration).reversed())
+                .limit(top)
+                .toList();
+        return new Summary(counts, slowList, hottest);
+    }
+
+    private static void touch(Map<Long, long[]> accounts, long id, long nanos, long queueWait) {
+        long[] stats = accounts.computeIfAbsent(id, k -> new long[3]);
+        stats[0]++;
+        stats[1] += nanos;
+        stats[2] += queueWait;
+    }
+
+    private static String details(RecordedEvent event) {
+        return switch (event.getEventType().getName()) {
+            case "minibank.Transfer" -> event.getLong("fromId") + " -> " + event.getLong("toId") + " amount="
+                    + event.getDouble("amount") + " " + event.getString("outcome") + " queueWait="
+                    + event.getLong("queueWait") + "ns";
+            case "minibank.AccountLookup" -> "account=" + event.getLong("accountId") + " found=" + event.getBoolean("found");
+            case "minibank.AccountQuery" -> event.getString("query") + "(" + event.getString("argument") + ") results="
+                    + event.getInt("resultCount");
+            case "minibank.ShardQueueWait" -> "account=" + event.getLong("accountId") + " shard=" + event.getInt("shard");
+            default -> "";
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.minibank.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("minibank.ShardQueueWait")
+@Label("Shard Queue Wait")
+@Description("Time an operation waited in the queue of the shard that owns the account")
+@Category({"MiniBank", "Contention"})
+@Threshold("100 us")
+public class ShardQueueWaitEvent extends jdk.jfr.Event {
+
+    @Label("Account")
+    long accountId;
+
+    @Label("Shard")
+    int shard;
+
+    public void complete(long accountId, int shard) {
+        end();
+        if (shouldCommit()) {
+            this.accountId = accountId;
+            this.shard = shard;
+            commit();
+        }
+    }
+}
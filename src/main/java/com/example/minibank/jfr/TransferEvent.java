@@ -0,0 +1,48 @@
+package com.example.minibank.jfr;
+
+import com.example.minibank.TransferOutcome;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+@Name("minibank.Transfer")
+@Label("Transfer")
+@Description("AccountService.transfer slower than the threshold")
+@Category({"MiniBank", "Accounts"})
+@StackTrace(false)
+@Threshold("1 ms")
+public class TransferEvent extends jdk.jfr.Event {
+
+    @Label("From Account")
+    long fromId;
+
+    @Label("To Account")
+    long toId;
+
+    @Label("Amount")
+    double amount;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait;
+
+    // pola ustawiane dopiero, gdy zdarzenie przekroczyło próg
+    public void complete(Long fromId, Long toId, double amount, TransferOutcome outcome, long queueWaitNanos) {
+        end();
+        if (shouldCommit()) {
+            this.fromId = fromId == null ? -1 : fromId;
+            this.toId = toId == null ? -1 : toId;
+            this.amount = amount;
+            this.outcome = outcome.name();
+            this.queueWait = queueWaitNanos;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.minibank.leaderboard;
+
+import com.example.minibank.Account;
+import com.example.minibank.shard.AccountChangeListener;
+import com.example.minibank.shard.AccountShard;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// największe salda: ogółem (kwoty bez przeliczania walut, jak w totalBalance) i w każdej walucie.
+// Każdy shard ma własne ograniczone listy aktualizowane przez listener przy każdej zmianie salda,
+// więc zapytanie to scalenie n pierwszych wpisów z każdego shardu - bez przeglądania kont
+@Component
+public class AccountLeaderboard implements AccountChangeListener {
+
+    private static final Comparator<Account> BY_BALANCE = Comparator.comparingDouble(Account::getBalance).reversed()
+            .thenComparing(Account::getId);
+
+    private final ShardedAccountStore store;
+    private final int capacity;
+    private final ShardBoards[] shards;
+
+    // listy jednego shardu; memberCurrency - waluta listy, w której konto jest teraz wpisem
+    private final class ShardBoards {
+        final TopAccounts overall = new TopAccounts(capacity, id -> { });
+        final Map<String, TopAccounts> byCurrency = new HashMap<>();
+        final Map<Long, String> memberCurrency = new HashMap<>();
+
+        void changed(Account account) {
+            long id = account.getId();
+            overall.update(id, account.getBalance());
+            String currency = account.getCurrency();
+            String previous = memberCurrency.get(id);
+            if (previous != null && !previous.equals(currency)) {
+                byCurrency.get(previous).remove(id);
+                memberCurrency.remove(id);
+            }
+            if (currency == null) {
+                return;
+            }
+            TopAccounts board = byCurrency.computeIfAbsent(currency, c -> new TopAccounts(capacity, memberCurrency::remove));
+            board.update(id, account.getBalance());
+            if (board.contains(id)) {
+                memberCurrency.put(id, currency);
+            }
+        }
+
+        void removed(long id) {
+            overall.remove(id);
+            String currency = memberCurrency.remove(id);
+            if (currency != null) {
+                byCurrency.get(currency).remove(id);
+            }
+        }
+
+        // kopie kont z n pierwszych wpisów; lista odbudowywana, jeśli wpisów nie wystarcza
+        List<Account> top(AccountShard shard, int n, String currency) {
+            TopAccounts board = currency == null ? overall : byCurrency.get(currency);
+            if (board == null) {
+                return List.of();
+            }
+            if (!board.covers(n)) {
+                board.rebuild(sink -> {
+                    for (Account account : shard.accounts()) {
+                        if (currency == null || currency.equals(account.getCurrency())) {
+                            sink.accept(new TopAccounts.Entry(account.getId(), account.getBalance()));
+                        }
+                    }
+                });
+                if (currency != null) {
+                    memberCurrency.values().removeIf(currency::equals);
+                    board.forEachMember(id -> memberCurrency.put(id, currency));
+                }
+            }
+            List<Account> result = new ArrayList<>();
+            for (TopAccounts.Entry entry : board.first(n)) {
+                result.add(new Account(shard.find(entry.id())));
+            }
+            return result;
+        }
+    }
+
+    public AccountLeaderboard(ShardedAccountStore store) {
+        this(store, 100);
+    }
+
+    @Autowired
+    public AccountLeaderboard(ShardedAccountStore store, @Value("${minibank.top.capacity:100}") int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Leaderboard capacity must be positive");
+        }
+        this.store = store;
+        this.capacity = capacity;
+        this.shards = new ShardBoards[store.shardCount()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ShardBoards();
+        }
+        store.addListener(this);
+        // konta dodane przed rejestracją listenera
+        store.scatter(shard -> {
+            for (Account account : shard.accounts()) {
+                shards[shard.getIndex()].changed(account);
+            }
+            return null;
+        });
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void accountChanged(int shard, Account account) {
+        shards[shard].changed(account);
+    }
+
+    @Override
+    public void accountRemoved(int shard, long id) {
+        shards[shard].removed(id);
+    }
+
+    // n największych sald, opcjonalnie tylko w walucie currency
+    public List<Account> top(int n, String currency) {
+        if (n <= 0 || n > capacity) {
+            throw new IllegalArgumentException("n must be between 1 and " + capacity);
+        }
+        List<Account> merged = new ArrayList<>();
+        for (List<Account> part : store.scatter(shard -> shards[shard.getIndex()].top(shard, n, currency))) {
+            merged.addAll(part);
+        }
+        merged.sort(BY_BALANCE);
+        return merged.size() > n ? new ArrayList<>(merged.subList(0, n)) : merged;
+    }
+}
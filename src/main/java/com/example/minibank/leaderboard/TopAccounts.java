@@ -0,0 +1,131 @@
+package com.example.minibank.leaderboard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+// ograniczona lista największych sald jednego shardu (jednej waluty) - tylko na wątku shardu.
+// Kolejność: saldo malejąco, przy równych saldach id rosnąco - porządek całkowity.
+// Niezmiennik: każde konto spoza zbioru ma klucz nie wyższy niż floor, więc pierwsze n wpisów
+// zbioru to prawdziwe top n, o ile zbiór ma ich co najmniej n (albo floor jest pusty - zbiór ma wszystkie konta).
+// Konto ze zbioru, które spadło poniżej floor, wypada z niego; konto spoza zbioru, które przebiło floor, wchodzi.
+// Gdy zbiór urośnie do 2 * capacity, przycinamy go do capacity i podnosimy floor.
+// Gdy przez spadki zostanie w nim mniej niż n wpisów, odbudowujemy go jednym przejściem po shardzie
+final class TopAccounts {
+
+    record Entry(long id, double balance) {
+    }
+
+    static final Comparator<Entry> ORDER = Comparator.comparingDouble(Entry::balance).reversed()
+            .thenComparingLong(Entry::id);
+
+    private final int capacity;
+    // wołane, gdy konto przestaje być wpisem przez przycięcie albo spadek poniżej floor
+    private final LongConsumer dropped;
+    private final TreeSet<Entry> top = new TreeSet<>(ORDER);
+    private final Map<Long, Entry> members = new HashMap<>();
+    // null - żadne konto nie jest poza zbiorem
+    private Entry floor;
+    private long rebuilds;
+
+    TopAccounts(int capacity, LongConsumer dropped) {
+        this.capacity = capacity;
+        this.dropped = dropped;
+    }
+
+    void update(long id, double balance) {
+        Entry current = members.get(id);
+        Entry updated = new Entry(id, balance);
+        if (current != null) {
+            if (current.balance() == balance) {
+                return;
+            }
+            top.remove(current);
+            if (floor != null && ORDER.compare(updated, floor) > 0) {
+                // spadło poniżej granicy - poza zbiorem może być konto z wyższym saldem
+                members.remove(id);
+                dropped.accept(id);
+                return;
+            }
+        } else if (floor != null && ORDER.compare(updated, floor) >= 0) {
+            return;
+        }
+        top.add(updated);
+        members.put(id, updated);
+        if (top.size() >= 2 * capacity) {
+            trim();
+        }
+    }
+
+    void remove(long id) {
+        Entry removed = members.remove(id);
+        if (removed != null) {
+            top.remove(removed);
+        }
+    }
+
+    boolean contains(long id) {
+        return members.containsKey(id);
+    }
+
+    void forEachMember(LongConsumer action) {
+        members.keySet().forEach(action::accept);
+    }
+
+    // czy pierwsze n wpisów to na pewno top n
+    boolean covers(int n) {
+        return floor == null || top.size() >= n;
+    }
+
+    // źródło podaje wszystkie konta shardu należące do tej listy
+    void rebuild(Consumer<Consumer<Entry>> source) {
+        top.clear();
+        members.clear();
+        floor = null;
+        rebuilds++;
+        source.accept(entry -> {
+            if (floor == null || ORDER.compare(entry, floor) < 0) {
+                top.add(entry);
+                members.put(entry.id(), entry);
+                if (top.size() >= 2 * capacity) {
+                    trim();
+                }
+            }
+        });
+    }
+
+    List<Entry> first(int n) {
+        List<Entry> result = new ArrayList<>(Math.min(n, top.size()));
+        Iterator<Entry> it = top.iterator();
+        while (it.hasNext() && result.size() < n) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    int size() {
+        return top.size();
+    }
+
+    long rebuilds() {
+        return rebuilds;
+    }
+
+    private void trim() {
+        while (top.size() > capacity) {
+            // ostatni wyrzucony ma najwyższe saldo spośród wyrzuconych - staje się nową granicą
+            Entry evicted = top.pollLast();
+            members.remove(evicted.id());
+            dropped.accept(evicted.id());
+            if (floor == null || ORDER.compare(evicted, floor) < 0) {
+                floor = evicted;
+            }
+        }
+    }
+}
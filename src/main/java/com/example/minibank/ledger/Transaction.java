@@ -0,0 +1,76 @@
+package com.example.minibank.ledger;
+
+// pojedynczy wpis księgi w odpowiedzi GET /accounts/{id}/transactions
+public class Transaction {
+    private long sequence;
+    private TransactionType type;
+    private Long fromId;
+    private Long toId;
+    private double amount;
+    // kwota uznania w walucie konta docelowego (inna niż amount przy przelewie między walutami)
+    private double creditedAmount;
+    private String timestamp;
+
+    public Transaction() {
+    }
+
+    public Transaction(long sequence, TransactionType type, Long fromId, Long toId, double amount, double creditedAmount,
+                       String timestamp) {
+        this.sequence = sequence;
+        this.type = type;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.amount = amount;
+        this.creditedAmount = creditedAmount;
+        this.timestamp = timestamp;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+    public void setType(TransactionType type) {
+        this.type = type;
+    }
+
+    public Long getFromId() {
+        return fromId;
+    }
+    public void setFromId(Long fromId) {
+        this.fromId = fromId;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+    public void setToId(Long toId) {
+        this.toId = toId;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+
+    public double getCreditedAmount() {
+        return creditedAmount;
+    }
+    public void setCreditedAmount(double creditedAmount) {
+        this.creditedAmount = creditedAmount;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+    public void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.minibank.ledger;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+
+// księga transakcji tylko do dopisywania, przechowywana kolumnami prymitywów w kawałkach po 64k wpisów
+// (bez obiektu na wpis i bez kopiowania całej księgi przy rozroście).
+// Numer wpisu = pozycja + 1, więc kolumna sekwencji jest niejawna.
+// amount jest w walucie konta źródłowego, credited - kwota uznania w walucie konta docelowego.
+// Dopisywanie jest synchronizowane; odczyty idą bez blokady - widzą wpisy do opublikowanego size.
+// Każde konto ma listę pozycji swoich wpisów (rosnąco), więc strona historii kosztuje
+// O(log n) na wyszukanie początku + O(rozmiar strony), niezależnie od wielkości księgi.
+// Saldo na dzień: co ACCOUNT_CHECKPOINT wpisów konta (i co BOOK_CHECKPOINT wpisów księgi)
+// zapamiętujemy saldo narastające; zapytanie bierze najbliższy punkt kontrolny przed T
+// i odtwarza tylko wpisy od niego do T - koszt ograniczony interwałem, nie długością historii.
+@Component
+public class TransactionLedger {
+
+    // brak konta po jednej ze stron (wpłata, usunięcie)
+    public static final long NO_ACCOUNT = Long.MIN_VALUE;
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final int ACCOUNT_CHECKPOINT = 64;
+    private static final int BOOK_CHECKPOINT = 4096;
+
+    private static final class Chunk {
+        final byte[] type = new byte[CHUNK_SIZE];
+        final long[] fromId = new long[CHUNK_SIZE];
+        final long[] toId = new long[CHUNK_SIZE];
+        final double[] amount = new double[CHUNK_SIZE];
+        final double[] credited = new double[CHUNK_SIZE];
+        final long[] timestamp = new long[CHUNK_SIZE];
+        // suma wszystkich sald przed wpisem j * BOOK_CHECKPOINT tego kawałka
+        final double[] bookCheckpoints = new double[CHUNK_SIZE / BOOK_CHECKPOINT];
+    }
+
+    // pozycje wpisów jednego konta i jego punkty kontrolne; zapis tylko pod blokadą księgi
+    private static final class Positions {
+        private int[] positions = new int[4];
+        // saldo konta przed wpisem nr c * ACCOUNT_CHECKPOINT (liczone po wpisach tego konta)
+        private double[] checkpoints = new double[1];
+        private double balance;
+        private volatile int count;
+
+        void add(int position, double delta) {
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            if (count % ACCOUNT_CHECKPOINT == 0) {
+                int checkpoint = count / ACCOUNT_CHECKPOINT;
+                if (checkpoint == checkpoints.length) {
+                    checkpoints = Arrays.copyOf(checkpoints, checkpoint * 2);
+                }
+                checkpoints[checkpoint] = balance;
+            }
+            positions[count] = position;
+            balance += delta;
+            count = count + 1;
+        }
+    }
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int size;
+    private long lastTimestamp;
+    private double bookBalance;
+    private final Map<Long, Positions> byAccount = new ConcurrentHashMap<>();
+
+    public long recordDeposit(long accountId, double amount) {
+        return append(TransactionType.DEPOSIT, NO_ACCOUNT, accountId, amount, amount);
+    }
+
+    public long recordTransfer(long fromId, long toId, double amount) {
+        return append(TransactionType.TRANSFER, fromId, toId, amount, amount);
+    }
+
+    // przelew między walutami: credited - kwota po przeliczeniu
+    public long recordTransfer(long fromId, long toId, double amount, double credited) {
+        return append(TransactionType.TRANSFER, fromId, toId, amount, credited);
+    }
+
+    // przelew między węzłami klastra: każdy węzeł zapisuje tylko swoją stronę, jak noga transakcji wielostronnej -
+    // obciążenie (amount) u źródła, uznanie (credited) u celu; wpis trafia do historii tylko konta lokalnego
+    public long recordTransferDebit(long fromId, long toId, double amount) {
+        return append(TransactionType.TRANSFER, fromId, toId, amount, 0, fromId, NO_ACCOUNT);
+    }
+
+    public long recordTransferCredit(long fromId, long toId, double credited) {
+        return append(TransactionType.TRANSFER, fromId, toId, 0, credited, NO_ACCOUNT, toId);
+    }
+
+    public long recordDeletion(long accountId, double balance) {
+        return append(TransactionType.DELETION, accountId, NO_ACCOUNT, balance, balance);
+    }
+
+    // odsetki i opłaty z jednej porcji nocnego naliczenia - jedno wejście w blokadę na całą porcję
+    public synchronized void recordAccruals(TransactionType type, long[] accountIds, double[] amounts, int count) {
+        if (type != TransactionType.INTEREST && type != TransactionType.FEE) {
+            throw new IllegalArgumentException("Not an accrual type: " + type);
+        }
+        for (int i = 0; i < count; i++) {
+            if (type == TransactionType.INTEREST) {
+                append(type, NO_ACCOUNT, accountIds[i], amounts[i], amounts[i]);
+            } else {
+                append(type, accountIds[i], NO_ACCOUNT, amounts[i], amounts[i]);
+            }
+        }
+    }
+
+    // nogi jednej transakcji wielostronnej, kolejno i bez przeplatania z innymi wpisami;
+    // amounts w walutach kont, ujemne - obciążenie
+    public synchronized void recordPostings(long[] accountIds, double[] amounts) {
+        for (int i = 0; i < accountIds.length; i++) {
+            if (amounts[i] < 0) {
+                append(TransactionType.POSTING, accountIds[i], NO_ACCOUNT, -amounts[i], 0);
+            } else {
+                append(TransactionType.POSTING, NO_ACCOUNT, accountIds[i], 0, amounts[i]);
+            }
+        }
+    }
+
+    // zwraca numer wpisu
+    public long append(TransactionType type, long fromId, long toId, double amount, double credited) {
+        return append(type, fromId, toId, amount, credited, fromId, toId);
+    }
+
+    // indexedFrom/indexedTo - konta, do których historii trafia wpis (NO_ACCOUNT - żadne)
+    private synchronized long append(TransactionType type, long fromId, long toId, double amount, double credited,
+                                     long indexedFrom, long indexedTo) {
+        int position = size;
+        if (position == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Transaction ledger is full");
+        }
+        Chunk[] current = chunks;
+        int chunkIndex = position >>> CHUNK_BITS;
+        if (chunkIndex == current.length) {
+            current = Arrays.copyOf(current, chunkIndex + 1);
+            current[chunkIndex] = new Chunk();
+            chunks = current;
+        }
+        // znaczniki czasu nie maleją wraz z pozycją - na tym opiera się wyszukiwanie po zakresie czasu
+        long now = Math.max(System.currentTimeMillis(), lastTimestamp);
+        lastTimestamp = now;
+
+        Chunk chunk = current[chunkIndex];
+        int offset = position & CHUNK_MASK;
+        if (offset % BOOK_CHECKPOINT == 0) {
+            chunk.bookCheckpoints[offset / BOOK_CHECKPOINT] = bookBalance;
+        }
+        bookBalance += bookDelta(type, amount, credited);
+        chunk.type[offset] = (byte) type.ordinal();
+        chunk.fromId[offset] = fromId;
+        chunk.toId[offset] = toId;
+        chunk.amount[offset] = amount;
+        chunk.credited[offset] = credited;
+        chunk.timestamp[offset] = now;
+        if (indexedFrom != NO_ACCOUNT) {
+            byAccount.computeIfAbsent(indexedFrom, id -> new Positions()).add(position, accountDelta(type, fromId, toId, amount, credited, indexedFrom));
+        }
+        if (indexedTo != NO_ACCOUNT && indexedTo != indexedFrom) {
+            byAccount.computeIfAbsent(indexedTo, id -> new Positions()).add(position, accountDelta(type, fromId, toId, amount, credited, indexedTo));
+        }
+        size = position + 1;
+        return position + 1L;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasHistory(long accountId) {
+        return byAccount.containsKey(accountId);
+    }
+
+    // wpisy konta z zakresu czasu [from, to], po wpisie o numerze afterSequence (kursor), rosnąco
+    public TransactionPage page(long accountId, long fromMillis, long toMillis, long afterSequence, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        Positions list = byAccount.get(accountId);
+        if (list == null) {
+            return new TransactionPage(List.of(), null);
+        }
+        int count = list.count;
+        int[] positions = list.positions;
+        Chunk[] current = chunks;
+
+        // pierwsza pozycja za kursorem i nie wcześniejsza niż from; oba warunki są monotoniczne
+        long afterPosition = afterSequence - 1;
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int position = positions[mid];
+            if (position <= afterPosition || timestamp(current, position) < fromMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        List<Transaction> page = new ArrayList<>(Math.min(limit, count - low));
+        int i = low;
+        while (i < count && page.size() < limit && timestamp(current, positions[i]) <= toMillis) {
+            page.add(entry(current, positions[i]));
+            i++;
+        }
+        boolean more = i < count && timestamp(current, positions[i]) <= toMillis;
+        String next = more && !page.isEmpty() ? String.valueOf(page.get(page.size() - 1).getSequence()) : null;
+        return new TransactionPage(page, next);
+    }
+
+    // saldo konta po ostatnim wpisie nie późniejszym niż asOf; pusto - konto jeszcze wtedy nie istniało
+    public OptionalDouble balanceAsOf(long accountId, long asOfMillis) {
+        Positions list = byAccount.get(accountId);
+        if (list == null) {
+            return OptionalDouble.empty();
+        }
+        int count = list.count;
+        int[] positions = list.positions;
+        double[] checkpoints = list.checkpoints;
+        Chunk[] current = chunks;
+
+        // liczba wpisów konta z czasem <= asOf
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamp(current, positions[mid]) <= asOfMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == 0) {
+            return OptionalDouble.empty();
+        }
+        int checkpoint = (low - 1) / ACCOUNT_CHECKPOINT;
+        double balance = checkpoints[checkpoint];
+        for (int i = checkpoint * ACCOUNT_CHECKPOINT; i < low; i++) {
+            int position = positions[i];
+            Chunk chunk = current[position >>> CHUNK_BITS];
+            int offset = position & CHUNK_MASK;
+            balance += accountDelta(TYPES[chunk.type[offset]], chunk.fromId[offset], chunk.toId[offset],
+                    chunk.amount[offset], chunk.credited[offset], accountId);
+        }
+        return OptionalDouble.of(balance);
+    }
+
+    // suma sald wszystkich kont po ostatnim wpisie nie późniejszym niż asOf
+    public double totalBalanceAsOf(long asOfMillis) {
+        int size = this.size;
+        Chunk[] current = chunks;
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamp(current, mid) <= asOfMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == 0) {
+            return 0;
+        }
+        int start = (low - 1) / BOOK_CHECKPOINT * BOOK_CHECKPOINT;
+        Chunk chunk = current[start >>> CHUNK_BITS];
+        double total = chunk.bookCheckpoints[(start & CHUNK_MASK) / BOOK_CHECKPOINT];
+        for (int position = start; position < low; position++) {
+            int offset = position & CHUNK_MASK;
+            total += bookDelta(TYPES[chunk.type[offset]], chunk.amount[offset], chunk.credited[offset]);
+        }
+        return total;
+    }
+
+    // wpłata i odsetki zwiększają sumę księgi, usunięcie konta i opłata zmniejszają; przelew zmienia ją tylko o różnicę z przeliczenia walut
+    private static double bookDelta(TransactionType type, double amount, double credited) {
+        return switch (type) {
+            case DEPOSIT, INTEREST -> amount;
+            case TRANSFER, POSTING -> credited - amount;
+            case DELETION, FEE -> -amount;
+        };
+    }
+
+    private static double accountDelta(TransactionType type, long fromId, long toId, double amount, double credited,
+                                       long accountId) {
+        double delta = 0;
+        if (accountId == toId && type != TransactionType.DELETION) {
+            delta += credited;
+        }
+        if (accountId == fromId) {
+            delta -= amount;
+        }
+        return delta;
+    }
+
+    private static long timestamp(Chunk[] current, int position) {
+        return current[position >>> CHUNK_BITS].timestamp[position & CHUNK_MASK];
+    }
+
+    private static Transaction entry(Chunk[] current, int position) {
+        Chunk chunk = current[position >>> CHUNK_BITS];
+        int offset = position & CHUNK_MASK;
+        long fromId = chunk.fromId[offset];
+        long toId = chunk.toId[offset];
+        return new Transaction(position + 1L, TYPES[chunk.type[offset]],
+                fromId == NO_ACCOUNT ? null : fromId,
+                toId == NO_ACCOUNT ? null : toId,
+                chunk.amount[offset],
+                chunk.credited[offset],
+                Instant.ofEpochMilli(chunk.timestamp[offset]).toString());
+    }
+}
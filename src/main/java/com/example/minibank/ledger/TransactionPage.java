@@ -0,0 +1,31 @@
+package com.example.minibank.ledger;
+
+import java.util.List;
+
+// strona historii konta; nextCursor == null - to była ostatnia strona
+public class TransactionPage {
+    private List<Transaction> transactions;
+    private String nextCursor;
+
+    public TransactionPage() {
+    }
+
+    public TransactionPage(List<Transaction> transactions, String nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+    public void setTransactions(List<Transaction> transactions) {
+        this.transactions = transactions;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
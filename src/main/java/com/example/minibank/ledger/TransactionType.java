@@ -0,0 +1,14 @@
+package com.example.minibank.ledger;
+
+public enum TransactionType {
+    // wpłata początkowego salda przy zakładaniu konta
+    DEPOSIT,
+    TRANSFER,
+    // saldo konta w chwili usunięcia
+    DELETION,
+    // nocne naliczenie odsetek (uznanie konta) i opłaty (obciążenie)
+    INTEREST,
+    FEE,
+    // noga transakcji wielostronnej: obciążenie (fromId, amount) albo uznanie (toId, creditedAmount)
+    POSTING
+}
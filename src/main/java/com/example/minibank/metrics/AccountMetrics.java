@@ -0,0 +1,116 @@
+package com.example.minibank.metrics;
+
+import com.example.minibank.TransferOutcome;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+// metryki operacji na kontach; wszystkie liczniki i timery są tworzone z góry,
+// żeby na ścieżce przelewu nie było wyszukiwania po tagach
+@Component
+public class AccountMetrics {
+
+    public enum Operation {
+        LIST,
+        LOOKUP,
+        ADD,
+        TRANSFER,
+        OWNER_QUERY,
+        BALANCE_QUERY,
+        TOTAL_BALANCE,
+        DELETE,
+        HISTORY,
+        AS_OF_BALANCE,
+        SEARCH,
+        TOP,
+        DISTRIBUTION,
+        OWNER_SEARCH,
+        MULTI_LEG
+    }
+
+    // operacje w pamięci trwają mikrosekundy - domyślne kubełki zaczynają się od 1 ms
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(500);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(10);
+
+    private final MeterRegistry registry;
+    private final Map<Operation, Timer> operationTimers = new EnumMap<>(Operation.class);
+    private final Map<TransferOutcome, Counter> transferCounters = new EnumMap<>(TransferOutcome.class);
+    private final Timer queueWait;
+
+    public AccountMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Operation op : Operation.values()) {
+            operationTimers.put(op, Timer.builder("minibank.account.operation")
+                    .description("Latency of AccountService operations")
+                    .tag("operation", tagValue(op))
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MIN_EXPECTED)
+                    .maximumExpectedValue(MAX_EXPECTED)
+                    .register(registry));
+        }
+        for (TransferOutcome outcome : TransferOutcome.values()) {
+            transferCounters.put(outcome, Counter.builder("minibank.transfers")
+                    .description("Transfers by result and failure reason")
+                    .tag("result", outcome.isSuccess() ? "success" : "failure")
+                    .tag("reason", outcome.isSuccess() ? "none" : tagValue(outcome))
+                    .register(registry));
+        }
+        queueWait = Timer.builder("minibank.shard.queue.wait")
+                .description("Time an account operation waited in the queue of the shard that owns the account")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(registry);
+    }
+
+    // metryki bez rejestru (testy jednostkowe, benchmarki)
+    public static AccountMetrics noop() {
+        return new AccountMetrics(new CompositeMeterRegistry());
+    }
+
+    public void recordOperation(Operation op, long startNanos) {
+        operationTimers.get(op).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTransfer(TransferOutcome outcome) {
+        transferCounters.get(outcome).increment();
+    }
+
+    public void recordQueueWait(long waitNanos) {
+        queueWait.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // rozmiary magazynu i indeksów, odczytywane dopiero przy scrapowaniu
+    public <T> void gauge(String name, String description, T source, ToDoubleFunction<T> value) {
+        Gauge.builder(name, source, value)
+                .description(description)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    public <T> void gauge(String name, String description, String tagKey, String tagValue, T source, ToDoubleFunction<T> value) {
+        Gauge.builder(name, source, value)
+                .description(description)
+                .tag(tagKey, tagValue)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
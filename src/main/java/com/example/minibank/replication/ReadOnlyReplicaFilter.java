@@ -0,0 +1,94 @@
+package com.example.minibank.replication;
+
+import com.example.minibank.cluster.ClusterClient;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+// follower obsługuje tylko odczyty; zmiany idą do lidera (minibank.replication.leader-url),
+// a bez skonfigurowanego lidera są odrzucane z 405.
+// Księga transakcji, zlecenia stałe i przebiegi naliczeń nie są replikowane - historię kont,
+// salda na dzień (asOf), stan zleceń i naliczeń też podaje lider. Zleceń i naliczeń follower nie obsługuje
+// wcale, więc bez lidera odpowiada na nie 405
+@Component
+@ConditionalOnProperty(prefix = "minibank.replication", name = "role", havingValue = "follower")
+public class ReadOnlyReplicaFilter extends OncePerRequestFilter {
+
+    private final String leaderUrl;
+    private final ClusterClient client;
+
+    public ReadOnlyReplicaFilter(@Value("${minibank.replication.leader-url:}") String leaderUrl,
+                                 @Value("${minibank.replication.forward-timeout:5s}") Duration timeout) {
+        this.leaderUrl = leaderUrl.isBlank() ? null : leaderUrl;
+        this.client = this.leaderUrl == null ? null : new ClusterClient(timeout);
+    }
+
+    private static final Pattern HISTORY_PATH = Pattern.compile("^/accounts/[^/]+/transactions/?$");
+    private static final String SCHEDULE_PATH = "/accounts/scheduled-transfers";
+    private static final String ACCRUAL_PATH = "/accounts/accrual-runs";
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith("/accounts")) {
+            return true;
+        }
+        if (path.startsWith(SCHEDULE_PATH) || path.startsWith(ACCRUAL_PATH)) {
+            return false;
+        }
+        if (HISTORY_PATH.matcher(path).matches()
+                || request.getParameter("asOf") != null) {
+            return leaderUrl == null;
+        }
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (leaderUrl == null) {
+            response.setStatus(HttpStatus.METHOD_NOT_ALLOWED.value());
+            response.setHeader("Allow", "GET, HEAD");
+            write(response, "Read-only replica, send changes to the leader");
+            return;
+        }
+        String query = request.getQueryString();
+        try {
+            HttpResponse<byte[]> forwarded = client.send(leaderUrl, request.getMethod(),
+                    request.getRequestURI() + (query == null ? "" : "?" + query),
+                    request.getContentType(), request.getInputStream().readAllBytes());
+            response.setStatus(forwarded.statusCode());
+            forwarded.headers().firstValue("Content-Type").ifPresent(response::setContentType);
+            response.getOutputStream().write(forwarded.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unavailable(response);
+        } catch (IOException e) {
+            unavailable(response);
+        }
+    }
+
+    private void unavailable(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        write(response, "Leader " + leaderUrl + " is unavailable");
+    }
+
+    private static void write(HttpServletResponse response, String message) throws IOException {
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+    }
+}
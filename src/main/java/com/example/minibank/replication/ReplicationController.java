@@ -0,0 +1,26 @@
+package com.example.minibank.replication;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/replication")
+public class ReplicationController {
+
+    private final Optional<ReplicationNode> node;
+
+    public ReplicationController(Optional<ReplicationNode> node) {
+        this.node = node;
+    }
+
+    // rola, numer zdarzenia i opóźnienie repliki; 404 gdy replikacja jest wyłączona
+    @GetMapping("/status")
+    public ResponseEntity<ReplicationStatus> status() {
+        return node.map(n -> ResponseEntity.ok(n.status()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
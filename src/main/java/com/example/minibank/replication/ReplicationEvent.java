@@ -0,0 +1,11 @@
+package com.example.minibank.replication;
+
+import com.example.minibank.Account;
+
+// jedna zmiana w strumieniu lidera: pełny stan konta po zmianie albo usunięcie (account == null)
+public record ReplicationEvent(long seq, long timestamp, int shard, long accountId, Account account) {
+
+    public boolean isRemoval() {
+        return account == null;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.minibank.replication;
+
+import com.example.minibank.Account;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// follower: czyta strumień zmian lidera i stosuje go w kolejności na własnej kopii kont.
+// Zmiany idą do shardów bez czekania (kolejka shardu zachowuje kolejność dla konta),
+// a numer zastosowanego zdarzenia przesuwamy dopiero po zakończeniu całej paczki.
+@Component
+@ConditionalOnProperty(prefix = "minibank.replication", name = "role", havingValue = "follower")
+public class ReplicationFollower implements ReplicationNode, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationFollower.class);
+    private static final int BATCH = 1024;
+
+    private final ShardedAccountStore store;
+    private final InetSocketAddress leader;
+    private final long reconnectMillis;
+    private final int readTimeoutMillis;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile Socket socket;
+
+    private volatile boolean connected;
+    private volatile long epoch;
+    private volatile long appliedSeq;
+    private volatile long appliedTimestamp;
+    private volatile long leaderSeq;
+
+    public ReplicationFollower(ShardedAccountStore store, AccountMetrics metrics,
+                               @Value("${minibank.replication.leader:127.0.0.1:7070}") String leader,
+                               @Value("${minibank.replication.reconnect:1s}") Duration reconnect,
+                               @Value("${minibank.replication.read-timeout:5s}") Duration readTimeout) {
+        this.store = store;
+        int colon = leader.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("minibank.replication.leader must be host:port, got " + leader);
+        }
+        this.leader = new InetSocketAddress(leader.substring(0, colon), Integer.parseInt(leader.substring(colon + 1)));
+        this.reconnectMillis = reconnect.toMillis();
+        this.readTimeoutMillis = (int) readTimeout.toMillis();
+        metrics.gauge("minibank.replication.lag.events", "Changes written by the leader but not yet applied",
+                this, ReplicationFollower::lagEvents);
+        metrics.gauge("minibank.replication.lag.millis", "Age of the last applied change while the replica is behind",
+                this, ReplicationFollower::lagMillis);
+        metrics.gauge("minibank.replication.connected", "1 if the replica is connected to the leader",
+                this, follower -> follower.connected ? 1 : 0);
+        worker = new Thread(this::run, "replication-follower");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public long lagEvents() {
+        return Math.max(0, leaderSeq - appliedSeq);
+    }
+
+    // jak "seconds behind master": ile temu lider wykonał ostatnią zastosowaną tu zmianę
+    public long lagMillis() {
+        return lagEvents() == 0 ? 0 : Math.max(0, System.currentTimeMillis() - appliedTimestamp);
+    }
+
+    @Override
+    public ReplicationStatus status() {
+        ReplicationStatus status = new ReplicationStatus();
+        status.setRole("follower");
+        status.setSequence(appliedSeq);
+        status.setLeaderSequence(leaderSeq);
+        status.setLagEvents(lagEvents());
+        status.setLagMillis(lagMillis());
+        status.setConnected(connected);
+        return status;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                follow();
+            } catch (IOException e) {
+                if (running) {
+                    log.info("Replication from {} interrupted: {}", leader, e.toString());
+                }
+            } finally {
+                connected = false;
+            }
+            try {
+                Thread.sleep(reconnectMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void follow() throws IOException {
+        try (Socket s = new Socket()) {
+            socket = s;
+            s.connect(leader, readTimeoutMillis);
+            s.setSoTimeout(readTimeoutMillis);
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 64 * 1024));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            out.writeLong(epoch);
+            out.writeLong(appliedSeq);
+            out.flush();
+            connected = true;
+
+            List<CompletableFuture<?>> batch = new ArrayList<>(BATCH);
+            long batchSeq = appliedSeq;
+            long batchTimestamp = appliedTimestamp;
+            while (running) {
+                byte type = in.readByte();
+                switch (type) {
+                    case ReplicationProtocol.SNAPSHOT -> {
+                        loadSnapshot(in);
+                        batchSeq = appliedSeq;
+                        batchTimestamp = appliedTimestamp;
+                    }
+                    case ReplicationProtocol.UPSERT, ReplicationProtocol.REMOVE -> {
+                        batchSeq = in.readLong();
+                        batchTimestamp = in.readLong();
+                        batch.add(type == ReplicationProtocol.UPSERT
+                                ? store.upsert(ReplicationProtocol.readAccount(in))
+                                : store.removeAsync(in.readLong()));
+                        leaderSeq = Math.max(leaderSeq, batchSeq);
+                    }
+                    case ReplicationProtocol.HEARTBEAT -> {
+                        leaderSeq = Math.max(leaderSeq, in.readLong());
+                        in.readLong();
+                    }
+                    default -> throw new IOException("Unknown replication frame: " + type);
+                }
+                if (!batch.isEmpty() && (batch.size() >= BATCH || in.available() == 0
+                        || type == ReplicationProtocol.HEARTBEAT)) {
+                    await(batch);
+                    appliedTimestamp = batchTimestamp;
+                    appliedSeq = batchSeq;
+                }
+            }
+        } finally {
+            socket = null;
+        }
+    }
+
+    private void loadSnapshot(DataInputStream in) throws IOException {
+        long snapshotEpoch = in.readLong();
+        long seq = in.readLong();
+        int count = in.readInt();
+        log.info("Loading replication snapshot: {} accounts at sequence {}", count, seq);
+        store.clear();
+        List<CompletableFuture<?>> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < count; i++) {
+            Account account = ReplicationProtocol.readAccount(in);
+            batch.add(store.upsert(account));
+            if (batch.size() >= BATCH) {
+                await(batch);
+            }
+        }
+        await(batch);
+        epoch = snapshotEpoch;
+        appliedTimestamp = System.currentTimeMillis();
+        appliedSeq = seq;
+        leaderSeq = seq;
+    }
+
+    private static void await(List<CompletableFuture<?>> batch) {
+        for (CompletableFuture<?> future : batch) {
+            ShardedAccountStore.join(future);
+        }
+        batch.clear();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        running = false;
+        worker.interrupt();
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.minibank.replication;
+
+import com.example.minibank.Account;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.AccountShard;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// lider: przyjmuje połączenia followerów i wysyła im strumień zmian z ReplicationLog.
+// Każdy follower ma własny wątek; wolny follower nie spowalnia shardów - najwyżej wypada z bufora
+// i po ponownym połączeniu dostaje snapshot.
+@Component
+@ConditionalOnProperty(prefix = "minibank.replication", name = "role", havingValue = "leader")
+public class ReplicationLeader implements ReplicationNode, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationLeader.class);
+    private static final int BATCH = 1024;
+
+    private final ShardedAccountStore store;
+    private final ReplicationLog replicationLog;
+    // nowa epoka po każdym starcie - numery zdarzeń poprzedniego lidera nic nie znaczą
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private final long heartbeatMillis;
+    private final ServerSocket server;
+    private final Set<Socket> sessions = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    public ReplicationLeader(ShardedAccountStore store, AccountMetrics metrics,
+                             @Value("${minibank.replication.port:7070}") int port,
+                             @Value("${minibank.replication.bind-address:127.0.0.1}") String bindAddress,
+                             @Value("${minibank.replication.backlog:65536}") int backlog,
+                             @Value("${minibank.replication.heartbeat:1s}") Duration heartbeat) throws IOException {
+        this.store = store;
+        this.replicationLog = new ReplicationLog(backlog);
+        this.heartbeatMillis = heartbeat.toMillis();
+        store.addListener(replicationLog);
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(bindAddress, port));
+        Thread acceptor = new Thread(this::acceptLoop, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        metrics.gauge("minibank.replication.followers", "Connected replication followers", sessions, Set::size);
+        metrics.gauge("minibank.replication.sequence", "Last change written to the replication stream",
+                replicationLog, ReplicationLog::lastSeq);
+        log.info("Replication leader listening on {}:{}", bindAddress, server.getLocalPort());
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    ReplicationLog getReplicationLog() {
+        return replicationLog;
+    }
+
+    @Override
+    public ReplicationStatus status() {
+        ReplicationStatus status = new ReplicationStatus();
+        status.setRole("leader");
+        status.setSequence(replicationLog.lastSeq());
+        status.setLeaderSequence(replicationLog.lastSeq());
+        status.setConnected(true);
+        status.setFollowers(sessions.size());
+        return status;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread session = new Thread(() -> serve(socket), "replication-session-" + socket.getPort());
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Accepting replication follower failed: {}", e.toString());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        sessions.add(socket);
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+            long followerEpoch = in.readLong();
+            long followerSeq = in.readLong();
+
+            long next = followerSeq + 1;
+            long[] skipUpTo = null;
+            if (followerEpoch != epoch || followerSeq > replicationLog.lastSeq()
+                    || replicationLog.readFrom(next, 1, 0) == null) {
+                skipUpTo = sendSnapshot(out);
+                next = min(skipUpTo) + 1;
+            }
+            log.info("Replication follower {} connected, streaming from {}", socket.getRemoteSocketAddress(), next);
+
+            while (running) {
+                List<ReplicationEvent> events = replicationLog.readFrom(next, BATCH, heartbeatMillis);
+                if (events == null) {
+                    log.warn("Replication follower {} fell behind the backlog, it will be resynchronized",
+                            socket.getRemoteSocketAddress());
+                    return;
+                }
+                if (events.isEmpty()) {
+                    out.writeByte(ReplicationProtocol.HEARTBEAT);
+                    out.writeLong(replicationLog.lastSeq());
+                    out.writeLong(System.currentTimeMillis());
+                } else {
+                    for (ReplicationEvent event : events) {
+                        // zmiana z shardu, którego snapshot już ją zawierał
+                        if (skipUpTo == null || event.seq() > skipUpTo[event.shard()]) {
+                            ReplicationProtocol.writeEvent(out, event);
+                        }
+                    }
+                    next = events.get(events.size() - 1).seq() + 1;
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            log.info("Replication follower {} disconnected: {}", socket.getRemoteSocketAddress(), e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sessions.remove(socket);
+        }
+    }
+
+    // kopia każdego shardu robiona na jego wątku razem z numerem ostatniego zdarzenia tego shardu;
+    // zdarzenia shardu o numerach <= tego numeru są już w snapshocie i nie idą w strumieniu
+    private long[] sendSnapshot(DataOutputStream out) throws IOException {
+        List<CompletableFuture<List<Account>>> parts = new ArrayList<>();
+        long[] snapshotSeq = new long[store.shardCount()];
+        for (int i = 0; i < store.shardCount(); i++) {
+            AccountShard shard = store.shard(i);
+            int index = i;
+            parts.add(shard.submit(() -> {
+                List<Account> copies = new ArrayList<>(shard.size());
+                for (Account account : shard.accounts()) {
+                    copies.add(new Account(account));
+                }
+                snapshotSeq[index] = replicationLog.lastSeq();
+                return copies;
+            }));
+        }
+        List<Account> accounts = new ArrayList<>();
+        for (CompletableFuture<List<Account>> part : parts) {
+            accounts.addAll(ShardedAccountStore.join(part));
+        }
+        out.writeByte(ReplicationProtocol.SNAPSHOT);
+        out.writeLong(epoch);
+        out.writeLong(min(snapshotSeq));
+        out.writeInt(accounts.size());
+        for (Account account : accounts) {
+            ReplicationProtocol.writeAccount(out, account);
+        }
+        out.flush();
+        return snapshotSeq;
+    }
+
+    private static long min(long[] values) {
+        long min = Long.MAX_VALUE;
+        for (long value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        running = false;
+        store.removeListener(replicationLog);
+        server.close();
+        for (Socket session : sessions) {
+            session.close();
+        }
+    }
+}
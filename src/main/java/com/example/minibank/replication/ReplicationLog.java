@@ -0,0 +1,103 @@
+package com.example.minibank.replication;
+
+import com.example.minibank.Account;
+import com.example.minibank.shard.AccountChangeListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// strumień zmian lidera: numerowane kolejno zdarzenia w buforze cyklicznym.
+// Kolejność numerów = kolejność w strumieniu; zmiany jednego konta zawsze idą w kolejności,
+// w jakiej wykonał je jego shard. Follower, który zostanie w tyle dalej niż pojemność
+// bufora, dostaje od nowa snapshot.
+// Zapis bez blokady: numer z licznika, potem publikacja zdarzenia w komórce bufora - shardy nie czekają
+// na siebie nawzajem ani na czytelników. Czytelnik bierze tylko ciągły prefiks opublikowanych zdarzeń,
+// a monitor służy wyłącznie do usypiania czytelników, gdy nic nowego nie ma
+public class ReplicationLog implements AccountChangeListener {
+
+    private final AtomicReferenceArray<ReplicationEvent> ring;
+    private final AtomicLong lastSeq = new AtomicLong();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Object signal = new Object();
+
+    public ReplicationLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Replication backlog must be positive");
+        }
+        ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public void accountChanged(int shard, Account account) {
+        append(shard, account.getId(), new Account(account));
+    }
+
+    @Override
+    public void accountRemoved(int shard, long id) {
+        append(shard, id, null);
+    }
+
+    private void append(int shard, long id, Account account) {
+        long seq = lastSeq.incrementAndGet();
+        ring.set(slot(seq), new ReplicationEvent(seq, System.currentTimeMillis(), shard, id, account));
+        if (waiters.get() > 0) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+    }
+
+    // ostatni nadany numer; zdarzenie może być jeszcze w trakcie publikacji
+    public long lastSeq() {
+        return lastSeq.get();
+    }
+
+    // zdarzenia od numeru from (włącznie), najwyżej max; czeka do timeoutMillis, jeśli nic nowego nie ma.
+    // null - zdarzenie from wypadło już z bufora
+    public List<ReplicationEvent> readFrom(long from, int max, long timeoutMillis) throws InterruptedException {
+        if (timeoutMillis > 0 && !published(from)) {
+            synchronized (signal) {
+                waiters.incrementAndGet();
+                try {
+                    // ponowne sprawdzenie po zgłoszeniu się - zapis po nim na pewno obudzi czytelnika
+                    if (!published(from)) {
+                        signal.wait(timeoutMillis);
+                    }
+                } finally {
+                    waiters.decrementAndGet();
+                }
+            }
+        }
+        long last = lastSeq.get();
+        if (from <= last - ring.length()) {
+            return null;
+        }
+        long to = Math.min(last, from + max - 1);
+        List<ReplicationEvent> events = new ArrayList<>((int) Math.max(0, to - from + 1));
+        for (long seq = from; seq <= to; seq++) {
+            ReplicationEvent event = ring.get(slot(seq));
+            if (event == null || event.seq() < seq) {
+                // numer nadany, zdarzenie jeszcze nieopublikowane - reszta przy następnym odczycie
+                break;
+            }
+            if (event.seq() > seq) {
+                // komórkę nadpisało nowsze zdarzenie
+                return null;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    private boolean published(long seq) {
+        ReplicationEvent event = ring.get(slot(seq));
+        return event != null && event.seq() >= seq;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % ring.length());
+    }
+}
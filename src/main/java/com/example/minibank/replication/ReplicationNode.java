@@ -0,0 +1,7 @@
+package com.example.minibank.replication;
+
+// lider albo follower - zależnie od minibank.replication.role
+public interface ReplicationNode {
+
+    ReplicationStatus status();
+}
@@ -0,0 +1,65 @@
+package com.example.minibank.replication;
+
+import com.example.minibank.Account;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// format ramek na gnieździe lidera.
+// Follower -> lider (raz, po połączeniu): epoka lidera i numer ostatniego zastosowanego zdarzenia.
+// Lider -> follower: snapshot (gdy follower nie może kontynuować ze strumienia), potem zmiany i heartbeaty.
+final class ReplicationProtocol {
+
+    static final byte SNAPSHOT = 'S';
+    static final byte UPSERT = 'U';
+    static final byte REMOVE = 'D';
+    static final byte HEARTBEAT = 'H';
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeEvent(DataOutputStream out, ReplicationEvent event) throws IOException {
+        out.writeByte(event.isRemoval() ? REMOVE : UPSERT);
+        out.writeLong(event.seq());
+        out.writeLong(event.timestamp());
+        if (event.isRemoval()) {
+            out.writeLong(event.accountId());
+        } else {
+            writeAccount(out, event.account());
+        }
+    }
+
+    static void writeAccount(DataOutputStream out, Account account) throws IOException {
+        out.writeLong(account.getId());
+        writeString(out, account.getOwner());
+        out.writeDouble(account.getBalance());
+        writeString(out, account.getCurrency());
+        writeString(out, account.getStatus());
+        writeString(out, account.getCreatedAt());
+        writeString(out, account.getAccountType());
+    }
+
+    static Account readAccount(DataInputStream in) throws IOException {
+        Account account = new Account();
+        account.setId(in.readLong());
+        account.setOwner(readString(in));
+        account.setBalance(in.readDouble());
+        account.setCurrency(readString(in));
+        account.setStatus(readString(in));
+        account.setCreatedAt(readString(in));
+        account.setAccountType(readString(in));
+        return account;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.minibank.replication;
+
+// stan replikacji zwracany przez GET /replication/status
+public class ReplicationStatus {
+    private String role;
+    private long sequence;
+    private long leaderSequence;
+    private long lagEvents;
+    private long lagMillis;
+    private boolean connected;
+    private int followers;
+
+    public String getRole() {
+        return role;
+    }
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    // ostatnie zdarzenie zapisane (lider) albo zastosowane (follower)
+    public long getSequence() {
+        return sequence;
+    }
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getLeaderSequence() {
+        return leaderSequence;
+    }
+    public void setLeaderSequence(long leaderSequence) {
+        this.leaderSequence = leaderSequence;
+    }
+
+    public long getLagEvents() {
+        return lagEvents;
+    }
+    public void setLagEvents(long lagEvents) {
+        this.lagEvents = lagEvents;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+    public void setLagMillis(long lagMillis) {
+        this.lagMillis = lagMillis;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+    public void setConnected(boolean connected) {
+        this.connected = connected;
+    }
+
+    public int getFollowers() {
+        return followers;
+    }
+    public void setFollowers(int followers) {
+        this.followers = followers;
+    }
+}
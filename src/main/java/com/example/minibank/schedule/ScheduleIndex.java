@@ -0,0 +1,81 @@
+package com.example.minibank.schedule;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// id -> zlecenie; id są nadawane kolejno, więc wystarcza tablica stron po 4096 referencji
+// (4 bajty na id zamiast węzła mapy i opakowanego Long). Pusta strona jest zwalniana.
+// Wątkowo niebezpieczna - synchronizuje ją właściciel.
+final class ScheduleIndex {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private ScheduledTransfer[][] pages = new ScheduledTransfer[16][];
+    private int[] pageCounts = new int[16];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    ScheduledTransfer get(long id) {
+        if (id < 0) {
+            return null;
+        }
+        long page = id >>> PAGE_BITS;
+        if (page >= pages.length || pages[(int) page] == null) {
+            return null;
+        }
+        return pages[(int) page][(int) (id & PAGE_MASK)];
+    }
+
+    void put(ScheduledTransfer transfer) {
+        long id = transfer.getId();
+        if (id < 0 || (id >>> PAGE_BITS) >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid schedule id " + id);
+        }
+        int page = (int) (id >>> PAGE_BITS);
+        if (page >= pages.length) {
+            int length = Math.max(page + 1, pages.length * 2);
+            pages = Arrays.copyOf(pages, length);
+            pageCounts = Arrays.copyOf(pageCounts, length);
+        }
+        if (pages[page] == null) {
+            pages[page] = new ScheduledTransfer[PAGE_SIZE];
+        }
+        int offset = (int) (id & PAGE_MASK);
+        if (pages[page][offset] == null) {
+            pageCounts[page]++;
+            size++;
+        }
+        pages[page][offset] = transfer;
+    }
+
+    ScheduledTransfer remove(long id) {
+        ScheduledTransfer removed = get(id);
+        if (removed == null) {
+            return null;
+        }
+        int page = (int) (id >>> PAGE_BITS);
+        pages[page][(int) (id & PAGE_MASK)] = null;
+        size--;
+        if (--pageCounts[page] == 0) {
+            pages[page] = null;
+        }
+        return removed;
+    }
+
+    void forEach(Consumer<ScheduledTransfer> action) {
+        for (ScheduledTransfer[] page : pages) {
+            if (page != null) {
+                for (ScheduledTransfer transfer : page) {
+                    if (transfer != null) {
+                        action.accept(transfer);
+                    }
+                }
+            }
+        }
+    }
+}
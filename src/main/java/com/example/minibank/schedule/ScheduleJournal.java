@@ -0,0 +1,290 @@
+package com.example.minibank.schedule;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+// trwałość oczekujących zleceń: snapshot + dzienniki zmian w kolejnych generacjach.
+// Przed przelewami paczki idą rekordy ATTEMPTED (numer wykonania - klucz idempotencji) i jeden fsync;
+// wykonanie, którego zakończenia dziennik nie zna, po restarcie jest pomijane, a nie powtarzane.
+// Kompaktowanie: pod blokadą właściciela tylko kopia stanu i przełączenie na dziennik nowej generacji (rotate),
+// zapis snapshotu poza blokadą (writeSnapshot); snapshot generacji g obejmuje wszystko sprzed dziennika g.
+// Po starcie: snapshot, potem dzienniki od jego generacji (niepełny ostatni rekord po awarii jest pomijany).
+final class ScheduleJournal implements Closeable {
+
+    private static final int SNAPSHOT_MAGIC = 0x4D425332;
+    private static final String JOURNAL_PREFIX = "schedules.journal.";
+    private static final byte ADDED = 'A';
+    private static final byte CANCELLED = 'C';
+    private static final byte ATTEMPTED = 'T';
+    private static final byte EXECUTED = 'E';
+    private static final byte FINISHED = 'F';
+
+    // skipped - wykonania rozpoczęte przed awarią, bez zapisanego zakończenia
+    record Recovered(Map<Long, ScheduledTransfer> schedules, long maxId, int skipped) {
+    }
+
+    // stan zleceń z chwili rotacji - zapisywany poza blokadą
+    record Snapshot(long generation, long maxId, List<Entry> entries) {
+    }
+
+    record Entry(long id, long fromId, long toId, double amount, long nextExecutionMillis, long intervalMillis,
+                 int executions, boolean attempted) {
+    }
+
+    private final Path dir;
+    private final Path snapshot;
+    private long generation;
+    private DataOutputStream out;
+    private FileChannel channel;
+    private int records;
+
+    ScheduleJournal(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        this.dir = dir;
+        this.snapshot = dir.resolve("schedules.snapshot");
+    }
+
+    Recovered load() throws IOException {
+        Map<Long, ScheduledTransfer> schedules = new HashMap<>();
+        long maxId = 0;
+        long from = 0;
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = open(snapshot)) {
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not a schedule snapshot: " + snapshot);
+                }
+                from = in.readLong();
+                maxId = in.readLong();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    ScheduledTransfer transfer = readTransfer(in);
+                    transfer.restore(in.readInt(), transfer.nextExecutionMillis());
+                    transfer.attempted = in.readBoolean();
+                    schedules.put(transfer.getId(), transfer);
+                }
+            }
+        }
+        TreeMap<Long, Path> journals = journals();
+        generation = Math.max(from, journals.isEmpty() ? 0 : journals.lastKey());
+        for (Map.Entry<Long, Path> journal : journals.entrySet()) {
+            if (journal.getKey() < from) {
+                continue;
+            }
+            try (DataInputStream in = open(journal.getValue())) {
+                while (true) {
+                    byte type = in.readByte();
+                    switch (type) {
+                        case ADDED -> {
+                            ScheduledTransfer transfer = readTransfer(in);
+                            schedules.put(transfer.getId(), transfer);
+                            maxId = Math.max(maxId, transfer.getId());
+                        }
+                        case ATTEMPTED -> {
+                            long id = in.readLong();
+                            int execution = in.readInt();
+                            ScheduledTransfer transfer = schedules.get(id);
+                            if (transfer != null && execution == transfer.getExecutions() + 1) {
+                                transfer.attempted = true;
+                            }
+                        }
+                        case EXECUTED -> {
+                            long id = in.readLong();
+                            int executions = in.readInt();
+                            long next = in.readLong();
+                            ScheduledTransfer transfer = schedules.get(id);
+                            if (transfer != null) {
+                                transfer.restore(executions, next);
+                                transfer.attempted = false;
+                            }
+                        }
+                        case CANCELLED, FINISHED -> schedules.remove(in.readLong());
+                        default -> throw new IOException("Corrupted schedule journal record: " + type);
+                    }
+                }
+            } catch (EOFException endOfJournal) {
+                // koniec dziennika albo urwany ostatni rekord
+            }
+        }
+        // przelew mógł zostać wykonany - to wykonanie liczy się jako zrobione, z nieznanym wynikiem
+        int skipped = 0;
+        for (Iterator<ScheduledTransfer> it = schedules.values().iterator(); it.hasNext(); ) {
+            ScheduledTransfer transfer = it.next();
+            if (!transfer.attempted) {
+                continue;
+            }
+            skipped++;
+            transfer.attempted = false;
+            if (transfer.isRecurring()) {
+                transfer.restore(transfer.getExecutions() + 1, transfer.nextExecutionMillis() + transfer.intervalMillis());
+            } else {
+                it.remove();
+            }
+        }
+        return new Recovered(schedules, maxId, skipped);
+    }
+
+    // kopia stanu i nowy dziennik - pod blokadą właściciela, bez zapisu snapshotu
+    Snapshot rotate(ScheduleIndex pending, long maxId) throws IOException {
+        List<Entry> entries = new ArrayList<>(pending.size());
+        pending.forEach(transfer -> entries.add(new Entry(transfer.getId(), transfer.getFromId(), transfer.getToId(),
+                transfer.getAmount(), transfer.nextExecutionMillis(), transfer.intervalMillis(),
+                transfer.getExecutions(), transfer.attempted)));
+        if (out != null) {
+            flush();
+            out.close();
+        }
+        generation++;
+        channel = FileChannel.open(journal(generation), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        records = 0;
+        return new Snapshot(generation, maxId, entries);
+    }
+
+    // snapshot (plik tymczasowy, fsync i atomowa podmiana), potem usunięcie dzienników, które obejmuje
+    synchronized void writeSnapshot(Snapshot state) throws IOException {
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel tmpChannel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream snapshotOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(tmpChannel), 1 << 16));
+            snapshotOut.writeInt(SNAPSHOT_MAGIC);
+            snapshotOut.writeLong(state.generation());
+            snapshotOut.writeLong(state.maxId());
+            snapshotOut.writeInt(state.entries().size());
+            for (Entry entry : state.entries()) {
+                snapshotOut.writeLong(entry.id());
+                snapshotOut.writeLong(entry.fromId());
+                snapshotOut.writeLong(entry.toId());
+                snapshotOut.writeDouble(entry.amount());
+                snapshotOut.writeLong(entry.nextExecutionMillis());
+                snapshotOut.writeLong(entry.intervalMillis());
+                snapshotOut.writeInt(entry.executions());
+                snapshotOut.writeBoolean(entry.attempted());
+            }
+            snapshotOut.flush();
+            tmpChannel.force(true);
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (Map.Entry<Long, Path> journal : journals().entrySet()) {
+            if (journal.getKey() < state.generation()) {
+                Files.deleteIfExists(journal.getValue());
+            }
+        }
+    }
+
+    int recordsSinceCompaction() {
+        return records;
+    }
+
+    void added(ScheduledTransfer transfer) throws IOException {
+        out.writeByte(ADDED);
+        writeTransfer(out, transfer);
+        records++;
+    }
+
+    // zamiar wykonania; wołający robi flush przed przelewem, raz na całą paczkę
+    void attempted(ScheduledTransfer transfer) throws IOException {
+        out.writeByte(ATTEMPTED);
+        out.writeLong(transfer.getId());
+        out.writeInt(transfer.getExecutions() + 1);
+        records++;
+    }
+
+    void executed(ScheduledTransfer transfer) throws IOException {
+        out.writeByte(EXECUTED);
+        out.writeLong(transfer.getId());
+        out.writeInt(transfer.getExecutions());
+        out.writeLong(transfer.nextExecutionMillis());
+        records++;
+    }
+
+    void cancelled(long id) throws IOException {
+        out.writeByte(CANCELLED);
+        out.writeLong(id);
+        records++;
+    }
+
+    void finished(long id) throws IOException {
+        out.writeByte(FINISHED);
+        out.writeLong(id);
+        records++;
+    }
+
+    // do systemu plików i na dysk (fsync)
+    void flush() throws IOException {
+        out.flush();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+    }
+
+    private Path journal(long generation) {
+        return dir.resolve(JOURNAL_PREFIX + generation);
+    }
+
+    // dzienniki po numerze generacji, rosnąco
+    private TreeMap<Long, Path> journals() throws IOException {
+        TreeMap<Long, Path> journals = new TreeMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(JOURNAL_PREFIX)) {
+                    try {
+                        journals.put(Long.parseLong(name.substring(JOURNAL_PREFIX.length())), file);
+                    } catch (NumberFormatException ignored) {
+                        // obcy plik
+                    }
+                }
+            });
+        }
+        return journals;
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        return new DataInputStream(new BufferedInputStream(in, 1 << 16));
+    }
+
+    private static void writeTransfer(DataOutputStream out, ScheduledTransfer transfer) throws IOException {
+        out.writeLong(transfer.getId());
+        out.writeLong(transfer.getFromId());
+        out.writeLong(transfer.getToId());
+        out.writeDouble(transfer.getAmount());
+        out.writeLong(transfer.nextExecutionMillis());
+        out.writeLong(transfer.intervalMillis());
+    }
+
+    private static ScheduledTransfer readTransfer(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        long fromId = in.readLong();
+        long toId = in.readLong();
+        double amount = in.readDouble();
+        long next = in.readLong();
+        long interval = in.readLong();
+        return new ScheduledTransfer(id, fromId, toId, amount, next, interval);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.minibank.schedule;
+
+import com.example.minibank.TransferOutcome;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// zlecenie stałe albo jednorazowy przelew z terminem; obiekt jest jednocześnie elementem koła czasowego,
+// więc oczekujące zlecenie to jeden obiekt bez dodatkowych węzłów
+public class ScheduledTransfer extends TimingWheel.Timer {
+
+    private final long id;
+    private final long fromId;
+    private final long toId;
+    private final double amount;
+    // 0 - przelew jednorazowy
+    private final long intervalMillis;
+    private volatile long nextExecutionMillis;
+    private volatile int executions;
+    private volatile TransferOutcome lastOutcome;
+    volatile boolean cancelled;
+    // wykonanie zapisane w dzienniku jako rozpoczęte, jeszcze bez wyniku (pod blokadą serwisu)
+    boolean attempted;
+
+    ScheduledTransfer(long id, long fromId, long toId, double amount, long nextExecutionMillis, long intervalMillis) {
+        this.id = id;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.amount = amount;
+        this.nextExecutionMillis = nextExecutionMillis;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getFromId() {
+        return fromId;
+    }
+
+    public long getToId() {
+        return toId;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getNextExecution() {
+        return Instant.ofEpochMilli(nextExecutionMillis).toString();
+    }
+
+    public String getInterval() {
+        return intervalMillis == 0 ? null : Duration.ofMillis(intervalMillis).toString();
+    }
+
+    public int getExecutions() {
+        return executions;
+    }
+
+    public TransferOutcome getLastOutcome() {
+        return lastOutcome;
+    }
+
+    boolean isRecurring() {
+        return intervalMillis > 0;
+    }
+
+    long intervalMillis() {
+        return intervalMillis;
+    }
+
+    long nextExecutionMillis() {
+        return nextExecutionMillis;
+    }
+
+    void executed(TransferOutcome outcome, long nextExecutionMillis) {
+        this.lastOutcome = outcome;
+        this.executions = executions + 1;
+        this.nextExecutionMillis = nextExecutionMillis;
+    }
+
+    void restore(int executions, long nextExecutionMillis) {
+        this.executions = executions;
+        this.nextExecutionMillis = nextExecutionMillis;
+    }
+}
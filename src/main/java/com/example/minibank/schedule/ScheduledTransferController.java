@@ -0,0 +1,32 @@
+package com.example.minibank.schedule;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@ConditionalOnExpression("'${minibank.replication.role:}' != 'follower'")
+@RequestMapping("/accounts/scheduled-transfers")
+public class ScheduledTransferController {
+
+    private final ScheduledTransferService scheduledTransferService;
+
+    public ScheduledTransferController(ScheduledTransferService scheduledTransferService) {
+        this.scheduledTransferService = scheduledTransferService;
+    }
+
+    // POST /accounts/scheduled-transfers {"fromId":1,"toId":2,"amount":100,"executeAt":"2024-05-01T08:00:00Z","interval":"P30D"}
+    @PostMapping
+    public ScheduledTransfer schedule(@RequestBody ScheduledTransferRequest request) {
+        return scheduledTransferService.schedule(request);
+    }
+
+    @GetMapping("/{id}")
+    public ScheduledTransfer get(@PathVariable long id) {
+        return scheduledTransferService.get(id);
+    }
+
+    @DeleteMapping("/{id}")
+    public String cancel(@PathVariable long id) {
+        return scheduledTransferService.cancel(id) ? "Scheduled transfer cancelled" : "Scheduled transfer not found";
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.minibank.schedule;
+
+public class ScheduledTransferRequest {
+    private Long fromId;
+    private Long toId;
+    private double amount;
+    // pierwsze wykonanie, ISO-8601 (np. 2024-05-01T08:00:00Z); brak - teraz + interval
+    private String executeAt;
+    // odstęp między wykonaniami, ISO-8601 (np. P1D, PT12H); brak - przelew jednorazowy
+    private String interval;
+
+    // gettery i settery
+    public Long getFromId() {
+        return fromId;
+    }
+    public void setFromId(Long fromId) {
+        this.fromId = fromId;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+    public void setToId(Long toId) {
+        this.toId = toId;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+
+    public String getExecuteAt() {
+        return executeAt;
+    }
+    public void setExecuteAt(String executeAt) {
+        this.executeAt = executeAt;
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+    public void setInterval(String interval) {
+        this.interval = interval;
+    }
+}
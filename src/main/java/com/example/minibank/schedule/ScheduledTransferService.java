@@ -0,0 +1,332 @@
+package com.example.minibank.schedule;
+
+import com.example.minibank.AccountService;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.exception.ScheduledTransferNotFoundException;
+import com.example.minibank.metrics.AccountMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+// przelewy z terminem i zlecenia stałe. Oczekujące zlecenia siedzą w hierarchicznym kole czasowym
+// (dodanie i anulowanie O(1), bez wątku na zlecenie i bez przeglądania kolejki priorytetowej);
+// jeden wątek co tick przesuwa koło i wykonuje paczkę wygasłych zleceń przez AccountService.
+// Przy ustawionym minibank.schedule.store-dir oczekujące zlecenia przeżywają restart (snapshot + dziennik).
+// Zlecenia nie są replikowane - wykonuje je tylko lider, a na followerze usługi nie ma
+@Service
+@ConditionalOnExpression("'${minibank.replication.role:}' != 'follower'")
+public class ScheduledTransferService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduledTransferService.class);
+    private static final int MIN_COMPACTION_RECORDS = 100_000;
+
+    private final AccountService accountService;
+    private final long tickMillis;
+    private final ScheduleJournal journal;
+    // koło, indeks, licznik id i dziennik chroni monitor tego obiektu
+    private final Object lock = new Object();
+    private final TimingWheel wheel;
+    private final ScheduleIndex index = new ScheduleIndex();
+    private long lastId;
+    private final Thread ticker;
+    private volatile boolean running = true;
+
+    public ScheduledTransferService(AccountService accountService, AccountMetrics metrics,
+                                    @Value("${minibank.schedule.tick:1s}") Duration tick,
+                                    @Value("${minibank.schedule.store-dir:}") String storeDir) throws IOException {
+        if (tick.toMillis() <= 0) {
+            throw new IllegalArgumentException("Schedule tick must be at least 1ms");
+        }
+        this.accountService = accountService;
+        this.tickMillis = tick.toMillis();
+        this.wheel = new TimingWheel(System.currentTimeMillis() / tickMillis);
+        this.journal = storeDir.isBlank() ? null : new ScheduleJournal(Path.of(storeDir));
+        if (journal != null) {
+            recover();
+        }
+        metrics.gauge("minibank.schedule.pending", "Scheduled transfers waiting for execution", this,
+                ScheduledTransferService::pendingCount);
+        ticker = new Thread(this::run, "transfer-scheduler");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    public ScheduledTransfer schedule(ScheduledTransferRequest request) {
+        if (request.getFromId() == null || request.getToId() == null) {
+            throw new IllegalArgumentException("fromId and toId are required");
+        }
+        if (!(request.getAmount() > 0)) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        long interval = parseInterval(request.getInterval());
+        if (request.getExecuteAt() == null && interval == 0) {
+            throw new IllegalArgumentException("executeAt or interval is required");
+        }
+        long first = request.getExecuteAt() == null
+                ? System.currentTimeMillis() + interval
+                : parseInstant(request.getExecuteAt());
+        synchronized (lock) {
+            ScheduledTransfer transfer = new ScheduledTransfer(lastId + 1, request.getFromId(), request.getToId(),
+                    request.getAmount(), first, interval);
+            // najpierw sprawdzenie zakresu koła, potem dziennik - nieprzyjęte zlecenie nie trafia na dysk
+            if (toTick(first) - wheel.currentTick() > TimingWheel.maxDelayTicks()
+                    || interval / tickMillis > TimingWheel.maxDelayTicks()) {
+                throw new IllegalArgumentException("Scheduled transfer is too far in the future");
+            }
+            journal(j -> {
+                j.added(transfer);
+                j.flush();
+            });
+            lastId++;
+            index.put(transfer);
+            wheel.add(transfer, toTick(first));
+            return transfer;
+        }
+    }
+
+    public ScheduledTransfer get(long id) {
+        synchronized (lock) {
+            ScheduledTransfer transfer = index.get(id);
+            if (transfer == null) {
+                throw new ScheduledTransferNotFoundException("Scheduled transfer with ID " + id + " not found");
+            }
+            return transfer;
+        }
+    }
+
+    public boolean cancel(long id) {
+        synchronized (lock) {
+            ScheduledTransfer transfer = index.get(id);
+            if (transfer == null) {
+                return false;
+            }
+            journal(j -> {
+                j.cancelled(id);
+                j.flush();
+            });
+            index.remove(id);
+            transfer.cancelled = true;
+            // zlecenie właśnie wykonywane jest już poza kołem - nie wróci do niego po wykonaniu
+            wheel.cancel(transfer);
+            return true;
+        }
+    }
+
+    public int pendingCount() {
+        synchronized (lock) {
+            return index.size();
+        }
+    }
+
+    private void run() {
+        List<ScheduledTransfer> due = new ArrayList<>();
+        while (running) {
+            long target = System.currentTimeMillis() / tickMillis;
+            synchronized (lock) {
+                while (wheel.currentTick() < target) {
+                    wheel.tick(timer -> due.add((ScheduledTransfer) timer));
+                }
+            }
+            if (!due.isEmpty()) {
+                try {
+                    fire(due);
+                } catch (RuntimeException e) {
+                    log.error("Scheduled transfer batch failed", e);
+                }
+                due.clear();
+            }
+            long sleep = (target + 1) * tickMillis - System.currentTimeMillis();
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep * 1_000_000L);
+            }
+        }
+    }
+
+    // przelewy wykonywane poza blokadą, więc API nie czeka na paczkę. Przed pierwszym przelewem zamiar wykonania
+    // całej paczki idzie na dysk jednym fsync - po awarii rozpoczęte wykonanie nie jest powtarzane
+    // (przepadają też te z paczki, które jeszcze nie ruszyły); wyniki zapisywane raz na paczkę
+    private void fire(List<ScheduledTransfer> due) {
+        List<ScheduledTransfer> attempted = new ArrayList<>(due.size());
+        synchronized (lock) {
+            try {
+                for (ScheduledTransfer transfer : due) {
+                    if (!transfer.cancelled) {
+                        journal(j -> j.attempted(transfer));
+                        attempted.add(transfer);
+                    }
+                }
+                journal(ScheduleJournal::flush);
+            } catch (UncheckedIOException e) {
+                // bez zapisu zamiaru przelewy nie ruszają - ponowna próba w następnym ticku
+                log.error("Cannot journal {} scheduled transfers, retrying on the next tick", due.size(), e);
+                for (ScheduledTransfer transfer : due) {
+                    if (!transfer.cancelled) {
+                        wheel.add(transfer, wheel.currentTick() + 1);
+                    }
+                }
+                return;
+            }
+            attempted.forEach(transfer -> transfer.attempted = true);
+        }
+        for (ScheduledTransfer transfer : attempted) {
+            TransferOutcome outcome;
+            try {
+                outcome = accountService.executeTransfer(transfer.getFromId(), transfer.getToId(), transfer.getAmount());
+            } catch (RuntimeException e) {
+                log.warn("Scheduled transfer {} failed: {}", transfer.getId(), e.toString());
+                outcome = TransferOutcome.ACCOUNT_NOT_FOUND;
+            }
+            long now = System.currentTimeMillis();
+            synchronized (lock) {
+                transfer.attempted = false;
+                if (transfer.cancelled) {
+                    continue;
+                }
+                if (transfer.isRecurring()) {
+                    // okresy przegapione np. podczas przestoju są pomijane, a nie nadrabiane seriami
+                    long interval = transfer.intervalMillis();
+                    long next = transfer.nextExecutionMillis() + interval;
+                    if (next <= now) {
+                        next += ((now - next) / interval + 1) * interval;
+                    }
+                    transfer.executed(outcome, next);
+                    wheel.add(transfer, toTick(next));
+                    journal(j -> j.executed(transfer));
+                } else {
+                    transfer.executed(outcome, transfer.nextExecutionMillis());
+                    index.remove(transfer.getId());
+                    journal(j -> j.finished(transfer.getId()));
+                }
+            }
+        }
+        ScheduleJournal.Snapshot snapshot = null;
+        synchronized (lock) {
+            if (journal != null) {
+                journal(ScheduleJournal::flush);
+                if (journal.recordsSinceCompaction() > Math.max(MIN_COMPACTION_RECORDS, 2L * index.size())) {
+                    snapshot = rotate();
+                }
+            }
+        }
+        if (snapshot != null) {
+            writeSnapshot(snapshot);
+        }
+    }
+
+    private void recover() throws IOException {
+        ScheduleJournal.Recovered recovered = journal.load();
+        ScheduleJournal.Snapshot snapshot;
+        synchronized (lock) {
+            lastId = recovered.maxId();
+            for (ScheduledTransfer transfer : recovered.schedules().values()) {
+                index.put(transfer);
+                // zaległe zlecenia trafiają na najbliższy tick
+                wheel.add(transfer, toTick(transfer.nextExecutionMillis()));
+            }
+            snapshot = journal.rotate(index, lastId);
+        }
+        journal.writeSnapshot(snapshot);
+        if (recovered.skipped() > 0) {
+            log.warn("Skipped {} scheduled transfer executions interrupted by a crash, their outcome is unknown",
+                    recovered.skipped());
+        }
+        if (index.size() > 0) {
+            log.info("Recovered {} scheduled transfers", index.size());
+        }
+    }
+
+    // pod blokadą: kopia stanu i nowy dziennik; snapshot zapisuje writeSnapshot już bez blokady
+    private ScheduleJournal.Snapshot rotate() {
+        try {
+            return journal.rotate(index, lastId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Schedule journal rotation failed", e);
+        }
+    }
+
+    private void writeSnapshot(ScheduleJournal.Snapshot snapshot) {
+        try {
+            journal.writeSnapshot(snapshot);
+        } catch (IOException e) {
+            // poprzedni snapshot i dzienniki zostają - nic nie ginie
+            log.error("Cannot write schedule snapshot", e);
+        }
+    }
+
+    // tick, w którym termin już minął (zaokrąglenie w górę)
+    private long toTick(long epochMillis) {
+        return Math.floorDiv(epochMillis + tickMillis - 1, tickMillis);
+    }
+
+    private interface JournalWrite {
+        void write(ScheduleJournal journal) throws IOException;
+    }
+
+    private void journal(JournalWrite write) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            write.write(journal);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Schedule journal write failed", e);
+        }
+    }
+
+    private static long parseInterval(String interval) {
+        if (interval == null || interval.isBlank()) {
+            return 0;
+        }
+        try {
+            long millis = Duration.parse(interval).toMillis();
+            if (millis <= 0) {
+                throw new IllegalArgumentException("Interval must be positive");
+            }
+            return millis;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+    }
+
+    private static long parseInstant(String instant) {
+        try {
+            return Instant.parse(instant).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid executeAt: " + instant);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        running = false;
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (journal != null) {
+            ScheduleJournal.Snapshot snapshot;
+            synchronized (lock) {
+                snapshot = journal.rotate(index, lastId);
+            }
+            journal.writeSnapshot(snapshot);
+            synchronized (lock) {
+                journal.close();
+            }
+        }
+    }
+}
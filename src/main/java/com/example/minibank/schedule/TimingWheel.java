@@ -0,0 +1,143 @@
+package com.example.minibank.schedule;
+
+import java.util.function.Consumer;
+
+// hierarchiczne koło czasowe (Varghese & Lauck): LEVELS poziomów po 64 sloty, poziom L ma szczelinę 64^L ticków.
+// Timer siedzi w slocie poziomu, na którym jego termin jest mniej niż 64 szczeliny od bieżącego ticka;
+// gdy niższy poziom zrobi pełny obrót, slot wyższego poziomu jest rozrzucany niżej (kaskada).
+// Sloty to cykliczne listy dwukierunkowe z wartownikiem, a łącza są polami samego timera,
+// więc dodanie i anulowanie to O(1) bez żadnych dodatkowych obiektów.
+// Klasa nie jest wątkowo bezpieczna - synchronizuje ją właściciel.
+final class TimingWheel {
+
+    static final int LEVELS = 6;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    // element koła - klasy pochodne dokładają własne dane
+    abstract static class Timer {
+        long deadlineTick;
+        Timer prev;
+        Timer next;
+
+        boolean isScheduled() {
+            return next != null;
+        }
+    }
+
+    private static final class Sentinel extends Timer {
+        Sentinel() {
+            prev = this;
+            next = this;
+        }
+    }
+
+    private final Sentinel[][] slots = new Sentinel[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long startTick) {
+        this.currentTick = startTick;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots[level][slot] = new Sentinel();
+            }
+        }
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // największy termin, jaki koło pomieści względem bieżącego ticka
+    static long maxDelayTicks() {
+        return (1L << (SLOT_BITS * LEVELS)) - (1L << (SLOT_BITS * (LEVELS - 1)));
+    }
+
+    // termin w przeszłości albo teraz - timer trafia na najbliższy tick
+    void add(Timer timer, long deadlineTick) {
+        if (timer.isScheduled()) {
+            throw new IllegalStateException("Timer already scheduled");
+        }
+        if (deadlineTick - currentTick > maxDelayTicks()) {
+            throw new IllegalArgumentException("Deadline too far in the future");
+        }
+        timer.deadlineTick = Math.max(deadlineTick, currentTick + 1);
+        place(timer);
+        size++;
+    }
+
+    boolean cancel(Timer timer) {
+        if (!timer.isScheduled()) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    // przesuwa koło o jeden tick; wygasłe timery (już odłączone) idą do expired
+    void tick(Consumer<Timer> expired) {
+        currentTick++;
+        int top = 0;
+        while (top < LEVELS - 1 && (currentTick & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0) {
+            top++;
+        }
+        // kaskada od najwyższego poziomu, którego szczelina właśnie się zaczęła
+        for (int level = top; level >= 1; level--) {
+            Sentinel slot = slots[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+            Timer timer = slot.next;
+            slot.next = slot;
+            slot.prev = slot;
+            while (timer != slot) {
+                Timer next = timer.next;
+                timer.next = null;
+                timer.prev = null;
+                if (timer.deadlineTick <= currentTick) {
+                    size--;
+                    expired.accept(timer);
+                } else {
+                    place(timer);
+                }
+                timer = next;
+            }
+        }
+        Sentinel due = slots[0][(int) (currentTick & SLOT_MASK)];
+        Timer timer = due.next;
+        due.next = due;
+        due.prev = due;
+        while (timer != due) {
+            Timer next = timer.next;
+            timer.next = null;
+            timer.prev = null;
+            size--;
+            expired.accept(timer);
+            timer = next;
+        }
+    }
+
+    private void place(Timer timer) {
+        int level = 0;
+        while (level < LEVELS - 1
+                && (timer.deadlineTick >>> (SLOT_BITS * level)) - (currentTick >>> (SLOT_BITS * level)) >= SLOTS) {
+            level++;
+        }
+        Sentinel slot = slots[level][(int) ((timer.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        timer.prev = slot.prev;
+        timer.next = slot;
+        slot.prev.next = timer;
+        slot.prev = timer;
+    }
+
+    private static void unlink(Timer timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.minibank.search;
+
+// filtr GET /accounts/search; null - pole bez ograniczenia, zakresy domknięte
+public class AccountSearchCriteria {
+    private String currency;
+    private String status;
+    private String accountType;
+    private Double minBalance;
+    private Double maxBalance;
+    // epoch millis (UTC), jak Account.createdAtMillis()
+    private Long createdFrom;
+    private Long createdTo;
+
+    // gettery i settery
+    public String getCurrency() {
+        return currency;
+    }
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getAccountType() {
+        return accountType;
+    }
+    public void setAccountType(String accountType) {
+        this.accountType = accountType;
+    }
+
+    public Double getMinBalance() {
+        return minBalance;
+    }
+    public void setMinBalance(Double minBalance) {
+        this.minBalance = minBalance;
+    }
+
+    public Double getMaxBalance() {
+        return maxBalance;
+    }
+    public void setMaxBalance(Double maxBalance) {
+        this.maxBalance = maxBalance;
+    }
+
+    public Long getCreatedFrom() {
+        return createdFrom;
+    }
+    public void setCreatedFrom(Long createdFrom) {
+        this.createdFrom = createdFrom;
+    }
+
+    public Long getCreatedTo() {
+        return createdTo;
+    }
+    public void setCreatedTo(Long createdTo) {
+        this.createdTo = createdTo;
+    }
+
+    @Override
+    public String toString() {
+        return "currency=" + currency + ", status=" + status + ", accountType=" + accountType
+                + ", balance=[" + minBalance + ", " + maxBalance + "], createdAt=[" + createdFrom + ", " + createdTo + "]";
+    }
+}
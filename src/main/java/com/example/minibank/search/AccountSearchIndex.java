@@ -0,0 +1,63 @@
+package com.example.minibank.search;
+
+import com.example.minibank.Account;
+import com.example.minibank.shard.AccountChangeListener;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// indeksy wyszukiwania kont po walucie, statusie, typie, saldzie i dacie założenia.
+// Każdy shard ma własny indeks aktualizowany przez listener na wątku shardu, więc indeks
+// jest zawsze zgodny ze stanem shardu, bez blokad; zapytanie idzie scatter-gather do wszystkich shardów
+@Component
+public class AccountSearchIndex implements AccountChangeListener {
+
+    private final ShardedAccountStore store;
+    private final ShardSearchIndex[] shards;
+
+    public AccountSearchIndex(ShardedAccountStore store) {
+        this.store = store;
+        this.shards = new ShardSearchIndex[store.shardCount()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ShardSearchIndex();
+        }
+        store.addListener(this);
+        // konta dodane przed rejestracją listenera
+        store.scatter(shard -> {
+            for (Account account : shard.accounts()) {
+                shards[shard.getIndex()].upsert(account);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void accountChanged(int shard, Account account) {
+        shards[shard].upsert(account);
+    }
+
+    @Override
+    public void accountRemoved(int shard, long id) {
+        shards[shard].remove(id);
+    }
+
+    // strona kont o id > afterId, rosnąco po id
+    public AccountSearchPage search(AccountSearchCriteria criteria, long afterId, int limit) {
+        List<ShardSearchIndex.Result> parts = store.scatter(shard -> shards[shard.getIndex()].query(shard, criteria, afterId, limit));
+        List<Account> accounts = new ArrayList<>();
+        long total = 0;
+        long remaining = 0;
+        for (ShardSearchIndex.Result part : parts) {
+            accounts.addAll(part.accounts());
+            total += part.total();
+            remaining += part.remaining();
+        }
+        accounts.sort(Comparator.comparing(Account::getId));
+        List<Account> page = accounts.size() > limit ? new ArrayList<>(accounts.subList(0, limit)) : accounts;
+        String next = remaining > page.size() ? String.valueOf(page.get(page.size() - 1).getId()) : null;
+        return new AccountSearchPage(page, total, next);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.minibank.search;
+
+import com.example.minibank.Account;
+
+import java.util.List;
+
+// strona wyników GET /accounts/search, rosnąco po id; nextCursor == null - to była ostatnia strona
+public class AccountSearchPage {
+    private List<Account> accounts;
+    // liczba wszystkich pasujących kont, nie tylko tej strony
+    private long total;
+    private String nextCursor;
+
+    public AccountSearchPage() {
+    }
+
+    public AccountSearchPage(List<Account> accounts, long total, String nextCursor) {
+        this.accounts = accounts;
+        this.total = total;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Account> getAccounts() {
+        return accounts;
+    }
+    public void setAccounts(List<Account> accounts) {
+        this.accounts = accounts;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
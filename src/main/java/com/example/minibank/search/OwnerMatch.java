@@ -0,0 +1,30 @@
+package com.example.minibank.search;
+
+// podpowiedź GET /accounts/owner/search: właściciel (w oryginalnej pisowni) i jedno z jego kont
+public class OwnerMatch {
+    private String owner;
+    private long accountId;
+
+    public OwnerMatch() {
+    }
+
+    public OwnerMatch(String owner, long accountId) {
+        this.owner = owner;
+        this.accountId = accountId;
+    }
+
+    // gettery i settery
+    public String getOwner() {
+        return owner;
+    }
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+    public void setAccountId(long accountId) {
+        this.accountId = accountId;
+    }
+}
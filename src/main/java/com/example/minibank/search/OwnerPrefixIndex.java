@@ -0,0 +1,116 @@
+package com.example.minibank.search;
+
+import com.example.minibank.Account;
+import com.example.minibank.shard.AccountChangeListener;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// podpowiadanie właścicieli po prefiksie nazwy. Każdy shard ma własne drzewo (OwnerTrie) zmieniane
+// przez listener na wątku shardu; zapytanie czyta drzewa bez kolejki shardów i bez blokad,
+// a koszt zależy od długości prefiksu, liczby shardów i k - nie od liczby kont
+@Component
+public class OwnerPrefixIndex implements AccountChangeListener {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final int k;
+    private final OwnerTrie[] tries;
+    // aktualny wpis każdego konta w drzewie shardu - tylko na wątku shardu
+    private final LongObjectMap<OwnerTrie.Entry>[] entries;
+
+    public OwnerPrefixIndex(ShardedAccountStore store) {
+        this(store, 20);
+    }
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public OwnerPrefixIndex(ShardedAccountStore store, @Value("${minibank.owner.top-k:20}") int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Owner index top-k must be positive");
+        }
+        this.k = k;
+        this.tries = new OwnerTrie[store.shardCount()];
+        this.entries = new LongObjectMap[store.shardCount()];
+        for (int i = 0; i < tries.length; i++) {
+            tries[i] = new OwnerTrie(k);
+            entries[i] = new LongObjectMap<>();
+        }
+        store.addListener(this);
+        // konta dodane przed rejestracją listenera
+        store.scatter(shard -> {
+            for (Account account : shard.accounts()) {
+                accountChanged(shard.getIndex(), account);
+            }
+            return null;
+        });
+    }
+
+    public int topK() {
+        return k;
+    }
+
+    // postać porównywana: bez znaków diakrytycznych, małe litery, pojedyncze spacje
+    public static String normalize(String owner) {
+        String stripped = MARKS.matcher(Normalizer.normalize(owner.trim(), Normalizer.Form.NFD)).replaceAll("");
+        // ł nie rozkłada się w NFD
+        return SPACES.matcher(stripped).replaceAll(" ").toLowerCase(Locale.ROOT).replace('ł', 'l');
+    }
+
+    @Override
+    public void accountChanged(int shard, Account account) {
+        OwnerTrie.Entry current = entries[shard].get(account.getId());
+        String owner = account.getOwner();
+        // zwykła zmiana salda - właściciel ten sam, bez normalizacji
+        if (current != null && current.owner().equals(owner)) {
+            return;
+        }
+        if (current != null) {
+            tries[shard].remove(current);
+            entries[shard].remove(account.getId());
+        }
+        String key = owner == null ? "" : normalize(owner);
+        if (!key.isEmpty()) {
+            OwnerTrie.Entry entry = new OwnerTrie.Entry(key, owner, account.getId());
+            tries[shard].add(entry);
+            entries[shard].put(account.getId(), entry);
+        }
+    }
+
+    @Override
+    public void accountRemoved(int shard, long id) {
+        OwnerTrie.Entry current = entries[shard].remove(id);
+        if (current != null) {
+            tries[shard].remove(current);
+        }
+    }
+
+    // najwyżej limit kont, których właściciel zaczyna się od prefix; po nazwie, potem po id
+    public List<OwnerMatch> search(String prefix, int limit) {
+        if (limit <= 0 || limit > k) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + k);
+        }
+        String key = prefix == null ? "" : normalize(prefix);
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Prefix is required");
+        }
+        List<OwnerTrie.Entry> merged = new ArrayList<>();
+        for (OwnerTrie trie : tries) {
+            merged.addAll(trie.search(key, limit));
+        }
+        merged.sort(OwnerTrie.ORDER);
+        List<OwnerMatch> result = new ArrayList<>(Math.min(limit, merged.size()));
+        for (int i = 0; i < merged.size() && i < limit; i++) {
+            result.add(new OwnerMatch(merged.get(i).owner(), merged.get(i).id()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.minibank.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// znormalizowane nazwy właścicieli kont jednego shardu w drzewie pozycyjnym (krawędzie z całymi fragmentami nazw,
+// najwyżej ~2 węzły na różną nazwę). Węzły są niezmienne: zmiana kopiuje tylko ścieżkę od korzenia
+// i podmienia volatile root, więc zapisuje jeden wątek (shardu), a czytać można z dowolnego bez blokad.
+// Węzeł z więcej niż k kontami w poddrzewie trzyma jego k pierwszych wpisów (klucz, potem id),
+// więc zapytanie o prefiks to zejście po prefiksie + najwyżej k wpisów, niezależnie od liczby kont
+final class OwnerTrie {
+
+    record Entry(String key, String owner, long id) {
+    }
+
+    static final Comparator<Entry> ORDER = Comparator.comparing(Entry::key).thenComparingLong(Entry::id);
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final class Node {
+        final String label;
+        // posortowane po pierwszym znaku etykiety
+        final Node[] children;
+        // konta, których klucz kończy się w tym węźle, po id
+        final Entry[] entries;
+        final int count;
+        // k pierwszych wpisów poddrzewa; null, gdy count <= k (wtedy zbieramy je przejściem po poddrzewie)
+        final Entry[] top;
+
+        Node(String label, Node[] children, Entry[] entries, int k) {
+            this.label = label;
+            this.children = children;
+            this.entries = entries;
+            int total = entries.length;
+            for (Node child : children) {
+                total += child.count;
+            }
+            this.count = total;
+            if (total > k) {
+                List<Entry> first = new ArrayList<>(k);
+                collect(first, k);
+                this.top = first.toArray(NO_ENTRIES);
+            } else {
+                this.top = null;
+            }
+        }
+
+        // wpisy poddrzewa w kolejności ORDER: klucz węzła jest prefiksem kluczy dzieci, więc jego konta są pierwsze
+        void collect(List<Entry> out, int limit) {
+            if (top != null) {
+                for (int i = 0; i < top.length && out.size() < limit; i++) {
+                    out.add(top[i]);
+                }
+                return;
+            }
+            for (int i = 0; i < entries.length && out.size() < limit; i++) {
+                out.add(entries[i]);
+            }
+            for (int i = 0; i < children.length && out.size() < limit; i++) {
+                children[i].collect(out, limit);
+            }
+        }
+    }
+
+    private final int k;
+    private volatile Node root;
+
+    OwnerTrie(int k) {
+        this.k = k;
+        this.root = new Node("", NO_CHILDREN, NO_ENTRIES, k);
+    }
+
+    int size() {
+        return root.count;
+    }
+
+    // --- tylko wątek shardu ---
+
+    void add(Entry entry) {
+        root = insert(root, entry, 0);
+    }
+
+    void remove(Entry entry) {
+        Node updated = remove(root, entry.key(), 0, entry.id());
+        root = updated == null ? new Node("", NO_CHILDREN, NO_ENTRIES, k) : updated;
+    }
+
+    // --- dowolny wątek ---
+
+    // najwyżej limit (<= k) pierwszych wpisów, których klucz zaczyna się od prefix
+    List<Entry> search(String prefix, int limit) {
+        Node node = root;
+        int pos = 0;
+        while (pos < prefix.length()) {
+            int i = childIndex(node.children, prefix.charAt(pos));
+            if (i < 0) {
+                return List.of();
+            }
+            Node child = node.children[i];
+            int common = commonPrefix(child.label, prefix, pos);
+            if (pos + common == prefix.length()) {
+                // prefiks kończy się na etykiecie dziecka albo w jej środku
+                node = child;
+                break;
+            }
+            if (common < child.label.length()) {
+                return List.of();
+            }
+            node = child;
+            pos += common;
+        }
+        List<Entry> result = new ArrayList<>(limit);
+        node.collect(result, limit);
+        return result;
+    }
+
+    private Node insert(Node node, Entry entry, int pos) {
+        String key = entry.key();
+        if (pos == key.length()) {
+            return new Node(node.label, node.children, withEntry(node.entries, entry), k);
+        }
+        int i = childIndex(node.children, key.charAt(pos));
+        if (i < 0) {
+            Node leaf = new Node(key.substring(pos), NO_CHILDREN, new Entry[]{entry}, k);
+            return new Node(node.label, insertAt(node.children, -i - 1, leaf), node.entries, k);
+        }
+        Node child = node.children[i];
+        int common = commonPrefix(child.label, key, pos);
+        Node updated;
+        if (common == child.label.length()) {
+            updated = insert(child, entry, pos + common);
+        } else {
+            // rozdzielenie krawędzi w miejscu, gdzie klucz odchodzi od etykiety
+            Node tail = new Node(child.label.substring(common), child.children, child.entries, k);
+            Node middle = new Node(child.label.substring(0, common), new Node[]{tail}, NO_ENTRIES, k);
+            updated = insert(middle, entry, pos + common);
+        }
+        Node[] children = node.children.clone();
+        children[i] = updated;
+        return new Node(node.label, children, node.entries, k);
+    }
+
+    // null - węzeł (nie korzeń) został pusty
+    private Node remove(Node node, String key, int pos, long id) {
+        if (pos == key.length()) {
+            Entry[] entries = withoutEntry(node.entries, id);
+            return entries == node.entries ? node : compact(node.label, node.children, entries, pos == 0);
+        }
+        int i = childIndex(node.children, key.charAt(pos));
+        if (i < 0) {
+            return node;
+        }
+        Node child = node.children[i];
+        if (!key.startsWith(child.label, pos)) {
+            return node;
+        }
+        Node updated = remove(child, key, pos + child.label.length(), id);
+        if (updated == child) {
+            return node;
+        }
+        Node[] children;
+        if (updated == null) {
+            children = new Node[node.children.length - 1];
+            System.arraycopy(node.children, 0, children, 0, i);
+            System.arraycopy(node.children, i + 1, children, i, children.length - i);
+        } else {
+            children = node.children.clone();
+            children[i] = updated;
+        }
+        return compact(node.label, children, node.entries, pos == 0);
+    }
+
+    // węzeł bez kont: bez dzieci znika, z jednym dzieckiem skleja się z nim (korzeń zostaje zawsze)
+    private Node compact(String label, Node[] children, Entry[] entries, boolean isRoot) {
+        if (!isRoot && entries.length == 0) {
+            if (children.length == 0) {
+                return null;
+            }
+            if (children.length == 1) {
+                Node only = children[0];
+                return new Node(label + only.label, only.children, only.entries, k);
+            }
+        }
+        return new Node(label, children, entries, k);
+    }
+
+    private static Entry[] withEntry(Entry[] entries, Entry entry) {
+        int i = entryIndex(entries, entry.id());
+        if (i >= 0) {
+            Entry[] replaced = entries.clone();
+            replaced[i] = entry;
+            return replaced;
+        }
+        int at = -i - 1;
+        Entry[] result = new Entry[entries.length + 1];
+        System.arraycopy(entries, 0, result, 0, at);
+        result[at] = entry;
+        System.arraycopy(entries, at, result, at + 1, entries.length - at);
+        return result;
+    }
+
+    private static Entry[] withoutEntry(Entry[] entries, long id) {
+        int i = entryIndex(entries, id);
+        if (i < 0) {
+            return entries;
+        }
+        Entry[] result = new Entry[entries.length - 1];
+        System.arraycopy(entries, 0, result, 0, i);
+        System.arraycopy(entries, i + 1, result, i, result.length - i);
+        return result;
+    }
+
+    private static int entryIndex(Entry[] entries, long id) {
+        int lo = 0;
+        int hi = entries.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midId = entries[mid].id();
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    private static Node[] insertAt(Node[] children, int at, Node child) {
+        Node[] result = Arrays.copyOf(children, children.length + 1);
+        System.arraycopy(children, at, result, at + 1, children.length - at);
+        result[at] = child;
+        return result;
+    }
+
+    private static int childIndex(Node[] children, char c) {
+        int lo = 0;
+        int hi = children.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char midChar = children[mid].label.charAt(0);
+            if (midChar < c) {
+                lo = mid + 1;
+            } else if (midChar > c) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    private static int commonPrefix(String label, String key, int pos) {
+        int max = Math.min(label.length(), key.length() - pos);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(pos + i)) {
+            i++;
+        }
+        return i;
+    }
+}
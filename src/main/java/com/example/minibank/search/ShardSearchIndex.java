@@ -0,0 +1,194 @@
+package com.example.minibank.search;
+
+import com.example.minibank.Account;
+import com.example.minibank.shard.AccountShard;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// indeks jednego shardu - tylko na wątku shardu. Każde konto dostaje slot (int, używany ponownie po usunięciu);
+// dla każdej wartości waluty, statusu i typu konta trzymamy skompresowaną bitmapę slotów.
+// Zapytanie: przecięcie bitmap dla podanych wartości, a zakresy salda i daty założenia
+// sprawdzane tylko na slotach, które zostały po przecięciu. Indeks nie trzyma obiektów kont - tylko kolumny
+// potrzebne do filtrów - więc nie zatrzymuje na stercie kont zepchniętych do zimnej warstwy shardu;
+// konta ze strony wyniku pobiera shard
+final class ShardSearchIndex {
+
+    record Result(List<Account> accounts, long total, long remaining) {
+    }
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final LongIntMap slots = new LongIntMap();
+    // id, saldo i data założenia (epoch millis) kolumnowo
+    private long[] ids = new long[1024];
+    private double[] balances = new double[1024];
+    private long[] createdAts = new long[1024];
+    // wartości, pod którymi slot jest w bitmapach
+    private String[] currencies = new String[1024];
+    private String[] statuses = new String[1024];
+    private String[] accountTypes = new String[1024];
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int nextSlot;
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> byCurrency = new HashMap<>();
+    private final Map<String, RoaringBitmap> byStatus = new HashMap<>();
+    private final Map<String, RoaringBitmap> byAccountType = new HashMap<>();
+
+    void upsert(Account account) {
+        int slot = slots.get(account.getId());
+        if (slot == LongIntMap.MISSING) {
+            slot = allocate();
+            slots.put(account.getId(), slot);
+            live.add(slot);
+        }
+        ids[slot] = account.getId();
+        balances[slot] = account.getBalance();
+        createdAts[slot] = account.createdAtMillis();
+        currencies[slot] = reindex(byCurrency, currencies[slot], account.getCurrency(), slot);
+        statuses[slot] = reindex(byStatus, statuses[slot], account.getStatus(), slot);
+        accountTypes[slot] = reindex(byAccountType, accountTypes[slot], account.getAccountType(), slot);
+    }
+
+    void remove(long id) {
+        int slot = slots.remove(id);
+        if (slot == LongIntMap.MISSING) {
+            return;
+        }
+        live.remove(slot);
+        currencies[slot] = reindex(byCurrency, currencies[slot], null, slot);
+        statuses[slot] = reindex(byStatus, statuses[slot], null, slot);
+        accountTypes[slot] = reindex(byAccountType, accountTypes[slot], null, slot);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    // konta spełniające filtr o id > afterId: najmniejsze limit id (kopie z shardu) i liczniki; na wątku shardu
+    Result query(AccountShard shard, AccountSearchCriteria criteria, long afterId, int limit) {
+        RoaringBitmap candidates = candidates(criteria);
+
+        double minBalance = criteria.getMinBalance() == null ? Double.NEGATIVE_INFINITY : criteria.getMinBalance();
+        double maxBalance = criteria.getMaxBalance() == null ? Double.POSITIVE_INFINITY : criteria.getMaxBalance();
+        long createdFrom = criteria.getCreatedFrom() == null ? Long.MIN_VALUE : criteria.getCreatedFrom();
+        long createdTo = criteria.getCreatedTo() == null ? Long.MAX_VALUE : criteria.getCreatedTo();
+        boolean createdRange = criteria.getCreatedFrom() != null || criteria.getCreatedTo() != null;
+
+        // kopiec slotów o największym id na szczycie - trzyma limit najmniejszych id
+        PriorityQueue<Integer> page = new PriorityQueue<>(limit + 1, (a, b) -> Long.compare(ids[b], ids[a]));
+        long total = 0;
+        long remaining = 0;
+        IntIterator it = candidates.getIntIterator();
+        while (it.hasNext()) {
+            int slot = it.next();
+            double balance = balances[slot];
+            if (balance < minBalance || balance > maxBalance) {
+                continue;
+            }
+            if (createdRange) {
+                long createdAt = createdAts[slot];
+                // konto bez daty założenia nie spełnia filtru po dacie
+                if (createdAt == Long.MIN_VALUE || createdAt < createdFrom || createdAt > createdTo) {
+                    continue;
+                }
+            }
+            total++;
+            long id = ids[slot];
+            if (id <= afterId) {
+                continue;
+            }
+            remaining++;
+            if (page.size() < limit) {
+                page.add(slot);
+            } else if (id < ids[page.peek()]) {
+                page.poll();
+                page.add(slot);
+            }
+        }
+        List<Account> result = new ArrayList<>(page.size());
+        for (int slot : page) {
+            result.add(new Account(shard.find(ids[slot])));
+        }
+        return new Result(result, total, remaining);
+    }
+
+    // przecięcie od najmniejszej bitmapy - wynik pośredni nigdy nie jest większy od najrzadszej wartości
+    private RoaringBitmap candidates(AccountSearchCriteria criteria) {
+        List<RoaringBitmap> filters = new ArrayList<>(3);
+        if (!select(filters, byCurrency, criteria.getCurrency())
+                || !select(filters, byStatus, criteria.getStatus())
+                || !select(filters, byAccountType, criteria.getAccountType())) {
+            return EMPTY;
+        }
+        if (filters.isEmpty()) {
+            return live;
+        }
+        filters.sort(Comparator.comparingLong(RoaringBitmap::getLongCardinality));
+        RoaringBitmap result = filters.get(0);
+        for (int i = 1; i < filters.size() && !result.isEmpty(); i++) {
+            result = RoaringBitmap.and(result, filters.get(i));
+        }
+        return result;
+    }
+
+    // false - wartości nie ma w indeksie, więc nic nie pasuje
+    private static boolean select(List<RoaringBitmap> filters, Map<String, RoaringBitmap> index, String value) {
+        if (value == null) {
+            return true;
+        }
+        RoaringBitmap matching = index.get(value);
+        if (matching == null) {
+            return false;
+        }
+        filters.add(matching);
+        return true;
+    }
+
+    // przeniesienie slotu z bitmapy starej wartości do bitmapy nowej; zwraca nową wartość
+    private static String reindex(Map<String, RoaringBitmap> index, String oldValue, String newValue, int slot) {
+        if (oldValue == null ? newValue == null : oldValue.equals(newValue)) {
+            return oldValue;
+        }
+        if (oldValue != null) {
+            RoaringBitmap bitmap = index.get(oldValue);
+            bitmap.remove(slot);
+            if (bitmap.isEmpty()) {
+                index.remove(oldValue);
+            }
+        }
+        if (newValue != null) {
+            index.computeIfAbsent(newValue, value -> new RoaringBitmap()).add(slot);
+        }
+        return newValue;
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        int slot = nextSlot++;
+        if (slot == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            balances = Arrays.copyOf(balances, capacity);
+            createdAts = Arrays.copyOf(createdAts, capacity);
+            currencies = Arrays.copyOf(currencies, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            accountTypes = Arrays.copyOf(accountTypes, capacity);
+        }
+        return slot;
+    }
+}
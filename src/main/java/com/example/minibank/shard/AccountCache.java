@@ -0,0 +1,230 @@
+package com.example.minibank.shard;
+
+import com.example.minibank.Account;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// konta shardu trzymane na stercie, najwyżej maxSize (poza chwilą w trakcie zadania shardu).
+// Polityka W-TinyLFU: nowe i sprowadzone z zimnej warstwy konta trafiają do małego okna LRU (1%),
+// z okna przechodzą do części głównej (SLRU: próbna + chroniona, 80%) tylko wtedy, gdy szkic
+// częstości ocenia je wyżej niż konto, które musiałoby ustąpić. Jednorazowy przegląd wielu
+// uśpionych kont nie wypycha więc kont używanych na co dzień. Tylko wątek shardu
+final class AccountCache {
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private static final class Node {
+        Account account;
+        byte segment;
+        Node prev;
+        Node next;
+
+        Node(Account account) {
+            this.account = account;
+        }
+    }
+
+    private final Map<Long, Node> nodes = new HashMap<>();
+    // listy cykliczne z wartownikiem: od najdawniej do najświeżej używanych
+    private final Node window = sentinel();
+    private final Node probation = sentinel();
+    private final Node protectedQueue = sentinel();
+    private final int maxSize;
+    private final int windowMax;
+    private final int protectedMax;
+    // null - bez limitu, kolejność nie jest potrzebna
+    private final FrequencySketch sketch;
+    private final AccountCacheMetrics metrics;
+    private int windowSize;
+    private int probationSize;
+    private int protectedSize;
+
+    AccountCache(int maxSize, AccountCacheMetrics metrics) {
+        this.maxSize = maxSize;
+        this.metrics = metrics;
+        if (maxSize == Integer.MAX_VALUE) {
+            this.windowMax = Integer.MAX_VALUE;
+            this.protectedMax = 0;
+            this.sketch = null;
+        } else {
+            this.windowMax = Math.max(1, maxSize / 100);
+            this.protectedMax = (maxSize - windowMax) * 4 / 5;
+            this.sketch = new FrequencySketch(maxSize);
+        }
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    boolean contains(long id) {
+        return nodes.containsKey(id);
+    }
+
+    // odwołanie do konta na stercie; null - nie ma go tutaj
+    Account get(long id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            return null;
+        }
+        if (sketch != null) {
+            sketch.increment(id);
+            touch(node);
+        }
+        return node.account;
+    }
+
+    // nowe konto albo konto sprowadzone z zimnej warstwy; nie może już być na stercie
+    void add(Account account) {
+        Node node = new Node(account);
+        nodes.put(account.getId(), node);
+        if (sketch != null) {
+            sketch.increment(account.getId());
+            link(window, node, WINDOW);
+        }
+    }
+
+    // podmiana obiektu konta z zachowaniem jego miejsca; false - konta nie ma na stercie
+    boolean replace(Account account) {
+        Node node = nodes.get(account.getId());
+        if (node == null) {
+            return false;
+        }
+        node.account = account;
+        return true;
+    }
+
+    Account remove(long id) {
+        Node node = nodes.remove(id);
+        if (node == null) {
+            return null;
+        }
+        if (sketch != null) {
+            unlink(node);
+        }
+        return node.account;
+    }
+
+    void clear() {
+        nodes.clear();
+        for (Node head : new Node[]{window, probation, protectedQueue}) {
+            head.prev = head;
+            head.next = head;
+        }
+        windowSize = 0;
+        probationSize = 0;
+        protectedSize = 0;
+    }
+
+    // zejście do limitu po zakończonym zadaniu shardu - obiekty kont pobrane w trakcie zadania są do
+    // jego końca ważne. Najstarsze konta okna stają się kandydatami (koniec części próbnej); kandydat
+    // zostaje kosztem najstarszego konta części głównej, jeśli był częściej używany, inaczej sam ustępuje
+    void evict(Consumer<Account> spill) {
+        if (sketch == null) {
+            return;
+        }
+        int candidates = 0;
+        while (windowSize > windowMax) {
+            Node node = window.next;
+            unlink(node);
+            link(probation, node, PROBATION);
+            candidates++;
+        }
+        while (nodes.size() > maxSize) {
+            Node candidate = candidates > 0 ? probation.prev : null;
+            Node victim = probationSize > candidates ? probation.next
+                    : protectedSize > 0 ? protectedQueue.next : null;
+            Node evicted;
+            if (victim == null) {
+                evicted = candidate != null ? candidate : window.next;
+            } else if (candidate == null
+                    || sketch.frequency(candidate.account.getId()) > sketch.frequency(victim.account.getId())) {
+                evicted = victim;
+            } else {
+                evicted = candidate;
+                metrics.rejections().increment();
+            }
+            if (evicted == candidate) {
+                candidates--;
+            }
+            nodes.remove(evicted.account.getId());
+            unlink(evicted);
+            metrics.evictions().increment();
+            spill.accept(evicted.account);
+        }
+    }
+
+    // konta na stercie w dowolnej kolejności; bez zmian w trakcie przeglądania
+    Iterator<Account> iterator() {
+        Iterator<Node> values = nodes.values().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public Account next() {
+                if (!values.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return values.next().account;
+            }
+        };
+    }
+
+    private void touch(Node node) {
+        byte segment = node.segment;
+        unlink(node);
+        switch (segment) {
+            case WINDOW -> link(window, node, WINDOW);
+            case PROBATION -> {
+                link(protectedQueue, node, PROTECTED);
+                if (protectedSize > protectedMax) {
+                    Node demoted = protectedQueue.next;
+                    unlink(demoted);
+                    link(probation, demoted, PROBATION);
+                }
+            }
+            default -> link(protectedQueue, node, PROTECTED);
+        }
+    }
+
+    private void link(Node head, Node node, byte segment) {
+        node.segment = segment;
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        switch (segment) {
+            case WINDOW -> windowSize++;
+            case PROBATION -> probationSize++;
+            default -> protectedSize++;
+        }
+    }
+
+    private void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        switch (node.segment) {
+            case WINDOW -> windowSize--;
+            case PROBATION -> probationSize--;
+            default -> protectedSize--;
+        }
+    }
+
+    private static Node sentinel() {
+        Node head = new Node(null);
+        head.prev = head;
+        head.next = head;
+        return head;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.minibank.shard;
+
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// liczniki warstw wspólne dla wszystkich shardów: trafienia na stercie, sprowadzenia z zimnej warstwy
+// (z czasem), wypchnięcia i kandydaci odrzuceni przez szkic częstości
+record AccountCacheMetrics(LongAdder hits, LongAdder misses, LongAdder evictions, LongAdder rejections, Timer missLatency) {
+}
@@ -0,0 +1,24 @@
+package com.example.minibank.shard;
+
+// ile kont całej księgi trzyma sterta (0 - wszystkie, bez zimnej warstwy); reszta leży poza stertą
+// w zwartej postaci i wraca przy pierwszym odwołaniu. Limit dzielony jest równo między shardy
+public record AccountCachePolicy(long maxResident) {
+
+    public AccountCachePolicy {
+        if (maxResident < 0) {
+            throw new IllegalArgumentException("Resident account limit must not be negative");
+        }
+    }
+
+    public static AccountCachePolicy unbounded() {
+        return new AccountCachePolicy(0);
+    }
+
+    public boolean enabled() {
+        return maxResident > 0;
+    }
+
+    int perShard(int shards) {
+        return enabled() ? (int) Math.min(Integer.MAX_VALUE - 1, Math.max(1, (maxResident + shards - 1) / shards)) : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.minibank.shard;
+
+import com.example.minibank.Account;
+
+// powiadomienia o zmianach kont, wołane na wątku shardu zaraz po zmianie.
+// account to żywy obiekt shardu - jeśli trzeba go zachować, należy zrobić kopię.
+// Listener nie może blokować ani czekać na inny shard.
+public interface AccountChangeListener {
+
+    void accountChanged(int shard, Account account);
+
+    void accountRemoved(int shard, long id);
+}
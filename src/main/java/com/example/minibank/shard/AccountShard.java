@@ -0,0 +1,608 @@
+package com.example.minibank.shard;
+
+import com.example.minibank.Account;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.fx.FxRates;
+import com.example.minibank.jfr.ShardQueueWaitEvent;
+import com.example.minibank.metrics.AccountMetrics;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// fragment księgi należący do jednego wątku; wszystkie dane shardu czyta i zmienia
+// wyłącznie ten wątek, więc nie ma tu żadnych blokad.
+// Metody "na wątku shardu" wolno wołać tylko z zadań przekazanych przez submit().
+// Zadanie shardu nigdy nie może blokująco czekać na inny shard (ani na siebie).
+public final class AccountShard {
+
+    private final int index;
+    private final ThreadPoolExecutor executor;
+    private final AccountMetrics metrics;
+    private final FxRates fx;
+    private final List<AccountChangeListener> listeners;
+    // konta na stercie (ograniczone, W-TinyLFU) i wypchnięte poza stertę; cold == null - wszystkie na stercie
+    private final AccountCache resident;
+    private final ColdAccountTier cold;
+    private final AccountCacheMetrics cacheMetrics;
+    // kwoty zdjęte z konta źródłowego przelewu między shardami, czekające na commit/abort
+    private final Map<Long, Reservation> reservations = new HashMap<>();
+    private final Map<Long, PreparedLegs> preparedLegs = new HashMap<>();
+    // niezakończone operacje konta: rezerwacje przelewów i nogi przygotowanych transakcji wielostronnych.
+    // Takiego konta nie da się usunąć - zwrot albo uznanie nie miałyby dokąd wrócić
+    private final Map<Long, Integer> pinned = new HashMap<>();
+    // gorące konta: uznania trafiają do komórek HotBalance z dowolnego wątku, bez kolejki shardu.
+    // Mapa czytana przez inne wątki, zmieniana tylko przez wątek shardu
+    private final HotAccountPolicy hotPolicy;
+    private final Map<Long, HotBalance> hot = new ConcurrentHashMap<>();
+    private final LongAdder casRetries;
+    private final LongAdder promotions;
+    // uznania kont w bieżącym oknie jednej sekundy - wykrywanie gorących kont
+    private final Map<Long, Integer> creditCounts = new HashMap<>();
+    private long creditWindowStart = System.nanoTime();
+    private volatile Thread thread;
+    private volatile int size;
+    private volatile int residentSize;
+    private volatile long coldBytes;
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private record Reservation(long accountId, double amount) {
+    }
+
+    // nogi transakcji wielostronnej przygotowane na tym shardzie: obciążenia już zdjęte z kont,
+    // uznania czekają na commit (konta uznawane są przypięte - nie da się ich usunąć)
+    private record PreparedLegs(long[] debitIds, double[] debits, long[] creditIds, double[] credits) {
+    }
+
+    // noga, przez którą transakcja się nie uda
+    record LegFailure(int leg, TransferOutcome outcome) {
+    }
+
+    AccountShard(int index, AccountMetrics metrics, FxRates fx, List<AccountChangeListener> listeners,
+                 HotAccountPolicy hotPolicy, LongAdder casRetries, LongAdder promotions,
+                 int maxResident, AccountCacheMetrics cacheMetrics) {
+        this.index = index;
+        this.metrics = metrics;
+        this.fx = fx;
+        this.listeners = listeners;
+        this.hotPolicy = hotPolicy;
+        this.casRetries = casRetries;
+        this.promotions = promotions;
+        this.cacheMetrics = cacheMetrics;
+        this.resident = new AccountCache(maxResident, cacheMetrics);
+        this.cold = maxResident == Integer.MAX_VALUE ? null : new ColdAccountTier();
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "account-shard-" + index);
+            t.setDaemon(true);
+            thread = t;
+            return t;
+        });
+        this.executor.prestartCoreThread();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // konta na stercie; bez zimnej warstwy - wszystkie
+    public int residentAccounts() {
+        return cold == null ? size : residentSize;
+    }
+
+    // pamięć poza stertą zajęta przez zimną warstwę
+    public long coldBytes() {
+        return coldBytes;
+    }
+
+    public int hotAccounts() {
+        return hot.size();
+    }
+
+    public boolean isHot(long id) {
+        return hot.containsKey(id);
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public boolean isShardThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return submit(-1, task);
+    }
+
+    // wykonuje zadanie na wątku shardu; z wątku shardu - od razu, bez kolejki.
+    // accountId trafia tylko do zdarzenia JFR o czekaniu w kolejce
+    public <T> CompletableFuture<T> submit(long accountId, Supplier<T> task) {
+        if (isShardThread()) {
+            try {
+                return CompletableFuture.completedFuture(task.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ShardQueueWaitEvent waitEvent = new ShardQueueWaitEvent();
+        waitEvent.begin();
+        long queuedAt = System.nanoTime();
+        executor.execute(() -> {
+            metrics.recordQueueWait(System.nanoTime() - queuedAt);
+            waitEvent.complete(accountId, index);
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+            trim();
+        });
+        return result;
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    // uznanie gorącego konta z dowolnego wątku; null - konto nie jest gorące, uznanie przez kolejkę shardu
+    TransferOutcome creditHot(long toId, double amount, String currency, OperationTrace trace) {
+        HotBalance balance = hot.get(toId);
+        if (balance == null) {
+            return null;
+        }
+        if (balance.blocked()) {
+            return TransferOutcome.ACCOUNT_BLOCKED;
+        }
+        double credited;
+        try {
+            credited = fx.convert(amount, currency, balance.currency());
+        } catch (IllegalArgumentException e) {
+            return TransferOutcome.UNSUPPORTED_CURRENCY;
+        }
+        if (!balance.add(credited, casRetries)) {
+            return null;
+        }
+        trace.setCreditedAmount(credited);
+        // saldo i listenery dogonią komórki w jednym zadaniu, niezależnie od liczby uznań w międzyczasie
+        if (balance.claimDrain()) {
+            submit(toId, () -> {
+                drainHot(toId);
+                return null;
+            });
+        }
+        return TransferOutcome.SUCCESS;
+    }
+
+    // --- na wątku shardu ---
+
+    public Account find(long id) {
+        return account(id);
+    }
+
+    // konto z dowolnej warstwy; konto spoza sterty wraca na nią (do okna) i zostaje co najmniej do końca zadania
+    private Account account(long id) {
+        Account account = resident.get(id);
+        if (account != null) {
+            cacheMetrics.hits().increment();
+            return account;
+        }
+        if (cold == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        account = cold.remove(id);
+        if (account != null) {
+            resident.add(account);
+            cacheMetrics.misses().increment();
+            cacheMetrics.missLatency().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return account;
+    }
+
+    private boolean exists(long id) {
+        return resident.contains(id) || cold != null && cold.contains(id);
+    }
+
+    // konto z uznaniami z komórek (dla odczytów, po których saldo ma się zgadzać)
+    public Account settled(long id) {
+        if (!hot.isEmpty()) {
+            drainHot(id);
+        }
+        return account(id);
+    }
+
+    // konta ze sterty i kopie odczytane z zimnej warstwy - przegląd całej księgi nie sprowadza kont
+    // na stertę. Kopie nie są połączone z shardem: zmieniać wolno tylko konta z find/settled
+    public Collection<Account> accounts() {
+        for (Long id : hot.keySet()) {
+            drainHot(id);
+        }
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Account> iterator() {
+                Iterator<Account> heap = resident.iterator();
+                if (cold == null) {
+                    return heap;
+                }
+                Iterator<Account> offHeap = cold.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return heap.hasNext() || offHeap.hasNext();
+                    }
+
+                    @Override
+                    public Account next() {
+                        return heap.hasNext() ? heap.next() : offHeap.next();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return resident.size() + (cold == null ? 0 : cold.size());
+            }
+        };
+    }
+
+    public boolean insert(Account account) {
+        if (exists(account.getId())) {
+            return false;
+        }
+        resident.add(account);
+        updateSize();
+        changed(account);
+        return true;
+    }
+
+    // wstawienie albo podmiana całego konta (np. stan odtworzony z replikacji)
+    public void upsert(Account account) {
+        HotBalance balance = hot.remove(account.getId());
+        if (balance != null) {
+            // uznania spóźnione względem stanu, z którego powstało nowe konto
+            account.setBalance(account.getBalance() + balance.seal());
+        }
+        if (cold != null) {
+            cold.discard(account.getId());
+        }
+        if (!resident.replace(account)) {
+            resident.add(account);
+        }
+        updateSize();
+        changed(account);
+    }
+
+    public Account remove(long id) {
+        if (pinned.containsKey(id)) {
+            throw new IllegalArgumentException("Account " + id + " has a transaction in progress");
+        }
+        HotBalance balance = hot.remove(id);
+        creditCounts.remove(id);
+        Account removed = resident.remove(id);
+        if (removed == null && cold != null) {
+            removed = cold.remove(id);
+        }
+        // gorące konto jest zawsze na stercie
+        if (balance != null && removed != null) {
+            removed.setBalance(removed.getBalance() + balance.seal());
+        }
+        updateSize();
+        if (removed != null) {
+            for (AccountChangeListener listener : listeners) {
+                listener.accountRemoved(index, id);
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        preparedLegs.clear();
+        pinned.clear();
+        long[] ids = accounts().stream().mapToLong(Account::getId).toArray();
+        for (long id : ids) {
+            remove(id);
+        }
+        if (cold != null) {
+            cold.clear();
+        }
+        reservations.clear();
+    }
+
+    private void pin(long id) {
+        pinned.merge(id, 1, Integer::sum);
+    }
+
+    private void unpin(long id) {
+        pinned.computeIfPresent(id, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    private void updateSize() {
+        size = resident.size() + (cold == null ? 0 : cold.size());
+    }
+
+    // po każdym zadaniu z kolejki: nadmiar kont ze sterty do zimnej warstwy
+    private void trim() {
+        if (cold == null) {
+            return;
+        }
+        resident.evict(this::spill);
+        cold.compactIfNeeded();
+        residentSize = resident.size();
+        coldBytes = cold.allocatedBytes();
+    }
+
+    // gorące konto traci komórki - uznania z nich trafiają do salda przed zapisem
+    private void spill(Account account) {
+        HotBalance balance = hot.remove(account.getId());
+        if (balance != null) {
+            double pending = balance.seal();
+            if (pending != 0) {
+                account.setBalance(account.getBalance() + pending);
+                changed(account);
+            }
+        }
+        cold.put(account);
+    }
+
+    // zmiana salda albo innych pól konta - do wywołania po każdej modyfikacji
+    public void changed(Account account) {
+        if (!hot.isEmpty()) {
+            HotBalance balance = hot.get(account.getId());
+            if (balance != null) {
+                balance.update(account.getCurrency(), account.isBlocked());
+            }
+        }
+        for (AccountChangeListener listener : listeners) {
+            listener.accountChanged(index, account);
+        }
+    }
+
+    // przelew w obrębie jednego shardu; amount w walucie konta źródłowego
+    public TransferOutcome transferLocal(long fromId, long toId, double amount, OperationTrace trace) {
+        Account from = account(fromId);
+        Account to = account(toId);
+        if (from == null || to == null) {
+            return TransferOutcome.ACCOUNT_NOT_FOUND;
+        }
+        if (from.isBlocked() || to.isBlocked()) {
+            return TransferOutcome.ACCOUNT_BLOCKED;
+        }
+        if (from.getBalance() < amount && hot.containsKey(fromId)) {
+            drainHot(fromId);
+        }
+        if (from.getBalance() < amount) {
+            return TransferOutcome.INSUFFICIENT_FUNDS;
+        }
+        double credited;
+        try {
+            credited = fx.convert(amount, from.getCurrency(), to.getCurrency());
+        } catch (IllegalArgumentException e) {
+            return TransferOutcome.UNSUPPORTED_CURRENCY;
+        }
+        trace.setSourceCurrency(from.getCurrency());
+        trace.setCreditedAmount(credited);
+        from.setBalance(from.getBalance() - amount);
+        to.setBalance(to.getBalance() + credited);
+        changed(from);
+        changed(to);
+        countCredit(toId);
+        return TransferOutcome.SUCCESS;
+    }
+
+    // faza 1 przelewu między shardami: zdjęcie kwoty z konta źródłowego
+    TransferOutcome reserve(long reservationId, long fromId, double amount, OperationTrace trace) {
+        Account from = account(fromId);
+        if (from == null) {
+            return TransferOutcome.ACCOUNT_NOT_FOUND;
+        }
+        if (from.isBlocked()) {
+            return TransferOutcome.ACCOUNT_BLOCKED;
+        }
+        if (from.getBalance() < amount && hot.containsKey(fromId)) {
+            drainHot(fromId);
+        }
+        if (from.getBalance() < amount) {
+            return TransferOutcome.INSUFFICIENT_FUNDS;
+        }
+        from.setBalance(from.getBalance() - amount);
+        reservations.put(reservationId, new Reservation(fromId, amount));
+        pin(fromId);
+        trace.setSourceCurrency(from.getCurrency());
+        changed(from);
+        return TransferOutcome.SUCCESS;
+    }
+
+    // faza 2: uznanie konta docelowego na jego shardzie, po przeliczeniu z waluty źródła
+    TransferOutcome credit(long toId, double amount, String currency, OperationTrace trace) {
+        Account to = account(toId);
+        if (to == null) {
+            return TransferOutcome.ACCOUNT_NOT_FOUND;
+        }
+        if (to.isBlocked()) {
+            return TransferOutcome.ACCOUNT_BLOCKED;
+        }
+        double credited;
+        try {
+            credited = fx.convert(amount, currency, to.getCurrency());
+        } catch (IllegalArgumentException e) {
+            return TransferOutcome.UNSUPPORTED_CURRENCY;
+        }
+        trace.setCreditedAmount(credited);
+        to.setBalance(to.getBalance() + credited);
+        changed(to);
+        countCredit(toId);
+        return TransferOutcome.SUCCESS;
+    }
+
+    // faza 3: zatwierdzenie albo zwrot zarezerwowanej kwoty
+    void complete(long reservationId, boolean commit) {
+        Reservation reservation = reservations.remove(reservationId);
+        if (reservation == null) {
+            return;
+        }
+        unpin(reservation.accountId());
+        if (commit) {
+            return;
+        }
+        Account from = account(reservation.accountId());
+        if (from != null) {
+            from.setBalance(from.getBalance() + reservation.amount());
+            changed(from);
+        }
+    }
+
+    // przeniesienie komórek gorącego konta do salda; przy spadku obciążenia konto wraca do zwykłego salda
+    private void drainHot(long id) {
+        HotBalance balance = hot.get(id);
+        Account account = account(id);
+        if (balance == null || account == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        boolean cooled = false;
+        if (now - balance.windowStart >= WINDOW_NANOS) {
+            long credits = balance.credits();
+            // poniżej 1/4 progu przez pełne okno - komórki przestają się opłacać
+            cooled = (credits - balance.windowCredits) * WINDOW_NANOS < (now - balance.windowStart) * (hotPolicy.creditsPerSecond() / 4L);
+            balance.windowStart = now;
+            balance.windowCredits = credits;
+        }
+        double pending;
+        if (cooled) {
+            hot.remove(id);
+            pending = balance.seal();
+        } else {
+            pending = balance.drain();
+        }
+        if (pending != 0) {
+            account.setBalance(account.getBalance() + pending);
+            changed(account);
+        }
+    }
+
+    // uznania zwykłą drogą, liczone w oknach jednej sekundy; konto z co najmniej progiem uznań
+    // (wszystkie czekały w kolejce tego jednego wątku) dostaje komórki
+    private void countCredit(long id) {
+        if (!hotPolicy.enabled() || hot.containsKey(id)) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - creditWindowStart >= WINDOW_NANOS) {
+            creditCounts.clear();
+            creditWindowStart = now;
+        }
+        int count = creditCounts.merge(id, 1, Integer::sum);
+        if (count >= hotPolicy.creditsPerSecond()) {
+            creditCounts.remove(id);
+            Account account = account(id);
+            hot.put(id, new HotBalance(hotPolicy.stripes(), account.getCurrency(), account.isBlocked(), now));
+            promotions.increment();
+        }
+    }
+
+    // faza 1 transakcji wielostronnej: sprawdzenie wszystkich nóg tego shardu i zdjęcie obciążeń.
+    // Wszystko albo nic w obrębie shardu; null - gotowe do commitu
+    LegFailure prepareLegs(long txId, MultiLegTransaction tx, int[] legs) {
+        Map<Long, Double> debitTotals = new HashMap<>();
+        Map<Long, Integer> firstDebit = new HashMap<>();
+        int creditCount = 0;
+        for (int leg : legs) {
+            long id = tx.accountId(leg);
+            Account account = account(id);
+            if (account == null) {
+                return new LegFailure(leg, TransferOutcome.ACCOUNT_NOT_FOUND);
+            }
+            if (account.isBlocked()) {
+                return new LegFailure(leg, TransferOutcome.ACCOUNT_BLOCKED);
+            }
+            double converted;
+            try {
+                converted = fx.convert(Math.abs(tx.amount(leg)), tx.currency(), account.getCurrency());
+            } catch (IllegalArgumentException e) {
+                return new LegFailure(leg, TransferOutcome.UNSUPPORTED_CURRENCY);
+            }
+            if (tx.amount(leg) < 0) {
+                tx.book(leg, -converted);
+                debitTotals.merge(id, converted, Double::sum);
+                firstDebit.putIfAbsent(id, leg);
+            } else {
+                tx.book(leg, converted);
+                creditCount++;
+            }
+        }
+        for (Map.Entry<Long, Double> debit : debitTotals.entrySet()) {
+            Account account = account(debit.getKey());
+            if (account.getBalance() < debit.getValue() && hot.containsKey(debit.getKey())) {
+                drainHot(debit.getKey());
+            }
+            if (account.getBalance() < debit.getValue()) {
+                return new LegFailure(firstDebit.get(debit.getKey()), TransferOutcome.INSUFFICIENT_FUNDS);
+            }
+        }
+        long[] debitIds = new long[debitTotals.size()];
+        double[] debits = new double[debitTotals.size()];
+        int d = 0;
+        for (Map.Entry<Long, Double> debit : debitTotals.entrySet()) {
+            Account account = account(debit.getKey());
+            account.setBalance(account.getBalance() - debit.getValue());
+            changed(account);
+            pin(debit.getKey());
+            debitIds[d] = debit.getKey();
+            debits[d++] = debit.getValue();
+        }
+        long[] creditIds = new long[creditCount];
+        double[] credits = new double[creditCount];
+        int c = 0;
+        for (int leg : legs) {
+            if (tx.amount(leg) > 0) {
+                creditIds[c] = tx.accountId(leg);
+                credits[c++] = tx.booked(leg);
+                pin(tx.accountId(leg));
+            }
+        }
+        preparedLegs.put(txId, new PreparedLegs(debitIds, debits, creditIds, credits));
+        return null;
+    }
+
+    // faza 2: commit - uznania; abort - zwrot obciążeń. Shard bez przygotowanych nóg nic nie robi
+    void completeLegs(long txId, boolean commit) {
+        PreparedLegs prepared = preparedLegs.remove(txId);
+        if (prepared == null) {
+            return;
+        }
+        for (int i = 0; i < prepared.creditIds().length; i++) {
+            long id = prepared.creditIds()[i];
+            unpin(id);
+            if (commit) {
+                // konto przypięte - istnieje, choć mogło zostać podmienione przez upsert
+                Account account = account(id);
+                account.setBalance(account.getBalance() + prepared.credits()[i]);
+                changed(account);
+            }
+        }
+        for (int i = 0; i < prepared.debitIds().length; i++) {
+            unpin(prepared.debitIds()[i]);
+            if (!commit) {
+                Account account = account(prepared.debitIds()[i]);
+                account.setBalance(account.getBalance() + prepared.debits()[i]);
+                changed(account);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.minibank.shard;
+
+import com.example.minibank.Account;
+import com.example.minibank.search.LongIntMap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// zimna warstwa shardu: konta wypchnięte ze sterty, w blokach pamięci poza stertą (allocateDirect) po 4 MiB.
+// Rekord to długość i postać binarna konta (Account.writeTo), wyrównany do 8 bajtów - ok. 40-60 B zamiast
+// ~150 B obiektów na stercie. Na stercie zostaje tylko indeks id -> adres. Rekordy dopisywane są na końcu;
+// rekord usunięty albo sprowadzony na stertę staje się śmieciem, a gdy śmieci jest więcej niż żywych
+// danych, bloki są przepisywane od nowa. Tylko wątek shardu
+final class ColdAccountTier {
+
+    private static final int CHUNK_BITS = 22;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    // adres: numer bloku i przesunięcie / 8, razem w 31 bitach (do 4096 bloków, 16 GiB na shard)
+    private static final int OFFSET_BITS = CHUNK_BITS - 3;
+    private static final int MAX_CHUNKS = 1 << (31 - OFFSET_BITS);
+
+    private List<ByteBuffer> chunks = new ArrayList<>();
+    private LongIntMap index = new LongIntMap();
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+    private long liveBytes;
+    private long garbageBytes;
+    private long allocatedBytes;
+
+    int size() {
+        return index.size();
+    }
+
+    boolean contains(long id) {
+        return index.get(id) != LongIntMap.MISSING;
+    }
+
+    // pamięć poza stertą zajęta przez bloki (z rekordami-śmieciami)
+    long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    void put(Account account) {
+        int needed = account.maxEncodedSize() + Integer.BYTES;
+        if (scratch.capacity() < needed) {
+            scratch = ByteBuffer.allocate(Math.max(needed, scratch.capacity() * 2));
+        }
+        scratch.clear();
+        scratch.putInt(0);
+        account.writeTo(scratch);
+        int length = scratch.position();
+        scratch.putInt(0, length);
+        scratch.flip();
+        discard(account.getId());
+        int address = append(scratch, align(length));
+        index.put(account.getId(), address);
+        liveBytes += align(length);
+    }
+
+    // konto z rekordu; rekord zostaje
+    Account get(long id) {
+        int address = index.get(id);
+        return address == LongIntMap.MISSING ? null : read(address);
+    }
+
+    // konto z rekordu, który staje się śmieciem
+    Account remove(long id) {
+        int address = index.remove(id);
+        if (address == LongIntMap.MISSING) {
+            return null;
+        }
+        Account account = read(address);
+        free(address);
+        return account;
+    }
+
+    boolean discard(long id) {
+        int address = index.remove(id);
+        if (address == LongIntMap.MISSING) {
+            return false;
+        }
+        free(address);
+        return true;
+    }
+
+    void clear() {
+        chunks = new ArrayList<>();
+        index.clear();
+        liveBytes = 0;
+        garbageBytes = 0;
+        allocatedBytes = 0;
+    }
+
+    // przepisanie żywych rekordów do nowych bloków, gdy śmieci przeważają; stare bloki zwalnia GC.
+    // Poza przeglądaniem kont - między zadaniami shardu
+    void compactIfNeeded() {
+        if (garbageBytes < CHUNK_SIZE || garbageBytes <= liveBytes) {
+            return;
+        }
+        List<ByteBuffer> old = chunks;
+        // nowe adresy w osobnym indeksie - nowy adres konta może się pokrywać ze starym adresem
+        // jego nieaktualnej wersji, która w starych blokach dopiero czeka na sprawdzenie
+        LongIntMap relocated = new LongIntMap();
+        chunks = new ArrayList<>();
+        allocatedBytes = 0;
+        garbageBytes = 0;
+        for (int c = 0; c < old.size(); c++) {
+            ByteBuffer chunk = old.get(c);
+            for (int offset = 0; offset < chunk.position(); ) {
+                int stored = align(chunk.getInt(offset));
+                long id = chunk.getLong(offset + Integer.BYTES);
+                if (index.get(id) == address(c, offset)) {
+                    relocated.put(id, append(chunk.duplicate().limit(offset + stored).position(offset), stored));
+                }
+                offset += stored;
+            }
+        }
+        index = relocated;
+    }
+
+    // żywe rekordy jako nowe obiekty kont (zmiany w nich nie wracają do warstwy); bez zmian w trakcie
+    Iterator<Account> iterator() {
+        return new Iterator<>() {
+            private int chunk;
+            private int offset;
+
+            @Override
+            public boolean hasNext() {
+                while (chunk < chunks.size()) {
+                    ByteBuffer buffer = chunks.get(chunk);
+                    if (offset >= buffer.position()) {
+                        chunk++;
+                        offset = 0;
+                        continue;
+                    }
+                    if (index.get(buffer.getLong(offset + Integer.BYTES)) == address(chunk, offset)) {
+                        return true;
+                    }
+                    offset += align(buffer.getInt(offset));
+                }
+                return false;
+            }
+
+            @Override
+            public Account next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int address = address(chunk, offset);
+                offset += align(chunks.get(chunk).getInt(offset));
+                return read(address);
+            }
+        };
+    }
+
+    private Account read(int address) {
+        ByteBuffer chunk = chunks.get(address >>> OFFSET_BITS);
+        int offset = (address & ((1 << OFFSET_BITS) - 1)) << 3;
+        return Account.readFrom(chunk.duplicate().position(offset + Integer.BYTES));
+    }
+
+    private void free(int address) {
+        ByteBuffer chunk = chunks.get(address >>> OFFSET_BITS);
+        int stored = align(chunk.getInt((address & ((1 << OFFSET_BITS) - 1)) << 3));
+        liveBytes -= stored;
+        garbageBytes += stored;
+    }
+
+    // rekord na końcu ostatniego bloku albo w nowym; rekord większy niż blok dostaje własny
+    private int append(ByteBuffer record, int stored) {
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < stored) {
+            if (chunks.size() == MAX_CHUNKS) {
+                throw new IllegalStateException("Cold account tier is full");
+            }
+            chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, stored));
+            chunks.add(chunk);
+            allocatedBytes += chunk.capacity();
+        }
+        int offset = chunk.position();
+        chunk.put(record);
+        chunk.position(offset + stored);
+        return address(chunks.size() - 1, offset);
+    }
+
+    private static int address(int chunk, int offset) {
+        return chunk << OFFSET_BITS | offset >>> 3;
+    }
+
+    private static int align(int length) {
+        return (length + 7) & ~7;
+    }
+}
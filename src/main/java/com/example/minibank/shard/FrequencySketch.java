@@ -0,0 +1,71 @@
+package com.example.minibank.shard;
+
+// przybliżona liczba ostatnich odwołań do konta (count-min sketch, 4-bitowe liczniki po 16 w longu).
+// Każde konto ma 4 liczniki w różnych longach, wynik to najmniejszy z nich. Po 10 x capacity
+// odwołaniach wszystkie liczniki są połowione - dawna popularność wygasa. Tylko wątek shardu
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int capacity) {
+        int width = Integer.highestOneBit(Math.max(16, Math.min(capacity, 1 << 24)) - 1) << 1;
+        this.table = new long[width];
+        this.mask = width - 1;
+        this.sampleSize = (int) Math.min(10L * Math.max(capacity, 16), Integer.MAX_VALUE);
+    }
+
+    int frequency(long id) {
+        long hash = spread(id);
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; i++) {
+            frequency = Math.min(frequency, (int) ((table[index(hash, i)] >>> shift(hash, i)) & MAX_COUNT));
+        }
+        return frequency;
+    }
+
+    void increment(long id) {
+        long hash = spread(id);
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = index(hash, i);
+            int shift = shift(hash, i);
+            if (((table[index] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int index(long hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    // i-ty licznik konta leży w i-tej czwórce liczników longa - liczniki jednego konta się nie nakładają
+    private static int shift(long hash, int i) {
+        return ((i << 2) + (int) ((hash >>> (i << 3)) & 3)) << 2;
+    }
+
+    private static long spread(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.minibank.shard;
+
+// kiedy konto dostaje saldo rozbite na komórki: creditsPerSecond - uznania konta w ciągu sekundy,
+// od których konto uznaje się za gorące (0 - wyłączone); stripes - liczba komórek (potęga dwójki)
+public record HotAccountPolicy(int creditsPerSecond, int stripes) {
+
+    public HotAccountPolicy {
+        if (creditsPerSecond < 0) {
+            throw new IllegalArgumentException("Hot account threshold must not be negative");
+        }
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a positive power of two");
+        }
+    }
+
+    // komórek dwa razy więcej niż rdzeni, żeby wątki rzadko trafiały na tę samą
+    public static HotAccountPolicy defaults() {
+        return new HotAccountPolicy(1_000, defaultStripes());
+    }
+
+    public static HotAccountPolicy disabled() {
+        return new HotAccountPolicy(0, 1);
+    }
+
+    public static int defaultStripes() {
+        return Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+    }
+
+    public boolean enabled() {
+        return creditsPerSecond > 0;
+    }
+}
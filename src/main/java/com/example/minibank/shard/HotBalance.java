@@ -0,0 +1,113 @@
+package com.example.minibank.shard;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// uznania gorącego konta, które jeszcze nie trafiły do salda. Każdy wątek dopisuje do "swojej"
+// komórki przez CAS (jak LongAdder, ale na double), bez kolejki shardu konta. Wątek shardu
+// przenosi komórki do salda (drain) przy obciążeniu, odczycie albo w zaplanowanym zadaniu.
+// Zamknięcie (seal) wstawia do komórek wartość SEALED - spóźnione uznanie jej nie nadpisze
+// i pójdzie zwykłą drogą przez shard
+final class HotBalance {
+
+    // komórki co 8 longów (64 bajty) - każda na własnej linii cache
+    private static final int SPACING = 8;
+    // NaN o konkretnym wzorze bitów, nie do uzyskania dodawaniem kwot
+    private static final long SEALED = 0x7ff8_dead_beef_0001L;
+    private static final long ZERO = Double.doubleToRawLongBits(0.0);
+
+    private final AtomicLongArray cells;
+    private final int mask;
+    // uznania od utworzenia - do oceny, czy konto nadal jest gorące
+    private final LongAdder credits = new LongAdder();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    // waluta i status konta dla uznań spoza wątku shardu; aktualizowane przez wątek shardu przy każdej zmianie
+    private volatile String currency;
+    private volatile boolean blocked;
+
+    // --- stan oceny obciążenia, tylko na wątku shardu ---
+    long windowStart;
+    long windowCredits;
+
+    HotBalance(int stripes, String currency, boolean blocked, long now) {
+        this.cells = new AtomicLongArray(stripes * SPACING);
+        this.mask = stripes - 1;
+        this.currency = currency;
+        this.blocked = blocked;
+        this.windowStart = now;
+    }
+
+    String currency() {
+        return currency;
+    }
+
+    boolean blocked() {
+        return blocked;
+    }
+
+    void update(String currency, boolean blocked) {
+        this.currency = currency;
+        this.blocked = blocked;
+    }
+
+    // z dowolnego wątku; false - komórki zamknięte, uznanie trzeba wykonać na wątku shardu
+    boolean add(double amount, LongAdder casRetries) {
+        int h = probe();
+        while (true) {
+            int index = (h & mask) * SPACING;
+            long bits = cells.get(index);
+            if (bits == SEALED) {
+                return false;
+            }
+            if (cells.compareAndSet(index, bits, Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + amount))) {
+                credits.increment();
+                return true;
+            }
+            // inny wątek w tej samej komórce - następnym razem inna
+            casRetries.increment();
+            h ^= h << 13;
+            h ^= h >>> 17;
+            h ^= h << 5;
+        }
+    }
+
+    // true - wywołujący ma zaplanować drain na wątku shardu (najwyżej jeden naraz)
+    boolean claimDrain() {
+        return drainScheduled.compareAndSet(false, true);
+    }
+
+    // --- na wątku shardu ---
+
+    // suma komórek przeniesiona do salda; komórki wyzerowane
+    double drain() {
+        drainScheduled.set(false);
+        return collect(ZERO);
+    }
+
+    // jak drain, ale komórki zostają zamknięte na stałe
+    double seal() {
+        return collect(SEALED);
+    }
+
+    long credits() {
+        return credits.sum();
+    }
+
+    private double collect(long replacement) {
+        double sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            long bits = cells.getAndSet(i * SPACING, replacement);
+            if (bits != SEALED) {
+                sum += Double.longBitsToDouble(bits);
+            }
+        }
+        return sum;
+    }
+
+    private static int probe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return h == 0 ? 1 : h;
+    }
+}
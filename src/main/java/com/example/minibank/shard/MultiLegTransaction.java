@@ -0,0 +1,89 @@
+package com.example.minibank.shard;
+
+import com.example.minibank.TransferOutcome;
+
+// transakcja wielostronna: kwoty nóg w walucie transakcji, ujemne - obciążenie, dodatnie - uznanie.
+// Suma nóg musi wynosić zero. Po wykonaniu: wynik, konto nogi, która zawiodła, i kwoty
+// zaksięgowane na kontach (w ich walutach) - do wpisów w księdze
+public final class MultiLegTransaction {
+
+    private final long[] accountIds;
+    private final double[] amounts;
+    private final String currency;
+    // wypełniane przez shardy, każdy tylko swoje nogi
+    private final double[] booked;
+    private volatile TransferOutcome outcome;
+    private volatile long failedAccountId = -1;
+
+    public MultiLegTransaction(long[] accountIds, double[] amounts, String currency) {
+        if (accountIds.length != amounts.length) {
+            throw new IllegalArgumentException("Every leg needs an account id and an amount");
+        }
+        if (currency == null || currency.isBlank()) {
+            throw new IllegalArgumentException("Transaction currency is required");
+        }
+        boolean debit = false;
+        boolean credit = false;
+        double sum = 0;
+        double scale = 0;
+        for (double amount : amounts) {
+            if (!(amount != 0 && Double.isFinite(amount))) {
+                throw new IllegalArgumentException("Leg amounts must be non-zero numbers");
+            }
+            debit |= amount < 0;
+            credit |= amount > 0;
+            sum += amount;
+            scale += Math.abs(amount);
+        }
+        if (!debit || !credit) {
+            throw new IllegalArgumentException("A transaction needs at least one debit and one credit");
+        }
+        // zaokrąglenia przy sumowaniu ułamków
+        if (Math.abs(sum) > scale * 1e-12) {
+            throw new IllegalArgumentException("Debits and credits must balance, difference: " + sum);
+        }
+        this.accountIds = accountIds.clone();
+        this.amounts = amounts.clone();
+        this.currency = currency;
+        this.booked = new double[amounts.length];
+    }
+
+    public int legs() {
+        return accountIds.length;
+    }
+
+    public long accountId(int leg) {
+        return accountIds[leg];
+    }
+
+    public double amount(int leg) {
+        return amounts[leg];
+    }
+
+    public String currency() {
+        return currency;
+    }
+
+    // kwota nogi w walucie konta, ze znakiem
+    public double booked(int leg) {
+        return booked[leg];
+    }
+
+    public TransferOutcome outcome() {
+        return outcome;
+    }
+
+    // -1, gdy transakcja się udała
+    public long failedAccountId() {
+        return failedAccountId;
+    }
+
+    void book(int leg, double amount) {
+        booked[leg] = amount;
+    }
+
+    void finish(TransferOutcome outcome, long failedAccountId) {
+        this.failedAccountId = failedAccountId;
+        this.outcome = outcome;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.minibank.shard;
+
+// czas, jaki operacja spędziła w kolejkach shardów (odpowiednik czekania na blokadę),
+// oraz waluta źródła i kwota uznania po przeliczeniu;
+// fazy przelewu wykonują się po kolei, więc zwykłe pola wystarczają
+public final class OperationTrace {
+
+    private long queueWaitNanos;
+    private String sourceCurrency;
+    private double creditedAmount = Double.NaN;
+    private Runnable onCommit;
+
+    // akcja wykonywana raz, w zadaniu shardu, które zatwierdza operację (uznanie przelewu albo zatwierdzenie
+    // rezerwacji) - np. wpis w księdze w tej samej kolejności, w jakiej shard zmienia salda
+    public void onCommit(Runnable action) {
+        this.onCommit = action;
+    }
+
+    void committed() {
+        Runnable action = onCommit;
+        onCommit = null;
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    void addQueueWait(long nanos) {
+        queueWaitNanos += nanos;
+    }
+
+    public long getQueueWaitNanos() {
+        return queueWaitNanos;
+    }
+
+    void setSourceCurrency(String sourceCurrency) {
+        this.sourceCurrency = sourceCurrency;
+    }
+
+    public String getSourceCurrency() {
+        return sourceCurrency;
+    }
+
+    // ustawia shard, a przy przelewie między węzłami koordynator - z odpowiedzi węzła docelowego
+    public void setCreditedAmount(double creditedAmount) {
+        this.creditedAmount = creditedAmount;
+    }
+
+    // kwota dopisana do konta docelowego, w jego walucie
+    public double getCreditedAmount() {
+        return creditedAmount;
+    }
+}
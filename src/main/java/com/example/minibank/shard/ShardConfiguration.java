@@ -0,0 +1,24 @@
+package com.example.minibank.shard;
+
+import com.example.minibank.fx.FxRates;
+import com.example.minibank.metrics.AccountMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ShardConfiguration {
+
+    // minibank.shards=0 -> jeden shard na rdzeń; minibank.hot.stripes=0 -> dwa razy więcej komórek niż rdzeni;
+    // minibank.cache.max-resident=0 -> wszystkie konta na stercie
+    @Bean(destroyMethod = "close")
+    public ShardedAccountStore shardedAccountStore(@Value("${minibank.shards:0}") int shards, AccountMetrics metrics,
+                                                   FxRates fx,
+                                                   @Value("${minibank.hot.credits-per-second:1000}") int hotCredits,
+                                                   @Value("${minibank.hot.stripes:0}") int hotStripes,
+                                                   @Value("${minibank.cache.max-resident:1000000}") long maxResident) {
+        HotAccountPolicy hot = new HotAccountPolicy(hotCredits, hotStripes > 0 ? hotStripes : HotAccountPolicy.defaultStripes());
+        return new ShardedAccountStore(shards > 0 ? shards : Runtime.getRuntime().availableProcessors(), metrics, fx, hot,
+                new AccountCachePolicy(maxResident));
+    }
+}
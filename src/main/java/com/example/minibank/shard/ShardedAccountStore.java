@@ -0,0 +1,442 @@
+package com.example.minibank.shard;
+
+import com.example.minibank.Account;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.fx.FxRateTable;
+import com.example.minibank.fx.FxRates;
+import com.example.minibank.metrics.AccountMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// księga podzielona na N shardów po hashu id; każdy shard ma własny jednowątkowy executor.
+// Przelew między shardami: rezerwacja na shardzie źródłowym -> uznanie na docelowym -> commit/abort.
+// Zapytania po całej księdze rozsyłane są równolegle do wszystkich shardów (scatter-gather).
+// Konta z bardzo dużą liczbą uznań (gorące) mają saldo rozbite na komórki - uznanie nie czeka
+// wtedy w kolejce shardu docelowego (HotBalance). Przy limicie kont na stercie rzadko używane konta
+// leżą poza stertą i wracają przy pierwszym odwołaniu (AccountCache, ColdAccountTier).
+public class ShardedAccountStore implements AutoCloseable {
+
+    private static final Comparator<Account> BY_ID = Comparator.comparing(Account::getId);
+
+    private final AccountShard[] shards;
+    private final AtomicLong reservationIds = new AtomicLong();
+    private final List<AccountChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final FxRates fx;
+    private final LongAdder casRetries = new LongAdder();
+    private final LongAdder promotions = new LongAdder();
+
+    public ShardedAccountStore(int shardCount, AccountMetrics metrics) {
+        this(shardCount, metrics, new FxRates());
+    }
+
+    public ShardedAccountStore(int shardCount, AccountMetrics metrics, FxRates fx) {
+        this(shardCount, metrics, fx, HotAccountPolicy.defaults());
+    }
+
+    public ShardedAccountStore(int shardCount, AccountMetrics metrics, FxRates fx, HotAccountPolicy hotPolicy) {
+        this(shardCount, metrics, fx, hotPolicy, AccountCachePolicy.unbounded());
+    }
+
+    public ShardedAccountStore(int shardCount, AccountMetrics metrics, FxRates fx, HotAccountPolicy hotPolicy,
+                               AccountCachePolicy cachePolicy) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.fx = fx;
+        AccountCacheMetrics cacheMetrics = new AccountCacheMetrics(new LongAdder(), new LongAdder(), new LongAdder(),
+                new LongAdder(), Timer.builder("minibank.cache.miss.latency")
+                .description("Time to bring an account back from the off-heap tier")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100))
+                .maximumExpectedValue(Duration.ofSeconds(1))
+                .register(metrics.getRegistry()));
+        shards = new AccountShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new AccountShard(i, metrics, fx, listeners, hotPolicy, casRetries, promotions,
+                    cachePolicy.perShard(shardCount), cacheMetrics);
+        }
+        metrics.gauge("minibank.cache.resident", "Accounts held on the heap", this, ShardedAccountStore::residentAccounts);
+        metrics.gauge("minibank.cache.cold", "Accounts held in the off-heap tier", this,
+                store -> store.size() - store.residentAccounts());
+        metrics.gauge("minibank.cache.cold.bytes", "Off-heap memory allocated by the cold tier", this, ShardedAccountStore::coldBytes);
+        FunctionCounter.builder("minibank.cache.hits", cacheMetrics.hits(), LongAdder::sum)
+                .description("Account accesses served from the heap")
+                .register(metrics.getRegistry());
+        FunctionCounter.builder("minibank.cache.misses", cacheMetrics.misses(), LongAdder::sum)
+                .description("Account accesses that brought the account back from the off-heap tier")
+                .register(metrics.getRegistry());
+        FunctionCounter.builder("minibank.cache.evictions", cacheMetrics.evictions(), LongAdder::sum)
+                .description("Accounts moved from the heap to the off-heap tier")
+                .register(metrics.getRegistry());
+        FunctionCounter.builder("minibank.cache.admission.rejections", cacheMetrics.rejections(), LongAdder::sum)
+                .description("New heap entries evicted because they were used less often than the entry they would replace")
+                .register(metrics.getRegistry());
+        metrics.gauge("minibank.hot.accounts", "Accounts with striped balances", this, ShardedAccountStore::hotAccounts);
+        FunctionCounter.builder("minibank.hot.promotions", promotions, LongAdder::sum)
+                .description("Accounts switched to striped balances")
+                .register(metrics.getRegistry());
+        FunctionCounter.builder("minibank.hot.cas.retries", casRetries, LongAdder::sum)
+                .description("Striped credits retried after losing a CAS race")
+                .register(metrics.getRegistry());
+        for (AccountShard shard : shards) {
+            metrics.gauge("minibank.shard.queue.depth", "Tasks waiting for the shard thread",
+                    "shard", String.valueOf(shard.getIndex()), shard, AccountShard::queueDepth);
+        }
+    }
+
+    // listenery dostają zmiany na wątkach shardów
+    public void addListener(AccountChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(AccountChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public AccountShard shardFor(long id) {
+        // mieszanie bitów (Fibonacci hashing), żeby zakresy kolejnych id rozkładały się równo
+        long h = id * 0x9E3779B97F4A7C15L;
+        return shards[(int) ((h >>> 33) % shards.length)];
+    }
+
+    public AccountShard shard(int index) {
+        return shards[index];
+    }
+
+    public int hotAccounts() {
+        int total = 0;
+        for (AccountShard shard : shards) {
+            total += shard.hotAccounts();
+        }
+        return total;
+    }
+
+    public int residentAccounts() {
+        int total = 0;
+        for (AccountShard shard : shards) {
+            total += shard.residentAccounts();
+        }
+        return total;
+    }
+
+    public long coldBytes() {
+        long total = 0;
+        for (AccountShard shard : shards) {
+            total += shard.coldBytes();
+        }
+        return total;
+    }
+
+    public int size() {
+        int total = 0;
+        for (AccountShard shard : shards) {
+            total += shard.size();
+        }
+        return total;
+    }
+
+    public void add(Account account) {
+        add(account, null);
+    }
+
+    // added - wykonywane w zadaniu shardu zaraz po wstawieniu konta
+    public void add(Account account, Runnable added) {
+        Account copy = new Account(account);
+        AccountShard shard = shardFor(copy.getId());
+        if (!join(shard.submit(copy.getId(), () -> {
+            if (!shard.insert(copy)) {
+                return false;
+            }
+            if (added != null) {
+                added.run();
+            }
+            return true;
+        }))) {
+            throw new IllegalArgumentException("Account with this ID already exists");
+        }
+    }
+
+    public Optional<Account> get(long id) {
+        AccountShard shard = shardFor(id);
+        return Optional.ofNullable(join(shard.submit(id, () -> {
+            Account account = shard.settled(id);
+            return account == null ? null : new Account(account);
+        })));
+    }
+
+    public boolean remove(long id) {
+        return removeAccount(id).isPresent();
+    }
+
+    // usunięte konto (kopia ostatniego stanu)
+    public Optional<Account> removeAccount(long id) {
+        return removeAccount(id, null);
+    }
+
+    // removed - wykonywane w zadaniu shardu zaraz po usunięciu konta
+    public Optional<Account> removeAccount(long id, Consumer<Account> removed) {
+        AccountShard shard = shardFor(id);
+        return Optional.ofNullable(join(shard.submit(id, () -> {
+            Account account = shard.remove(id);
+            if (account != null && removed != null) {
+                removed.accept(account);
+            }
+            return account;
+        })));
+    }
+
+    // wstawienie albo podmiana konta bez sprawdzania duplikatów
+    public CompletableFuture<Void> upsert(Account account) {
+        Account copy = new Account(account);
+        AccountShard shard = shardFor(copy.getId());
+        return shard.submit(copy.getId(), () -> {
+            shard.upsert(copy);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> removeAsync(long id) {
+        AccountShard shard = shardFor(id);
+        return shard.submit(id, () -> shard.remove(id) != null);
+    }
+
+    public void clear() {
+        scatter(shard -> {
+            shard.clear();
+            return null;
+        });
+    }
+
+    public CompletableFuture<TransferOutcome> transfer(long fromId, long toId, double amount, OperationTrace trace) {
+        AccountShard source = shardFor(fromId);
+        AccountShard target = shardFor(toId);
+        if (source == target) {
+            return traced(source, fromId, trace, () -> committed(source.transferLocal(fromId, toId, amount, trace), trace));
+        }
+        long reservationId = nextReservationId();
+        return reserve(reservationId, fromId, amount, trace)
+                .thenCompose(reserved -> {
+                    if (!reserved.isSuccess()) {
+                        return CompletableFuture.completedFuture(reserved);
+                    }
+                    return credit(toId, amount, trace.getSourceCurrency(), trace)
+                            .thenCompose(credited -> complete(reservationId, fromId, credited.isSuccess(), trace)
+                                    .thenApply(ignored -> credited));
+                });
+    }
+
+    // transakcja wielostronna: wszystkie nogi albo żadna. Faza 1 na każdym shardzie z nogami (równolegle,
+    // shardy w kolejności indeksów): sprawdzenie nóg i zdjęcie obciążeń. Faza 2: commit (uznania)
+    // albo - gdy któryś shard odmówił - zwrot obciążeń. Żadne zadanie nie czeka na inny shard,
+    // więc nie ma zakleszczeń; koszt liniowy w liczbie nóg
+    public CompletableFuture<TransferOutcome> transact(MultiLegTransaction tx) {
+        return transact(tx, null);
+    }
+
+    // committed - wykonywane po przygotowaniu wszystkich nóg, przed commitem; konta są wtedy przypięte,
+    // a obciążenia zdjęte, więc nic nie może wejść między transakcję a jej wpis
+    public CompletableFuture<TransferOutcome> transact(MultiLegTransaction tx, Runnable committed) {
+        int[] legCounts = new int[shards.length];
+        int[] legShard = new int[tx.legs()];
+        for (int leg = 0; leg < tx.legs(); leg++) {
+            legShard[leg] = shardFor(tx.accountId(leg)).getIndex();
+            legCounts[legShard[leg]]++;
+        }
+        int[][] legsByShard = new int[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            legsByShard[i] = new int[legCounts[i]];
+            legCounts[i] = 0;
+        }
+        for (int leg = 0; leg < tx.legs(); leg++) {
+            legsByShard[legShard[leg]][legCounts[legShard[leg]]++] = leg;
+        }
+        long txId = nextReservationId();
+        List<AccountShard> involved = new ArrayList<>();
+        List<CompletableFuture<AccountShard.LegFailure>> prepared = new ArrayList<>();
+        for (AccountShard shard : shards) {
+            int[] legs = legsByShard[shard.getIndex()];
+            if (legs.length > 0) {
+                involved.add(shard);
+                prepared.add(shard.submit(tx.accountId(legs[0]), () -> shard.prepareLegs(txId, tx, legs)));
+            }
+        }
+        return CompletableFuture.allOf(prepared.toArray(CompletableFuture[]::new)).thenCompose(ignored -> {
+            // przy kilku odmowach - noga o najmniejszym numerze, żeby wynik nie zależał od kolejności shardów
+            AccountShard.LegFailure failure = null;
+            for (CompletableFuture<AccountShard.LegFailure> future : prepared) {
+                AccountShard.LegFailure candidate = future.join();
+                if (candidate != null && (failure == null || candidate.leg() < failure.leg())) {
+                    failure = candidate;
+                }
+            }
+            boolean commit = failure == null;
+            if (commit && committed != null) {
+                committed.run();
+            }
+            List<CompletableFuture<Void>> completed = new ArrayList<>(involved.size());
+            for (AccountShard shard : involved) {
+                completed.add(shard.submit(() -> {
+                    shard.completeLegs(txId, commit);
+                    return null;
+                }));
+            }
+            TransferOutcome outcome = commit ? TransferOutcome.SUCCESS : failure.outcome();
+            tx.finish(outcome, commit ? -1 : tx.accountId(failure.leg()));
+            return CompletableFuture.allOf(completed.toArray(CompletableFuture[]::new)).thenApply(done -> outcome);
+        });
+    }
+
+    public long nextReservationId() {
+        return reservationIds.incrementAndGet();
+    }
+
+    // pojedyncze fazy przelewu - używane też przez przelewy między węzłami klastra
+
+    public CompletableFuture<TransferOutcome> reserve(long reservationId, long fromId, double amount, OperationTrace trace) {
+        AccountShard source = shardFor(fromId);
+        return traced(source, fromId, trace, () -> source.reserve(reservationId, fromId, amount, trace));
+    }
+
+    // currency - waluta kwoty (konta źródłowego); uznanie jest przeliczane na walutę konta docelowego.
+    // Udane uznanie wywołuje akcję OperationTrace.onCommit
+    public CompletableFuture<TransferOutcome> credit(long toId, double amount, String currency, OperationTrace trace) {
+        AccountShard target = shardFor(toId);
+        // gorące konto: uznanie od razu w komórce, na wątku wywołującego
+        TransferOutcome striped = target.creditHot(toId, amount, currency, trace);
+        if (striped != null) {
+            return CompletableFuture.completedFuture(committed(striped, trace));
+        }
+        return traced(target, toId, trace, () -> committed(target.credit(toId, amount, currency, trace), trace));
+    }
+
+    // zatwierdzenie rezerwacji (z akcją OperationTrace.onCommit, jeśli uznanie jej nie wywołało) albo zwrot
+    public CompletableFuture<Void> complete(long reservationId, long fromId, boolean commit, OperationTrace trace) {
+        AccountShard source = shardFor(fromId);
+        return traced(source, fromId, trace, () -> {
+            source.complete(reservationId, commit);
+            if (commit) {
+                trace.committed();
+            }
+            return null;
+        });
+    }
+
+    private static TransferOutcome committed(TransferOutcome outcome, OperationTrace trace) {
+        if (outcome.isSuccess()) {
+            trace.committed();
+        }
+        return outcome;
+    }
+
+    private static <T> CompletableFuture<T> traced(AccountShard shard, long accountId, OperationTrace trace, Supplier<T> task) {
+        long submitted = System.nanoTime();
+        return shard.submit(accountId, () -> {
+            trace.addQueueWait(System.nanoTime() - submitted);
+            return task.get();
+        });
+    }
+
+    // zadanie na każdym shardzie równolegle; wyniki w kolejności shardów
+    public <T> List<T> scatter(Function<AccountShard, T> task) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.length);
+        for (AccountShard shard : shards) {
+            futures.add(shard.submit(() -> task.apply(shard)));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        for (CompletableFuture<T> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    // kopie pasujących kont ze wszystkich shardów, posortowane po id
+    public List<Account> collect(Predicate<Account> filter) {
+        List<Account> result = new ArrayList<>();
+        for (List<Account> part : scatter(shard -> {
+            List<Account> matches = new ArrayList<>();
+            for (Account account : shard.accounts()) {
+                if (filter.test(account)) {
+                    matches.add(new Account(account));
+                }
+            }
+            return matches;
+        })) {
+            result.addAll(part);
+        }
+        result.sort(BY_ID);
+        return result;
+    }
+
+    // suma sald w walucie currency; jedna tabela kursów dla całego zapytania
+    public double totalBalance(String currency) {
+        FxRateTable table = fx.table();
+        if (!table.supports(currency)) {
+            throw new IllegalArgumentException("Unsupported currency: " + currency);
+        }
+        double total = 0;
+        for (double part : scatter(shard -> {
+            double sum = 0;
+            for (Account account : shard.accounts()) {
+                String from = account.getCurrency();
+                sum += from == null || from.equals(currency)
+                        ? account.getBalance()
+                        : account.getBalance() * table.rate(from, currency);
+            }
+            return sum;
+        })) {
+            total += part;
+        }
+        return total;
+    }
+
+    public double totalBalance() {
+        double total = 0;
+        for (double part : scatter(shard -> {
+            double sum = 0;
+            for (Account account : shard.accounts()) {
+                sum += account.getBalance();
+            }
+            return sum;
+        })) {
+            total += part;
+        }
+        return total;
+    }
+
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (AccountShard shard : shards) {
+            shard.shutdown();
+        }
+    }
+}
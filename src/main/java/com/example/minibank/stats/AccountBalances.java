@@ -0,0 +1,101 @@
+package com.example.minibank.stats;
+
+import java.util.Arrays;
+
+// ostatnio policzone saldo i grupa (typ konta) każdego konta shardu - potrzebne, żeby przy zmianie
+// odjąć stary wkład ze statystyk. Adresowanie otwarte bez opakowywania (ok. 24 B na konto)
+final class AccountBalances {
+
+    static final short NO_GROUP = -1;
+    private static final short EMPTY = Short.MIN_VALUE;
+
+    private long[] ids = new long[16];
+    private double[] balances = new double[16];
+    private short[] groups = new short[16];
+    private int size;
+
+    AccountBalances() {
+        Arrays.fill(groups, EMPTY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // pozycja konta albo -1; ważna do następnej zmiany
+    int find(long id) {
+        int mask = ids.length - 1;
+        for (int i = index(id, mask); ; i = (i + 1) & mask) {
+            if (groups[i] == EMPTY) {
+                return -1;
+            }
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+    }
+
+    double balance(int position) {
+        return balances[position];
+    }
+
+    short group(int position) {
+        return groups[position];
+    }
+
+    void put(long id, double balance, short group) {
+        if ((size + 1) * 4L > ids.length * 3L) {
+            resize(ids.length * 2);
+        }
+        int mask = ids.length - 1;
+        for (int i = index(id, mask); ; i = (i + 1) & mask) {
+            if (groups[i] == EMPTY) {
+                size++;
+            } else if (ids[i] != id) {
+                continue;
+            }
+            ids[i] = id;
+            balances[i] = balance;
+            groups[i] = group;
+            return;
+        }
+    }
+
+    void remove(int position) {
+        int mask = ids.length - 1;
+        // przesunięcie kolejnych wpisów z tego samego ciągu na zwolnione miejsce
+        int gap = position;
+        for (int j = (position + 1) & mask; groups[j] != EMPTY; j = (j + 1) & mask) {
+            int home = index(ids[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                ids[gap] = ids[j];
+                balances[gap] = balances[j];
+                groups[gap] = groups[j];
+                gap = j;
+            }
+        }
+        groups[gap] = EMPTY;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldIds = ids;
+        double[] oldBalances = balances;
+        short[] oldGroups = groups;
+        ids = new long[capacity];
+        balances = new double[capacity];
+        groups = new short[capacity];
+        Arrays.fill(groups, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldGroups[i] != EMPTY) {
+                put(oldIds[i], oldBalances[i], oldGroups[i]);
+            }
+        }
+    }
+
+    private static int index(long id, int mask) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.minibank.stats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// odpowiedź GET /accounts/stats/distribution: rozkład wszystkich sald (bez przeliczania walut)
+// i osobno dla każdego typu konta; konta bez typu liczą się tylko do overall
+public class BalanceDistribution {
+    private double relativeAccuracy;
+    private DistributionSummary overall;
+    private Map<String, DistributionSummary> byAccountType;
+
+    public BalanceDistribution() {
+    }
+
+    public BalanceDistribution(double relativeAccuracy, DistributionSummary overall,
+                               Map<String, DistributionSummary> byAccountType) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.overall = overall;
+        this.byAccountType = byAccountType;
+    }
+
+    // scalenie rozkładów z kilku węzłów; każda część musi zawierać stan szkicu
+    public static BalanceDistribution merge(List<BalanceDistribution> parts, boolean includeSketch) {
+        BalanceStats overall = null;
+        Map<String, BalanceStats> byType = new TreeMap<>();
+        for (BalanceDistribution part : parts) {
+            overall = merge(overall, part.getOverall());
+            for (Map.Entry<String, DistributionSummary> entry : part.getByAccountType().entrySet()) {
+                byType.put(entry.getKey(), merge(byType.get(entry.getKey()), entry.getValue()));
+            }
+        }
+        if (overall == null) {
+            throw new IllegalArgumentException("Nothing to merge");
+        }
+        Map<String, DistributionSummary> summaries = new TreeMap<>();
+        byType.forEach((type, stats) -> summaries.put(type, stats.summary(includeSketch)));
+        return new BalanceDistribution(overall.relativeAccuracy(), overall.summary(includeSketch), summaries);
+    }
+
+    private static BalanceStats merge(BalanceStats into, DistributionSummary summary) {
+        BalanceStats stats = BalanceStats.fromSummary(summary);
+        if (into == null) {
+            return stats;
+        }
+        into.merge(stats);
+        return into;
+    }
+
+    // gettery i settery
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+    public void setRelativeAccuracy(double relativeAccuracy) {
+        this.relativeAccuracy = relativeAccuracy;
+    }
+
+    public DistributionSummary getOverall() {
+        return overall;
+    }
+    public void setOverall(DistributionSummary overall) {
+        this.overall = overall;
+    }
+
+    public Map<String, DistributionSummary> getByAccountType() {
+        return byAccountType;
+    }
+    public void setByAccountType(Map<String, DistributionSummary> byAccountType) {
+        this.byAccountType = byAccountType;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.minibank.stats;
+
+import com.example.minibank.Account;
+import com.example.minibank.shard.AccountChangeListener;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// rozkład sald liczony przyrostowo: każdy shard trzyma statystyki (ogółem i per typ konta),
+// a listener przy każdej zmianie konta odejmuje jego poprzednie saldo i dodaje nowe.
+// Zapytanie kopiuje i scala statystyki shardów - koszt zależy od liczby kubełków, nie od liczby kont.
+// Pamięć statystyk: najwyżej 2 * maxBuckets liczników szkicu na grupę i shard (+ saldo każdego konta do odjęcia)
+@Component
+public class BalanceDistributionIndex implements AccountChangeListener {
+
+    private final ShardedAccountStore store;
+    private final double[] bounds;
+    private final double relativeAccuracy;
+    private final int maxBuckets;
+    private final ShardStats[] shards;
+
+    // statystyki jednego shardu - tylko na wątku shardu
+    private final class ShardStats {
+        final BalanceStats overall = newStats();
+        final List<String> groupNames = new ArrayList<>();
+        final List<BalanceStats> groups = new ArrayList<>();
+        final Map<String, Short> groupIds = new HashMap<>();
+        final AccountBalances balances = new AccountBalances();
+
+        void changed(Account account) {
+            long id = account.getId();
+            double balance = account.getBalance();
+            short group = group(account.getAccountType());
+            int position = balances.find(id);
+            if (position >= 0) {
+                double previous = balances.balance(position);
+                short previousGroup = balances.group(position);
+                if (previous == balance && previousGroup == group) {
+                    return;
+                }
+                subtract(previous, previousGroup);
+            }
+            overall.add(balance);
+            if (group != AccountBalances.NO_GROUP) {
+                groups.get(group).add(balance);
+            }
+            balances.put(id, balance, group);
+        }
+
+        void removed(long id) {
+            int position = balances.find(id);
+            if (position >= 0) {
+                subtract(balances.balance(position), balances.group(position));
+                balances.remove(position);
+            }
+        }
+
+        private void subtract(double balance, short group) {
+            overall.remove(balance);
+            if (group != AccountBalances.NO_GROUP) {
+                groups.get(group).remove(balance);
+            }
+        }
+
+        private short group(String accountType) {
+            if (accountType == null) {
+                return AccountBalances.NO_GROUP;
+            }
+            Short id = groupIds.get(accountType);
+            if (id == null) {
+                if (groups.size() == Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many account types");
+                }
+                id = (short) groups.size();
+                groupIds.put(accountType, id);
+                groupNames.add(accountType);
+                groups.add(newStats());
+            }
+            return id;
+        }
+    }
+
+    public BalanceDistributionIndex(ShardedAccountStore store) {
+        this(store, "0,100,1000,10000,100000,1000000", 0.01, 2048);
+    }
+
+    @Autowired
+    public BalanceDistributionIndex(ShardedAccountStore store,
+                                    @Value("${minibank.stats.histogram-bounds:0,100,1000,10000,100000,1000000}") String bounds,
+                                    @Value("${minibank.stats.relative-accuracy:0.01}") double relativeAccuracy,
+                                    @Value("${minibank.stats.max-buckets:2048}") int maxBuckets) {
+        this.store = store;
+        this.bounds = parseBounds(bounds);
+        this.relativeAccuracy = relativeAccuracy;
+        this.maxBuckets = maxBuckets;
+        // sprawdzenie parametrów szkicu przed rejestracją listenera
+        newStats();
+        this.shards = new ShardStats[store.shardCount()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ShardStats();
+        }
+        store.addListener(this);
+        // konta dodane przed rejestracją listenera
+        store.scatter(shard -> {
+            for (Account account : shard.accounts()) {
+                shards[shard.getIndex()].changed(account);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void accountChanged(int shard, Account account) {
+        shards[shard].changed(account);
+    }
+
+    @Override
+    public void accountRemoved(int shard, long id) {
+        shards[shard].removed(id);
+    }
+
+    public BalanceDistribution distribution(boolean includeSketch) {
+        // kopie na wątkach shardów, scalanie już poza nimi
+        BalanceStats overall = newStats();
+        Map<String, BalanceStats> byType = new TreeMap<>();
+        for (ShardCopy copy : store.scatter(shard -> {
+            ShardStats stats = shards[shard.getIndex()];
+            Map<String, BalanceStats> groups = new HashMap<>();
+            for (int i = 0; i < stats.groups.size(); i++) {
+                if (stats.groups.get(i).count() > 0) {
+                    groups.put(stats.groupNames.get(i), stats.groups.get(i).copy());
+                }
+            }
+            return new ShardCopy(stats.overall.copy(), groups);
+        })) {
+            overall.merge(copy.overall());
+            copy.groups().forEach((type, stats) -> byType.computeIfAbsent(type, t -> newStats()).merge(stats));
+        }
+        Map<String, DistributionSummary> summaries = new TreeMap<>();
+        byType.forEach((type, stats) -> summaries.put(type, stats.summary(includeSketch)));
+        return new BalanceDistribution(relativeAccuracy, overall.summary(includeSketch), summaries);
+    }
+
+    private record ShardCopy(BalanceStats overall, Map<String, BalanceStats> groups) {
+    }
+
+    private BalanceStats newStats() {
+        return new BalanceStats(bounds, relativeAccuracy, maxBuckets);
+    }
+
+    private static double[] parseBounds(String bounds) {
+        String[] parts = bounds.split(",");
+        double[] result = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                result[i] = Double.parseDouble(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid histogram bound: " + parts[i]);
+            }
+            if (i > 0 && result[i] <= result[i - 1]) {
+                throw new IllegalArgumentException("Histogram bounds must be increasing: " + bounds);
+            }
+        }
+        return result;
+    }
+}
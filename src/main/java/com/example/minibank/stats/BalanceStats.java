@@ -0,0 +1,144 @@
+package com.example.minibank.stats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// statystyki jednej grupy sald: liczność, średnia i wariancja (Welford, także przy usuwaniu),
+// histogram o stałych granicach i szkic kwantyli. Wszystko da się zmniejszać i scalać
+final class BalanceStats {
+
+    static final double[] PERCENTILES = {0.5, 0.9, 0.95, 0.99, 0.999};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p95", "p99", "p999"};
+
+    private final double[] bounds;
+    private final long[] histogram;
+    private final QuantileSketch sketch;
+    private long count;
+    private double mean;
+    // suma kwadratów odchyleń od średniej
+    private double m2;
+
+    BalanceStats(double[] bounds, double relativeAccuracy, int maxBuckets) {
+        this(bounds, new QuantileSketch(relativeAccuracy, maxBuckets));
+    }
+
+    private BalanceStats(double[] bounds, QuantileSketch sketch) {
+        this.bounds = bounds;
+        this.histogram = new long[bounds.length + 1];
+        this.sketch = sketch;
+    }
+
+    BalanceStats copy() {
+        BalanceStats copy = new BalanceStats(bounds, sketch.copy());
+        System.arraycopy(histogram, 0, copy.histogram, 0, histogram.length);
+        copy.count = count;
+        copy.mean = mean;
+        copy.m2 = m2;
+        return copy;
+    }
+
+    double relativeAccuracy() {
+        return sketch.relativeAccuracy();
+    }
+
+    long count() {
+        return count;
+    }
+
+    void add(double balance) {
+        count++;
+        double delta = balance - mean;
+        mean += delta / count;
+        m2 += delta * (balance - mean);
+        histogram[bucket(balance)]++;
+        sketch.add(balance);
+    }
+
+    // odwrotność add dla wcześniej dodanego salda
+    void remove(double balance) {
+        histogram[bucket(balance)]--;
+        sketch.remove(balance);
+        if (count <= 1) {
+            count = 0;
+            mean = 0;
+            m2 = 0;
+            return;
+        }
+        double previousMean = mean - (balance - mean) / (count - 1);
+        m2 = Math.max(0, m2 - (balance - previousMean) * (balance - mean));
+        mean = previousMean;
+        count--;
+    }
+
+    void merge(BalanceStats other) {
+        if (!Arrays.equals(bounds, other.bounds)) {
+            throw new IllegalArgumentException("Cannot merge histograms with different bounds");
+        }
+        sketch.merge(other.sketch);
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        m2 += other.m2 + delta * delta * count * other.count / total;
+        mean += delta * other.count / total;
+        count = total;
+    }
+
+    DistributionSummary summary(boolean includeSketch) {
+        DistributionSummary summary = new DistributionSummary();
+        summary.setCount(count);
+        summary.setMean(mean);
+        summary.setVariance(count == 0 ? 0 : m2 / count);
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            percentiles.put(PERCENTILE_NAMES[i], count == 0 ? null : sketch.quantile(PERCENTILES[i]));
+        }
+        summary.setPercentiles(percentiles);
+        if (count > 0) {
+            summary.setMin(sketch.quantile(0));
+            summary.setMax(sketch.quantile(1));
+        }
+        List<HistogramBucket> buckets = new ArrayList<>(histogram.length);
+        for (int i = 0; i < histogram.length; i++) {
+            buckets.add(new HistogramBucket(i < bounds.length ? bounds[i] : null, histogram[i]));
+        }
+        summary.setHistogram(buckets);
+        if (includeSketch) {
+            summary.setSketch(sketch.state());
+        }
+        return summary;
+    }
+
+    // odtworzenie z odpowiedzi innego węzła
+    static BalanceStats fromSummary(DistributionSummary summary) {
+        if (summary.getSketch() == null) {
+            throw new IllegalArgumentException("Distribution without sketch state cannot be merged");
+        }
+        List<HistogramBucket> buckets = summary.getHistogram();
+        double[] bounds = new double[buckets.size() - 1];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = buckets.get(i).getUpperBound();
+        }
+        BalanceStats stats = new BalanceStats(bounds, QuantileSketch.fromState(summary.getSketch()));
+        for (int i = 0; i < buckets.size(); i++) {
+            stats.histogram[i] = buckets.get(i).getCount();
+        }
+        stats.count = summary.getCount();
+        stats.mean = summary.getMean();
+        stats.m2 = summary.getVariance() * summary.getCount();
+        return stats;
+    }
+
+    // przedział (bounds[i - 1], bounds[i]]
+    private int bucket(double balance) {
+        int i = Arrays.binarySearch(bounds, balance);
+        return i >= 0 ? i : -i - 1;
+    }
+}
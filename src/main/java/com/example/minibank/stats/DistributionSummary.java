@@ -0,0 +1,79 @@
+package com.example.minibank.stats;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+// rozkład sald jednej grupy kont. count, mean, variance (populacyjna) i histogram są dokładne
+// (z dokładnością do zaokrągleń double); min, max i percentyle pochodzą ze szkicu - błąd względny
+// najwyżej relativeAccuracy. Dla pustej grupy min, max i percentyle są null.
+// sketch - stan szkicu do scalania między węzłami, tylko na żądanie (?sketch=true)
+public class DistributionSummary {
+    private long count;
+    private double mean;
+    private double variance;
+    private Double min;
+    private Double max;
+    private Map<String, Double> percentiles;
+    private List<HistogramBucket> histogram;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private SketchState sketch;
+
+    // gettery i settery
+    public long getCount() {
+        return count;
+    }
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    public double getVariance() {
+        return variance;
+    }
+    public void setVariance(double variance) {
+        this.variance = variance;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+    public void setMin(Double min) {
+        this.min = min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+    public void setMax(Double max) {
+        this.max = max;
+    }
+
+    public Map<String, Double> getPercentiles() {
+        return percentiles;
+    }
+    public void setPercentiles(Map<String, Double> percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    public List<HistogramBucket> getHistogram() {
+        return histogram;
+    }
+    public void setHistogram(List<HistogramBucket> histogram) {
+        this.histogram = histogram;
+    }
+
+    public SketchState getSketch() {
+        return sketch;
+    }
+    public void setSketch(SketchState sketch) {
+        this.sketch = sketch;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.minibank.stats;
+
+// liczba sald w przedziale (poprzednia granica, upperBound]; upperBound == null - bez górnej granicy
+public class HistogramBucket {
+    private Double upperBound;
+    private long count;
+
+    public HistogramBucket() {
+    }
+
+    public HistogramBucket(Double upperBound, long count) {
+        this.upperBound = upperBound;
+        this.count = count;
+    }
+
+    // gettery i settery
+    public Double getUpperBound() {
+        return upperBound;
+    }
+    public void setUpperBound(Double upperBound) {
+        this.upperBound = upperBound;
+    }
+
+    public long getCount() {
+        return count;
+    }
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
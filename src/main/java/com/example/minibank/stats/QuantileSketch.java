@@ -0,0 +1,237 @@
+package com.example.minibank.stats;
+
+import java.util.Arrays;
+
+// szkic kwantyli z gwarancją błędu względnego (w stylu DDSketch).
+// Wartość x > 0 trafia do kubełka i = ceil(log_gamma(x)), gamma = (1 + a) / (1 - a); kwantyl to środek
+// kubełka 2 * gamma^i / (gamma + 1), więc różni się od dokładnej wartości o tym samym rzędzie co najwyżej o a * |x|.
+// Liczniki kubełków można zmniejszać (usunięcie starego salda) i dodawać między szkicami (shardy, węzły) -
+// wynik scalenia jest taki sam, jak gdyby wszystkie wartości trafiły do jednego szkicu.
+// Pamięć: najwyżej maxBuckets kubełków na wartości dodatnie i tyle samo na ujemne. Gdy zakres się nie mieści,
+// najmniejsze co do modułu kubełki są sklejane - gwarancja a przestaje wtedy dotyczyć tylko tych najmniejszych wartości.
+// |x| < ZERO_THRESHOLD (pół grosza) liczone jest jako 0
+public final class QuantileSketch {
+
+    static final double ZERO_THRESHOLD = 0.005;
+
+    private final double relativeAccuracy;
+    private final int maxBuckets;
+    private final double logGamma;
+    private final Buckets positive;
+    private final Buckets negative;
+    private long zeroCount;
+
+    public QuantileSketch(double relativeAccuracy, int maxBuckets) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1");
+        }
+        if (maxBuckets < 16) {
+            throw new IllegalArgumentException("Sketch needs at least 16 buckets");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.maxBuckets = maxBuckets;
+        this.logGamma = Math.log((1 + relativeAccuracy) / (1 - relativeAccuracy));
+        this.positive = new Buckets(maxBuckets);
+        this.negative = new Buckets(maxBuckets);
+    }
+
+    public QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch(relativeAccuracy, maxBuckets);
+        copy.merge(this);
+        return copy;
+    }
+
+    public double relativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public long count() {
+        return positive.total + negative.total + zeroCount;
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    // usunięcie wcześniej dodanej wartości
+    public void remove(double value) {
+        add(value, -1);
+    }
+
+    private void add(double value, long count) {
+        if (Math.abs(value) < ZERO_THRESHOLD) {
+            zeroCount += count;
+        } else if (value > 0) {
+            positive.add(index(value), count);
+        } else {
+            negative.add(index(-value), count);
+        }
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with different relative accuracy");
+        }
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+    }
+
+    // wartość na pozycji floor(q * (count - 1)) w posortowanych danych, z dokładnością względną;
+    // NaN dla pustego szkicu
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        long count = count();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        // najpierw ujemne od największego modułu, potem zera, potem dodatnie rosnąco
+        long seen = 0;
+        for (int i = negative.counts.length - 1; i >= 0; i--) {
+            seen += negative.counts[i];
+            if (seen > rank) {
+                return -value(negative.offset + i);
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return 0;
+        }
+        for (int i = 0; i < positive.counts.length; i++) {
+            seen += positive.counts[i];
+            if (seen > rank) {
+                return value(positive.offset + i);
+            }
+        }
+        return value(positive.offset + positive.counts.length - 1);
+    }
+
+    // stan do przesłania między węzłami: tylko zakres niezerowych kubełków
+    public SketchState state() {
+        SketchState state = new SketchState();
+        state.setRelativeAccuracy(relativeAccuracy);
+        state.setMaxBuckets(maxBuckets);
+        state.setZeroCount(zeroCount);
+        state.setPositiveOffset(positive.firstNonZero());
+        state.setPositiveCounts(positive.range());
+        state.setNegativeOffset(negative.firstNonZero());
+        state.setNegativeCounts(negative.range());
+        return state;
+    }
+
+    public static QuantileSketch fromState(SketchState state) {
+        QuantileSketch sketch = new QuantileSketch(state.getRelativeAccuracy(), state.getMaxBuckets());
+        sketch.zeroCount = state.getZeroCount();
+        sketch.positive.addAll(state.getPositiveOffset(), state.getPositiveCounts());
+        sketch.negative.addAll(state.getNegativeOffset(), state.getNegativeCounts());
+        return sketch;
+    }
+
+    private int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / logGamma);
+    }
+
+    private double value(int index) {
+        return 2 * Math.exp(index * logGamma) / (Math.exp(logGamma) + 1);
+    }
+
+    // liczniki kolejnych kubełków; counts[0] to kubełek offset
+    private static final class Buckets {
+
+        private final int maxBuckets;
+        private long[] counts = new long[0];
+        private int offset;
+        // po sklejeniu niższe indeksy trafiają do tego kubełka - także przy usuwaniu, żeby liczniki się zgadzały
+        private int minIndex = Integer.MIN_VALUE;
+        private long total;
+
+        Buckets(int maxBuckets) {
+            this.maxBuckets = maxBuckets;
+        }
+
+        void add(int index, long count) {
+            index = Math.max(index, minIndex);
+            if (index < offset || index >= offset + counts.length) {
+                if (count < 0) {
+                    // usunięcie wartości, której nie ma - nic do zrobienia
+                    return;
+                }
+                grow(index);
+                index = Math.max(index, minIndex);
+            }
+            counts[index - offset] += count;
+            total += count;
+        }
+
+        void merge(Buckets other) {
+            addAll(other.offset, other.counts);
+        }
+
+        void addAll(int from, long[] values) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != 0) {
+                    add(from + i, values[i]);
+                }
+            }
+        }
+
+        int firstNonZero() {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    return offset + i;
+                }
+            }
+            return 0;
+        }
+
+        long[] range() {
+            int first = firstNonZero() - offset;
+            int last = counts.length - 1;
+            while (last >= 0 && counts[last] == 0) {
+                last--;
+            }
+            return last < first ? new long[0] : Arrays.copyOfRange(counts, first, last + 1);
+        }
+
+        // poszerzenie okna kubełków o index; okno nigdy nie przekracza maxBuckets
+        private void grow(int index) {
+            if (total == 0) {
+                counts = new long[Math.min(maxBuckets, Math.max(counts.length, 64))];
+                offset = Math.max(index - counts.length / 2, minIndex);
+                return;
+            }
+            int lo = Math.min(index, firstNonZero());
+            int hi = index;
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    hi = Math.max(hi, offset + i);
+                    break;
+                }
+            }
+            long folded = 0;
+            if (hi - lo + 1 > maxBuckets) {
+                // sklejenie najmniejszych kubełków w jeden
+                lo = hi - maxBuckets + 1;
+                for (int i = 0; i < counts.length && offset + i < lo; i++) {
+                    folded += counts[i];
+                    counts[i] = 0;
+                }
+                minIndex = lo;
+            }
+            int length = Math.min(maxBuckets, Math.max(hi - lo + 1, counts.length * 2));
+            int newOffset = index < offset ? hi - length + 1 : lo;
+            long[] resized = new long[length];
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    resized[offset + i - newOffset] = counts[i];
+                }
+            }
+            resized[lo - newOffset] += folded;
+            counts = resized;
+            offset = newOffset;
+        }
+    }
+}
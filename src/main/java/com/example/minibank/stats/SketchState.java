@@ -0,0 +1,62 @@
+package com.example.minibank.stats;
+
+// przesyłany stan QuantileSketch: liczniki od kubełka *Offset w górę
+public class SketchState {
+    private double relativeAccuracy;
+    private int maxBuckets;
+    private long zeroCount;
+    private int positiveOffset;
+    private long[] positiveCounts;
+    private int negativeOffset;
+    private long[] negativeCounts;
+
+    // gettery i settery
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+    public void setRelativeAccuracy(double relativeAccuracy) {
+        this.relativeAccuracy = relativeAccuracy;
+    }
+
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+    public void setMaxBuckets(int maxBuckets) {
+        this.maxBuckets = maxBuckets;
+    }
+
+    public long getZeroCount() {
+        return zeroCount;
+    }
+    public void setZeroCount(long zeroCount) {
+        this.zeroCount = zeroCount;
+    }
+
+    public int getPositiveOffset() {
+        return positiveOffset;
+    }
+    public void setPositiveOffset(int positiveOffset) {
+        this.positiveOffset = positiveOffset;
+    }
+
+    public long[] getPositiveCounts() {
+        return positiveCounts;
+    }
+    public void setPositiveCounts(long[] positiveCounts) {
+        this.positiveCounts = positiveCounts;
+    }
+
+    public int getNegativeOffset() {
+        return negativeOffset;
+    }
+    public void setNegativeOffset(int negativeOffset) {
+        this.negativeOffset = negativeOffset;
+    }
+
+    public long[] getNegativeCounts() {
+        return negativeCounts;
+    }
+    public void setNegativeCounts(long[] negativeCounts) {
+        this.negativeCounts = negativeCounts;
+    }
+}
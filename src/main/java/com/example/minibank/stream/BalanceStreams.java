@@ -0,0 +1,242 @@
+package com.example.minibank.stream;
+
+import com.example.minibank.Account;
+import com.example.minibank.exception.StreamCapacityExceededException;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.AccountChangeListener;
+import com.example.minibank.shard.AccountShard;
+import com.example.minibank.shard.ShardedAccountStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// strumienie zmian sald (SSE) zamiast odpytywania GET /accounts/{id}. Listener na wątku shardu
+// sprawdza tylko, czy ktoś subskrybuje konto, i wrzuca saldo do kolejki subskrybenta (z nadpisywaniem);
+// wysyłką zajmuje się mała pula wątków. Połączenia czekają bez wątku (async), liczba subskrybentów
+// i kont na subskrybenta jest ograniczona, więc pamięć też. Klient, który nie przyjmuje danych dłużej
+// niż sendTimeout, jest odłączany, a zablokowany na nim wątek puli zastępuje dodatkowy - do czasu
+// aż zapis się skończy - więc wolny klient nie wstrzymuje pozostałych
+@Component
+public class BalanceStreams implements AccountChangeListener, DisposableBean {
+
+    private static final BalanceSubscriber[] NONE = new BalanceSubscriber[0];
+
+    private final ShardedAccountStore store;
+    private final int maxSubscribers;
+    private final int maxAccounts;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    // subskrybenci każdego konta; tablice kopiowane przy zmianie, listener czyta bez blokad
+    private final Map<Long, BalanceSubscriber[]> byAccount = new ConcurrentHashMap<>();
+    private final Map<BalanceSubscriber, Boolean> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder stalled = new LongAdder();
+    private final ThreadPoolExecutor sender;
+    private final int senderThreads;
+    // wątki dodane w zastępstwie zablokowanych na wolnych klientach
+    private int extraSenders;
+    private final ScheduledExecutorService heartbeats;
+
+    public BalanceStreams(ShardedAccountStore store, AccountMetrics metrics) {
+        this(store, metrics, 50_000, 100, 2, Duration.ofMinutes(30), Duration.ofSeconds(15), Duration.ofSeconds(5));
+    }
+
+    @Autowired
+    public BalanceStreams(ShardedAccountStore store, AccountMetrics metrics,
+                          @Value("${minibank.stream.max-subscribers:50000}") int maxSubscribers,
+                          @Value("${minibank.stream.max-accounts:100}") int maxAccounts,
+                          @Value("${minibank.stream.sender-threads:2}") int senderThreads,
+                          @Value("${minibank.stream.timeout:30m}") Duration timeout,
+                          @Value("${minibank.stream.heartbeat:15s}") Duration heartbeat,
+                          @Value("${minibank.stream.send-timeout:5s}") Duration sendTimeout) {
+        if (maxSubscribers <= 0 || maxAccounts <= 0 || senderThreads <= 0) {
+            throw new IllegalArgumentException("Stream limits must be positive");
+        }
+        if (sendTimeout.isNegative() || sendTimeout.isZero()) {
+            throw new IllegalArgumentException("Stream send timeout must be positive");
+        }
+        this.store = store;
+        this.maxSubscribers = maxSubscribers;
+        this.maxAccounts = maxAccounts;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.senderThreads = senderThreads;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "balance-stream-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "balance-stream-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        long check = Math.max(10, sendTimeout.toMillis() / 4);
+        heartbeats.scheduleWithFixedDelay(this::expireStalled, check, check, TimeUnit.MILLISECONDS);
+        metrics.gauge("minibank.stream.subscribers", "Open balance stream subscriptions", subscriberCount, AtomicInteger::get);
+        FunctionCounter.builder("minibank.stream.events", sent, LongAdder::sum)
+                .description("Balance events sent to stream subscribers")
+                .register(metrics.getRegistry());
+        FunctionCounter.builder("minibank.stream.coalesced", coalesced, LongAdder::sum)
+                .description("Balance events replaced by a newer value before they were sent")
+                .register(metrics.getRegistry());
+        FunctionCounter.builder("minibank.stream.stalled", stalled, LongAdder::sum)
+                .description("Stream subscribers disconnected because a send did not finish within the send timeout")
+                .register(metrics.getRegistry());
+        store.addListener(this);
+    }
+
+    // nowy strumień: najpierw aktualne saldo każdego konta, potem jego zmiany
+    public SseEmitter subscribe(Collection<Long> accountIds) {
+        long[] ids = accountIds.stream().mapToLong(Long::longValue).distinct().toArray();
+        if (ids.length == 0 || ids.length > maxAccounts) {
+            throw new IllegalArgumentException("Between 1 and " + maxAccounts + " account ids are required");
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new StreamCapacityExceededException("Too many balance stream subscribers, retry later");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        BalanceSubscriber subscriber = new BalanceSubscriber(emitter, ids, sender, sent, coalesced,
+                () -> resizeSenders(-1));
+        subscribers.put(subscriber, Boolean.TRUE);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        for (long id : ids) {
+            byAccount.compute(id, (key, current) -> {
+                BalanceSubscriber[] list = current == null ? NONE : current;
+                BalanceSubscriber[] updated = Arrays.copyOf(list, list.length + 1);
+                updated[list.length] = subscriber;
+                return updated;
+            });
+        }
+        // saldo początkowe czytane na wątku shardu: każda późniejsza zmiana przyjdzie po nim i je nadpisze
+        for (long id : ids) {
+            AccountShard shard = store.shardFor(id);
+            shard.submit(id, () -> {
+                Account account = shard.settled(id);
+                if (account != null) {
+                    subscriber.offer(update(account));
+                }
+                return null;
+            });
+        }
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @Override
+    public void accountChanged(int shard, Account account) {
+        BalanceSubscriber[] list = byAccount.get(account.getId());
+        if (list == null) {
+            return;
+        }
+        // konto jest żywym obiektem shardu - saldo kopiowane tutaj
+        BalanceUpdate update = update(account);
+        for (BalanceSubscriber subscriber : list) {
+            subscriber.offer(update);
+        }
+    }
+
+    @Override
+    public void accountRemoved(int shard, long id) {
+        BalanceSubscriber[] list = byAccount.get(id);
+        if (list == null) {
+            return;
+        }
+        BalanceUpdate update = new BalanceUpdate(id, null, null);
+        for (BalanceSubscriber subscriber : list) {
+            subscriber.offer(update);
+        }
+    }
+
+    private void unsubscribe(BalanceSubscriber subscriber) {
+        // onCompletion przychodzi także po onTimeout/onError - liczymy tylko raz
+        if (subscribers.remove(subscriber) == null) {
+            return;
+        }
+        subscriber.close();
+        subscriberCount.decrementAndGet();
+        for (long id : subscriber.accountIds()) {
+            byAccount.computeIfPresent(id, (key, current) -> {
+                BalanceSubscriber[] updated = Arrays.stream(current)
+                        .filter(s -> s != subscriber)
+                        .toArray(BalanceSubscriber[]::new);
+                return updated.length == 0 ? null : updated;
+            });
+        }
+    }
+
+    private void heartbeat() {
+        for (BalanceSubscriber subscriber : subscribers.keySet()) {
+            subscriber.heartbeat();
+        }
+    }
+
+    private void expireStalled() {
+        long now = System.nanoTime();
+        for (BalanceSubscriber subscriber : subscribers.keySet()) {
+            if (subscriber.expireStalled(now, sendTimeoutNanos)) {
+                stalled.increment();
+                unsubscribe(subscriber);
+                resizeSenders(1);
+            }
+        }
+    }
+
+    // zwolnienie zapisu może wyprzedzić dodanie zastępcy - stąd licznik, a nie bezpośrednie +1/-1 na puli
+    private synchronized void resizeSenders(int delta) {
+        extraSenders += delta;
+        int size = senderThreads + Math.max(0, extraSenders);
+        if (size > sender.getMaximumPoolSize()) {
+            sender.setMaximumPoolSize(size);
+            sender.setCorePoolSize(size);
+        } else if (size < sender.getCorePoolSize()) {
+            sender.setCorePoolSize(size);
+            sender.setMaximumPoolSize(size);
+        }
+    }
+
+    // liczba wątków wysyłających, razem z zastępcami zablokowanych
+    int senderThreads() {
+        return sender.getCorePoolSize();
+    }
+
+    private static BalanceUpdate update(Account account) {
+        return new BalanceUpdate(account.getId(), account.getBalance(), account.getCurrency());
+    }
+
+    @Override
+    public void destroy() {
+        heartbeats.shutdownNow();
+        for (BalanceSubscriber subscriber : subscribers.keySet()) {
+            subscriber.emitter().complete();
+        }
+        sender.shutdown();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.minibank.stream;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// jeden klient strumienia sald. Zmiany czekają w pending - po jednym wpisie na konto, nowsze saldo
+// zastępuje starsze, więc wolny klient dostaje tylko najnowsze wartości, a pamięć nie rośnie ponad
+// liczbę subskrybowanych kont. Wysyła zawsze najwyżej jeden wątek naraz (flag scheduled).
+// Zapis do klienta jest blokujący - nadzorca (expireStalled) odłącza klienta, którego zapis trwa
+// za długo; wątek wraca do puli, gdy zapis się skończy (zwykle błędem po zamknięciu połączenia)
+final class BalanceSubscriber {
+
+    private static final long IDLE = Long.MIN_VALUE;
+    private static final long EXPIRED = Long.MAX_VALUE;
+
+    private final SseEmitter emitter;
+    private final long[] accountIds;
+    private final Executor sender;
+    private final LongAdder sent;
+    private final LongAdder coalesced;
+    private final Map<Long, BalanceUpdate> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // początek trwającego zapisu (System.nanoTime), IDLE albo EXPIRED
+    private final AtomicLong sendStarted = new AtomicLong(IDLE);
+    private final Runnable stallEnded;
+    private volatile boolean heartbeat;
+    private volatile boolean closed;
+
+    BalanceSubscriber(SseEmitter emitter, long[] accountIds, Executor sender, LongAdder sent, LongAdder coalesced) {
+        this(emitter, accountIds, sender, sent, coalesced, () -> { });
+    }
+
+    // stallEnded - wołane na wątku wysyłającym, gdy wraca zapis przerwany przez expireStalled
+    BalanceSubscriber(SseEmitter emitter, long[] accountIds, Executor sender, LongAdder sent, LongAdder coalesced,
+                      Runnable stallEnded) {
+        this.emitter = emitter;
+        this.accountIds = accountIds;
+        this.sender = sender;
+        this.sent = sent;
+        this.coalesced = coalesced;
+        this.stallEnded = stallEnded;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    long[] accountIds() {
+        return accountIds;
+    }
+
+    // wołane na wątku shardu - bez blokowania, tylko wpis i ewentualne zlecenie wysyłki
+    void offer(BalanceUpdate update) {
+        if (closed) {
+            return;
+        }
+        if (pending.put(update.getAccountId(), update) != null) {
+            coalesced.increment();
+        }
+        schedule();
+    }
+
+    // komentarz SSE, żeby proxy nie zamykały bezczynnego połączenia, a zerwane wyszły na jaw
+    void heartbeat() {
+        heartbeat = true;
+        schedule();
+    }
+
+    void close() {
+        closed = true;
+        pending.clear();
+    }
+
+    // wątek nadzorcy; true - zapis trwa co najmniej timeoutNanos, klient zostaje odłączony
+    // (emiter zamyka wątek wysyłający, bo ten trzyma jego monitor aż do końca zapisu)
+    boolean expireStalled(long now, long timeoutNanos) {
+        long started = sendStarted.get();
+        if (started == IDLE || started == EXPIRED || now - started < timeoutNanos
+                || !sendStarted.compareAndSet(started, EXPIRED)) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            sender.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        do {
+            try {
+                drain();
+            } catch (IOException | IllegalStateException e) {
+                // klient się rozłączył - onError/onCompletion emitera usuwa subskrypcję
+                close();
+                emitter.completeWithError(e);
+            }
+            scheduled.set(false);
+            // zmiana dopisana po opróżnieniu, a przed zwolnieniem flagi - nikt inny jej nie wyśle
+        } while ((!pending.isEmpty() || heartbeat) && !closed && scheduled.compareAndSet(false, true));
+    }
+
+    private void drain() throws IOException {
+        boolean wrote = false;
+        for (Iterator<BalanceUpdate> it = pending.values().iterator(); it.hasNext() && !closed; ) {
+            BalanceUpdate update = it.next();
+            // remove(key, value) - nie gubi wartości podmienionej w międzyczasie przez wątek shardu
+            if (pending.remove(update.getAccountId(), update)) {
+                send(SseEmitter.event()
+                        .name(update.getBalance() == null ? "removed" : "balance")
+                        .data(update, MediaType.APPLICATION_JSON));
+                sent.increment();
+                wrote = true;
+            }
+        }
+        if (heartbeat) {
+            heartbeat = false;
+            if (!wrote && !closed) {
+                send(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    private void send(SseEmitter.SseEventBuilder event) throws IOException {
+        sendStarted.set(System.nanoTime());
+        boolean expired;
+        try {
+            emitter.send(event);
+        } finally {
+            expired = sendStarted.getAndSet(IDLE) == EXPIRED;
+            if (expired) {
+                stallEnded.run();
+            }
+        }
+        if (expired) {
+            throw new IOException("Balance stream client did not accept data in time");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.minibank.stream;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// zdarzenie strumienia GET /accounts/stream: aktualne saldo konta; przy usunięciu konta balance == null
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BalanceUpdate {
+    private long accountId;
+    private Double balance;
+    private String currency;
+
+    public BalanceUpdate() {
+    }
+
+    public BalanceUpdate(long accountId, Double balance, String currency) {
+        this.accountId = accountId;
+        this.balance = balance;
+        this.currency = currency;
+    }
+
+    // gettery i settery
+    public long getAccountId() {
+        return accountId;
+    }
+    public void setAccountId(long accountId) {
+        this.accountId = accountId;
+    }
+
+    public Double getBalance() {
+        return balance;
+    }
+    public void setBalance(Double balance) {
+        this.balance = balance;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.minibank.transfer;
+
+import com.example.minibank.TransferOutcome;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+// przelew przyjęty asynchronicznie (202) - odpowiedź GET /accounts/transfers/{id}.
+// outcome == null, dopóki przelew się nie wykona
+public class TransferTicket {
+
+    public enum State {
+        PENDING,
+        COMPLETED
+    }
+
+    private final String id;
+    private final Long fromId;
+    private final Long toId;
+    private final double amount;
+    private final long submittedAt;
+    private volatile State state = State.PENDING;
+    private volatile TransferOutcome outcome;
+    private volatile long completedAt;
+    private final CompletableFuture<TransferTicket> done = new CompletableFuture<>();
+
+    TransferTicket(String id, Long fromId, Long toId, double amount) {
+        this.id = id;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.amount = amount;
+        this.submittedAt = System.currentTimeMillis();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getFromId() {
+        return fromId;
+    }
+
+    public Long getToId() {
+        return toId;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public TransferOutcome getOutcome() {
+        return outcome;
+    }
+
+    public String getSubmittedAt() {
+        return Instant.ofEpochMilli(submittedAt).toString();
+    }
+
+    public String getCompletedAt() {
+        return completedAt == 0 ? null : Instant.ofEpochMilli(completedAt).toString();
+    }
+
+    // kończy się razem z przelewem - do długiego odpytywania
+    @JsonIgnore
+    public CompletableFuture<TransferTicket> done() {
+        return done;
+    }
+
+    long completedAtMillis() {
+        return completedAt;
+    }
+
+    void complete(TransferOutcome outcome) {
+        this.outcome = outcome;
+        this.completedAt = System.currentTimeMillis();
+        this.state = State.COMPLETED;
+        done.complete(this);
+    }
+}
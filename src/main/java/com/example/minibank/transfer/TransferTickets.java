@@ -0,0 +1,123 @@
+package com.example.minibank.transfer;
+
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.exception.TransferBacklogFullException;
+import com.example.minibank.exception.TransferTicketNotFoundException;
+import com.example.minibank.metrics.AccountMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// przelewy przyjęte asynchronicznie: bilety do odpytywania i executor na prace poza wątkami shardów
+// (wpis w księdze, przelewy między węzłami). Liczba nierozstrzygniętych przelewów jest ograniczona -
+// ponad maxPending zgłoszenie kończy się 503. Wykonane bilety znikają po retention
+@Component
+public class TransferTickets implements DisposableBean {
+
+    private final int maxPending;
+    private final long retentionMillis;
+    private final Duration maxWait;
+    private final Map<String, TransferTicket> tickets = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ExecutorService executor;
+    private final ScheduledExecutorService cleanup;
+
+    public TransferTickets(AccountMetrics metrics) {
+        this(metrics, 10_000, 2, Duration.ofMinutes(10), Duration.ofSeconds(25));
+    }
+
+    @Autowired
+    public TransferTickets(AccountMetrics metrics,
+                           @Value("${minibank.transfer.async.max-pending:10000}") int maxPending,
+                           @Value("${minibank.transfer.async.threads:2}") int threads,
+                           @Value("${minibank.transfer.async.retention:10m}") Duration retention,
+                           @Value("${minibank.transfer.async.max-wait:25s}") Duration maxWait) {
+        if (maxPending <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Async transfer limits must be positive");
+        }
+        this.maxPending = maxPending;
+        this.retentionMillis = retention.toMillis();
+        this.maxWait = maxWait;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "transfer-async-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.cleanup = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "transfer-ticket-cleanup");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, retentionMillis / 10);
+        cleanup.scheduleWithFixedDelay(this::expire, period, period, TimeUnit.MILLISECONDS);
+        metrics.gauge("minibank.transfer.async.pending", "Accepted async transfers not completed yet", pending,
+                AtomicInteger::get);
+    }
+
+    public TransferTicket open(Long fromId, Long toId, double amount) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            throw new TransferBacklogFullException("Too many transfers in progress, retry later");
+        }
+        TransferTicket ticket = new TransferTicket(UUID.randomUUID().toString(), fromId, toId, amount);
+        tickets.put(ticket.getId(), ticket);
+        return ticket;
+    }
+
+    public void complete(TransferTicket ticket, TransferOutcome outcome) {
+        ticket.complete(outcome);
+        pending.decrementAndGet();
+    }
+
+    public Executor executor() {
+        return executor;
+    }
+
+    public TransferTicket get(String id) {
+        TransferTicket ticket = tickets.get(id);
+        if (ticket == null) {
+            throw new TransferTicketNotFoundException("Transfer " + id + " not found");
+        }
+        return ticket;
+    }
+
+    // bilet po wykonaniu przelewu albo po wait (najwyżej maxWait) - wtedy jeszcze PENDING
+    public CompletableFuture<TransferTicket> await(String id, Duration wait) {
+        TransferTicket ticket = get(id);
+        if (wait == null || wait.isZero() || wait.isNegative() || ticket.done().isDone()) {
+            return CompletableFuture.completedFuture(ticket);
+        }
+        long millis = Math.min(wait.toMillis(), maxWait.toMillis());
+        return ticket.done().thenApply(t -> t).completeOnTimeout(ticket, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    private void expire() {
+        long expiry = System.currentTimeMillis() - retentionMillis;
+        tickets.values().removeIf(ticket -> ticket.getState() == TransferTicket.State.COMPLETED
+                && ticket.completedAtMillis() < expiry);
+    }
+
+    @Override
+    public void destroy() {
+        cleanup.shutdownNow();
+        executor.shutdown();
+    }
+}
@@ -1,12 +1,30 @@
 package com.example.minibank;
 
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.transfer.TransferTicket;
+import com.example.minibank.transfer.TransferTickets;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AccountController.class)
@@ -23,4 +41,29 @@ public class AccountControllerTest {
         mockMvc.perform(get("/accounts"))
                 .andExpect(status().isOk());
     }
+
+    // Prefer: respond-async - 202 z biletem zamiast czekania na wynik
+    @Test
+    public void asyncTransferReturnsTicket() throws Exception {
+        TransferTicket ticket = new TransferTickets(AccountMetrics.noop()).open(1L, 2L, 100);
+        when(accountService.submitTransfer(eq(1L), eq(2L), anyDouble())).thenReturn(ticket);
+        when(accountService.awaitTransfer(eq(ticket.getId()), any())).thenReturn(CompletableFuture.completedFuture(ticket));
+
+        mockMvc.perform(post("/accounts/transfer")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fromId\": 1, \"toId\": 2, \"amount\": 100}"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/accounts/transfers/" + ticket.getId()))
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.state").value("PENDING"));
+
+        MvcResult polled = mockMvc.perform(get("/accounts/transfers/" + ticket.getId()).param("wait", "2s"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(polled))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(ticket.getId()));
+        verify(accountService).awaitTransfer(ticket.getId(), Duration.ofSeconds(2));
+    }
 }
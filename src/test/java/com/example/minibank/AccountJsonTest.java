@@ -0,0 +1,55 @@
+package com.example.minibank;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Currency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AccountJsonTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void jsonIsUnchangedByCompactFields() throws Exception {
+        String json = "{\"id\":3,\"owner\":\"Charlie\",\"balance\":1500.0,\"currency\":\"EUR\",\"status\":\"BLOCKED\","
+                + "\"createdAt\":\"2023-04-25T14:20:00\",\"accountType\":\"BUSINESS\"}";
+        Account account = mapper.readValue(json, Account.class);
+
+        assertThat(account.isBlocked()).isTrue();
+        assertThat(mapper.readTree(mapper.writeValueAsString(account))).isEqualTo(mapper.readTree(json));
+        assertThat(new Account(account).getCreatedAt()).isEqualTo("2023-04-25T14:20:00");
+    }
+
+    @Test
+    public void missingAndUnknownValuesRoundTrip() throws Exception {
+        Account account = mapper.readValue("{\"id\":7,\"currency\":\"CHF\",\"createdAt\":\"2024-02-29T23:59:59.125\"}",
+                Account.class);
+        JsonNode node = mapper.readTree(mapper.writeValueAsString(account));
+
+        assertThat(node.get("currency").asText()).isEqualTo("CHF");
+        assertThat(node.get("createdAt").asText()).isEqualTo("2024-02-29T23:59:59.125");
+        assertThat(node.get("status").isNull()).isTrue();
+        assertThat(node.has("blocked")).isFalse();
+        assertThrows(IllegalArgumentException.class, () -> account.setCreatedAt("yesterday"));
+    }
+
+    @Test
+    public void valuesOutsideDictionaryAreRejected() {
+        Account account = new Account();
+        // pełen zestaw walut ISO mieści się w słowniku
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            account.setCurrency(currency.getCurrencyCode());
+            assertThat(account.getCurrency()).isEqualTo(currency.getCurrencyCode());
+        }
+        assertThrows(IllegalArgumentException.class, () -> account.setCurrency("XYZ1"));
+        assertThrows(IllegalArgumentException.class, () -> account.setStatus("FROZEN"));
+        assertThrows(IllegalArgumentException.class, () -> account.setAccountType("checking"));
+        assertThrows(JsonMappingException.class,
+                () -> mapper.readValue("{\"id\":8,\"currency\":\"ZZZZ\"}", Account.class));
+    }
+}
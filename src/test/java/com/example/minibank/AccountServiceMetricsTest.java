@@ -0,0 +1,46 @@
+package com.example.minibank;
+
+import com.example.minibank.metrics.AccountMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountServiceMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private AccountService accountService;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        accountService = new AccountService(new AccountMetrics(registry));
+        accountService.addAccount(new Account(1L, "Alice", 1000, "PLN", "ACTIVE", "2023-03-15T10:00:00", "SAVINGS"));
+        accountService.addAccount(new Account(2L, "Bob", 500, "PLN", "ACTIVE", "2023-04-01T09:30:00", "CHECKING"));
+    }
+
+    // liczniki przelewów rozbite na sukces i powód porażki
+
+    @Test
+    public void transferOutcomesAreCountedByReason() {
+        accountService.transfer(1L, 2L, 200);
+        accountService.transfer(2L, 1L, 5000);
+        accountService.transfer(99L, 1L, 10);
+
+        assertThat(registry.get("minibank.transfers").tag("result", "success").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("minibank.transfers").tag("reason", "insufficient_funds").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("minibank.transfers").tag("reason", "account_not_found").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("minibank.account.operation").tag("operation", "transfer").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    public void storeSizeGaugeFollowsAccounts() {
+        assertThat(registry.get("minibank.accounts.size").gauge().value()).isEqualTo(2.0);
+
+        accountService.deleteAccount(2L);
+
+        assertThat(registry.get("minibank.accounts.size").gauge().value()).isEqualTo(1.0);
+        assertThat(registry.get("minibank.account.operation").tag("operation", "delete").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,378 @@
+package com.example.minibank;
+
+import com.example.minibank.fx.FxRates;
+import com.example.minibank.ledger.Transaction;
+import com.example.minibank.ledger.TransactionPage;
+import com.example.minibank.ledger.TransactionType;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.AccountCachePolicy;
+import com.example.minibank.shard.HotAccountPolicy;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// przelewy, zakładanie i usuwanie kont z wielu wątków naraz, w losowej kolejności:
+// - wyścigi w stylu jcstress: kilku aktorów startuje razem na tych samych kontach, arbiter ocenia stan
+//   po zakończeniu; każdy zaobserwowany wynik musi być jednym z wyników dopuszczalnych,
+// - przebieg losowy: każdy wątek zapisuje u siebie skutki udanych operacji, na końcu saldo każdego
+//   konta (także usuniętego - z wpisu w księdze) musi się zgadzać z sumą tych skutków.
+// Domyślnie krótko (część zwykłego mvn test); dłużej i z większą liczbą wątków:
+// uruchamianie: mvn test -Dtest=AccountServiceStressTest -Dstress.duration=60000 -Dstress.threads=32 -Dstress.iterations=20000
+// Ziarno losowania jest wypisywane; -Dstress.seed=... powtarza ten sam rozkład operacji
+public class AccountServiceStressTest {
+
+    private static final int THREADS = Integer.getInteger("stress.threads", Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+    private static final long DURATION_MILLIS = Long.getLong("stress.duration", 2_000);
+    private static final int ITERATIONS = Integer.getInteger("stress.iterations", 300);
+    private static final long SEED = Long.getLong("stress.seed", System.nanoTime());
+    private static final int SHARDS = 4;
+    private static final int INITIAL_ACCOUNTS = 64;
+    private static final double INITIAL_BALANCE = 1_000;
+
+    private ShardedAccountStore store;
+    private AccountService service;
+
+    @BeforeEach
+    public void setUp() {
+        store = new ShardedAccountStore(SHARDS, AccountMetrics.noop());
+        service = new AccountService(AccountMetrics.noop(), store);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    // --- wyścigi ---
+
+    // dwa przelewy z tego samego konta, razem ponad saldo: dokładnie jeden przechodzi
+    @Test
+    public void concurrentDebitsNeverOverdraw() {
+        Map<String, Integer> outcomes = race(2, round -> {
+            long a = round * 3L + 1;
+            open(a, 100, a + 1, 0, a + 2, 0);
+            return new Round(
+                    actor -> service.executeTransfer(a, a + 1 + actor, 60).name(),
+                    results -> String.join(",", results) + " a=" + balance(a));
+        });
+
+        assertThat(outcomes.keySet()).isSubsetOf(Set.of(
+                "SUCCESS,INSUFFICIENT_FUNDS a=40.0",
+                "INSUFFICIENT_FUNDS,SUCCESS a=40.0"));
+    }
+
+    // przelewy w przeciwnych kierunkach między tą samą parą kont: oba przechodzą, bez zakleszczenia
+    @Test
+    public void opposingTransfersBothApply() {
+        Map<String, Integer> outcomes = race(2, round -> {
+            long a = round * 2L + 1;
+            open(a, 100, a + 1, 100);
+            return new Round(
+                    actor -> actor == 0 ? service.executeTransfer(a, a + 1, 30).name() : service.executeTransfer(a + 1, a, 50).name(),
+                    results -> String.join(",", results) + " a=" + balance(a) + " b=" + balance(a + 1));
+        });
+
+        assertThat(outcomes.keySet()).containsOnly("SUCCESS,SUCCESS a=120.0 b=80.0");
+    }
+
+    // przelew na konto usuwane w tej samej chwili: albo uznanie jest w saldzie usuniętego konta,
+    // albo przelew się nie udał i pieniądze wróciły - nigdy nie znikają
+    @Test
+    public void transferRacingDeletionLosesNoMoney() {
+        Map<String, Integer> outcomes = race(2, round -> {
+            long a = round * 2L + 1;
+            open(a, 100, a + 1, 100);
+            return new Round(
+                    actor -> actor == 0 ? service.executeTransfer(a, a + 1, 40).name() : String.valueOf(service.deleteAccount(a + 1)),
+                    results -> String.join(",", results) + " deleted=" + deletedBalance(service, a + 1) + " a=" + balance(a));
+        });
+
+        assertThat(outcomes.keySet()).isSubsetOf(Set.of(
+                "SUCCESS,true deleted=140.0 a=60.0",
+                "ACCOUNT_NOT_FOUND,true deleted=100.0 a=100.0"));
+    }
+
+    // usunięcie konta źródłowego w trakcie przelewu na inny shard, którego uznanie się nie uda:
+    // konto z rezerwacją nie daje się usunąć, więc zwrot zawsze ma dokąd wrócić
+    @Test
+    public void sourceDeletionWaitsForReservation() {
+        Map<String, Integer> outcomes = race(2, round -> {
+            long a = round * 16L + 1;
+            long b = a + 1;
+            while (store.shardFor(b) == store.shardFor(a)) {
+                b++;
+            }
+            long blocked = b;
+            open(a, 100);
+            service.addAccount(new Account(blocked, "blocked", 0, "PLN", "BLOCKED", null, "CHECKING"));
+            return new Round(
+                    actor -> {
+                        if (actor == 0) {
+                            return service.executeTransfer(a, blocked, 40).name();
+                        }
+                        try {
+                            return String.valueOf(service.deleteAccount(a));
+                        } catch (IllegalArgumentException e) {
+                            return "busy";
+                        }
+                    },
+                    results -> String.join(",", results) + " a=" + balance(a)
+                            + (service.getAccountById(a).isPresent() ? "" : " deleted=" + deletedBalance(service, a)));
+        });
+
+        assertThat(outcomes.keySet()).isSubsetOf(Set.of(
+                "ACCOUNT_BLOCKED,true a=none deleted=100.0",
+                "ACCOUNT_NOT_FOUND,true a=none deleted=100.0",
+                "ACCOUNT_BLOCKED,busy a=100.0"));
+    }
+
+    // to samo id zakładane dwa razy naraz: jedno konto, z saldem zwycięzcy
+    @Test
+    public void duplicateAddCreatesOneAccount() {
+        Map<String, Integer> outcomes = race(2, round -> {
+            long id = round + 1L;
+            return new Round(
+                    actor -> {
+                        try {
+                            service.addAccount(new Account(id, "owner" + actor, actor + 1, "PLN", "ACTIVE", null, "CHECKING"));
+                            return "added";
+                        } catch (IllegalArgumentException e) {
+                            return "duplicate";
+                        }
+                    },
+                    results -> String.join(",", results) + " balance=" + balance(id));
+        });
+
+        assertThat(outcomes.keySet()).isSubsetOf(Set.of(
+                "added,duplicate balance=1.0",
+                "duplicate,added balance=2.0"));
+    }
+
+    // --- przebieg losowy ---
+
+    @Test
+    public void randomScheduleConservesMoney() throws Exception {
+        soak("all accounts on heap", AccountCachePolicy.unbounded());
+    }
+
+    // mało miejsca na stercie: konta ciągle krążą między stertą a zimną warstwą
+    @Test
+    public void randomScheduleConservesMoneyWithColdTier() throws Exception {
+        soak("16 resident accounts", new AccountCachePolicy(16));
+    }
+
+    private static void soak(String variant, AccountCachePolicy cachePolicy) throws Exception {
+        ShardedAccountStore store = new ShardedAccountStore(SHARDS, AccountMetrics.noop(), new FxRates(),
+                HotAccountPolicy.defaults(), cachePolicy);
+        AccountService service = new AccountService(AccountMetrics.noop(), store);
+        try {
+            for (long id = 1; id <= INITIAL_ACCOUNTS; id++) {
+                service.addAccount(new Account(id, "owner" + id, INITIAL_BALANCE, "PLN", "ACTIVE", null, "CHECKING"));
+            }
+            AtomicLong nextId = new AtomicLong(INITIAL_ACCOUNTS + 1);
+            AtomicInteger negativeReads = new AtomicInteger();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            List<Future<Worker>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                Worker worker = new Worker(new SplittableRandom(SEED + t), service, nextId, negativeReads);
+                futures.add(pool.submit(() -> worker.run(deadline)));
+            }
+            Map<Long, Double> expected = new HashMap<>();
+            Map<Long, Integer> deletions = new HashMap<>();
+            long operations = 0;
+            long transfers = 0;
+            double deposited = 0;
+            for (Future<Worker> future : futures) {
+                Worker worker = future.get();
+                worker.deltas.forEach((id, delta) -> expected.merge(id, delta, Double::sum));
+                worker.deleted.forEach(id -> deletions.merge(id, 1, Integer::sum));
+                operations += worker.operations;
+                transfers += worker.transfers;
+                deposited += worker.deposited;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            pool.shutdown();
+            System.out.printf("stress [%s] seed=%d threads=%d: %,d ops (%,.0f/s), %,d successful transfers (%,.0f/s), %d accounts deleted%n",
+                    variant, SEED, THREADS, operations, operations / seconds, transfers, transfers / seconds, deletions.size());
+
+            // żadne konto nie zostało usunięte dwa razy, żadne saldo nie było ujemne
+            assertThat(deletions.values()).allMatch(count -> count == 1);
+            assertThat(negativeReads.get()).isZero();
+            // saldo każdego konta = saldo początkowe + skutki udanych operacji (brak zgubionych zmian)
+            double live = 0;
+            double deleted = 0;
+            for (long id = 1; id < nextId.get(); id++) {
+                Optional<Account> account = service.getAccountById(id);
+                double want = expected.getOrDefault(id, 0.0) + (id <= INITIAL_ACCOUNTS ? INITIAL_BALANCE : 0);
+                if (deletions.containsKey(id)) {
+                    assertThat(account).as("deleted account %d", id).isEmpty();
+                    double balance = deletedBalance(service, id);
+                    assertThat(balance).as("balance of deleted account %d", id).isEqualTo(want);
+                    deleted += balance;
+                } else {
+                    assertThat(account).as("account %d", id).isPresent();
+                    assertThat(account.get().getBalance()).as("balance of account %d", id).isEqualTo(want).isNotNegative();
+                    live += account.get().getBalance();
+                }
+            }
+            // pieniądze się nie rozmnożyły ani nie zniknęły; księga odtwarza ten sam stan
+            assertThat(live + deleted).isEqualTo(INITIAL_ACCOUNTS * INITIAL_BALANCE + deposited);
+            assertThat(service.getTotalBalance()).isEqualTo(live);
+            assertThat(service.getTotalBalanceAsOf(Instant.now().plusSeconds(1))).isEqualTo(live);
+        } finally {
+            store.close();
+        }
+    }
+
+    // jeden wątek przebiegu losowego; skutki udanych operacji zapisuje tylko u siebie
+    private static final class Worker {
+
+        private final SplittableRandom random;
+        private final AccountService service;
+        private final AtomicLong nextId;
+        private final AtomicInteger negativeReads;
+        private final Map<Long, Double> deltas = new HashMap<>();
+        private final List<Long> deleted = new ArrayList<>();
+        private long operations;
+        private long transfers;
+        private double deposited;
+
+        Worker(SplittableRandom random, AccountService service, AtomicLong nextId, AtomicInteger negativeReads) {
+            this.random = random;
+            this.service = service;
+            this.nextId = nextId;
+            this.negativeReads = negativeReads;
+        }
+
+        Worker run(long deadline) {
+            while (System.nanoTime() < deadline) {
+                int op = random.nextInt(100);
+                // część id jeszcze nie istnieje albo jest usunięta - takie operacje też muszą być bezpieczne
+                long id = random.nextLong(1, nextId.get() + 2);
+                if (op < 75) {
+                    long to = random.nextLong(1, nextId.get() + 2);
+                    double amount = random.nextInt(1, 200);
+                    if (service.executeTransfer(id, to, amount).isSuccess()) {
+                        deltas.merge(id, -amount, Double::sum);
+                        deltas.merge(to, amount, Double::sum);
+                        transfers++;
+                    }
+                } else if (op < 85) {
+                    service.getAccountById(id).ifPresent(account -> {
+                        if (account.getBalance() < 0) {
+                            negativeReads.incrementAndGet();
+                        }
+                    });
+                } else if (op < 93) {
+                    long newId = nextId.getAndIncrement();
+                    double balance = random.nextInt(0, 1_000);
+                    service.addAccount(new Account(newId, "owner" + newId, balance, "PLN", "ACTIVE", null, "CHECKING"));
+                    deltas.merge(newId, balance, Double::sum);
+                    deposited += balance;
+                } else {
+                    try {
+                        if (service.deleteAccount(id)) {
+                            deleted.add(id);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        // konto w trakcie przelewu - usunięcie odrzucone, saldo bez zmian
+                    }
+                }
+                operations++;
+                // losowe przerwy zmieniają przeplot między wątkami
+                if (random.nextInt(16) == 0) {
+                    Thread.yield();
+                }
+            }
+            return this;
+        }
+    }
+
+    // --- pomocnicze ---
+
+    // jedna runda wyścigu: aktorzy (indeks aktora -> wynik) i arbiter (wyniki -> opis stanu)
+    private record Round(IntFunction<String> actor, Function<String[], String> arbiter) {
+    }
+
+    // ITERATIONS rund; aktorzy każdej rundy startują razem na barierze. Wynik: liczba rund na opis stanu
+    private static Map<String, Integer> race(int actors, IntFunction<Round> rounds) {
+        ExecutorService pool = Executors.newFixedThreadPool(actors);
+        Map<String, Integer> outcomes = new TreeMap<>();
+        try {
+            for (int i = 0; i < ITERATIONS; i++) {
+                Round round = rounds.apply(i);
+                CyclicBarrier start = new CyclicBarrier(actors);
+                List<Future<String>> results = new ArrayList<>();
+                for (int a = 0; a < actors; a++) {
+                    int actor = a;
+                    results.add(pool.submit(() -> {
+                        start.await();
+                        return round.actor().apply(actor);
+                    }));
+                }
+                String[] observed = new String[actors];
+                for (int a = 0; a < actors; a++) {
+                    observed[a] = results.get(a).get(10, TimeUnit.SECONDS);
+                }
+                outcomes.merge(round.arbiter().apply(observed), 1, Integer::sum);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.println("race outcomes: " + outcomes);
+        return outcomes;
+    }
+
+    // konta rundy: id, saldo, id, saldo, ...
+    private void open(long... idsAndBalances) {
+        for (int i = 0; i < idsAndBalances.length; i += 2) {
+            long id = idsAndBalances[i];
+            service.addAccount(new Account(id, "owner" + id, idsAndBalances[i + 1], "PLN", "ACTIVE", null, "CHECKING"));
+        }
+    }
+
+    private String balance(long id) {
+        return service.getAccountById(id).map(account -> String.valueOf(account.getBalance())).orElse("none");
+    }
+
+    // saldo konta w chwili usunięcia - z wpisu DELETION w księdze
+    private static double deletedBalance(AccountService service, long id) {
+        String cursor = null;
+        do {
+            TransactionPage page = service.getTransactions(id, null, null, cursor, 1000);
+            for (Transaction entry : page.getTransactions()) {
+                if (entry.getType() == TransactionType.DELETION) {
+                    return entry.getAmount();
+                }
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.minibank.admission;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveLimiterTest {
+
+    private static final long MILLI = 1_000_000;
+
+    @Test
+    public void limitShrinksWhenLatencyGrowsAndRecoversWhenItFalls() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(50, 4, 500, 0, 0);
+        for (int i = 0; i < 500; i++) {
+            limiter.release(MILLI, 50);
+        }
+        int steady = limiter.limit();
+        assertThat(steady).isGreaterThan(50);
+
+        // żądania zaczynają czekać - czas odpowiedzi rośnie dziesięciokrotnie
+        for (int i = 0; i < 50; i++) {
+            limiter.release(10 * MILLI, steady);
+        }
+        int overloaded = limiter.limit();
+        assertThat(overloaded).isLessThan(steady / 2);
+
+        for (int i = 0; i < 500; i++) {
+            limiter.release(MILLI, limiter.limit());
+        }
+        assertThat(limiter.limit()).isGreaterThan(overloaded);
+    }
+
+    @Test
+    public void unusedLimitDoesNotGrow() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(50, 4, 500, 0, 0);
+        for (int i = 0; i < 500; i++) {
+            limiter.release(MILLI, 3);
+        }
+        assertThat(limiter.limit()).isEqualTo(50);
+    }
+
+    @Test
+    public void excessRequestsWaitInBoundedQueueThenGetRejected() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 2, 2, 1, TimeUnit.SECONDS.toNanos(5));
+        assertThat(limiter.acquire()).isEqualTo(1);
+        assertThat(limiter.acquire()).isEqualTo(2);
+        CompletableFuture<Integer> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (limiter.waiting() == 0) {
+            Thread.onSpinWait();
+        }
+        // kolejka pełna - od razu odmowa
+        assertThat(limiter.acquire()).isEqualTo(-1);
+        limiter.release(MILLI, 1);
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+    }
+
+    @Test
+    public void filterAnswers503WithRetryAfterWhenWritesAreSaturated() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(10, 1, 10, 0,
+                Duration.ZERO, Duration.ofSeconds(2));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        HttpServlet slow = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                entered.countDown();
+                try {
+                    finish.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("POST", "/accounts/transfer"), new MockHttpServletResponse(),
+                        new MockFilterChain(slow));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/accounts/transfer"), rejected, new MockFilterChain(slow));
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("2");
+
+        // odczyty mają osobny limit
+        MockHttpServletResponse read = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/accounts"), read, new MockFilterChain());
+        assertThat(read.getStatus()).isEqualTo(200);
+
+        finish.countDown();
+        first.get(5, TimeUnit.SECONDS);
+    }
+}
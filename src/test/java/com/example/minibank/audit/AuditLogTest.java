@@ -0,0 +1,192 @@
+package com.example.minibank.audit;
+
+import com.example.minibank.Account;
+import com.example.minibank.AccountService;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.ShardedAccountStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuditLogTest {
+
+    private static final int THREADS = 4;
+    private static final int RECORDS = 5_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void accountOperationsAreAudited() throws Exception {
+        AuditLog audit = new AuditLog(AccountMetrics.noop(), dir, 1024, AuditOverflowPolicy.BLOCK,
+                1 << 20, 0, Duration.ofMillis(10));
+        try (ShardedAccountStore store = new ShardedAccountStore(2, AccountMetrics.noop())) {
+            AccountService service = new AccountService(AccountMetrics.noop(), store, audit);
+            service.addAccount(new Account(1L, "Alice", 100, "PLN", "ACTIVE", "2024-01-01T00:00:00", "CHECKING"));
+            service.addAccount(new Account(2L, "Bob", 50, "PLN", "ACTIVE", "2024-01-01T00:00:00", "CHECKING"));
+            assertThat(service.transfer(1L, 2L, 30)).isTrue();
+            assertThat(service.transfer(2L, 1L, 500)).isFalse();
+            assertThat(service.deleteAccount(1L)).isTrue();
+        } finally {
+            audit.destroy();
+        }
+
+        List<String[]> records = read(dir).stream().map(line -> line.split("\t", -1)).toList();
+        assertThat(records).extracting(r -> r[1] + " " + r[2] + " " + r[3] + " " + r[4] + " " + r[5] + " " + r[6])
+                .containsExactly(
+                        "ACCOUNT_CREATED 1  100.0  ",
+                        "ACCOUNT_CREATED 2  50.0  ",
+                        "TRANSFER 1 2 30.0 30.0 SUCCESS",
+                        "TRANSFER 2 1 500.0  INSUFFICIENT_FUNDS",
+                        "ACCOUNT_DELETED 1  70.0  ");
+        assertThat(records).allSatisfy(r -> assertThat(r[0]).endsWith("Z"));
+    }
+
+    @Test
+    public void spillingKeepsEveryRecordAcrossRotatedFiles() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuditLog audit = new AuditLog(new AccountMetrics(registry), dir, 2, AuditOverflowPolicy.SPILL,
+                16 * 1024, 0, Duration.ofMillis(10));
+        try {
+            produce(audit);
+        } finally {
+            audit.destroy();
+        }
+
+        Set<String> seen = new HashSet<>();
+        for (String line : read(dir)) {
+            String[] fields = line.split("\t");
+            assertThat(seen.add(fields[2] + ":" + fields[4])).isTrue();
+        }
+        assertThat(seen).hasSize(THREADS * RECORDS);
+        assertThat(audit.files()).isGreaterThan(1);
+        assertThat(registry.get("minibank.audit.records").functionCounter().count()).isEqualTo(THREADS * RECORDS);
+        assertThat(registry.get("minibank.audit.dropped").functionCounter().count()).isZero();
+    }
+
+    @Test
+    public void droppedRecordsAreCounted() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuditLog audit = new AuditLog(new AccountMetrics(registry), dir, 2, AuditOverflowPolicy.DROP,
+                1 << 20, 0, Duration.ofMillis(10));
+        try {
+            produce(audit);
+        } finally {
+            audit.destroy();
+        }
+
+        double dropped = registry.get("minibank.audit.dropped").functionCounter().count();
+        assertThat(read(dir).size() + dropped).isEqualTo(THREADS * RECORDS);
+        assertThat(registry.get("minibank.audit.records").functionCounter().count()).isEqualTo(read(dir).size());
+    }
+
+    @Test
+    public void oldestFilesAreRemovedBeyondLimit() throws Exception {
+        AuditLog audit = new AuditLog(AccountMetrics.noop(), dir, 1024, AuditOverflowPolicy.BLOCK,
+                4 * 1024, 3, Duration.ofMillis(10));
+        try {
+            produce(audit);
+        } finally {
+            audit.destroy();
+        }
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.count()).isEqualTo(3);
+        }
+        assertThat(audit.files()).isGreaterThan(3);
+    }
+
+    // katalog zastąpiony plikiem - żaden zapis się nie uda, a zaległa paczka nie rośnie ponad limit
+    @Test
+    public void unwritableRecordsAreDroppedBeyondBatchLimit() throws Exception {
+        Path auditDir = dir.resolve("audit");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuditLog audit = new AuditLog(new AccountMetrics(registry), auditDir, 1024, AuditOverflowPolicy.SPILL,
+                1 << 20, 0, Duration.ofMillis(10), 64 * 1024);
+        try {
+            Files.delete(auditDir);
+            Files.createFile(auditDir);
+            produce(audit);
+        } finally {
+            try {
+                audit.destroy();
+            } catch (IOException expected) {
+                // ostatnia paczka też się nie zapisze
+            }
+        }
+
+        double dropped = registry.get("minibank.audit.dropped").functionCounter().count();
+        assertThat(registry.get("minibank.audit.records").functionCounter().count()).isZero();
+        assertThat(registry.get("minibank.audit.write.errors").functionCounter().count()).isPositive();
+        // w paczce zostaje najwyżej 64 KB znaków, czyli kilkaset rekordów
+        assertThat(dropped).isGreaterThan(THREADS * RECORDS - 2_000);
+    }
+
+    @Test
+    public void ringBufferRejectsRecordsWhenFull() {
+        AuditRingBuffer buffer = new AuditRingBuffer(3);
+        assertThat(buffer.capacity()).isEqualTo(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer((byte) 0, i, 0, i, 0, (byte) 0, 0)).isTrue();
+        }
+        assertThat(buffer.offer((byte) 0, 4, 0, 4, 0, (byte) 0, 0)).isFalse();
+
+        List<Long> ids = new ArrayList<>();
+        assertThat(buffer.drain((event, id, counterpart, amount, credited, outcome, time) -> ids.add(id), 3))
+                .isEqualTo(3);
+        assertThat(buffer.backlog()).isEqualTo(1);
+        assertThat(buffer.offer((byte) 0, 4, 0, 4, 0, (byte) 0, 0)).isTrue();
+        buffer.drain((event, id, counterpart, amount, credited, outcome, time) -> ids.add(id), 10);
+        assertThat(ids).containsExactly(0L, 1L, 2L, 3L, 4L);
+    }
+
+    // THREADS wątków po RECORDS rekordów: konto = numer wątku, kwota = numer rekordu
+    private static void produce(AuditLog audit) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long account = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < RECORDS; i++) {
+                    audit.transfer(account, account + 1, i, i, TransferOutcome.SUCCESS);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static List<String> read(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.sorted().toList();
+        }
+        List<String> lines = new ArrayList<>();
+        for (Path file : files) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                reader.lines().forEach(lines::add);
+            }
+        }
+        return lines;
+    }
+}
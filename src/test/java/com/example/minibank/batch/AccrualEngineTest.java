@@ -0,0 +1,145 @@
+package com.example.minibank.batch;
+
+import com.example.minibank.Account;
+import com.example.minibank.ledger.TransactionLedger;
+import com.example.minibank.ledger.TransactionType;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.OperationTrace;
+import com.example.minibank.shard.ShardedAccountStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AccrualEngineTest {
+
+    private static final AccrualRules RULES = AccrualRules.parse("SAVINGS:0.0365,PREMIUM:0.073", "BUSINESS:2");
+
+    @Test
+    public void rulesFollowAccountTypeAndLandInLedger() throws Exception {
+        AccountMetrics metrics = new AccountMetrics(new SimpleMeterRegistry());
+        try (ShardedAccountStore store = new ShardedAccountStore(2, metrics)) {
+            TransactionLedger ledger = new TransactionLedger();
+            store.add(new Account(1L, "Alice", 1000, "PLN", "ACTIVE", "2023-03-15T10:00:00", "SAVINGS"));
+            store.add(new Account(2L, "Bob", 1000, "PLN", "ACTIVE", "2023-03-15T10:00:00", "PREMIUM"));
+            store.add(new Account(3L, "Carol", 1.5, "PLN", "ACTIVE", "2023-03-15T10:00:00", "BUSINESS"));
+            store.add(new Account(4L, "Dave", 1000, "PLN", "ACTIVE", "2023-03-15T10:00:00", "CHECKING"));
+            store.add(new Account(5L, "Eve", 1000, "PLN", "BLOCKED", "2023-03-15T10:00:00", "SAVINGS"));
+            AccrualEngine engine = new AccrualEngine(store, ledger, metrics, RULES, "-");
+            try {
+                AccrualRun run = engine.start(LocalDate.of(2024, 5, 1));
+                waitUntil(() -> !run.isRunning(), 10_000);
+
+                assertThat(run.getState()).isEqualTo(AccrualRun.State.COMPLETED);
+                assertThat(run.getProcessedAccounts()).isEqualTo(5);
+                assertThat(store.get(1L).orElseThrow().getBalance()).isEqualTo(1000.10);
+                assertThat(store.get(2L).orElseThrow().getBalance()).isEqualTo(1000.20);
+                // opłata nie schodzi poniżej zera
+                assertThat(store.get(3L).orElseThrow().getBalance()).isEqualTo(0.0);
+                assertThat(store.get(4L).orElseThrow().getBalance()).isEqualTo(1000.0);
+                assertThat(store.get(5L).orElseThrow().getBalance()).isEqualTo(1000.0);
+                assertThat(ledger.page(1, Long.MIN_VALUE, Long.MAX_VALUE, 0, 10).getTransactions())
+                        .singleElement().satisfies(t -> assertThat(t.getType()).isEqualTo(TransactionType.INTEREST));
+                assertThat(ledger.page(3, Long.MIN_VALUE, Long.MAX_VALUE, 0, 10).getTransactions())
+                        .singleElement().satisfies(t -> assertThat(t.getAmount()).isEqualTo(1.5));
+                assertThat(ledger.totalBalanceAsOf(Long.MAX_VALUE)).isCloseTo(0.30 - 1.5, within(1e-9));
+
+                assertThrows(IllegalArgumentException.class, () -> engine.start(LocalDate.of(2024, 5, 1)));
+            } finally {
+                engine.destroy();
+            }
+        }
+    }
+
+    @Test
+    public void runIsConsistentWithConcurrentTransfers() throws Exception {
+        AccountMetrics metrics = new AccountMetrics(new SimpleMeterRegistry());
+        try (ShardedAccountStore store = new ShardedAccountStore(4, metrics)) {
+            int accounts = 100_000;
+            String[] types = {"SAVINGS", "PREMIUM", "BUSINESS", "CHECKING"};
+            for (long id = 1; id <= accounts; id++) {
+                store.add(new Account(id, "Owner" + id, 500, "PLN", "ACTIVE", "2023-03-15T10:00:00",
+                        types[(int) (id % types.length)]));
+            }
+            double before = store.totalBalance();
+            AccrualEngine engine = new AccrualEngine(store, new TransactionLedger(), metrics, RULES, "-");
+            AtomicBoolean stop = new AtomicBoolean();
+            Thread traffic = new Thread(() -> {
+                Random random = new Random(3);
+                while (!stop.get()) {
+                    long from = 1 + random.nextInt(accounts);
+                    long to = 1 + random.nextInt(accounts);
+                    ShardedAccountStore.join(store.transfer(from, to, 1, new OperationTrace()));
+                }
+            });
+            traffic.start();
+            try {
+                AccrualRun run = engine.start(LocalDate.of(2024, 5, 2));
+                waitUntil(() -> !run.isRunning(), 60_000);
+                stop.set(true);
+                traffic.join();
+
+                assertThat(run.getState()).isEqualTo(AccrualRun.State.COMPLETED);
+                assertThat(run.getProcessedAccounts()).isEqualTo(accounts);
+                assertThat(run.getInterestCount()).isEqualTo(accounts / 2);
+                assertThat(run.getFeeCount()).isEqualTo(accounts / 4);
+                assertThat(store.totalBalance())
+                        .isCloseTo(before + run.getInterestAmount() - run.getFeeAmount(), within(1e-3));
+            } finally {
+                stop.set(true);
+                engine.destroy();
+            }
+        }
+    }
+
+    @Test
+    public void appliedDaysSurviveRestartAndGapsAreCaughtUp(@TempDir Path dir) throws Exception {
+        AccountMetrics metrics = new AccountMetrics(new SimpleMeterRegistry());
+        try (ShardedAccountStore store = new ShardedAccountStore(2, metrics)) {
+            TransactionLedger ledger = new TransactionLedger();
+            store.add(new Account(1L, "Alice", 1000, "PLN", "ACTIVE", "2023-03-15T10:00:00", "SAVINGS"));
+            AccrualEngine engine = new AccrualEngine(store, ledger, metrics, RULES, "-", dir);
+            try {
+                AccrualRun run = engine.start(LocalDate.of(2024, 5, 1));
+                waitUntil(() -> !run.isRunning(), 10_000);
+            } finally {
+                engine.destroy();
+            }
+
+            AccrualEngine restarted = new AccrualEngine(store, ledger, metrics, RULES, "-", dir);
+            try {
+                assertThrows(IllegalArgumentException.class, () -> restarted.start(LocalDate.of(2024, 5, 1)));
+                // dzień opuszczony - najpierw 2 maja
+                assertThrows(IllegalArgumentException.class, () -> restarted.start(LocalDate.of(2024, 5, 4)));
+
+                restarted.catchUp(LocalDate.of(2024, 5, 4));
+                waitUntil(() -> restarted.getRuns().size() == 3 && !restarted.getRuns().get(2).isRunning(), 10_000);
+                assertThat(restarted.getRuns()).extracting(AccrualRun::getBusinessDate)
+                        .containsExactly("2024-05-02", "2024-05-03", "2024-05-04");
+                assertThat(ledger.page(1, Long.MIN_VALUE, Long.MAX_VALUE, 0, 10).getTransactions()).hasSize(4);
+                assertThrows(IllegalArgumentException.class, () -> restarted.start(LocalDate.of(2024, 5, 4)));
+            } finally {
+                restarted.destroy();
+            }
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within " + timeoutMillis + " ms");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
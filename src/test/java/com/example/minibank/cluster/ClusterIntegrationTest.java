@@ -0,0 +1,232 @@
+package com.example.minibank.cluster;
+
+import com.example.minibank.MiniBankApplication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// dwa węzły klastra w jednym JVM, każdy na własnym porcie localhost
+public class ClusterIntegrationTest {
+
+    private String nodeA;
+    private String nodeB;
+    private int portB;
+    private ConfigurableApplicationContext appA;
+    private ConfigurableApplicationContext appB;
+    private ConsistentHashRing ring;
+
+    @TempDir
+    Path auditDir;
+
+    @BeforeEach
+    public void startCluster() throws IOException {
+        int portA = freePort();
+        portB = freePort();
+        nodeA = "http://127.0.0.1:" + portA;
+        nodeB = "http://127.0.0.1:" + portB;
+        ring = new ConsistentHashRing(List.of(nodeA, nodeB), 128);
+        appA = startNode(portA, nodeA);
+        appB = startNode(portB, nodeB);
+        // pierwsze żądanie do świeżego węzła bywa dłuższe niż timeout klastra (500ms)
+        for (String node : List.of(nodeA, nodeB)) {
+            given().baseUri(node).header(ClusterClient.FORWARDED_HEADER, "true").when().get("/accounts")
+                    .then().statusCode(200);
+        }
+    }
+
+    @AfterEach
+    public void stopCluster() {
+        appA.close();
+        if (appB.isActive()) {
+            appB.close();
+        }
+    }
+
+    private ConfigurableApplicationContext startNode(int port, String self) {
+        return new SpringApplicationBuilder(MiniBankApplication.class).run(
+                "--server.port=" + port,
+                "--server.address=127.0.0.1",
+                "--minibank.cluster.enabled=true",
+                "--minibank.cluster.self=" + self,
+                "--minibank.cluster.nodes=" + nodeA + "," + nodeB,
+                "--minibank.cluster.timeout=500ms",
+                "--minibank.cluster.recovery-interval=200ms",
+                "--minibank.audit.dir=" + auditDir.resolve(String.valueOf(port)));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private long idOwnedBy(String node, long from) {
+        long id = from;
+        while (!ring.ownerOf(id).equals(node)) {
+            id++;
+        }
+        return id;
+    }
+
+    private void addAccount(String node, long id, String owner, double balance) {
+        given().baseUri(node)
+                .header("Content-Type", "application/json")
+                .body("{\"id\": " + id + ", \"owner\": \"" + owner + "\", \"balance\": " + balance + "}")
+                .when().post("/accounts")
+                .then().statusCode(200).body(equalTo("Account added"));
+    }
+
+    // konto dodane przez dowolny węzeł trafia do właściciela i jest widoczne z każdego węzła
+
+    @Test
+    public void requestsForRemoteIdsAreForwardedToOwner() {
+        long idOnB = idOwnedBy(nodeB, 1);
+        addAccount(nodeA, idOnB, "Bob", 500);
+
+        given().baseUri(nodeA).when().get("/accounts/" + idOnB)
+                .then().statusCode(200).body("owner", equalTo("Bob"));
+        // bezpośrednio u właściciela, bez routowania
+        given().baseUri(nodeB).header(ClusterClient.FORWARDED_HEADER, "true").when().get("/accounts/" + idOnB)
+                .then().statusCode(200).body("owner", equalTo("Bob"));
+        given().baseUri(nodeA).header(ClusterClient.FORWARDED_HEADER, "true").when().get("/accounts/" + idOnB)
+                .then().statusCode(404);
+        // wartości, których nie da się odczytać - 400 od kontrolera, tak jak bez klastra
+        given().baseUri(nodeA).when().get("/accounts/99999999999999999999").then().statusCode(400);
+        given().baseUri(nodeA).when().get("/accounts/top?n=abc").then().statusCode(400);
+        given().baseUri(nodeA).when().get("/accounts/owner/search?prefix=b&limit=abc").then().statusCode(400);
+        given().baseUri(nodeA).when().get("/accounts/search?limit=abc").then().statusCode(400);
+    }
+
+    @Test
+    public void crossNodeTransferAndClusterWideQueries() {
+        long idOnA = idOwnedBy(nodeA, 1);
+        long idOnB = idOwnedBy(nodeB, 1);
+        addAccount(nodeB, idOnA, "Alice", 1000);
+        addAccount(nodeA, idOnB, "Bob", 500);
+
+        // źródło na A, żądanie przychodzi do B - B przekazuje je do A, A rezerwuje i uznaje konto na B
+        given().baseUri(nodeB).header("Content-Type", "application/json")
+                .body("{\"fromId\": " + idOnA + ", \"toId\": " + idOnB + ", \"amount\": 300}")
+                .when().post("/accounts/transfer")
+                .then().statusCode(200).body(equalTo("Transfer successful"));
+
+        given().baseUri(nodeB).when().get("/accounts/" + idOnA).then().body("balance", equalTo(700.0F));
+        given().baseUri(nodeA).when().get("/accounts/" + idOnB).then().body("balance", equalTo(800.0F));
+        // historia po obu stronach przelewu, zapytanie kierowane do właściciela konta
+        given().baseUri(nodeA).when().get("/accounts/" + idOnB + "/transactions")
+                .then().statusCode(200).body("transactions.type", contains("DEPOSIT", "TRANSFER"))
+                .body("transactions[1].fromId", equalTo((int) idOnA))
+                .body("transactions[1].creditedAmount", equalTo(300.0F));
+        given().baseUri(nodeB).when().get("/accounts/" + idOnA + "/transactions?limit=1")
+                .then().statusCode(200).body("transactions.type", contains("DEPOSIT")).body("nextCursor", notNullValue());
+
+        given().baseUri(nodeA).when().get("/accounts")
+                .then().statusCode(200).body("size()", equalTo(2)).body("id", contains((int) Math.min(idOnA, idOnB), (int) Math.max(idOnA, idOnB)));
+        given().baseUri(nodeB).when().get("/accounts/totalBalance")
+                .then().statusCode(200).body(equalTo("1500.0"));
+        // wyszukiwanie scalone z obu węzłów, strona po jednym koncie
+        given().baseUri(nodeB).when().get("/accounts/search?minBalance=100&limit=1")
+                .then().statusCode(200).body("total", equalTo(2))
+                .body("accounts.id", contains((int) Math.min(idOnA, idOnB)))
+                .body("nextCursor", equalTo(String.valueOf(Math.min(idOnA, idOnB))));
+        // rozkład scalony ze szkiców obu węzłów
+        given().baseUri(nodeA).when().get("/accounts/stats/distribution")
+                .then().statusCode(200).body("overall.count", equalTo(2))
+                .body("overall.mean", equalTo(750.0F))
+                .body("overall.histogram[2].count", equalTo(2))
+                .body("overall.sketch", nullValue());
+
+        given().baseUri(nodeA).header("Content-Type", "application/json")
+                .body("{\"fromId\": " + idOnA + ", \"toId\": " + idOnB + ", \"amount\": 5000}")
+                .when().post("/accounts/transfer")
+                .then().body(equalTo("Transfer failed"));
+    }
+
+    // węzeł docelowy niedostępny: kwota zostaje zarezerwowana, a po jego powrocie przelew jest rozstrzygany.
+    // Węzeł startuje z pustą pamięcią, więc konta docelowego już nie ma i rezerwacja wraca na konto źródłowe
+
+    @Test
+    public void pendingTransferIsResolvedWhenTargetNodeReturns() throws IOException {
+        long idOnA = idOwnedBy(nodeA, 1);
+        long idOnB = idOwnedBy(nodeB, 1);
+        addAccount(nodeA, idOnA, "Alice", 1000);
+        addAccount(nodeA, idOnB, "Bob", 0);
+        appB.close();
+
+        given().baseUri(nodeA).header("Content-Type", "application/json")
+                .body("{\"fromId\": " + idOnA + ", \"toId\": " + idOnB + ", \"amount\": 250}")
+                .when().post("/accounts/transfer")
+                .then().statusCode(200).body(equalTo("Transfer pending"));
+        given().baseUri(nodeA).when().get("/accounts/" + idOnA).then().body("balance", equalTo(750.0F));
+
+        ClusterTransferCoordinator coordinator = appA.getBean(ClusterTransferCoordinator.class);
+        assertEquals(1, coordinator.pendingCount());
+        appB = startNode(portB, nodeB);
+
+        waitUntil(() -> coordinator.pendingCount() == 0, 10_000);
+        given().baseUri(nodeA).when().get("/accounts/" + idOnA).then().body("balance", equalTo(1000.0F));
+
+        // klient dostał PENDING; rozstrzygnięcie przez odzyskiwanie ma własny rekord audytu
+        int portA = appA.getEnvironment().getProperty("local.server.port", Integer.class);
+        appA.close();
+        List<String> transfers = auditLines(auditDir.resolve(String.valueOf(portA))).stream()
+                .map(line -> line.split("\t", -1))
+                .filter(fields -> fields[1].equals("TRANSFER"))
+                .map(fields -> fields[2] + " " + fields[3] + " " + fields[4] + " " + fields[6])
+                .toList();
+        assertThat(transfers).containsExactly(
+                idOnA + " " + idOnB + " 250.0 PENDING",
+                idOnA + " " + idOnB + " 250.0 ACCOUNT_NOT_FOUND");
+    }
+
+    private static List<String> auditLines(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.sorted().toList();
+        }
+        List<String> lines = new ArrayList<>();
+        for (Path file : files) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                reader.lines().forEach(lines::add);
+            }
+        }
+        return lines;
+    }
+
+    private static void waitUntil(BooleanSupplier condition, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within " + timeoutMillis + " ms");
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
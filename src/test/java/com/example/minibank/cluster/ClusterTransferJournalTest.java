@@ -0,0 +1,101 @@
+package com.example.minibank.cluster;
+
+import com.example.minibank.TransferOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClusterTransferJournalTest {
+
+    private static final String NODE = "http://127.0.0.1:8081";
+
+    @TempDir
+    Path dir;
+
+    // po restarcie wracają przelewy bez potwierdzenia i uznania, których źródło jeszcze nie zatwierdziło
+    @Test
+    public void unconfirmedTransfersAndCreditsSurviveRestart() throws Exception {
+        ClusterTransferCoordinator.PendingTransfer reserved = transfer("t1");
+        ClusterTransferCoordinator.PendingTransfer resolved = transfer("t2").resolved(TransferOutcome.SUCCESS, 250);
+        ClusterTransferCoordinator.PendingTransfer acknowledged = transfer("t3");
+        try (ClusterTransferJournal journal = new ClusterTransferJournal(dir, NODE)) {
+            journal.compact(List.of(), Map.of());
+            journal.reserved(reserved);
+            journal.reserved(transfer("t2"));
+            journal.resolved(resolved);
+            journal.reserved(acknowledged);
+            journal.resolved(acknowledged.resolved(TransferOutcome.ACCOUNT_NOT_FOUND, Double.NaN));
+            journal.acknowledged("t3");
+            journal.applied("c1", new ClusterTransferCoordinator.AppliedCredit(ClusterTransferCoordinator.CreditResult.CREDITED, 40));
+            journal.applied("c2", new ClusterTransferCoordinator.AppliedCredit(ClusterTransferCoordinator.CreditResult.NOT_FOUND, Double.NaN));
+            journal.confirmed("c2");
+        }
+        // urwany ostatni rekord po awarii
+        Files.write(dir.resolve(ClusterTransferJournal.fileName(NODE)), new byte[]{'R', 0}, StandardOpenOption.APPEND);
+
+        ClusterTransferJournal.Recovered recovered;
+        try (ClusterTransferJournal journal = new ClusterTransferJournal(dir, NODE)) {
+            recovered = journal.load(0);
+            journal.compact(recovered.pending().values(), recovered.applied());
+        }
+        assertThat(recovered.pending()).containsOnlyKeys("t1", "t2");
+        assertThat(recovered.pending().get("t1").outcome()).isNull();
+        assertThat(recovered.pending().get("t1").reservationId()).isEqualTo(ClusterTransferCoordinator.NO_RESERVATION);
+        assertThat(recovered.pending().get("t2").outcome()).isEqualTo(TransferOutcome.SUCCESS);
+        assertThat(recovered.pending().get("t2").credited()).isEqualTo(250);
+        assertThat(recovered.applied()).containsOnlyKeys("c1");
+        assertThat(recovered.applied().get("c1").credited()).isEqualTo(40);
+
+        // kompaktowanie zachowuje ten sam stan
+        try (ClusterTransferJournal journal = new ClusterTransferJournal(dir, NODE)) {
+            ClusterTransferJournal.Recovered again = journal.load(0);
+            assertThat(again.pending()).isEqualTo(recovered.pending());
+            assertThat(again.applied()).isEqualTo(recovered.applied());
+        }
+    }
+
+    // konto bez waluty nie psuje dziennika - kolejne rekordy nadal są odtwarzane
+    @Test
+    public void transferWithoutCurrencyKeepsLaterRecords() throws Exception {
+        try (ClusterTransferJournal journal = new ClusterTransferJournal(dir, NODE)) {
+            journal.compact(List.of(), Map.of());
+            journal.reserved(new ClusterTransferCoordinator.PendingTransfer("t1", 1, 2, 250, null, 7, 0, null, Double.NaN));
+            journal.reserved(transfer("t2"));
+        }
+
+        try (ClusterTransferJournal journal = new ClusterTransferJournal(dir, NODE)) {
+            ClusterTransferJournal.Recovered recovered = journal.load(0);
+            assertThat(recovered.pending()).containsOnlyKeys("t1", "t2");
+            assertThat(recovered.pending().get("t1").currency()).isNull();
+            assertThat(recovered.pending().get("t2").currency()).isEqualTo("PLN");
+        }
+    }
+
+    // węzły ze wspólnym katalogiem nie widzą nawzajem swoich przelewów
+    @Test
+    public void nodesSharingDirectoryKeepSeparateJournals() throws Exception {
+        try (ClusterTransferJournal journal = new ClusterTransferJournal(dir, NODE)) {
+            journal.compact(List.of(), Map.of());
+            journal.reserved(transfer("t1"));
+        }
+        try (ClusterTransferJournal other = new ClusterTransferJournal(dir, "http://127.0.0.1:8082")) {
+            ClusterTransferJournal.Recovered recovered = other.load(0);
+            assertThat(recovered.pending()).isEmpty();
+            other.compact(recovered.pending().values(), recovered.applied());
+        }
+        try (ClusterTransferJournal journal = new ClusterTransferJournal(dir, NODE)) {
+            assertThat(journal.load(0).pending()).containsOnlyKeys("t1");
+        }
+    }
+
+    private static ClusterTransferCoordinator.PendingTransfer transfer(String id) {
+        return new ClusterTransferCoordinator.PendingTransfer(id, 1, 2, 250, "PLN", 7, 0, null, Double.NaN);
+    }
+}
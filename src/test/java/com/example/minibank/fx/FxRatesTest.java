@@ -0,0 +1,97 @@
+package com.example.minibank.fx;
+
+import com.example.minibank.Account;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.OperationTrace;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class FxRatesTest {
+
+    @Test
+    public void crossRatesAreDerivedFromBaseRates() {
+        FxRateTable table = new FxRateTable("PLN", Map.of("USD", 4.0, "EUR", 4.4));
+
+        assertThat(table.rate("USD", "PLN")).isEqualTo(4.0);
+        assertThat(table.rate("PLN", "USD")).isEqualTo(0.25);
+        assertThat(table.rate("EUR", "USD")).isCloseTo(1.1, within(1e-12));
+        assertThat(table.rate("EUR", "EUR")).isEqualTo(1.0);
+        assertThatThrownBy(() -> table.rate("GBP", "PLN")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void sameCurrencyOrMissingCurrencyIsNotConverted() {
+        FxRates rates = new FxRates();
+
+        assertThat(rates.convert(10, "PLN", "PLN")).isEqualTo(10.0);
+        assertThat(rates.convert(10, null, "USD")).isEqualTo(10.0);
+        assertThat(rates.convert(10, "USD", "PLN")).isEqualTo(40.0);
+    }
+
+    // nowy plik podmienia całą tabelę; błędny plik zostawia poprzednią
+    @Test
+    public void tableIsReplacedFromFileAndKeptOnError(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("rates.properties");
+        Files.writeString(file, "base=PLN\nUSD=4.0\n");
+        FxRates rates = new FxRates(file.toString(), Duration.ofHours(1));
+        try {
+            assertThat(rates.convert(1, "USD", "PLN")).isEqualTo(4.0);
+
+            Files.writeString(file, "base=PLN\nUSD=5.0\nGBP=5.0\n");
+            assertThat(rates.reload()).isTrue();
+            assertThat(rates.convert(1, "USD", "GBP")).isEqualTo(1.0);
+
+            Files.writeString(file, "base=PLN\nUSD=-1\n");
+            assertThat(rates.reload()).isFalse();
+            assertThat(rates.convert(1, "USD", "PLN")).isEqualTo(5.0);
+        } finally {
+            rates.destroy();
+        }
+    }
+
+    @Test
+    public void transfersBetweenCurrenciesAreConverted() {
+        try (ShardedAccountStore store = new ShardedAccountStore(4, AccountMetrics.noop(), new FxRates())) {
+            long usd = 1;
+            long pln = 2;
+            long eur = 3;
+            while (store.shardFor(eur) == store.shardFor(usd)) {
+                eur++;
+            }
+            long gbp = eur + 1;
+            store.add(new Account(usd, "Alice", 100, "USD", "ACTIVE", null, null));
+            store.add(new Account(pln, "Bob", 0, "PLN", "ACTIVE", null, null));
+            store.add(new Account(eur, "Carol", 0, "EUR", "ACTIVE", null, null));
+            store.add(new Account(gbp, "Dave", 0, "GBP", "ACTIVE", null, null));
+
+            OperationTrace trace = new OperationTrace();
+            assertThat(store.transfer(usd, pln, 10, trace).join()).isEqualTo(TransferOutcome.SUCCESS);
+            assertThat(trace.getCreditedAmount()).isEqualTo(40.0);
+            assertThat(store.transfer(usd, eur, 43, new OperationTrace()).join()).isEqualTo(TransferOutcome.SUCCESS);
+            assertThat(store.transfer(usd, gbp, 1, new OperationTrace()).join()).isEqualTo(TransferOutcome.UNSUPPORTED_CURRENCY);
+
+            assertThat(store.get(usd).orElseThrow().getBalance()).isEqualTo(47.0);
+            assertThat(store.get(pln).orElseThrow().getBalance()).isEqualTo(40.0);
+            assertThat(store.get(eur).orElseThrow().getBalance()).isCloseTo(40.0, within(1e-9));
+            assertThat(store.get(gbp).orElseThrow().getBalance()).isZero();
+
+            // konto w walucie bez kursu - sumy nie da się przeliczyć
+            assertThatThrownBy(() -> store.totalBalance("PLN")).isInstanceOf(IllegalArgumentException.class);
+            store.remove(gbp);
+            // 47 USD + 40 PLN + 40 EUR w złotych
+            assertThat(store.totalBalance("PLN")).isCloseTo(47 * 4.0 + 40 + 40 * 4.3, within(1e-9));
+            assertThatThrownBy(() -> store.totalBalance("XYZ")).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
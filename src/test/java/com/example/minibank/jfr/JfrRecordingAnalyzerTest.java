@@ -0,0 +1,68 @@
+package com.example.minibank.jfr;
+
+import com.example.minibank.Account;
+import com.example.minibank.AccountService;
+import com.example.minibank.metrics.AccountMetrics;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JfrRecordingAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    // próg 0 - nagrywamy każdą operację, żeby test był deterministyczny
+
+    @Test
+    public void recordingShowsSlowestOperationsAndHottestAccounts() throws Exception {
+        AccountService accountService = new AccountService(AccountMetrics.noop());
+        accountService.addAccount(new Account(1L, "Alice", 1000, "PLN", "ACTIVE", "2023-03-15T10:00:00", "SAVINGS"));
+        accountService.addAccount(new Account(2L, "Bob", 500, "PLN", "ACTIVE", "2023-04-01T09:30:00", "CHECKING"));
+        accountService.addAccount(new Account(3L, "Charlie", 50, "PLN", "ACTIVE", "2023-04-25T14:20:00", "BUSINESS"));
+
+        Path file = tempDir.resolve("minibank.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("minibank.Transfer").withThreshold(Duration.ZERO);
+            recording.enable("minibank.AccountLookup").withThreshold(Duration.ZERO);
+            recording.enable("minibank.AccountQuery").withThreshold(Duration.ZERO);
+            // czekanie w kolejce shardu zależy od planisty wątków - poza tym testem
+            recording.disable("minibank.ShardQueueWait");
+            recording.start();
+
+            for (int i = 0; i < 10; i++) {
+                accountService.transfer(1L, 2L, 10);
+            }
+            accountService.transfer(3L, 1L, 100);
+            accountService.getAccountById(2L);
+            accountService.getAccountsByOwner("alice");
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        JfrRecordingAnalyzer.Summary summary = JfrRecordingAnalyzer.analyze(file, 5);
+
+        assertThat(summary.eventCounts()).containsEntry("minibank.Transfer", 11L)
+                .containsEntry("minibank.AccountLookup", 1L)
+                .containsEntry("minibank.AccountQuery", 1L);
+        assertThat(summary.slowest()).hasSize(5);
+        assertThat(summary.slowest().get(0).duration()).isGreaterThanOrEqualTo(summary.slowest().get(4).duration());
+        // konto 2: 10 przelewów przychodzących + odczyt
+        assertThat(summary.hottest().get(0).accountId()).isIn(1L, 2L);
+        assertThat(summary.hottest().get(0).events()).isEqualTo(11);
+    }
+
+    @Test
+    public void bundledSettingsAreMergedWithJdkDefaults() throws Exception {
+        assertThat(FlightRecording.settings())
+                .containsEntry("minibank.Transfer#threshold", "1 ms")
+                .containsEntry("minibank.ShardQueueWait#stackTrace", "true")
+                .containsKey("jdk.GarbageCollection#enabled");
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.minibank.leaderboard;
+
+import com.example.minibank.Account;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.OperationTrace;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AccountLeaderboardTest {
+
+    private static final String[] CURRENCIES = {"PLN", "USD", "EUR"};
+    private static final Comparator<Account> BY_BALANCE = Comparator.comparingDouble(Account::getBalance).reversed()
+            .thenComparing(Account::getId);
+
+    private ShardedAccountStore store;
+    private final Random random = new Random(5);
+
+    @BeforeEach
+    public void setUp() {
+        store = new ShardedAccountStore(4, AccountMetrics.noop());
+        for (long id = 1; id <= 1_000; id++) {
+            store.add(randomAccount(id));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void topMatchesSortedScanAfterChanges() {
+        AccountLeaderboard leaderboard = new AccountLeaderboard(store, 50);
+        randomChanges(3_000);
+        assertMatchesScan(leaderboard, 50);
+    }
+
+    @Test
+    public void smallCapacityFallsBackToRebuild() {
+        // przy małej pojemności spadki szybko opróżniają listy - wtedy zapytanie odbudowuje je z shardu
+        AccountLeaderboard leaderboard = new AccountLeaderboard(store, 5);
+        for (int round = 0; round < 10; round++) {
+            randomChanges(300);
+            // najbogatsze konta oddają prawie wszystko
+            for (Account account : leaderboard.top(5, null)) {
+                long poorest = 1 + random.nextInt(1_000);
+                ShardedAccountStore.join(store.transfer(account.getId(), poorest, account.getBalance() - 1,
+                        new OperationTrace()));
+            }
+            assertMatchesScan(leaderboard, 5);
+        }
+    }
+
+    @Test
+    public void rejectsNOutsideCapacity() {
+        AccountLeaderboard leaderboard = new AccountLeaderboard(store, 10);
+        assertThatThrownBy(() -> leaderboard.top(0, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> leaderboard.top(11, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(leaderboard.top(5, "GBP")).isEmpty();
+    }
+
+    private void randomChanges(int count) {
+        for (int i = 0; i < count; i++) {
+            int op = random.nextInt(10);
+            long id = 1 + random.nextInt(1_200);
+            if (op < 7) {
+                long to = 1 + random.nextInt(1_200);
+                ShardedAccountStore.join(store.transfer(id, to, random.nextInt(2_000), new OperationTrace()));
+            } else if (op == 7) {
+                store.remove(id);
+            } else if (op == 8) {
+                Account account = store.get(id).orElse(null);
+                if (account != null) {
+                    account.setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+                    ShardedAccountStore.join(store.upsert(account));
+                }
+            } else {
+                ShardedAccountStore.join(store.upsert(randomAccount(id)));
+            }
+        }
+    }
+
+    private void assertMatchesScan(AccountLeaderboard leaderboard, int n) {
+        assertThat(ids(leaderboard.top(n, null)))
+                .isEqualTo(ids(store.collect(account -> true).stream().sorted(BY_BALANCE).limit(n).toList()));
+        for (String currency : CURRENCIES) {
+            assertThat(ids(leaderboard.top(n, currency))).as(currency)
+                    .isEqualTo(ids(store.collect(account -> currency.equals(account.getCurrency()))
+                            .stream().sorted(BY_BALANCE).limit(n).toList()));
+        }
+    }
+
+    private static List<Long> ids(List<Account> accounts) {
+        return accounts.stream().map(Account::getId).toList();
+    }
+
+    private Account randomAccount(long id) {
+        return new Account(id, "owner" + id, random.nextInt(10_000),
+                CURRENCIES[random.nextInt(CURRENCIES.length)], "ACTIVE", null, "CHECKING");
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.minibank.ledger;
+
+import com.example.minibank.Account;
+import com.example.minibank.AccountService;
+import com.example.minibank.MultiLegRequest;
+import com.example.minibank.MultiLegResult;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.exception.AccountNotFoundException;
+import com.example.minibank.metrics.AccountMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TransactionLedgerTest {
+
+    @Test
+    public void pagesFollowCursorUntilHistoryEnds() {
+        TransactionLedger ledger = new TransactionLedger();
+        for (int i = 0; i < 10; i++) {
+            ledger.recordTransfer(1, 2, i);
+            ledger.recordTransfer(3, 4, i);
+        }
+
+        List<Double> amounts = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            TransactionPage page = ledger.page(2, Long.MIN_VALUE, Long.MAX_VALUE,
+                    cursor == null ? 0 : Long.parseLong(cursor), 4);
+            page.getTransactions().forEach(t -> amounts.add(t.getAmount()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(amounts).containsExactly(0.0, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0);
+    }
+
+    // nogi transakcji wielostronnej w księdze - salda z historii zgadzają się z kontami
+    @Test
+    public void multiLegTransactionIsRecordedLegByLeg() {
+        AccountService service = new AccountService(AccountMetrics.noop());
+        service.addAccount(new Account(1L, "Payer", 1000, "PLN", "ACTIVE", null, "CHECKING"));
+        service.addAccount(new Account(2L, "A", 0, "PLN", "ACTIVE", null, "CHECKING"));
+        service.addAccount(new Account(3L, "B", 0, "EUR", "ACTIVE", null, "CHECKING"));
+
+        MultiLegResult result = service.executeTransaction(new MultiLegRequest("PLN", List.of(
+                new MultiLegRequest.Leg(1L, -300), new MultiLegRequest.Leg(2L, 200), new MultiLegRequest.Leg(3L, 100))));
+
+        assertThat(result.getOutcome()).isEqualTo(TransferOutcome.SUCCESS);
+        List<Transaction> payer = service.getTransactions(1L, null, null, null, 10).getTransactions();
+        assertThat(payer).extracting(Transaction::getType).containsExactly(TransactionType.DEPOSIT, TransactionType.POSTING);
+        for (long id = 1; id <= 3; id++) {
+            assertThat(service.getBalanceAsOf(id, Instant.now().plusSeconds(1)))
+                    .isCloseTo(service.getAccountById(id).orElseThrow().getBalance(), within(1e-9));
+        }
+    }
+
+    @Test
+    public void entriesKeepTypeAndBothSides() {
+        TransactionLedger ledger = new TransactionLedger();
+        ledger.recordDeposit(1, 100);
+        ledger.recordTransfer(1, 2, 40);
+        ledger.recordDeletion(1, 60);
+
+        List<Transaction> history = ledger.page(1, Long.MIN_VALUE, Long.MAX_VALUE, 0, 10).getTransactions();
+        assertThat(history).extracting(Transaction::getType)
+                .containsExactly(TransactionType.DEPOSIT, TransactionType.TRANSFER, TransactionType.DELETION);
+        assertThat(history).extracting(Transaction::getSequence).containsExactly(1L, 2L, 3L);
+        assertThat(history.get(0).getFromId()).isNull();
+        assertThat(history.get(1).getToId()).isEqualTo(2L);
+        assertThat(history.get(2).getToId()).isNull();
+        assertThat(ledger.page(2, Long.MIN_VALUE, Long.MAX_VALUE, 0, 10).getTransactions()).hasSize(1);
+    }
+
+    // przelew między węzłami: źródło zapisuje obciążenie, cel uznanie; każdy wpis tylko w historii konta lokalnego
+    @Test
+    public void crossNodeTransferIsRecordedOnceOnEachSide() {
+        TransactionLedger source = new TransactionLedger();
+        TransactionLedger target = new TransactionLedger();
+        source.recordDeposit(1, 100);
+        target.recordDeposit(2, 0);
+        source.recordTransferDebit(1, 2, 40);
+        target.recordTransferCredit(1, 2, 10);
+
+        assertThat(source.hasHistory(2)).isFalse();
+        assertThat(target.hasHistory(1)).isFalse();
+        Transaction credit = target.page(2, Long.MIN_VALUE, Long.MAX_VALUE, 0, 10).getTransactions().get(1);
+        assertThat(credit.getType()).isEqualTo(TransactionType.TRANSFER);
+        assertThat(credit.getFromId()).isEqualTo(1L);
+        assertThat(source.balanceAsOf(1, Long.MAX_VALUE).getAsDouble()).isEqualTo(60);
+        assertThat(target.balanceAsOf(2, Long.MAX_VALUE).getAsDouble()).isEqualTo(10);
+        assertThat(source.totalBalanceAsOf(Long.MAX_VALUE) + target.totalBalanceAsOf(Long.MAX_VALUE)).isEqualTo(70);
+    }
+
+    // wpis przelewu powstaje w zadaniu shardu, więc nigdy nie ląduje w historii za usunięciem konta
+    @Test
+    public void transferIsNeverRecordedAfterConcurrentDeletion() throws InterruptedException {
+        AccountService service = new AccountService(AccountMetrics.noop());
+        for (long round = 0; round < 200; round++) {
+            long from = 1000 + round * 2;
+            long to = from + 1;
+            service.addAccount(new Account(from, "Payer", 100, "PLN", "ACTIVE", null, "CHECKING"));
+            service.addAccount(new Account(to, "Payee", 0, "PLN", "ACTIVE", null, "CHECKING"));
+            Thread transfers = new Thread(() -> {
+                for (int i = 0; i < 10; i++) {
+                    service.executeTransfer(from, to, 1);
+                }
+            });
+            transfers.start();
+            service.deleteAccount(to);
+            transfers.join();
+
+            List<Transaction> history = service.getTransactions(to, null, null, null, 100).getTransactions();
+            assertThat(history.get(history.size() - 1).getType()).isEqualTo(TransactionType.DELETION);
+        }
+    }
+
+    // wpisy w kilku kawałkach kolumn; zakres czasu wyznaczany po znacznikach wpisów
+    @Test
+    public void timeRangeSelectsEntriesAcrossChunks() throws InterruptedException {
+        TransactionLedger ledger = new TransactionLedger();
+        for (int i = 0; i < 70_000; i++) {
+            ledger.recordTransfer(1, 2, 1);
+        }
+        Thread.sleep(5);
+        long from = System.currentTimeMillis();
+        ledger.recordTransfer(1, 2, 500);
+        Thread.sleep(5);
+        long to = System.currentTimeMillis() - 1;
+        ledger.recordTransfer(1, 2, 7);
+
+        TransactionPage page = ledger.page(1, from, to, 0, 10);
+        assertThat(page.getTransactions()).extracting(Transaction::getAmount).containsExactly(500.0);
+        assertThat(page.getTransactions().get(0).getSequence()).isEqualTo(70_001L);
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(ledger.size()).isEqualTo(70_002);
+    }
+
+    // saldo z punktu kontrolnego + odtworzenie musi dać to samo, co zsumowanie całej historii
+    @Test
+    public void asOfBalancesMatchFullReplay() throws InterruptedException {
+        TransactionLedger ledger = new TransactionLedger();
+        Random random = new Random(42);
+        int accounts = 20;
+        for (long id = 0; id < accounts; id++) {
+            ledger.recordDeposit(id, 1000);
+        }
+        for (int i = 0; i < 20_000; i++) {
+            if (i % 2_000 == 0) {
+                Thread.sleep(2);
+            }
+            ledger.recordTransfer(random.nextInt(accounts), random.nextInt(accounts), random.nextInt(100));
+        }
+        ledger.recordDeletion(3, ledger.balanceAsOf(3, Long.MAX_VALUE).getAsDouble());
+
+        List<Transaction> all = new ArrayList<>();
+        for (long id = 0; id < accounts; id++) {
+            all.addAll(ledger.page(id, Long.MIN_VALUE, Long.MAX_VALUE, 0, 1000_000).getTransactions());
+        }
+        all.sort((a, b) -> Long.compare(a.getSequence(), b.getSequence()));
+
+        Map<Long, Double> balances = new HashMap<>();
+        double total = 0;
+        for (int i = 0; i < all.size(); i++) {
+            Transaction t = all.get(i);
+            if (i > 0 && t.getSequence() == all.get(i - 1).getSequence()) {
+                continue;
+            }
+            if (t.getFromId() != null) {
+                balances.merge(t.getFromId(), -t.getAmount(), Double::sum);
+            }
+            if (t.getToId() != null) {
+                balances.merge(t.getToId(), t.getAmount(), Double::sum);
+            }
+            total += t.getType() == TransactionType.DEPOSIT ? t.getAmount()
+                    : t.getType() == TransactionType.DELETION ? -t.getAmount() : 0;
+            boolean lastInMillisecond = i == all.size() - 1 || !all.get(i + 1).getTimestamp().equals(t.getTimestamp());
+            if (lastInMillisecond) {
+                long asOf = Instant.parse(t.getTimestamp()).toEpochMilli();
+                for (Map.Entry<Long, Double> expected : balances.entrySet()) {
+                    assertThat(ledger.balanceAsOf(expected.getKey(), asOf).getAsDouble()).isEqualTo(expected.getValue());
+                }
+                assertThat(ledger.totalBalanceAsOf(asOf)).isEqualTo(total);
+            }
+        }
+        assertThat(ledger.balanceAsOf(3, Long.MAX_VALUE).getAsDouble()).isZero();
+        assertThat(ledger.totalBalanceAsOf(Long.MAX_VALUE)).isEqualTo(total);
+        long first = Instant.parse(all.get(0).getTimestamp()).toEpochMilli();
+        assertThat(ledger.balanceAsOf(0, first - 1)).isEmpty();
+        assertThat(ledger.totalBalanceAsOf(first - 1)).isZero();
+    }
+
+    @Test
+    public void accountServiceRecordsHistoryThatOutlivesTheAccount() {
+        AccountService service = new AccountService(AccountMetrics.noop());
+        service.addAccount(new Account(1L, "Alice", 1000, "PLN", "ACTIVE", "2023-03-15T10:00:00", "SAVINGS"));
+        service.addAccount(new Account(2L, "Bob", 500, "PLN", "ACTIVE", "2023-04-01T09:30:00", "CHECKING"));
+        service.transfer(1L, 2L, 200);
+        service.transfer(1L, 2L, 5000);
+        service.deleteAccount(1L);
+
+        TransactionPage page = service.getTransactions(1L, null, null, null, 50);
+        assertThat(page.getTransactions()).extracting(Transaction::getType)
+                .containsExactly(TransactionType.DEPOSIT, TransactionType.TRANSFER, TransactionType.DELETION);
+        assertThat(page.getTransactions().get(2).getAmount()).isEqualTo(800.0);
+        assertThat(service.getTransactions(2L, Instant.EPOCH, null, null, 50).getTransactions()).hasSize(2);
+
+        assertThrows(AccountNotFoundException.class, () -> service.getTransactions(99L, null, null, null, 50));
+        assertThrows(IllegalArgumentException.class, () -> service.getTransactions(2L, null, null, "abc", 50));
+        assertThrows(IllegalArgumentException.class, () -> service.getTransactions(2L, null, null, null, 0));
+
+        Instant now = Instant.now();
+        assertThat(service.getBalanceAsOf(2L, now)).isEqualTo(700.0);
+        assertThat(service.getBalanceAsOf(1L, now)).isZero();
+        assertThat(service.getTotalBalanceAsOf(now)).isEqualTo(700.0);
+        assertThat(service.getBalanceAsOf(2L, null)).isEqualTo(700.0);
+        assertThrows(AccountNotFoundException.class, () -> service.getBalanceAsOf(2L, Instant.EPOCH));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.minibank.perf;
+
+import com.example.minibank.Account;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.function.LongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// sterta na konto: dawny układ (cztery pola String, każde z osobną instancją jak po deserializacji JSON)
+// wobec kodów słownikowych i createdAt jako epoch millis
+// uruchamianie: mvn test -Dtest=AccountFootprintBenchmarkTest -Dperf=true -Dperf.accounts=10000000 -DargLine=-Xmx6g
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+public class AccountFootprintBenchmarkTest {
+
+    private static final int ACCOUNTS = Integer.getInteger("perf.accounts", 1_000_000);
+    private static final String[] CURRENCIES = {"PLN", "USD", "EUR"};
+    private static final String[] STATUSES = {"ACTIVE", "BLOCKED"};
+    private static final String[] TYPES = {"CHECKING", "SAVINGS", "PREMIUM", "BUSINESS"};
+
+    // układ pól Account sprzed kodowania słownikowego
+    private static final class StringAccount {
+        Long id;
+        String owner;
+        double balance;
+        String currency;
+        String status;
+        String createdAt;
+        String accountType;
+    }
+
+    @Test
+    public void compactAccountTakesLessHeap() {
+        double before = bytesPerAccount(id -> {
+            StringAccount account = new StringAccount();
+            account.id = id;
+            account.owner = "owner" + id;
+            account.balance = id;
+            account.currency = new String(CURRENCIES[(int) (id % CURRENCIES.length)]);
+            account.status = new String(STATUSES[(int) (id % STATUSES.length)]);
+            account.createdAt = createdAt(id);
+            account.accountType = new String(TYPES[(int) (id % TYPES.length)]);
+            return account;
+        });
+        double after = bytesPerAccount(id -> new Account(id, "owner" + id, id,
+                new String(CURRENCIES[(int) (id % CURRENCIES.length)]),
+                new String(STATUSES[(int) (id % STATUSES.length)]),
+                createdAt(id),
+                new String(TYPES[(int) (id % TYPES.length)])));
+        System.out.printf("%,d accounts: %.0f B/account with String fields, %.0f B/account compact (-%.0f%%)%n",
+                ACCOUNTS, before, after, 100 * (1 - after / before));
+
+        assertThat(after).isLessThan(before);
+    }
+
+    private static String createdAt(long id) {
+        return String.format("2023-%02d-%02dT%02d:%02d:00", 1 + id % 12, 1 + id % 28, id % 24, id % 60);
+    }
+
+    private static double bytesPerAccount(LongFunction<Object> factory) {
+        long baseline = usedHeap();
+        Object[] accounts = new Object[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = factory.apply(i);
+        }
+        long used = usedHeap() - baseline;
+        // tablica referencji nie jest częścią konta
+        long array = 16L + 4L * ACCOUNTS;
+        assertThat(accounts).hasSize(ACCOUNTS);
+        return (double) (used - array) / ACCOUNTS;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.minibank.perf;
+
+import com.example.minibank.Account;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.search.AccountSearchCriteria;
+import com.example.minibank.search.AccountSearchIndex;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// czas zapytania /accounts/search przy dużej księdze: zapytanie selektywne (przecięcie rzadkich bitmap)
+// i szerokie (większość kont pasuje, strona 50 najmniejszych id)
+// uruchamianie: mvn test -Dtest=AccountSearchBenchmarkTest -Dperf=true -Dperf.accounts=10000000 -DargLine=-Xmx4500m
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+public class AccountSearchBenchmarkTest {
+
+    private static final int ACCOUNTS = Integer.getInteger("perf.accounts", 1_000_000);
+    private static final String[] CURRENCIES = {"PLN", "USD", "EUR", "CHF", "GBP", "JPY", "SEK", "NOK"};
+    private static final String[] TYPES = {"CHECKING", "SAVINGS", "PREMIUM", "BUSINESS"};
+
+    @Test
+    public void selectiveQueriesTakeMicroseconds() {
+        try (ShardedAccountStore store = new ShardedAccountStore(Runtime.getRuntime().availableProcessors(), AccountMetrics.noop())) {
+            AccountSearchIndex index = new AccountSearchIndex(store);
+            for (long id = 0; id < ACCOUNTS; id++) {
+                // co 1000. konto zablokowane
+                store.add(new Account(id, "owner" + id, id % 10_000, CURRENCIES[(int) (id % CURRENCIES.length)],
+                        id % 1_000 == 0 ? "BLOCKED" : "ACTIVE", "2024-01-01T00:00:00", TYPES[(int) (id / 7 % TYPES.length)]));
+            }
+
+            AccountSearchCriteria selective = new AccountSearchCriteria();
+            selective.setStatus("BLOCKED");
+            selective.setCurrency("PLN");
+            selective.setAccountType("SAVINGS");
+            selective.setMinBalance(1000.0);
+            AccountSearchCriteria broad = new AccountSearchCriteria();
+            broad.setStatus("ACTIVE");
+            broad.setAccountType("SAVINGS");
+
+            double selectiveMicros = measure(index, selective);
+            double broadMicros = measure(index, broad);
+            System.out.printf("%,d accounts: selective %.1f us/query (%d matches), broad %.1f us/query (%d matches)%n",
+                    ACCOUNTS, selectiveMicros, index.search(selective, Long.MIN_VALUE, 50).getTotal(),
+                    broadMicros, index.search(broad, Long.MIN_VALUE, 50).getTotal());
+
+            assertThat(selectiveMicros).isLessThan(broadMicros);
+        }
+    }
+
+    private static double measure(AccountSearchIndex index, AccountSearchCriteria criteria) {
+        for (int i = 0; i < 2_000; i++) {
+            index.search(criteria, Long.MIN_VALUE, 50);
+        }
+        int runs = 1_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            index.search(criteria, Long.MIN_VALUE, 50);
+        }
+        return (System.nanoTime() - start) / 1_000.0 / runs;
+    }
+}
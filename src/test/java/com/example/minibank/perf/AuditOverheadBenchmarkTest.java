@@ -0,0 +1,102 @@
+package com.example.minibank.perf;
+
+import com.example.minibank.Account;
+import com.example.minibank.AccountService;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.audit.AuditLog;
+import com.example.minibank.audit.AuditOverflowPolicy;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.ShardedAccountStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// koszt audytu na ścieżce przelewu: sam zapis rekordu do bufora (limit budgetNanos) oraz ten sam przelew
+// bez dziennika i z dziennikiem. Wątek zapisujący pracuje w tle (pliki gzip w katalogu tymczasowym) - przy jednym
+// rdzeniu różnica czasu przelewu zawiera też jego formatowanie i kompresję, przy kilku rdzeniach już nie
+// uruchamianie: mvn test -Dtest=AuditOverheadBenchmarkTest -Dperf=true -Dperf.audit.overflow=SPILL
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+public class AuditOverheadBenchmarkTest {
+
+    private static final int ACCOUNTS = 1024;
+    private static final int ITERATIONS = 2_000_000;
+    private static final long BUDGET_NANOS = Long.getLong("perf.audit.budgetNanos", 300);
+    private static final AuditOverflowPolicy OVERFLOW =
+            AuditOverflowPolicy.valueOf(System.getProperty("perf.audit.overflow", "SPILL"));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void auditStaysWithinBudgetOnTransferPath() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuditLog audit = new AuditLog(new AccountMetrics(registry), dir, 65_536, OVERFLOW, 64L << 20, 0,
+                Duration.ofSeconds(1));
+        try (ShardedAccountStore plainStore = new ShardedAccountStore(Runtime.getRuntime().availableProcessors(), AccountMetrics.noop());
+             ShardedAccountStore auditedStore = new ShardedAccountStore(Runtime.getRuntime().availableProcessors(), AccountMetrics.noop())) {
+            AccountService plain = newService(new AccountService(AccountMetrics.noop(), plainStore));
+            AccountService audited = newService(new AccountService(AccountMetrics.noop(), auditedStore, audit));
+
+            // rozgrzewka JIT dla obu wariantów
+            measure(plain);
+            measure(audited);
+            measureAppend(audit);
+
+            double appendNanos = measureAppend(audit);
+            double plainNanos = measure(plain);
+            double auditedNanos = measure(audited);
+            double overhead = auditedNanos - plainNanos;
+            System.out.printf("audit record: %.1f ns (budget %d ns); transfer: without audit %.1f ns/op, "
+                            + "with audit %.1f ns/op, difference %.1f ns/op (%s, %d cpus)%n",
+                    appendNanos, BUDGET_NANOS, plainNanos, auditedNanos, overhead, OVERFLOW,
+                    Runtime.getRuntime().availableProcessors());
+            System.out.printf("written %,.0f, spilled %,.0f, blocked %,.0f, dropped %,.0f, files %d%n",
+                    registry.get("minibank.audit.records").functionCounter().count(),
+                    registry.get("minibank.audit.spilled").functionCounter().count(),
+                    registry.get("minibank.audit.blocked").functionCounter().count(),
+                    registry.get("minibank.audit.dropped").functionCounter().count(),
+                    audit.files());
+
+            assertThat(appendNanos).isLessThan(BUDGET_NANOS);
+        } finally {
+            audit.destroy();
+        }
+    }
+
+    private static AccountService newService(AccountService service) {
+        for (long id = 0; id < ACCOUNTS; id++) {
+            service.addAccount(new Account(id, "owner" + id, 1_000_000, "PLN", "ACTIVE", "2024-01-01T00:00:00", "CHECKING"));
+        }
+        return service;
+    }
+
+    private static double measure(AccountService service) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long from = i & (ACCOUNTS - 1);
+            service.transfer(from, (from + 1) & (ACCOUNTS - 1), 1.0);
+        }
+        return (System.nanoTime() - start) / (double) ITERATIONS;
+    }
+
+    // sam rekord, w porcjach mniejszych niż bufor z przerwą na opróżnienie - bez polityki pełnego bufora
+    private static double measureAppend(AuditLog audit) throws InterruptedException {
+        int burst = 32_768;
+        long total = 0;
+        for (int round = 0; round < 20; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < burst; i++) {
+                audit.transfer(i, i + 1, 1.0, 1.0, TransferOutcome.SUCCESS);
+            }
+            total += System.nanoTime() - start;
+            Thread.sleep(100);
+        }
+        return total / (20.0 * burst);
+    }
+}
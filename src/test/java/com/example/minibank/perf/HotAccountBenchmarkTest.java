@@ -0,0 +1,77 @@
+package com.example.minibank.perf;
+
+import com.example.minibank.Account;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.fx.FxRates;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.HotAccountPolicy;
+import com.example.minibank.shard.OperationTrace;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// uznania jednego konta (merchant) z wielu wątków naraz: zwykłe saldo (każde uznanie w kolejce shardu
+// konta) i saldo w komórkach; przy komórkach przepustowość ma rosnąć z liczbą rdzeni
+// uruchamianie: mvn test -Dtest=HotAccountBenchmarkTest -Dperf=true -Dperf.credits=2000000
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+public class HotAccountBenchmarkTest {
+
+    private static final int CREDITS = Integer.getInteger("perf.credits", 1_000_000);
+    private static final long MERCHANT = 0;
+
+    @Test
+    public void stripedCreditsScaleWithCores() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        double queued = measure(HotAccountPolicy.disabled(), cores);
+        double striped = measure(new HotAccountPolicy(100, HotAccountPolicy.defaultStripes()), cores);
+        System.out.printf("credits to one account, %d threads: shard queue %,.0f/s, striped %,.0f/s%n", cores, queued, striped);
+        if (cores > 1) {
+            assertThat(striped).isGreaterThan(queued);
+        }
+    }
+
+    private static double measure(HotAccountPolicy policy, int threads) throws Exception {
+        try (ShardedAccountStore store = new ShardedAccountStore(Math.max(2, threads), AccountMetrics.noop(), new FxRates(), policy)) {
+            store.add(new Account(MERCHANT, "Merchant", 0, "PLN", "ACTIVE", null, "CHECKING"));
+            // rozgrzewka, a przy komórkach - wykrycie gorącego konta
+            credit(store, threads, CREDITS / 10);
+            Thread.sleep(1_100);
+            credit(store, threads, 1_000);
+            double before = store.get(MERCHANT).orElseThrow().getBalance();
+            long start = System.nanoTime();
+            credit(store, threads, CREDITS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            assertThat(store.get(MERCHANT).orElseThrow().getBalance()).isEqualTo(before + CREDITS);
+            return CREDITS / seconds;
+        }
+    }
+
+    // faza uznania przelewu (jak przy przelewie z innego shardu albo węzła), równo rozdzielona na wątki
+    private static void credit(ShardedAccountStore store, int threads, int credits) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                List<CompletableFuture<TransferOutcome>> pending = new ArrayList<>();
+                for (int i = 0; i < credits / threads; i++) {
+                    pending.add(store.credit(MERCHANT, 1, "PLN", new OperationTrace()));
+                    if (pending.size() == 1_000) {
+                        pending.forEach(CompletableFuture::join);
+                        pending.clear();
+                    }
+                }
+                pending.forEach(CompletableFuture::join);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+}
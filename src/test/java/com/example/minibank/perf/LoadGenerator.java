@@ -0,0 +1,234 @@
+package com.example.minibank.perf;
+
+import com.example.minibank.MiniBankApplication;
+import com.example.minibank.perf.LoadProfile.Operation;
+import com.example.minibank.perf.SeedData.SeedAccount;
+import com.example.minibank.perf.SeedData.SeedTransfer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// generator obciążenia w modelu otwartym: żądania startują według harmonogramu (stałe tempo),
+// niezależnie od tego, czy poprzednie już wróciły - dzięki temu histogramy nie ukrywają kolejkowania
+public class LoadGenerator {
+
+    private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final LoadProfile profile;
+    private final SeedData seed;
+    private final HttpClient client;
+
+    public LoadGenerator(LoadProfile profile, SeedData seed) {
+        this.profile = profile;
+        this.seed = seed;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadProfile profile = LoadProfile.fromSystemProperties();
+        SeedData seed = SeedData.fromPostmanFiles(Path.of(System.getProperty("perf.seedDir", "Postman-tests")));
+        List<URI> targets = targetsFromSystemProperties();
+        if (!targets.isEmpty()) {
+            // działający klaster (np. scripts/cluster-local.sh) - żądania rozkładane po wszystkich węzłach
+            LoadGenerator generator = new LoadGenerator(profile, seed);
+            generator.seedAccounts(targets.get(0));
+            LoadReport report = generator.run(targets);
+            report.print(System.out);
+            report.writeDistributions(Path.of("target", "perf"));
+            return;
+        }
+        try (ConfigurableApplicationContext app = startApplication()) {
+            URI base = baseUri(app);
+            LoadGenerator generator = new LoadGenerator(profile, seed);
+            generator.seedAccounts(base);
+            LoadReport report = generator.run(base);
+            report.print(System.out);
+            report.writeDistributions(Path.of("target", "perf"));
+        }
+    }
+
+    // aplikacja na losowym porcie, nasłuchuje tylko na localhost
+    public static ConfigurableApplicationContext startApplication(String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of("--server.port=0", "--server.address=127.0.0.1"));
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(MiniBankApplication.class).run(args.toArray(String[]::new));
+    }
+
+    // -Dperf.targets=http://127.0.0.1:8081,http://127.0.0.1:8082
+    public static List<URI> targetsFromSystemProperties() {
+        List<URI> targets = new ArrayList<>();
+        for (String target : System.getProperty("perf.targets", "").split(",")) {
+            if (!target.isBlank()) {
+                targets.add(URI.create(target.trim()));
+            }
+        }
+        return targets;
+    }
+
+    public static URI baseUri(ConfigurableApplicationContext app) {
+        return URI.create("http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port"));
+    }
+
+    // JDK 21+: wątki wirtualne; na starszym JDK zwykła pula wątków
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "load-request");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public void seedAccounts(URI base) throws Exception {
+        ExecutorService executor = newRequestExecutor();
+        try {
+            List<Future<HttpResponse<String>>> pending = new ArrayList<>();
+            for (int copy = 0; copy < profile.getCopies(); copy++) {
+                for (SeedAccount account : seed.getAccounts()) {
+                    String body = String.format("{\"id\":%d,\"owner\":\"%s\",\"balance\":%s}",
+                            seed.idFor(copy, account.id()), account.owner(), account.balance());
+                    pending.add(executor.submit(() -> client.send(post(base, "/accounts", body),
+                            HttpResponse.BodyHandlers.ofString())));
+                }
+            }
+            for (Future<HttpResponse<String>> f : pending) {
+                HttpResponse<String> response = f.get();
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Seeding failed: " + response.statusCode() + " " + response.body());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public LoadReport run(URI base) throws InterruptedException {
+        return run(List.of(base));
+    }
+
+    // kolejne żądania trafiają na kolejne węzły (round-robin)
+    public LoadReport run(List<URI> bases) throws InterruptedException {
+        Map<Operation, Recorder> corrected = new EnumMap<>(Operation.class);
+        Map<Operation, Recorder> service = new EnumMap<>(Operation.class);
+        Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) {
+            corrected.put(op, new Recorder(MAX_TRACKABLE_NANOS, 3));
+            service.put(op, new Recorder(MAX_TRACKABLE_NANOS, 3));
+            errors.put(op, new AtomicLong());
+        }
+
+        long intervalNanos = 1_000_000_000L / profile.getRatePerSecond();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(profile.getWarmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(profile.getDurationSeconds());
+
+        ExecutorService executor = newRequestExecutor();
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+            Operation op = profile.pick(ThreadLocalRandom.current().nextDouble());
+            HttpRequest request = requestFor(bases.get((int) (i % bases.size())), op);
+            boolean measured = intended >= measureFrom;
+            executor.execute(() -> {
+                long sent = System.nanoTime();
+                boolean ok;
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    ok = response.statusCode() / 100 == 2;
+                } catch (Exception e) {
+                    ok = false;
+                }
+                long done = System.nanoTime();
+                if (measured) {
+                    corrected.get(op).recordValue(Math.min(done - intended, MAX_TRACKABLE_NANOS));
+                    service.get(op).recordValue(Math.min(done - sent, MAX_TRACKABLE_NANOS));
+                    if (!ok) {
+                        errors.get(op).incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        Map<Operation, Histogram> correctedHistograms = new EnumMap<>(Operation.class);
+        Map<Operation, Histogram> serviceHistograms = new EnumMap<>(Operation.class);
+        Map<Operation, Long> errorCounts = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) {
+            correctedHistograms.put(op, corrected.get(op).getIntervalHistogram());
+            serviceHistograms.put(op, service.get(op).getIntervalHistogram());
+            errorCounts.put(op, errors.get(op).get());
+        }
+        return new LoadReport(profile, correctedHistograms, serviceHistograms, errorCounts, end - measureFrom);
+    }
+
+    private HttpRequest requestFor(URI base, Operation op) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int copy = random.nextInt(profile.getCopies());
+        switch (op) {
+            case TRANSFER -> {
+                SeedTransfer t = seed.getTransfers().get(random.nextInt(seed.getTransfers().size()));
+                String body = String.format("{\"fromId\":%d,\"toId\":%d,\"amount\":%s}",
+                        seed.idFor(copy, t.fromId()), seed.idFor(copy, t.toId()), t.amount());
+                return post(base, "/accounts/transfer", body);
+            }
+            case GET_ACCOUNT -> {
+                SeedAccount a = seed.getAccounts().get(random.nextInt(seed.getAccounts().size()));
+                return get(base, "/accounts/" + seed.idFor(copy, a.id()));
+            }
+            case GET_BY_OWNER -> {
+                SeedAccount a = seed.getAccounts().get(random.nextInt(seed.getAccounts().size()));
+                return get(base, "/accounts/owner/" + a.owner().replace(" ", "%20"));
+            }
+            case TOTAL_BALANCE -> {
+                return get(base, "/accounts/totalBalance");
+            }
+            default -> {
+                return get(base, "/accounts");
+            }
+        }
+    }
+
+    private static HttpRequest get(URI base, String path) {
+        return HttpRequest.newBuilder(base.resolve(path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private static HttpRequest post(URI base, String path, String json) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
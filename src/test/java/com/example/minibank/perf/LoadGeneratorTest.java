@@ -0,0 +1,46 @@
+package com.example.minibank.perf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// uruchamianie: mvn test -Dtest=LoadGeneratorTest -Dperf=true -Dperf.rate=2000 -Dperf.duration=30
+// na działającym klastrze: dodatkowo -Dperf.targets=http://127.0.0.1:8081,http://127.0.0.1:8082
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+public class LoadGeneratorTest {
+
+    @Test
+    public void replayPostmanDataAtTargetRate() throws Exception {
+        LoadProfile profile = LoadProfile.fromSystemProperties();
+        SeedData seed = SeedData.fromPostmanFiles(Path.of("Postman-tests"));
+        List<URI> targets = LoadGenerator.targetsFromSystemProperties();
+        if (!targets.isEmpty()) {
+            LoadGenerator generator = new LoadGenerator(profile, seed);
+            generator.seedAccounts(targets.get(0));
+            LoadReport report = generator.run(targets);
+            report.print(System.out);
+            report.writeDistributions(Path.of("target", "perf"));
+            assertThat(report.getTotalErrors()).isZero();
+            return;
+        }
+
+        try (ConfigurableApplicationContext app = LoadGenerator.startApplication()) {
+            URI base = LoadGenerator.baseUri(app);
+            LoadGenerator generator = new LoadGenerator(profile, seed);
+            generator.seedAccounts(base);
+
+            LoadReport report = generator.run(base);
+            report.print(System.out);
+            report.writeDistributions(Path.of("target", "perf"));
+
+            assertThat(report.getTotalCount()).isGreaterThan(0);
+            assertThat(report.getTotalErrors()).isZero();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.minibank.perf;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// konfiguracja przebiegu obciążeniowego, czytana z właściwości systemowych (-Dperf.rate=... itd.)
+public class LoadProfile {
+
+    public enum Operation {
+        TRANSFER,
+        GET_ACCOUNT,
+        GET_BY_OWNER,
+        TOTAL_BALANCE,
+        GET_ALL
+    }
+
+    private final int ratePerSecond;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int copies;
+    private final Map<Operation, Integer> mix;
+
+    public LoadProfile(int ratePerSecond, int durationSeconds, int warmupSeconds, int copies, Map<Operation, Integer> mix) {
+        if (ratePerSecond <= 0 || durationSeconds <= 0 || warmupSeconds < 0 || copies <= 0) {
+            throw new IllegalArgumentException("Invalid load profile");
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("Operation mix must have at least one positive weight");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.durationSeconds = durationSeconds;
+        this.warmupSeconds = warmupSeconds;
+        this.copies = copies;
+        this.mix = new EnumMap<>(mix);
+    }
+
+    // np. -Dperf.rate=2000 -Dperf.duration=30 -Dperf.mix=TRANSFER:50,GET_ACCOUNT:40,GET_BY_OWNER:5,TOTAL_BALANCE:5
+    public static LoadProfile fromSystemProperties() {
+        return new LoadProfile(
+                Integer.getInteger("perf.rate", 500),
+                Integer.getInteger("perf.duration", 10),
+                Integer.getInteger("perf.warmup", 2),
+                Integer.getInteger("perf.copies", 100),
+                parseMix(System.getProperty("perf.mix", "TRANSFER:50,GET_ACCOUNT:40,GET_BY_OWNER:5,TOTAL_BALANCE:5")));
+    }
+
+    static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + part);
+            }
+            mix.put(Operation.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+        }
+        return mix;
+    }
+
+    // losuje operację zgodnie z wagami; r z przedziału [0, 1)
+    public Operation pick(double r) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        double point = r * total;
+        int acc = 0;
+        Operation last = null;
+        for (Map.Entry<Operation, Integer> e : mix.entrySet()) {
+            if (e.getValue() <= 0) {
+                continue;
+            }
+            acc += e.getValue();
+            last = e.getKey();
+            if (point < acc) {
+                return last;
+            }
+        }
+        return last;
+    }
+
+    public int getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getCopies() {
+        return copies;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    @Override
+    public String toString() {
+        return "rate=" + ratePerSecond + "/s, duration=" + durationSeconds + "s, warmup=" + warmupSeconds
+                + "s, copies=" + copies + ", mix=" + mix;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.minibank.perf;
+
+import com.example.minibank.perf.LoadProfile.Operation;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+// wynik przebiegu: histogramy skorygowane o coordinated omission (od zaplanowanego startu)
+// oraz nieskorygowane (od faktycznego wysłania żądania)
+public class LoadReport {
+
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9, 99.99};
+
+    private final LoadProfile profile;
+    private final Map<Operation, Histogram> responseTimes;
+    private final Map<Operation, Histogram> serviceTimes;
+    private final Map<Operation, Long> errors;
+    private final long measuredNanos;
+
+    public LoadReport(LoadProfile profile, Map<Operation, Histogram> responseTimes, Map<Operation, Histogram> serviceTimes,
+                      Map<Operation, Long> errors, long measuredNanos) {
+        this.profile = profile;
+        this.responseTimes = new EnumMap<>(responseTimes);
+        this.serviceTimes = new EnumMap<>(serviceTimes);
+        this.errors = new EnumMap<>(errors);
+        this.measuredNanos = measuredNanos;
+    }
+
+    public long getTotalCount() {
+        return responseTimes.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    public long getTotalErrors() {
+        return errors.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public double getAchievedRate() {
+        return measuredNanos == 0 ? 0 : getTotalCount() * 1_000_000_000.0 / measuredNanos;
+    }
+
+    public Histogram getResponseTimes(Operation op) {
+        return responseTimes.get(op);
+    }
+
+    public void print(PrintStream out) {
+        out.println("=== MiniBank load report ===");
+        out.println("profile: " + profile);
+        out.printf("achieved: %.1f req/s, requests: %d, errors: %d%n", getAchievedRate(), getTotalCount(), getTotalErrors());
+        out.printf("%-14s %-10s %9s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "latency", "count", "p50", "p90", "p99", "p99.9", "p99.99", "max");
+        for (Operation op : responseTimes.keySet()) {
+            printRow(out, op, "corrected", responseTimes.get(op));
+            printRow(out, op, "service", serviceTimes.get(op));
+        }
+        out.println("(values in ms; 'corrected' is measured from the scheduled request start)");
+    }
+
+    private void printRow(PrintStream out, Operation op, String kind, Histogram h) {
+        if (h == null || h.getTotalCount() == 0) {
+            return;
+        }
+        StringBuilder row = new StringBuilder(String.format("%-14s %-10s %9d", op, kind, h.getTotalCount()));
+        for (double p : PERCENTILES) {
+            row.append(String.format(" %9.3f", h.getValueAtPercentile(p) / 1_000_000.0));
+        }
+        row.append(String.format(" %9.3f", h.getMaxValue() / 1_000_000.0));
+        out.println(row);
+    }
+
+    // pełne rozkłady percentyli w formacie HdrHistogram (.hgrm), do wklejenia w HistogramPlotter
+    public void writeDistributions(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Map.Entry<Operation, Histogram> e : responseTimes.entrySet()) {
+            if (e.getValue().getTotalCount() == 0) {
+                continue;
+            }
+            Path file = dir.resolve(e.getKey().name().toLowerCase() + "-corrected.hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                e.getValue().outputPercentileDistribution(out, 1_000_000.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.minibank.perf;
+
+import com.example.minibank.Account;
+import com.example.minibank.AccountService;
+import com.example.minibank.metrics.AccountMetrics;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// koszt instrumentacji na ścieżce przelewu: ten sam przelew z metrykami no-op i z rejestrem Prometheusa
+// uruchamianie: mvn test -Dtest=MetricsOverheadBenchmarkTest -Dperf=true
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+public class MetricsOverheadBenchmarkTest {
+
+    private static final int ACCOUNTS = 1024;
+    private static final int ITERATIONS = 2_000_000;
+    private static final long BUDGET_NANOS = Long.getLong("perf.metrics.budgetNanos", 500);
+
+    @Test
+    public void transferInstrumentationStaysWithinBudget() {
+        AccountService plain = newService(AccountMetrics.noop());
+        AccountService instrumented = newService(new AccountMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)));
+
+        // rozgrzewka JIT dla obu wariantów
+        measure(plain);
+        measure(instrumented);
+
+        double plainNanos = measure(plain);
+        double instrumentedNanos = measure(instrumented);
+        double overhead = instrumentedNanos - plainNanos;
+        System.out.printf("transfer: no-op metrics %.1f ns/op, prometheus %.1f ns/op, overhead %.1f ns/op (budget %d ns)%n",
+                plainNanos, instrumentedNanos, overhead, BUDGET_NANOS);
+
+        assertThat(overhead).isLessThan(BUDGET_NANOS);
+    }
+
+    private static AccountService newService(AccountMetrics metrics) {
+        AccountService service = new AccountService(metrics);
+        for (long id = 0; id < ACCOUNTS; id++) {
+            service.addAccount(new Account(id, "owner" + id, 1_000_000, "PLN", "ACTIVE", "2024-01-01T00:00:00", "CHECKING"));
+        }
+        return service;
+    }
+
+    private static double measure(AccountService service) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long from = i & (ACCOUNTS - 1);
+            service.transfer(from, (from + 1) & (ACCOUNTS - 1), 1.0);
+        }
+        return (System.nanoTime() - start) / (double) ITERATIONS;
+    }
+}
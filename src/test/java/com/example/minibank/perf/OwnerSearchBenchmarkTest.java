@@ -0,0 +1,56 @@
+package com.example.minibank.perf;
+
+import com.example.minibank.Account;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.search.OwnerPrefixIndex;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// czas podpowiedzi /accounts/owner/search dla księgi 10 razy mniejszej i pełnej - ma być podobny
+// uruchamianie: mvn test -Dtest=OwnerSearchBenchmarkTest -Dperf=true -Dperf.accounts=2000000 -DargLine=-Xmx4500m
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+public class OwnerSearchBenchmarkTest {
+
+    private static final int ACCOUNTS = Integer.getInteger("perf.accounts", 1_000_000);
+    private static final String[] PREFIXES = {"a", "kow", "nowak j", "zz", "m", "wisniewska an", "b", "jan"};
+    private static final String[] LAST = {"Kowalski", "Nowak", "Wiśniewska", "Wójcik", "Kamiński", "Lewandowska", "Zieliński"};
+
+    @Test
+    public void latencyDoesNotGrowWithBookSize() {
+        double small = measure(ACCOUNTS / 10);
+        double large = measure(ACCOUNTS);
+        System.out.printf("owner prefix search: %,d accounts %.1f us/query, %,d accounts %.1f us/query%n",
+                ACCOUNTS / 10, small, ACCOUNTS, large);
+        assertThat(large).isLessThan(small * 3);
+    }
+
+    private static double measure(int accounts) {
+        Random random = new Random(1);
+        try (ShardedAccountStore store = new ShardedAccountStore(Runtime.getRuntime().availableProcessors(), AccountMetrics.noop())) {
+            OwnerPrefixIndex index = new OwnerPrefixIndex(store);
+            for (long id = 0; id < accounts; id++) {
+                // losowe imiona (6 liter) i kilka nazwisk - dużo wspólnych prefiksów
+                StringBuilder name = new StringBuilder();
+                for (int i = 0; i < 6; i++) {
+                    name.append((char) ('a' + random.nextInt(26)));
+                }
+                store.add(new Account(id, LAST[random.nextInt(LAST.length)] + " " + name, 100, "PLN", "ACTIVE",
+                        null, "CHECKING"));
+            }
+            for (int i = 0; i < 20_000; i++) {
+                index.search(PREFIXES[i % PREFIXES.length], 10);
+            }
+            int runs = 20_000;
+            long start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                index.search(PREFIXES[i % PREFIXES.length], 10);
+            }
+            return (System.nanoTime() - start) / 1_000.0 / runs;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.minibank.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// dane startowe dla testów obciążeniowych - te same pliki, których używa kolekcja Postmana
+public class SeedData {
+
+    public record SeedAccount(long id, String owner, double balance) {
+    }
+
+    public record SeedTransfer(long fromId, long toId, double amount) {
+    }
+
+    private final List<SeedAccount> accounts;
+    private final List<SeedTransfer> transfers;
+    private final long idStride;
+
+    private SeedData(List<SeedAccount> accounts, List<SeedTransfer> transfers, long idStride) {
+        this.accounts = accounts;
+        this.transfers = transfers;
+        this.idStride = idStride;
+    }
+
+    public static SeedData fromPostmanFiles(Path dir) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<SeedAccount> accounts = new ArrayList<>();
+        List<SeedTransfer> transfers = new ArrayList<>();
+        long maxId = 0;
+
+        // konta, które kolekcja oczekuje jako istniejące (expectedStatus 200)
+        for (JsonNode node : mapper.readTree(dir.resolve("accountsTestData.json").toFile())) {
+            maxId = Math.max(maxId, node.path("id").asLong());
+            if (node.path("expectedStatus").asInt() == 200 && node.hasNonNull("expectedOwner")) {
+                accounts.add(new SeedAccount(node.path("id").asLong(), node.path("expectedOwner").asText(),
+                        node.path("expectedBalance").asDouble()));
+            }
+        }
+        // konta dodawane poprawnie przez POST (expectedCode 200)
+        for (JsonNode node : mapper.readTree(dir.resolve("iterationData_addAccount.json").toFile())) {
+            maxId = Math.max(maxId, node.path("id").asLong());
+            if (node.path("expectedCode").asInt() == 200) {
+                accounts.add(new SeedAccount(node.path("id").asLong(), node.path("owner").asText(),
+                        node.path("balance").asDouble()));
+            }
+        }
+        // przelewy odtwarzane w pętli, razem z tymi, które mają się nie udać
+        for (JsonNode node : mapper.readTree(dir.resolve("iterationData_transfer.json").toFile())) {
+            maxId = Math.max(maxId, Math.max(node.path("fromId").asLong(), node.path("toId").asLong()));
+            transfers.add(new SeedTransfer(node.path("fromId").asLong(), node.path("toId").asLong(),
+                    node.path("amount").asDouble()));
+        }
+        if (accounts.isEmpty() || transfers.isEmpty()) {
+            throw new IllegalStateException("No seed accounts or transfers found in " + dir);
+        }
+        return new SeedData(List.copyOf(accounts), List.copyOf(transfers), maxId + 1);
+    }
+
+    // kopia k zestawu danych dostaje identyfikatory przesunięte o k * idStride
+    public long idFor(int copy, long seedId) {
+        return copy * idStride + seedId;
+    }
+
+    public List<SeedAccount> getAccounts() {
+        return accounts;
+    }
+
+    public List<SeedTransfer> getTransfers() {
+        return transfers;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.minibank.perf;
+
+import com.example.minibank.Account;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.OperationTrace;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// przepustowość przelewów o równomiernym rozkładzie w zależności od liczby shardów;
+// w locie jest stała liczba przelewów, więc mierzymy pracę shardów, a nie wątki klienta
+// uruchamianie: mvn test -Dtest=ShardScalingBenchmarkTest -Dperf=true
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+public class ShardScalingBenchmarkTest {
+
+    private static final int ACCOUNTS = 100_000;
+    private static final int TRANSFERS = 1_000_000;
+    private static final int IN_FLIGHT = 1024;
+
+    @Test
+    public void throughputPerShardCount() throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        double baseline = 0;
+        for (int shards = 1; shards <= Math.max(2, cores); shards *= 2) {
+            double rate = run(shards);
+            if (shards == 1) {
+                baseline = rate;
+            }
+            System.out.printf("shards=%-3d %12.0f transfers/s  speedup x%.2f (cores=%d)%n", shards, rate, rate / baseline, cores);
+            assertThat(rate).isPositive();
+        }
+    }
+
+    private static double run(int shards) throws InterruptedException {
+        try (ShardedAccountStore store = new ShardedAccountStore(shards, AccountMetrics.noop())) {
+            for (long id = 0; id < ACCOUNTS; id++) {
+                store.add(new Account(id, "owner" + id, 1_000_000, "PLN", "ACTIVE", "2024-01-01T00:00:00", "CHECKING"));
+            }
+            Semaphore window = new Semaphore(IN_FLIGHT);
+            long start = System.nanoTime();
+            for (int i = 0; i < TRANSFERS; i++) {
+                window.acquire();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                CompletableFuture<TransferOutcome> f = store.transfer(random.nextLong(ACCOUNTS), random.nextLong(ACCOUNTS), 1.0, new OperationTrace());
+                f.whenComplete((outcome, error) -> window.release());
+            }
+            window.acquire(IN_FLIGHT);
+            return TRANSFERS * 1_000_000_000.0 / (System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.minibank.perf;
+
+import com.example.minibank.Account;
+import com.example.minibank.fx.FxRates;
+import com.example.minibank.leaderboard.AccountLeaderboard;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.search.AccountSearchIndex;
+import com.example.minibank.search.OwnerPrefixIndex;
+import com.example.minibank.shard.AccountCachePolicy;
+import com.example.minibank.shard.HotAccountPolicy;
+import com.example.minibank.shard.ShardedAccountStore;
+import com.example.minibank.stats.BalanceDistributionIndex;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// sterta całej księgi bez limitu i z limitem kont na stercie (reszta poza stertą), potem odczyty
+// o rozkładzie potęgowym (nieliczne konta dostają większość odwołań): trafienia i czas sprowadzenia konta.
+// Drugi pomiar z indeksami aplikacji zarejestrowanymi na magazynie: indeksy mają własny koszt (np. teksty
+// właścicieli w indeksie podpowiedzi), ale nie mogą trzymać kont na stercie - każde konto poza stertą
+// musi zwolnić co najmniej obiekt konta
+// uruchamianie: mvn test -Dtest=TieredStorageBenchmarkTest -Dperf=true -Dperf.accounts=5000000 -DargLine=-Xmx6g
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+public class TieredStorageBenchmarkTest {
+
+    private static final int ACCOUNTS = Integer.getInteger("perf.accounts", 1_000_000);
+    private static final int READS = Integer.getInteger("perf.reads", 2_000_000);
+    // nagłówek i pola obiektu Account (skompresowane wskaźniki)
+    private static final long ACCOUNT_BYTES = 48;
+
+    @Test
+    public void boundedHeapServesSkewedReads() {
+        long unbounded = heapAfterLoad(AccountCachePolicy.unbounded(), new SimpleMeterRegistry(), false);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        long tiered = heapAfterLoad(new AccountCachePolicy(ACCOUNTS / 20), registry, false);
+        System.out.printf("%,d accounts: heap %,d MB without limit, %,d MB with %,d resident%n",
+                ACCOUNTS, unbounded >> 20, tiered >> 20, ACCOUNTS / 20);
+        long indexedUnbounded = heapAfterLoad(AccountCachePolicy.unbounded(), new SimpleMeterRegistry(), true);
+        long indexedTiered = heapAfterLoad(new AccountCachePolicy(ACCOUNTS / 20), new SimpleMeterRegistry(), true);
+        System.out.printf("with indexes: heap %,d MB without limit, %,d MB with %,d resident%n",
+                indexedUnbounded >> 20, indexedTiered >> 20, ACCOUNTS / 20);
+
+        assertThat(tiered).isLessThan(unbounded);
+        assertThat(indexedUnbounded - indexedTiered).isGreaterThan((ACCOUNTS - ACCOUNTS / 20) * ACCOUNT_BYTES);
+    }
+
+    // indexed - z indeksami, które aplikacja rejestruje na magazynie
+    private static long heapAfterLoad(AccountCachePolicy policy, SimpleMeterRegistry registry, boolean indexed) {
+        long baseline = usedHeap();
+        try (ShardedAccountStore store = new ShardedAccountStore(Runtime.getRuntime().availableProcessors(),
+                new AccountMetrics(registry), new FxRates(), HotAccountPolicy.defaults(), policy)) {
+            if (indexed) {
+                new AccountSearchIndex(store);
+                new OwnerPrefixIndex(store);
+                new AccountLeaderboard(store);
+                new BalanceDistributionIndex(store);
+            }
+            for (long id = 0; id < ACCOUNTS; id++) {
+                store.add(new Account(id, "owner" + id, 100, "PLN", "ACTIVE", "2024-01-01T00:00:00", "CHECKING"));
+            }
+            long used = usedHeap() - baseline;
+            if (policy.enabled() && !indexed) {
+                System.out.printf("off-heap tier: %,d accounts, %,d MB%n",
+                        store.size() - store.residentAccounts(), store.coldBytes() >> 20);
+                read(store, registry);
+            }
+            return used;
+        }
+    }
+
+    private static void read(ShardedAccountStore store, SimpleMeterRegistry registry) {
+        SplittableRandom random = new SplittableRandom(42);
+        double hits = registry.get("minibank.cache.hits").functionCounter().count();
+        double misses = registry.get("minibank.cache.misses").functionCounter().count();
+        long start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            // x^4 - ok. 5% kont dostaje ponad 45% odwołań
+            double x = random.nextDouble();
+            store.get((long) (ACCOUNTS * x * x * x * x));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        hits = registry.get("minibank.cache.hits").functionCounter().count() - hits;
+        misses = registry.get("minibank.cache.misses").functionCounter().count() - misses;
+        Timer missLatency = registry.get("minibank.cache.miss.latency").timer();
+        System.out.printf("%,d reads: %,.0f/s, hit rate %.1f%%, %,.0f misses, mean miss %.1f us, evictions %,.0f%n",
+                READS, READS / seconds, 100 * hits / (hits + misses), misses,
+                missLatency.mean(TimeUnit.MICROSECONDS),
+                registry.get("minibank.cache.evictions").functionCounter().count());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
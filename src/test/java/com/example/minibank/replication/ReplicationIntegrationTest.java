@@ -0,0 +1,152 @@
+package com.example.minibank.replication;
+
+import com.example.minibank.MiniBankApplication;
+import com.example.minibank.batch.AccrualEngine;
+import com.example.minibank.schedule.ScheduledTransferService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+
+// lider i followerzy jako osobne konteksty Springa na localhost
+public class ReplicationIntegrationTest {
+
+    private int replicationPort;
+    private ConfigurableApplicationContext leader;
+    private final List<ConfigurableApplicationContext> followers = new ArrayList<>();
+
+    @BeforeEach
+    public void startLeader() throws IOException {
+        replicationPort = freePort();
+        leader = new SpringApplicationBuilder(MiniBankApplication.class).run(
+                "--server.port=0",
+                "--server.address=127.0.0.1",
+                "--minibank.replication.role=leader",
+                "--minibank.replication.port=" + replicationPort,
+                "--minibank.replication.heartbeat=100ms");
+    }
+
+    @AfterEach
+    public void stopAll() {
+        followers.forEach(ConfigurableApplicationContext::close);
+        leader.close();
+    }
+
+    private String startFollower(boolean forwardWrites) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--server.address=127.0.0.1",
+                "--minibank.replication.role=follower",
+                "--minibank.replication.leader=127.0.0.1:" + replicationPort,
+                "--minibank.replication.reconnect=100ms"));
+        if (forwardWrites) {
+            args.add("--minibank.replication.leader-url=" + url(leader));
+        }
+        ConfigurableApplicationContext follower = new SpringApplicationBuilder(MiniBankApplication.class)
+                .run(args.toArray(String[]::new));
+        followers.add(follower);
+        return url(follower);
+    }
+
+    private static String url(ConfigurableApplicationContext app) {
+        return "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void addAccount(String node, long id, String owner, double balance) {
+        given().baseUri(node)
+                .header("Content-Type", "application/json")
+                .body("{\"id\": " + id + ", \"owner\": \"" + owner + "\", \"balance\": " + balance + "}")
+                .when().post("/accounts")
+                .then().statusCode(200);
+    }
+
+    private static long leaderSequence(String node) {
+        return given().baseUri(node).when().get("/replication/status").then().extract().jsonPath().getLong("sequence");
+    }
+
+    private static void awaitCaughtUp(String follower, long sequence) {
+        waitUntil(() -> given().baseUri(follower).when().get("/replication/status")
+                .then().extract().jsonPath().getLong("sequence") >= sequence, 10_000);
+    }
+
+    // follower startujący po zmianach dostaje snapshot, kolejne zmiany przychodzą strumieniem
+
+    @Test
+    public void followersServeReadsOfLeaderState() {
+        String leaderUrl = url(leader);
+        addAccount(leaderUrl, 1, "Alice", 1000);
+        addAccount(leaderUrl, 2, "Bob", 500);
+        String follower = startFollower(false);
+
+        given().baseUri(leaderUrl).header("Content-Type", "application/json")
+                .body("{\"fromId\": 1, \"toId\": 2, \"amount\": 300}")
+                .when().post("/accounts/transfer").then().body(equalTo("Transfer successful"));
+        addAccount(leaderUrl, 3, "Carol", 50);
+        given().baseUri(leaderUrl).when().delete("/accounts/3").then().statusCode(200);
+
+        awaitCaughtUp(follower, leaderSequence(leaderUrl));
+        given().baseUri(follower).when().get("/accounts")
+                .then().statusCode(200).body("id", contains(1, 2)).body("balance", contains(700.0F, 800.0F));
+        given().baseUri(follower).when().get("/accounts/owner/bob").then().body("id", contains(2));
+        given().baseUri(follower).when().get("/accounts/totalBalance").then().body(equalTo("1500.0"));
+        given().baseUri(follower).when().get("/replication/status")
+                .then().body("role", equalTo("follower")).body("connected", equalTo(true)).body("lagEvents", equalTo(0));
+        given().baseUri(leaderUrl).when().get("/replication/status")
+                .then().body("role", equalTo("leader")).body("followers", equalTo(1));
+    }
+
+    @Test
+    public void followerRejectsOrForwardsWrites() {
+        String leaderUrl = url(leader);
+        String readOnly = startFollower(false);
+        String forwarding = startFollower(true);
+
+        given().baseUri(readOnly).header("Content-Type", "application/json")
+                .body("{\"id\": 1, \"owner\": \"Alice\", \"balance\": 10}")
+                .when().post("/accounts")
+                .then().statusCode(405).header("Allow", containsString("GET"));
+
+        addAccount(forwarding, 1, "Alice", 10);
+        given().baseUri(leaderUrl).when().get("/accounts/1").then().statusCode(200).body("owner", equalTo("Alice"));
+        awaitCaughtUp(readOnly, leaderSequence(leaderUrl));
+        given().baseUri(readOnly).when().get("/accounts/1").then().statusCode(200).body("balance", equalTo(10.0F));
+
+        // zlecenia stałe i naliczenia wykonuje tylko lider
+        given().baseUri(readOnly).when().get("/accounts/scheduled-transfers/1").then().statusCode(405);
+        given().baseUri(readOnly).when().post("/accounts/accrual-runs").then().statusCode(405);
+        assertThat(followers.get(0).getBeanProvider(ScheduledTransferService.class).getIfAvailable()).isNull();
+        assertThat(followers.get(0).getBeanProvider(AccrualEngine.class).getIfAvailable()).isNull();
+    }
+
+    private static void waitUntil(BooleanSupplier condition, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within " + timeoutMillis + " ms");
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
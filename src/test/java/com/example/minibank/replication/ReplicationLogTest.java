@@ -0,0 +1,91 @@
+package com.example.minibank.replication;
+
+import com.example.minibank.Account;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicationLogTest {
+
+    @Test
+    public void eventsAreNumberedInAppendOrderAndCopied() throws InterruptedException {
+        ReplicationLog log = new ReplicationLog(8);
+        Account account = new Account(1L, "Alice", 100, "PLN", "ACTIVE", null, "PERSONAL");
+        log.accountChanged(0, account);
+        account.setBalance(50);
+        log.accountChanged(0, account);
+        log.accountRemoved(1, 2L);
+
+        List<ReplicationEvent> events = log.readFrom(1, 10, 0);
+        assertThat(events).extracting(ReplicationEvent::seq).containsExactly(1L, 2L, 3L);
+        assertThat(events.get(0).account().getBalance()).isEqualTo(100);
+        assertThat(events.get(1).account().getBalance()).isEqualTo(50);
+        assertThat(events.get(2).isRemoval()).isTrue();
+        assertThat(events.get(2).accountId()).isEqualTo(2L);
+    }
+
+    @Test
+    public void readingEvictedEventsReturnsNull() throws InterruptedException {
+        ReplicationLog log = new ReplicationLog(4);
+        for (long id = 1; id <= 10; id++) {
+            log.accountRemoved(0, id);
+        }
+        assertThat(log.readFrom(6, 10, 0)).isNull();
+        assertThat(log.readFrom(7, 10, 0)).extracting(ReplicationEvent::seq).containsExactly(7L, 8L, 9L, 10L);
+        assertThat(log.readFrom(11, 10, 0)).isEmpty();
+    }
+
+    @Test
+    public void readerWaitsForNewEvents() throws InterruptedException {
+        ReplicationLog log = new ReplicationLog(4);
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+            log.accountRemoved(0, 1L);
+        });
+        writer.start();
+        assertThat(log.readFrom(1, 10, 5_000)).hasSize(1);
+        writer.join();
+    }
+
+    // kilka shardów zapisuje równolegle; czytelnik dostaje każde zdarzenie dokładnie raz, bez luk,
+    // a zmiany jednego shardu w kolejności ich zapisu
+    @Test
+    public void concurrentAppendsAreReadWithoutGaps() throws InterruptedException {
+        int shards = 4;
+        int perShard = 20_000;
+        ReplicationLog log = new ReplicationLog(shards * perShard);
+        List<Thread> writers = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            int index = shard;
+            Thread writer = new Thread(() -> {
+                for (long id = 1; id <= perShard; id++) {
+                    log.accountRemoved(index, id);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        long[] lastId = new long[shards];
+        long next = 1;
+        while (next <= (long) shards * perShard) {
+            List<ReplicationEvent> events = log.readFrom(next, 1024, 1_000);
+            assertThat(events).isNotNull();
+            for (ReplicationEvent event : events) {
+                assertThat(event.seq()).isEqualTo(next++);
+                assertThat(event.accountId()).isEqualTo(lastId[event.shard()] + 1);
+                lastId[event.shard()] = event.accountId();
+            }
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertThat(lastId).containsOnly(perShard);
+        assertThat(log.lastSeq()).isEqualTo((long) shards * perShard);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.minibank.schedule;
+
+import com.example.minibank.Account;
+import com.example.minibank.AccountService;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.metrics.AccountMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ScheduledTransferServiceTest {
+
+    @TempDir
+    Path storeDir;
+
+    @Test
+    public void oneShotAndRecurringTransfersFire() throws Exception {
+        AccountService accounts = accounts();
+        ScheduledTransferService schedules = service(accounts, "");
+        try {
+            ScheduledTransfer once = schedules.schedule(request(1L, 2L, 100, Instant.now().plusMillis(50).toString(), null));
+            ScheduledTransfer recurring = schedules.schedule(request(1L, 2L, 10, null, "PT0.03S"));
+
+            waitUntil(() -> recurring.getExecutions() >= 3, 5_000);
+            assertThat(schedules.cancel(recurring.getId())).isTrue();
+            waitUntil(() -> once.getExecutions() == 1, 5_000);
+
+            assertThat(once.getLastOutcome()).isEqualTo(TransferOutcome.SUCCESS);
+            assertThrows(RuntimeException.class, () -> schedules.get(once.getId()));
+            assertThrows(RuntimeException.class, () -> schedules.get(recurring.getId()));
+            int executions = recurring.getExecutions();
+            Thread.sleep(150);
+            assertThat(recurring.getExecutions()).isEqualTo(executions);
+            assertThat(accounts.getAccountById(2L).orElseThrow().getBalance()).isEqualTo(100 + 10.0 * executions);
+            assertThat(schedules.pendingCount()).isZero();
+        } finally {
+            schedules.destroy();
+        }
+    }
+
+    @Test
+    public void invalidRequestsAreRejected() throws Exception {
+        ScheduledTransferService schedules = service(accounts(), "");
+        try {
+            assertThrows(IllegalArgumentException.class, () -> schedules.schedule(request(1L, 2L, 10, null, null)));
+            assertThrows(IllegalArgumentException.class, () -> schedules.schedule(request(1L, 2L, -5, null, "P1D")));
+            assertThrows(IllegalArgumentException.class, () -> schedules.schedule(request(1L, 2L, 5, "tomorrow", null)));
+            assertThrows(IllegalArgumentException.class, () -> schedules.schedule(request(1L, 2L, 5, null, "P1M")));
+            assertThat(schedules.pendingCount()).isZero();
+        } finally {
+            schedules.destroy();
+        }
+    }
+
+    @Test
+    public void pendingSchedulesSurviveRestart() throws Exception {
+        AccountService accounts = accounts();
+        ScheduledTransferService first = service(accounts, storeDir.toString());
+        ScheduledTransfer later = first.schedule(request(1L, 2L, 5, Instant.now().plusSeconds(3_600).toString(), null));
+        ScheduledTransfer monthly = first.schedule(request(2L, 1L, 7, Instant.now().plusSeconds(60).toString(), "P30D"));
+        ScheduledTransfer cancelled = first.schedule(request(1L, 2L, 9, null, "P1D"));
+        first.cancel(cancelled.getId());
+        first.destroy();
+
+        ScheduledTransferService second = service(accounts, storeDir.toString());
+        try {
+            assertThat(second.pendingCount()).isEqualTo(2);
+            assertThat(second.get(later.getId()).getNextExecution()).isEqualTo(later.getNextExecution());
+            assertThat(second.get(monthly.getId()).getInterval()).isEqualTo("PT720H");
+            assertThat(second.cancel(cancelled.getId())).isFalse();
+            // nowe id nie powtarzają id sprzed restartu
+            assertThat(second.schedule(request(1L, 2L, 1, null, "P1D")).getId()).isGreaterThan(cancelled.getId());
+        } finally {
+            second.destroy();
+        }
+    }
+
+    // awaria po zapisaniu zamiaru, przed zapisem wyniku: po restarcie te wykonania nie są powtarzane
+    @Test
+    public void interruptedExecutionsAreNotRepeatedAfterRestart() throws Exception {
+        long due = System.currentTimeMillis() - 1_000;
+        long day = Duration.ofDays(1).toMillis();
+        ScheduleJournal journal = new ScheduleJournal(storeDir);
+        journal.load();
+        journal.rotate(new ScheduleIndex(), 0);
+        ScheduledTransfer once = new ScheduledTransfer(1, 1L, 2L, 100, due, 0);
+        ScheduledTransfer daily = new ScheduledTransfer(2, 1L, 2L, 10, due, day);
+        journal.added(once);
+        journal.added(daily);
+        journal.attempted(once);
+        journal.attempted(daily);
+        journal.close();
+
+        AccountService accounts = accounts();
+        ScheduledTransferService schedules = service(accounts, storeDir.toString());
+        try {
+            assertThat(schedules.pendingCount()).isEqualTo(1);
+            ScheduledTransfer recovered = schedules.get(daily.getId());
+            assertThat(recovered.getExecutions()).isEqualTo(1);
+            assertThat(recovered.getNextExecution()).isEqualTo(Instant.ofEpochMilli(due + day).toString());
+            Thread.sleep(100);
+            assertThat(accounts.getAccountById(2L).orElseThrow().getBalance()).isZero();
+        } finally {
+            schedules.destroy();
+        }
+    }
+
+    private static AccountService accounts() {
+        AccountService service = new AccountService(new AccountMetrics(new SimpleMeterRegistry()));
+        service.addAccount(new Account(1L, "Alice", 1000, "PLN", "ACTIVE", "2023-03-15T10:00:00", "SAVINGS"));
+        service.addAccount(new Account(2L, "Bob", 0, "PLN", "ACTIVE", "2023-03-15T10:00:00", "SAVINGS"));
+        return service;
+    }
+
+    private static ScheduledTransferService service(AccountService accounts, String storeDir) throws Exception {
+        return new ScheduledTransferService(accounts, new AccountMetrics(new SimpleMeterRegistry()),
+                Duration.ofMillis(10), storeDir);
+    }
+
+    private static ScheduledTransferRequest request(Long fromId, Long toId, double amount, String executeAt, String interval) {
+        ScheduledTransferRequest request = new ScheduledTransferRequest();
+        request.setFromId(fromId);
+        request.setToId(toId);
+        request.setAmount(amount);
+        request.setExecuteAt(executeAt);
+        request.setInterval(interval);
+        return request;
+    }
+
+    private static void waitUntil(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within " + timeoutMillis + " ms");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.minibank.schedule;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TimingWheelTest {
+
+    private static final class TestTimer extends TimingWheel.Timer {
+        final long deadline;
+        long firedAt = -1;
+
+        TestTimer(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    @Test
+    public void timersFireExactlyOnTheirTickAcrossLevels() {
+        TimingWheel wheel = new TimingWheel(1_000);
+        Random random = new Random(7);
+        List<TestTimer> timers = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            // terminy rozrzucone po pierwszych trzech poziomach (do 64^3 ticków)
+            long delay = 1 + random.nextInt(i % 3 == 0 ? 64 : i % 3 == 1 ? 4_096 : 262_144);
+            TestTimer timer = new TestTimer(1_000 + delay);
+            wheel.add(timer, timer.deadline);
+            timers.add(timer);
+        }
+        assertThat(wheel.size()).isEqualTo(5_000);
+
+        while (wheel.size() > 0) {
+            long now = wheel.currentTick() + 1;
+            wheel.tick(timer -> ((TestTimer) timer).firedAt = now);
+        }
+
+        assertThat(timers).allSatisfy(timer -> assertThat(timer.firedAt).isEqualTo(timer.deadline));
+    }
+
+    @Test
+    public void cancelledTimerNeverFiresAndCanBeAddedAgain() {
+        TimingWheel wheel = new TimingWheel(0);
+        TestTimer timer = new TestTimer(100);
+        wheel.add(timer, 100);
+        assertThat(wheel.cancel(timer)).isTrue();
+        assertThat(wheel.cancel(timer)).isFalse();
+
+        List<TimingWheel.Timer> fired = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            wheel.tick(fired::add);
+        }
+        assertThat(fired).isEmpty();
+
+        wheel.add(timer, 250);
+        assertThrows(IllegalStateException.class, () -> wheel.add(timer, 260));
+        for (int i = 0; i < 50; i++) {
+            wheel.tick(fired::add);
+        }
+        assertThat(fired).containsExactly(timer);
+    }
+
+    @Test
+    public void pastDeadlineFiresOnNextTickAndTooFarIsRejected() {
+        TimingWheel wheel = new TimingWheel(500);
+        TestTimer late = new TestTimer(10);
+        wheel.add(late, 10);
+        List<TimingWheel.Timer> fired = new ArrayList<>();
+        wheel.tick(fired::add);
+        assertThat(fired).containsExactly(late);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> wheel.add(new TestTimer(0), wheel.currentTick() + TimingWheel.maxDelayTicks() + 1));
+        wheel.add(new TestTimer(0), wheel.currentTick() + TimingWheel.maxDelayTicks());
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+}
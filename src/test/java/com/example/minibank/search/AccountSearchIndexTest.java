@@ -0,0 +1,191 @@
+package com.example.minibank.search;
+
+import com.example.minibank.Account;
+import com.example.minibank.fx.FxRates;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.AccountCachePolicy;
+import com.example.minibank.shard.AccountChangeListener;
+import com.example.minibank.shard.HotAccountPolicy;
+import com.example.minibank.shard.OperationTrace;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountSearchIndexTest {
+
+    private static final String[] CURRENCIES = {"PLN", "USD", "EUR"};
+    private static final String[] STATUSES = {"ACTIVE", "BLOCKED"};
+    private static final String[] TYPES = {"CHECKING", "SAVINGS", "PREMIUM", "BUSINESS"};
+
+    private ShardedAccountStore store;
+    private AccountSearchIndex index;
+    private final Random random = new Random(11);
+
+    @BeforeEach
+    public void setUp() {
+        store = new ShardedAccountStore(4, AccountMetrics.noop());
+        // część kont przed utworzeniem indeksu, część po
+        for (long id = 1; id <= 2_000; id++) {
+            store.add(randomAccount(id));
+        }
+        index = new AccountSearchIndex(store);
+        for (long id = 2_001; id <= 4_000; id++) {
+            store.add(randomAccount(id));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void pagesMatchFullScanAfterChanges() {
+        for (int i = 0; i < 3_000; i++) {
+            long from = 1 + random.nextInt(4_000);
+            long to = 1 + random.nextInt(4_000);
+            ShardedAccountStore.join(store.transfer(from, to, random.nextInt(300), new OperationTrace()));
+        }
+        for (long id = 1; id <= 4_000; id += 7) {
+            store.remove(id);
+        }
+        for (long id = 3; id <= 4_000; id += 11) {
+            Account changed = store.get(id).orElse(null);
+            if (changed != null) {
+                changed.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+                changed.setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+                ShardedAccountStore.join(store.upsert(changed));
+            }
+        }
+        for (long id = 4_001; id <= 4_500; id++) {
+            store.add(randomAccount(id));
+        }
+
+        for (int q = 0; q < 50; q++) {
+            AccountSearchCriteria criteria = randomCriteria();
+            List<Long> expected = store.collect(matches(criteria)).stream().map(Account::getId).toList();
+
+            List<Long> actual = new ArrayList<>();
+            long after = Long.MIN_VALUE;
+            AccountSearchPage page;
+            do {
+                page = index.search(criteria, after, 97);
+                assertThat(page.getTotal()).isEqualTo(expected.size());
+                page.getAccounts().forEach(account -> actual.add(account.getId()));
+                if (page.getNextCursor() != null) {
+                    after = Long.parseLong(page.getNextCursor());
+                }
+            } while (page.getNextCursor() != null);
+
+            assertThat(actual).as(criteria.toString()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void unknownValueMatchesNothing() {
+        AccountSearchCriteria criteria = new AccountSearchCriteria();
+        criteria.setCurrency("GBP");
+        AccountSearchPage page = index.search(criteria, Long.MIN_VALUE, 10);
+        assertThat(page.getAccounts()).isEmpty();
+        assertThat(page.getTotal()).isZero();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    // konta zepchnięte do zimnej warstwy nie są trzymane na stercie przez indeks, a wynik i tak je zawiera
+    @Test
+    public void indexDoesNotKeepEvictedAccountsOnHeap() throws InterruptedException {
+        try (ShardedAccountStore tiered = new ShardedAccountStore(1, AccountMetrics.noop(), new FxRates(),
+                HotAccountPolicy.defaults(), new AccountCachePolicy(100))) {
+            AccountSearchIndex tieredIndex = new AccountSearchIndex(tiered);
+            // żywy obiekt shardu, który dostają listenery
+            List<WeakReference<Account>> live = new ArrayList<>();
+            tiered.addListener(new AccountChangeListener() {
+                @Override
+                public void accountChanged(int shard, Account account) {
+                    if (account.getId() == 1L) {
+                        live.add(new WeakReference<>(account));
+                    }
+                }
+
+                @Override
+                public void accountRemoved(int shard, long id) {
+                }
+            });
+            tiered.add(new Account(1L, "owner1", 4_321, "EUR", "ACTIVE", "2021-06-01T00:00:00", "PREMIUM"));
+            for (long id = 2; id <= 1_000; id++) {
+                tiered.add(new Account(id, "owner" + id, 10, "PLN", "ACTIVE", null, "CHECKING"));
+            }
+            assertThat(live).hasSize(1);
+            for (int i = 0; i < 50 && live.get(0).get() != null; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertThat(live.get(0).get()).isNull();
+
+            AccountSearchCriteria criteria = new AccountSearchCriteria();
+            criteria.setCurrency("EUR");
+            criteria.setCreatedFrom(LocalDateTime.of(2021, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli());
+            assertThat(tieredIndex.search(criteria, Long.MIN_VALUE, 10).getAccounts()).singleElement()
+                    .satisfies(account -> {
+                        assertThat(account.getId()).isEqualTo(1L);
+                        assertThat(account.getBalance()).isEqualTo(4_321);
+                        assertThat(account.getAccountType()).isEqualTo("PREMIUM");
+                    });
+        }
+    }
+
+    private Account randomAccount(long id) {
+        LocalDateTime created = LocalDateTime.of(2020, 1, 1, 0, 0).plusHours(random.nextInt(4 * 365 * 24));
+        return new Account(id, "owner" + id, random.nextInt(5_000),
+                CURRENCIES[random.nextInt(CURRENCIES.length)],
+                STATUSES[random.nextInt(10) == 0 ? 1 : 0],
+                random.nextInt(20) == 0 ? null : created.toString(),
+                TYPES[random.nextInt(TYPES.length)]);
+    }
+
+    private AccountSearchCriteria randomCriteria() {
+        AccountSearchCriteria criteria = new AccountSearchCriteria();
+        if (random.nextBoolean()) {
+            criteria.setCurrency(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+        }
+        if (random.nextBoolean()) {
+            criteria.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+        }
+        if (random.nextBoolean()) {
+            criteria.setAccountType(TYPES[random.nextInt(TYPES.length)]);
+        }
+        if (random.nextBoolean()) {
+            criteria.setMinBalance((double) random.nextInt(4_000));
+        }
+        if (random.nextInt(3) == 0) {
+            criteria.setMaxBalance((double) random.nextInt(5_000));
+        }
+        if (random.nextInt(3) == 0) {
+            long from = LocalDateTime.of(2021, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+            criteria.setCreatedFrom(from);
+            criteria.setCreatedTo(from + random.nextInt(1_000) * 86_400_000L);
+        }
+        return criteria;
+    }
+
+    private static Predicate<Account> matches(AccountSearchCriteria c) {
+        return account -> (c.getCurrency() == null || c.getCurrency().equals(account.getCurrency()))
+                && (c.getStatus() == null || c.getStatus().equals(account.getStatus()))
+                && (c.getAccountType() == null || c.getAccountType().equals(account.getAccountType()))
+                && (c.getMinBalance() == null || account.getBalance() >= c.getMinBalance())
+                && (c.getMaxBalance() == null || account.getBalance() <= c.getMaxBalance())
+                && (c.getCreatedFrom() == null || (account.getCreatedAt() != null && account.createdAtMillis() >= c.getCreatedFrom()))
+                && (c.getCreatedTo() == null || (account.getCreatedAt() != null && account.createdAtMillis() <= c.getCreatedTo()));
+    }
+}
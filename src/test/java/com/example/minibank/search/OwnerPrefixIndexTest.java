@@ -0,0 +1,88 @@
+package com.example.minibank.search;
+
+import com.example.minibank.Account;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OwnerPrefixIndexTest {
+
+    private static final String[] FIRST = {"Anna", "Andrzej", "Łukasz", "Łucja", "Zoë", "Zofia", "Jan", "Janina"};
+    private static final String[] LAST = {"Kowalski", "Kowalska", "Nowak", "Wiśniewski", "Wójcik", "Kowal"};
+
+    private ShardedAccountStore store;
+    private final Random random = new Random(17);
+
+    @BeforeEach
+    public void setUp() {
+        store = new ShardedAccountStore(4, AccountMetrics.noop());
+        for (long id = 1; id <= 1_500; id++) {
+            store.add(account(id));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void prefixSearchMatchesScanAfterChanges() {
+        OwnerPrefixIndex index = new OwnerPrefixIndex(store, 8);
+        for (long id = 1_501; id <= 2_000; id++) {
+            store.add(account(id));
+        }
+        for (int i = 0; i < 1_500; i++) {
+            long id = 1 + random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                store.remove(id);
+            } else {
+                // nowy właściciel albo konto dodane ponownie
+                ShardedAccountStore.join(store.upsert(account(id)));
+            }
+        }
+
+        for (String prefix : List.of("a", "an", "ANN", "andrzej k", "lu", "łuk", "zoe", "zo", "jan", "janina w",
+                "kowal", "x", "anna kowalska")) {
+            for (int limit : new int[]{1, 3, 8}) {
+                String key = OwnerPrefixIndex.normalize(prefix);
+                List<Long> expected = store.collect(account -> OwnerPrefixIndex.normalize(account.getOwner()).startsWith(key))
+                        .stream()
+                        .sorted(Comparator.comparing((Account account) -> OwnerPrefixIndex.normalize(account.getOwner()))
+                                .thenComparing(Account::getId))
+                        .limit(limit)
+                        .map(Account::getId)
+                        .toList();
+                assertThat(index.search(prefix, limit).stream().map(OwnerMatch::getAccountId).toList())
+                        .as(prefix + " / " + limit).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void normalizesCaseDiacriticsAndSpaces() {
+        assertThat(OwnerPrefixIndex.normalize("  Łukasz   WIŚNIEWSKI ")).isEqualTo("lukasz wisniewski");
+        assertThat(OwnerPrefixIndex.normalize("Zoë")).isEqualTo("zoe");
+    }
+
+    @Test
+    public void rejectsBlankPrefixAndLimitAboveTopK() {
+        OwnerPrefixIndex index = new OwnerPrefixIndex(store, 8);
+        assertThatThrownBy(() -> index.search(" ", 5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search("an", 9)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Account account(long id) {
+        String owner = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)];
+        return new Account(id, owner, 100, "PLN", "ACTIVE", null, "CHECKING");
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.minibank.shard;
+
+import com.example.minibank.Account;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.fx.FxRates;
+import com.example.minibank.metrics.AccountMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ShardedAccountStoreTest {
+
+    private ShardedAccountStore store;
+
+    @BeforeEach
+    public void setUp() {
+        store = new ShardedAccountStore(4, AccountMetrics.noop());
+        for (long id = 1; id <= 100; id++) {
+            store.add(new Account(id, "owner" + id, 100, "PLN", "ACTIVE", "2024-01-01T00:00:00", "CHECKING"));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    private long[] idsOnDifferentShards() {
+        for (long a = 1; a <= 100; a++) {
+            for (long b = 1; b <= 100; b++) {
+                if (store.shardFor(a) != store.shardFor(b)) {
+                    return new long[]{a, b};
+                }
+            }
+        }
+        throw new IllegalStateException("all ids on one shard");
+    }
+
+    @Test
+    public void crossShardTransferMovesMoney() {
+        long[] ids = idsOnDifferentShards();
+
+        TransferOutcome outcome = store.transfer(ids[0], ids[1], 40, new OperationTrace()).join();
+
+        assertThat(outcome).isEqualTo(TransferOutcome.SUCCESS);
+        assertThat(store.get(ids[0]).orElseThrow().getBalance()).isEqualTo(60.0);
+        assertThat(store.get(ids[1]).orElseThrow().getBalance()).isEqualTo(140.0);
+    }
+
+    // konto docelowe nie istnieje - rezerwacja musi wrócić na konto źródłowe
+
+    @Test
+    public void crossShardTransferToMissingAccountIsRolledBack() {
+        long from = 1;
+        long missing = 1000;
+        while (store.shardFor(missing) == store.shardFor(from)) {
+            missing++;
+        }
+
+        TransferOutcome outcome = store.transfer(from, missing, 40, new OperationTrace()).join();
+
+        assertThat(outcome).isEqualTo(TransferOutcome.ACCOUNT_NOT_FOUND);
+        assertThat(store.get(from).orElseThrow().getBalance()).isEqualTo(100.0);
+        assertThat(store.totalBalance()).isEqualTo(10_000.0);
+    }
+
+    @Test
+    public void blockedAccountsNeitherSendNorReceive() {
+        long[] ids = idsOnDifferentShards();
+        Account blocked = store.get(ids[1]).orElseThrow();
+        blocked.setStatus("BLOCKED");
+        ShardedAccountStore.join(store.upsert(blocked));
+
+        assertThat(ShardedAccountStore.join(store.transfer(ids[0], ids[1], 10, new OperationTrace())))
+                .isEqualTo(TransferOutcome.ACCOUNT_BLOCKED);
+        assertThat(ShardedAccountStore.join(store.transfer(ids[1], ids[0], 10, new OperationTrace())))
+                .isEqualTo(TransferOutcome.ACCOUNT_BLOCKED);
+        assertThat(store.get(ids[0]).orElseThrow().getBalance()).isEqualTo(100.0);
+        assertThat(store.get(ids[1]).orElseThrow().getBalance()).isEqualTo(100.0);
+    }
+
+    @Test
+    public void duplicateIdIsRejected() {
+        assertThatThrownBy(() -> store.add(new Account(5L, "dup", 1, "PLN", "ACTIVE", null, null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Account with this ID already exists");
+    }
+
+    @Test
+    public void returnedAccountsAreCopies() {
+        store.get(1).orElseThrow().setBalance(1_000_000);
+
+        assertThat(store.get(1).orElseThrow().getBalance()).isEqualTo(100.0);
+    }
+
+    @Test
+    public void scatterGatherQueriesAreSortedById() {
+        List<Account> all = store.collect(account -> account.getId() % 10 == 0);
+
+        assertThat(all).extracting(Account::getId).containsExactly(10L, 20L, 30L, 40L, 50L, 60L, 70L, 80L, 90L, 100L);
+    }
+
+    // wiele przelewów w locie naraz - suma pieniędzy się nie zmienia i nikt nie schodzi poniżej zera
+
+    @Test
+    public void concurrentTransfersConserveMoney() {
+        List<CompletableFuture<TransferOutcome>> inFlight = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 20_000; i++) {
+            long from = random.nextLong(1, 101);
+            long to = random.nextLong(1, 101);
+            inFlight.add(store.transfer(from, to, random.nextInt(1, 50), new OperationTrace()));
+        }
+        inFlight.forEach(CompletableFuture::join);
+
+        assertThat(store.totalBalance()).isEqualTo(10_000.0);
+        assertThat(store.collect(account -> account.getBalance() < 0)).isEmpty();
+    }
+
+    // konto z wieloma uznaniami dostaje komórki; pieniądze się zgadzają, a obciążenie nie schodzi poniżej zera
+
+    @Test
+    public void hotAccountCreditsAreStripedAndConserveMoney() {
+        ShardedAccountStore hotStore = new ShardedAccountStore(4, AccountMetrics.noop(), new FxRates(), new HotAccountPolicy(50, 4));
+        try {
+            for (long id = 1; id <= 100; id++) {
+                hotStore.add(new Account(id, "owner" + id, 100, "PLN", "ACTIVE", "2024-01-01T00:00:00", "CHECKING"));
+            }
+            long merchant = 1;
+            List<CompletableFuture<TransferOutcome>> inFlight = new ArrayList<>();
+            for (int round = 0; round < 20; round++) {
+                for (long from = 2; from <= 100; from++) {
+                    inFlight.add(hotStore.transfer(from, merchant, 1, new OperationTrace()));
+                }
+                // merchant płaci dalej - obciążenie musi uwzględnić uznania z komórek
+                inFlight.add(hotStore.transfer(merchant, 2 + round, 150, new OperationTrace()));
+            }
+            inFlight.forEach(CompletableFuture::join);
+
+            assertThat(hotStore.shardFor(merchant).isHot(merchant)).isTrue();
+            assertThat(hotStore.totalBalance()).isEqualTo(10_000.0);
+            assertThat(hotStore.collect(account -> account.getBalance() < 0)).isEmpty();
+            double merchantBalance = hotStore.get(merchant).orElseThrow().getBalance();
+            assertThat(hotStore.transfer(merchant, 2, merchantBalance + 1, new OperationTrace()).join())
+                    .isEqualTo(TransferOutcome.INSUFFICIENT_FUNDS);
+            assertThat(hotStore.transfer(merchant, 2, merchantBalance, new OperationTrace()).join())
+                    .isEqualTo(TransferOutcome.SUCCESS);
+
+            // usunięcie konta zamyka komórki - późniejsze uznanie się nie udaje, a przelew wraca
+            hotStore.remove(merchant);
+            long sender = 2;
+            while (hotStore.shardFor(sender) == hotStore.shardFor(merchant)) {
+                sender++;
+            }
+            double senderBalance = hotStore.get(sender).orElseThrow().getBalance();
+            assertThat(hotStore.transfer(sender, merchant, 1, new OperationTrace()).join())
+                    .isEqualTo(TransferOutcome.ACCOUNT_NOT_FOUND);
+            assertThat(hotStore.get(sender).orElseThrow().getBalance()).isEqualTo(senderBalance);
+        } finally {
+            hotStore.close();
+        }
+    }
+
+    // jedno obciążenie i wiele uznań; przy braku środków na jednej nodze nic się nie zmienia
+
+    @Test
+    public void multiLegTransactionIsAllOrNothing() {
+        long[] ids = {1, 2, 3, 4, 5};
+        TransferOutcome ok = store.transact(new MultiLegTransaction(ids, new double[]{-100, 25, 25, 25, 25}, "PLN")).join();
+
+        assertThat(ok).isEqualTo(TransferOutcome.SUCCESS);
+        assertThat(store.get(1).orElseThrow().getBalance()).isEqualTo(0.0);
+        assertThat(store.get(5).orElseThrow().getBalance()).isEqualTo(125.0);
+
+        MultiLegTransaction overdraft = new MultiLegTransaction(new long[]{2, 3, 1, 6}, new double[]{-50, -50, -10, 110}, "PLN");
+        assertThat(store.transact(overdraft).join()).isEqualTo(TransferOutcome.INSUFFICIENT_FUNDS);
+        assertThat(overdraft.failedAccountId()).isEqualTo(1L);
+        assertThat(store.get(2).orElseThrow().getBalance()).isEqualTo(125.0);
+        assertThat(store.get(3).orElseThrow().getBalance()).isEqualTo(125.0);
+        assertThat(store.get(6).orElseThrow().getBalance()).isEqualTo(100.0);
+
+        assertThatThrownBy(() -> new MultiLegTransaction(new long[]{1, 2}, new double[]{-10, 9}, "PLN"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // setki nóg w wielu transakcjach naraz, z nakładającymi się kontami - bez zakleszczeń, pieniądze się zgadzają
+
+    @Test
+    public void concurrentMultiLegTransactionsConserveMoney() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<CompletableFuture<TransferOutcome>> inFlight = new ArrayList<>();
+        for (int t = 0; t < 200; t++) {
+            int legs = random.nextInt(2, 300);
+            long[] ids = new long[legs];
+            double[] amounts = new double[legs];
+            double debits = 0;
+            for (int leg = 1; leg < legs; leg++) {
+                ids[leg] = random.nextLong(1, 101);
+                amounts[leg] = -random.nextInt(1, 5);
+                debits -= amounts[leg];
+            }
+            // jedna noga zbiera wszystko (lista płac odwrotnie)
+            ids[0] = random.nextLong(1, 101);
+            amounts[0] = debits;
+            inFlight.add(store.transact(new MultiLegTransaction(ids, amounts, "PLN")));
+            inFlight.add(store.transfer(random.nextLong(1, 101), random.nextLong(1, 101), 5, new OperationTrace()));
+        }
+        inFlight.forEach(CompletableFuture::join);
+
+        assertThat(store.totalBalance()).isEqualTo(10_000.0);
+        assertThat(store.collect(account -> account.getBalance() < 0)).isEmpty();
+        // żadna noga nie została przypięta
+        assertThat(store.remove(1)).isTrue();
+    }
+
+    // konto obciążone przygotowaną nogą nie może zniknąć przed zwrotem - pieniądze nie miałyby dokąd wrócić
+
+    @Test
+    public void preparedDebitAccountCannotBeDeletedBeforeAbort() {
+        AccountShard shard = store.shardFor(1);
+        long other = 2;
+        while (store.shardFor(other) != shard) {
+            other++;
+        }
+        long credited = other;
+        MultiLegTransaction tx = new MultiLegTransaction(new long[]{1, credited}, new double[]{-40, 40}, "PLN");
+        long txId = store.nextReservationId();
+        assertThat(shard.submit(1, () -> shard.prepareLegs(txId, tx, new int[]{0, 1})).join()).isNull();
+
+        assertThatThrownBy(() -> store.removeAccount(1)).isInstanceOf(IllegalArgumentException.class);
+        shard.submit(() -> {
+            shard.completeLegs(txId, false);
+            return null;
+        }).join();
+
+        assertThat(store.get(1).orElseThrow().getBalance()).isEqualTo(100.0);
+        assertThat(store.get(credited).orElseThrow().getBalance()).isEqualTo(100.0);
+        assertThat(store.remove(1)).isTrue();
+    }
+
+    // limit kont na stercie: reszta poza stertą, odczyty i przelewy działają jak dotąd
+
+    @Test
+    public void accountsBeyondResidentLimitLiveOffHeap() {
+        ShardedAccountStore tiered = new ShardedAccountStore(2, AccountMetrics.noop(), new FxRates(),
+                HotAccountPolicy.defaults(), new AccountCachePolicy(200));
+        try {
+            String[] owners = {"Anna Nowak", "Łukasz Żółć", null, "x".repeat(5_000)};
+            for (long id = 1; id <= 5_000; id++) {
+                tiered.add(new Account(id, owners[(int) (id % owners.length)], 100, "PLN",
+                        id % 7 == 0 ? "BLOCKED" : "ACTIVE", id % 3 == 0 ? null : "2024-01-01T10:15:30", "SAVINGS"));
+            }
+            assertThat(tiered.size()).isEqualTo(5_000);
+            assertThat(tiered.residentAccounts()).isLessThanOrEqualTo(200);
+            assertThat(tiered.coldBytes()).isPositive();
+
+            Account cold = tiered.get(4_997).orElseThrow();
+            assertThat(cold.getOwner()).isEqualTo("Łukasz Żółć");
+            assertThat(cold.getStatus()).isEqualTo("ACTIVE");
+            assertThat(cold.getCreatedAt()).isEqualTo("2024-01-01T10:15:30");
+            assertThat(cold.getAccountType()).isEqualTo("SAVINGS");
+            assertThat(tiered.get(4_998).orElseThrow().getOwner()).isNull();
+            assertThat(tiered.get(4_998).orElseThrow().getCreatedAt()).isNull();
+            assertThat(tiered.get(4_999).orElseThrow().getOwner()).hasSize(5_000);
+            assertThat(tiered.get(4_991).orElseThrow().getStatus()).isEqualTo("BLOCKED");
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<CompletableFuture<TransferOutcome>> inFlight = new ArrayList<>();
+            for (int i = 0; i < 5_000; i++) {
+                inFlight.add(tiered.transfer(random.nextLong(1, 5_001), random.nextLong(1, 5_001), 7, new OperationTrace()));
+            }
+            inFlight.forEach(CompletableFuture::join);
+
+            // każde sprowadzenie i wypchnięcie zostawia śmieć w bloku - bloki są przepisywane, dane zostają całe
+            for (int pass = 0; pass < 3; pass++) {
+                for (long id = 3; id <= 5_000; id += 4) {
+                    assertThat(tiered.get(id).orElseThrow().getOwner()).hasSize(5_000);
+                }
+            }
+            assertThat(tiered.coldBytes()).isLessThan(32L << 20);
+            assertThat(tiered.totalBalance()).isEqualTo(500_000.0);
+            assertThat(tiered.collect(account -> account.getBalance() < 0)).isEmpty();
+            assertThat(tiered.residentAccounts()).isLessThanOrEqualTo(200);
+            assertThat(tiered.removeAccount(4_321).orElseThrow().getId()).isEqualTo(4_321L);
+            assertThat(tiered.collect(account -> true)).hasSize(4_999);
+            tiered.add(new Account(4_321L, "Nowy", 1, "PLN", "ACTIVE", null, "CHECKING"));
+            // duplikat wykrywany także dla konta poza stertą
+            assertThatThrownBy(() -> tiered.add(new Account(17L, "Duplikat", 1, "PLN", "ACTIVE", null, "CHECKING")))
+                    .isInstanceOf(IllegalArgumentException.class);
+        } finally {
+            tiered.close();
+        }
+    }
+
+    // konta używane często zostają na stercie mimo jednorazowego przejrzenia wielu innych
+
+    @Test
+    public void frequentlyUsedAccountsSurviveScans() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ShardedAccountStore tiered = new ShardedAccountStore(1, new AccountMetrics(registry), new FxRates(),
+                HotAccountPolicy.defaults(), new AccountCachePolicy(100));
+        try {
+            for (long id = 1; id <= 2_000; id++) {
+                tiered.add(new Account(id, "owner" + id, 100, "PLN", "ACTIVE", null, "CHECKING"));
+            }
+            for (int round = 0; round < 10; round++) {
+                for (long id = 1; id <= 50; id++) {
+                    tiered.get(id);
+                }
+            }
+            for (long id = 51; id <= 2_000; id++) {
+                tiered.get(id);
+            }
+            double misses = registry.get("minibank.cache.misses").functionCounter().count();
+            for (long id = 1; id <= 50; id++) {
+                tiered.get(id);
+            }
+
+            // przy zwykłym LRU wszystkie 50 wróciłoby spoza sterty
+            assertThat(registry.get("minibank.cache.misses").functionCounter().count() - misses).isLessThan(5);
+            assertThat(registry.get("minibank.cache.admission.rejections").functionCounter().count()).isPositive();
+        } finally {
+            tiered.close();
+        }
+    }
+}
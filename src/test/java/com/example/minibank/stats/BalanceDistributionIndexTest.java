@@ -0,0 +1,119 @@
+package com.example.minibank.stats;
+
+import com.example.minibank.Account;
+import com.example.minibank.metrics.AccountMetrics;
+import com.example.minibank.shard.OperationTrace;
+import com.example.minibank.shard.ShardedAccountStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class BalanceDistributionIndexTest {
+
+    private static final String[] TYPES = {"CHECKING", "SAVINGS", "BUSINESS"};
+
+    private ShardedAccountStore store;
+    private final Random random = new Random(9);
+
+    @BeforeEach
+    public void setUp() {
+        store = new ShardedAccountStore(4, AccountMetrics.noop());
+        for (long id = 1; id <= 2_000; id++) {
+            store.add(randomAccount(id));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void distributionMatchesScanAfterChanges() {
+        BalanceDistributionIndex index = new BalanceDistributionIndex(store);
+        for (int i = 0; i < 5_000; i++) {
+            int op = random.nextInt(10);
+            long id = 1 + random.nextInt(2_500);
+            if (op < 7) {
+                long to = 1 + random.nextInt(2_500);
+                ShardedAccountStore.join(store.transfer(id, to, random.nextInt(5_000), new OperationTrace()));
+            } else if (op == 7) {
+                store.remove(id);
+            } else {
+                ShardedAccountStore.join(store.upsert(randomAccount(id)));
+            }
+        }
+
+        BalanceDistribution distribution = index.distribution(false);
+        assertSummary(distribution.getOverall(), store.collect(account -> true));
+        for (String type : TYPES) {
+            assertSummary(distribution.getByAccountType().get(type),
+                    store.collect(account -> type.equals(account.getAccountType())));
+        }
+    }
+
+    @Test
+    public void mergedNodesMatchSingleNode() {
+        BalanceDistributionIndex index = new BalanceDistributionIndex(store);
+        BalanceDistribution whole = index.distribution(false);
+
+        // druga połowa kont na osobnym "węźle"
+        ShardedAccountStore other = new ShardedAccountStore(2, AccountMetrics.noop());
+        try {
+            for (long id = 1_001; id <= 2_000; id++) {
+                other.add(store.get(id).orElseThrow());
+                store.remove(id);
+            }
+            BalanceDistribution merged = BalanceDistribution.merge(List.of(index.distribution(true),
+                    new BalanceDistributionIndex(other).distribution(true)), false);
+            assertThat(merged.getOverall().getCount()).isEqualTo(whole.getOverall().getCount());
+            assertThat(merged.getOverall().getMean()).isCloseTo(whole.getOverall().getMean(), within(1e-6));
+            assertThat(merged.getOverall().getVariance()).isCloseTo(whole.getOverall().getVariance(), within(1e-3));
+            assertThat(merged.getOverall().getPercentiles()).isEqualTo(whole.getOverall().getPercentiles());
+            assertThat(merged.getByAccountType().keySet()).isEqualTo(whole.getByAccountType().keySet());
+            assertThat(merged.getOverall().getSketch()).isNull();
+        } finally {
+            other.close();
+        }
+    }
+
+    private static void assertSummary(DistributionSummary summary, List<Account> accounts) {
+        double[] balances = accounts.stream().mapToDouble(Account::getBalance).sorted().toArray();
+        double mean = 0;
+        for (double balance : balances) {
+            mean += balance / balances.length;
+        }
+        double variance = 0;
+        for (double balance : balances) {
+            variance += (balance - mean) * (balance - mean) / balances.length;
+        }
+        assertThat(summary.getCount()).isEqualTo(balances.length);
+        assertThat(summary.getMean()).isCloseTo(mean, within(1e-6 * Math.max(1, mean)));
+        assertThat(summary.getVariance()).isCloseTo(variance, within(1e-6 * Math.max(1, variance)));
+        double p99 = balances[(int) Math.floor(0.99 * (balances.length - 1))];
+        assertThat(summary.getPercentiles().get("p99")).isCloseTo(p99, within(0.01 * p99 + QuantileSketch.ZERO_THRESHOLD));
+        double p50 = balances[(int) Math.floor(0.5 * (balances.length - 1))];
+        assertThat(summary.getPercentiles().get("p50")).isCloseTo(p50, within(0.01 * p50 + QuantileSketch.ZERO_THRESHOLD));
+        long[] expected = new long[7];
+        double[] bounds = {0, 100, 1000, 10000, 100000, 1000000};
+        for (double balance : balances) {
+            int bucket = 0;
+            while (bucket < bounds.length && balance > bounds[bucket]) {
+                bucket++;
+            }
+            expected[bucket]++;
+        }
+        assertThat(summary.getHistogram().stream().mapToLong(HistogramBucket::getCount).toArray()).isEqualTo(expected);
+    }
+
+    private Account randomAccount(long id) {
+        return new Account(id, "owner" + id, random.nextInt(20) == 0 ? 0 : random.nextInt(200_000),
+                "PLN", "ACTIVE", null, TYPES[random.nextInt(TYPES.length)]);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.minibank.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class QuantileSketchTest {
+
+    private static final double[] QUANTILES = {0, 0.01, 0.25, 0.5, 0.9, 0.99, 0.999, 1};
+
+    private final Random random = new Random(3);
+
+    @Test
+    public void quantilesStayWithinRelativeAccuracy() {
+        QuantileSketch sketch = new QuantileSketch(0.01, 2048);
+        double[] values = new double[50_000];
+        for (int i = 0; i < values.length; i++) {
+            // rozkład o długim ogonie, kilka rzędów wielkości, trochę zer i sald ujemnych
+            values[i] = random.nextInt(50) == 0 ? 0 : Math.exp(random.nextGaussian() * 3 + 6) * (random.nextInt(100) == 0 ? -1 : 1);
+            sketch.add(values[i]);
+        }
+        assertWithinAccuracy(sketch, values, 0.01);
+    }
+
+    @Test
+    public void removeAndMergeMatchSingleSketch() {
+        QuantileSketch left = new QuantileSketch(0.02, 512);
+        QuantileSketch right = new QuantileSketch(0.02, 512);
+        List<Double> kept = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            double value = random.nextDouble() * 100_000;
+            QuantileSketch target = i % 2 == 0 ? left : right;
+            target.add(value);
+            if (random.nextInt(3) == 0) {
+                target.remove(value);
+            } else {
+                kept.add(value);
+            }
+        }
+        QuantileSketch merged = left.copy();
+        merged.merge(QuantileSketch.fromState(right.state()));
+        assertThat(merged.count()).isEqualTo(kept.size());
+        assertWithinAccuracy(merged, kept.stream().mapToDouble(Double::doubleValue).toArray(), 0.02);
+    }
+
+    @Test
+    public void bucketCountIsBounded() {
+        QuantileSketch sketch = new QuantileSketch(0.01, 64);
+        for (int exponent = -2; exponent <= 12; exponent++) {
+            sketch.add(Math.pow(10, exponent));
+        }
+        SketchState state = sketch.state();
+        assertThat(state.getPositiveCounts().length).isLessThanOrEqualTo(64);
+        assertThat(sketch.count()).isEqualTo(15);
+        // najwyższe wartości nie tracą dokładności - sklejane są tylko najmniejsze kubełki
+        assertThat(sketch.quantile(1)).isCloseTo(1e12, within(1e10));
+    }
+
+    private static void assertWithinAccuracy(QuantileSketch sketch, double[] values, double accuracy) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            double tolerance = Math.max(accuracy * Math.abs(exact), QuantileSketch.ZERO_THRESHOLD);
+            assertThat(sketch.quantile(q)).as("q=" + q).isCloseTo(exact, within(tolerance));
+        }
+    }
+}
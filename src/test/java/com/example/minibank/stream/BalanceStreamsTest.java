@@ -0,0 +1,167 @@
+package com.example.minibank.stream;
+
+import com.example.minibank.Account;
+import com.example.minibank.AccountService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class BalanceStreamsTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private BalanceStreams streams;
+
+    // klient dostaje saldo początkowe, potem zmiany po przelewie i usunięciu konta
+    @Test
+    public void streamsInitialBalanceAndChanges() throws Exception {
+        accountService.addAccount(new Account(9001L, "Stream A", 1000, "PLN", "ACTIVE", null, "CHECKING"));
+        accountService.addAccount(new Account(9002L, "Stream B", 200, "PLN", "ACTIVE", null, "CHECKING"));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/accounts/stream?ids=9001,9002"))
+                .header("Accept", "text/event-stream")
+                .build();
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofLines());
+        assertThat(response.statusCode()).isEqualTo(200);
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> {
+            try {
+                response.body().forEach(lines::add);
+            } catch (UncheckedIOException e) {
+                // strumień zamknięty na końcu testu
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+
+        assertThat(nextData(lines)).contains("\"balance\":");
+        assertThat(nextData(lines)).contains("\"balance\":");
+        assertThat(streams.subscriberCount()).isGreaterThanOrEqualTo(1);
+
+        accountService.transfer(9001L, 9002L, 300);
+        List<String> afterTransfer = List.of(nextData(lines), nextData(lines));
+        assertThat(afterTransfer).anyMatch(data -> data.contains("\"accountId\":9001") && data.contains("\"balance\":700.0"));
+        assertThat(afterTransfer).anyMatch(data -> data.contains("\"accountId\":9002") && data.contains("\"balance\":500.0"));
+
+        accountService.deleteAccount(9002L);
+        assertThat(nextData(lines)).isEqualTo("data:{\"accountId\":9002}");
+        response.body().close();
+    }
+
+    // klient, który nie nadąża, dostaje tylko ostatnie saldo każdego konta
+    @Test
+    public void slowSubscriberGetsLatestValueOnly() throws IOException {
+        List<BalanceUpdate> delivered = new ArrayList<>();
+        SseEmitter emitter = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                builder.build().stream()
+                        .filter(part -> part.getData() instanceof BalanceUpdate)
+                        .forEach(part -> delivered.add((BalanceUpdate) part.getData()));
+            }
+        };
+        List<Runnable> queued = new ArrayList<>();
+        LongAdder coalesced = new LongAdder();
+        BalanceSubscriber subscriber = new BalanceSubscriber(emitter, new long[]{1, 2}, queued::add, new LongAdder(), coalesced);
+
+        for (int i = 1; i <= 100; i++) {
+            subscriber.offer(new BalanceUpdate(1, (double) i, "PLN"));
+        }
+        subscriber.offer(new BalanceUpdate(2, 5.0, "PLN"));
+        // wysyłka zlecona tylko raz, mimo 101 zmian
+        assertThat(queued).hasSize(1);
+        queued.remove(0).run();
+
+        assertThat(delivered).hasSize(2);
+        assertThat(delivered).anyMatch(update -> update.getAccountId() == 1 && update.getBalance() == 100.0);
+        assertThat(delivered).anyMatch(update -> update.getAccountId() == 2 && update.getBalance() == 5.0);
+        assertThat(coalesced.sum()).isEqualTo(99);
+    }
+
+    @Test
+    public void stalledSubscriberIsDisconnected() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Throwable> completedWith = new AtomicReference<>();
+        SseEmitter emitter = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                writing.countDown();
+                // klient nie odbiera - zapis stoi, aż połączenie zostanie zamknięte
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public synchronized void completeWithError(Throwable ex) {
+                completedWith.set(ex);
+            }
+        };
+        AtomicInteger stallsEnded = new AtomicInteger();
+        ExecutorService sender = Executors.newSingleThreadExecutor();
+        try {
+            BalanceSubscriber subscriber = new BalanceSubscriber(emitter, new long[]{1}, sender, new LongAdder(),
+                    new LongAdder(), stallsEnded::incrementAndGet);
+            subscriber.offer(new BalanceUpdate(1, 10.0, "PLN"));
+            assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+
+            long timeout = TimeUnit.SECONDS.toNanos(5);
+            assertThat(subscriber.expireStalled(System.nanoTime(), timeout)).isFalse();
+            assertThat(subscriber.expireStalled(System.nanoTime() + timeout, timeout)).isTrue();
+            // tylko raz
+            assertThat(subscriber.expireStalled(System.nanoTime() + timeout, timeout)).isFalse();
+            subscriber.offer(new BalanceUpdate(1, 20.0, "PLN"));
+
+            release.countDown();
+            sender.shutdown();
+            assertThat(sender.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(stallsEnded.get()).isEqualTo(1);
+            assertThat(completedWith.get()).isInstanceOf(IOException.class);
+        } finally {
+            release.countDown();
+            sender.shutdownNow();
+        }
+    }
+
+    private static String nextData(BlockingQueue<String> lines) throws InterruptedException {
+        while (true) {
+            String line = lines.poll(10, TimeUnit.SECONDS);
+            assertThat(line).as("no event within 10 s").isNotNull();
+            if (line.startsWith("data:")) {
+                return line;
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.minibank.transfer;
+
+import com.example.minibank.Account;
+import com.example.minibank.AccountService;
+import com.example.minibank.TransferOutcome;
+import com.example.minibank.exception.TransferBacklogFullException;
+import com.example.minibank.exception.TransferTicketNotFoundException;
+import com.example.minibank.metrics.AccountMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncTransferTest {
+
+    private AccountService accountService;
+
+    @BeforeEach
+    public void setUp() {
+        accountService = new AccountService(AccountMetrics.noop());
+        accountService.addAccount(new Account(1L, "Alice", 1000, "PLN", "ACTIVE", null, "SAVINGS"));
+        accountService.addAccount(new Account(2L, "Bob", 500, "PLN", "ACTIVE", null, "CHECKING"));
+    }
+
+    // wiele przelewów w toku naraz, każdy z własnym wynikiem
+    @Test
+    public void submittedTransfersCompleteWithOutcome() throws Exception {
+        List<TransferTicket> tickets = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tickets.add(accountService.submitTransfer(1L, 2L, 10));
+        }
+        TransferTicket failed = accountService.submitTransfer(2L, 99L, 10);
+
+        for (TransferTicket ticket : tickets) {
+            TransferTicket done = accountService.awaitTransfer(ticket.getId(), Duration.ofSeconds(5)).get(10, TimeUnit.SECONDS);
+            assertThat(done.getState()).isEqualTo(TransferTicket.State.COMPLETED);
+            assertThat(done.getOutcome()).isEqualTo(TransferOutcome.SUCCESS);
+            assertThat(done.getCompletedAt()).isNotNull();
+        }
+        assertThat(failed.done().get(10, TimeUnit.SECONDS).getOutcome()).isEqualTo(TransferOutcome.ACCOUNT_NOT_FOUND);
+        assertThat(accountService.getAccountById(1L).orElseThrow().getBalance()).isEqualTo(500.0);
+        assertThat(accountService.getAccountById(2L).orElseThrow().getBalance()).isEqualTo(1000.0);
+        assertThat(accountService.getTransactions(1L, null, null, null, 100).getTransactions()).hasSize(51);
+    }
+
+    @Test
+    public void awaitReturnsPendingTicketAfterWait() throws Exception {
+        TransferTickets tickets = new TransferTickets(AccountMetrics.noop());
+        TransferTicket ticket = tickets.open(1L, 2L, 10);
+
+        CompletableFuture<TransferTicket> polled = tickets.await(ticket.getId(), Duration.ofMillis(50));
+        assertThat(polled.get(5, TimeUnit.SECONDS).getState()).isEqualTo(TransferTicket.State.PENDING);
+
+        CompletableFuture<TransferTicket> waiting = tickets.await(ticket.getId(), Duration.ofSeconds(10));
+        assertThat(waiting).isNotDone();
+        tickets.complete(ticket, TransferOutcome.SUCCESS);
+        assertThat(waiting.get(5, TimeUnit.SECONDS).getOutcome()).isEqualTo(TransferOutcome.SUCCESS);
+        tickets.destroy();
+    }
+
+    @Test
+    public void rejectsSubmissionsAboveMaxPendingAndUnknownIds() {
+        TransferTickets tickets = new TransferTickets(AccountMetrics.noop(), 2, 1, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        TransferTicket first = tickets.open(1L, 2L, 10);
+        tickets.open(1L, 2L, 10);
+
+        assertThatThrownBy(() -> tickets.open(1L, 2L, 10)).isInstanceOf(TransferBacklogFullException.class);
+        tickets.complete(first, TransferOutcome.SUCCESS);
+        assertThat(tickets.open(1L, 2L, 10)).isNotNull();
+        assertThatThrownBy(() -> tickets.get("missing")).isInstanceOf(TransferTicketNotFoundException.class);
+        tickets.destroy();
+    }
+}